@@ -1,27 +1,41 @@
 package edu.smu.smusql;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Queue;
 
-public class AVLTree<E extends Comparable<E>>{
+public class AVLTree<K extends Comparable<K>, V> {
 
     // Inner class representing a node in the AVL Tree
     class AVLNode {
-        private E key;
+        private K key;
         private int height;
         private AVLNode left;
         private AVLNode right;
-        private E element;
+        private V value;
 
-        AVLNode(E key, E element) {
-            this.element = element;
+        AVLNode(K key, V value) {
+            this.value = value;
             this.key = key;
             this.height = 1;
         }
     }
 
     private AVLNode root;
+    private int size;
+    private final Trace trace;
+
+    public AVLTree() {
+        this(new Trace());
+    }
+
+    public AVLTree(Trace trace) {
+        this.trace = trace;
+    }
 
     /* ================= Utility Methods ================= */
 
@@ -32,7 +46,7 @@ public class AVLTree<E extends Comparable<E>>{
             return node.height;
         }
     }
-    
+
     private int balanceFactor(AVLNode node) {
         if (node == null) {
             return 0;
@@ -40,7 +54,7 @@ public class AVLTree<E extends Comparable<E>>{
             return height(node.left) - height(node.right);
         }
     }
-    
+
     private void updateHeight(AVLNode node) {
         if (node != null) {
             int leftHeight = height(node.left);
@@ -57,10 +71,38 @@ public class AVLTree<E extends Comparable<E>>{
         return current;
     }
 
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Whether every stored height is right and no node's subtrees differ in height by more
+    // than one; walks the whole tree, so it is meant for tests
+    boolean isBalanced() {
+        return checkedHeight(root) != -1;
+    }
+
+    // The subtree's height, or -1 if it breaks the AVL invariant anywhere
+    private int checkedHeight(AVLNode node) {
+        if (node == null) {
+            return 0;
+        }
+        int leftHeight = checkedHeight(node.left);
+        int rightHeight = checkedHeight(node.right);
+        if (leftHeight == -1 || rightHeight == -1 || Math.abs(leftHeight - rightHeight) > 1
+                || node.height != Math.max(leftHeight, rightHeight) + 1) {
+            return -1;
+        }
+        return node.height;
+    }
+
     /* ================= Rotation Methods ================= */
 
     private AVLNode rightRotate(AVLNode y) {
-        
+
         AVLNode x = y.left;
         AVLNode T2 = x.right;
 
@@ -69,12 +111,13 @@ public class AVLTree<E extends Comparable<E>>{
 
         updateHeight(y);
         updateHeight(x);
+        trace.countRotation();
 
         return x;
     }
 
     private AVLNode leftRotate(AVLNode x) {
-        
+
         AVLNode y = x.right;
         AVLNode T2 = y.left;
 
@@ -83,29 +126,36 @@ public class AVLTree<E extends Comparable<E>>{
 
         updateHeight(x);
         updateHeight(y);
+        trace.countRotation();
 
         return y;
     }
 
     /* ================= Insert Operations ================= */
 
-    public void insert(E element, E key) {
-        root = insertRec(root, key, element);
+    // Returns false (and leaves the tree unchanged) if the key is already present
+    public boolean insert(K key, V value) {
+        int before = size;
+        root = insertRec(root, key, value);
 
-        System.out.println("AVL Insert: Key = " + key + ", Element = " + element);
+        if (trace.isEnabled()) {
+            trace.event("AVL Insert: Key = " + key);
+        }
 
+        return size > before;
     }
 
-    private AVLNode insertRec(AVLNode node, E key, E element) {
+    private AVLNode insertRec(AVLNode node, K key, V value) {
         if (node == null) {
-            
-            return new AVLNode(key, element);
+            size++;
+            return new AVLNode(key, value);
         }
 
-        if (key.compareTo(node.key) < 0) {
-            node.left = insertRec(node.left, key, element);
-        } else if (key.compareTo(node.key) > 0) {
-            node.right = insertRec(node.right, key, element);
+        int comparison = key.compareTo(node.key);
+        if (comparison < 0) {
+            node.left = insertRec(node.left, key, value);
+        } else if (comparison > 0) {
+            node.right = insertRec(node.right, key, value);
         } else {
             return node; // Duplicate keys are not allowed
         }
@@ -116,20 +166,30 @@ public class AVLTree<E extends Comparable<E>>{
 
     /* ================= Delete Operations ================= */
 
-    public void delete(E key) {
+    // Returns the value that was stored under the key, or null if there was none
+    public V delete(K key) {
+        V value = search(key);
+        if (value == null) {
+            return null;
+        }
         root = deleteRec(root, key);
-        System.out.println("AVL Delete: Key = " + key);
+        size--;
+        if (trace.isEnabled()) {
+            trace.event("AVL Delete: Key = " + key);
+        }
 
+        return value;
     }
 
-    private AVLNode deleteRec(AVLNode node, E key) {
+    private AVLNode deleteRec(AVLNode node, K key) {
         if (node == null) {
             return node;
         }
 
-        if (key.compareTo(node.key) < 0) {
+        int comparison = key.compareTo(node.key);
+        if (comparison < 0) {
             node.left = deleteRec(node.left, key);
-        } else if (key.compareTo(node.key) > 0) {
+        } else if (comparison > 0) {
             node.right = deleteRec(node.right, key);
         } else {
             if (node.left == null) return node.right;
@@ -137,7 +197,7 @@ public class AVLTree<E extends Comparable<E>>{
 
             AVLNode temp = minValueNode(node.right);
             node.key = temp.key;
-            node.element = temp.element;
+            node.value = temp.value;
             node.right = deleteRec(node.right, temp.key);
         }
 
@@ -145,7 +205,7 @@ public class AVLTree<E extends Comparable<E>>{
         return balanceNode(node);
     }
 
-    
+
 
     /* ================= Balancing Method ================= */
 
@@ -155,10 +215,10 @@ public class AVLTree<E extends Comparable<E>>{
         // Left-heavy
         if (balance > 1) {
             if (balanceFactor(node.left) >= 0) {
-                
+
                 return rightRotate(node); // Left-Left case
             } else {
-                
+
                 node.left = leftRotate(node.left); // Left-Right case
                 return rightRotate(node);
             }
@@ -167,10 +227,10 @@ public class AVLTree<E extends Comparable<E>>{
         // Right-heavy
         if (balance < -1) {
             if (balanceFactor(node.right) <= 0) {
-                
+
                 return leftRotate(node); // Right-Right case
             } else {
-                
+
                 node.right = rightRotate(node.right); // Right-Left case
                 return leftRotate(node);
             }
@@ -181,44 +241,132 @@ public class AVLTree<E extends Comparable<E>>{
 
     /* ================= Search Operations ================= */
 
-    public E search(E key) {
-        AVLNode node = searchRecursive(root, key);
-        System.out.println("AVL Search: Key = " + key);
-
-        if (node != null) {
-            return node.element;
-        } else {
-            return null;
+    // Iterative descent, so lookups need no stack frames per level
+    public V search(K key) {
+        trace.countIndexProbe();
+        AVLNode node = root;
+        while (node != null) {
+            int comparison = key.compareTo(node.key);
+            if (comparison == 0) {
+                return node.value;
+            }
+            node = comparison < 0 ? node.left : node.right;
         }
+        return null;
     }
-    
-    private AVLNode searchRecursive(AVLNode node, E key) {
-        if (node == null || node.key == key) {
-            return node;
+
+    public boolean containsKey(K key) {
+        return search(key) != null;
+    }
+
+    // Smallest key greater than or equal to the given key, or null if there is none
+    public K ceiling(K key) {
+        K result = null;
+        AVLNode node = root;
+        while (node != null) {
+            int comparison = key.compareTo(node.key);
+            if (comparison == 0) {
+                return node.key;
+            }
+            if (comparison < 0) {
+                result = node.key;
+                node = node.left;
+            } else {
+                node = node.right;
+            }
         }
-        if (key.compareTo(node.key) < 0) {
-            return searchRecursive(node.left, key);
-        } else {
-            return searchRecursive(node.right, key);
+        return result;
+    }
+
+    // Largest key less than or equal to the given key, or null if there is none
+    public K floor(K key) {
+        K result = null;
+        AVLNode node = root;
+        while (node != null) {
+            int comparison = key.compareTo(node.key);
+            if (comparison == 0) {
+                return node.key;
+            }
+            if (comparison > 0) {
+                result = node.key;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
         }
+        return result;
     }
 
-    /* ================= Traversal Operations ================= */
+    /* ================= Range Operations ================= */
 
-    /* ================= Traversal Operations ================= */
+    // Values whose keys lie between lo and hi in key order; a null bound leaves that side open.
+    // The iterator walks the tree with an explicit stack and only visits nodes inside the range.
+    public Iterable<V> range(K lo, boolean loInclusive, K hi, boolean hiInclusive) {
+        return () -> {
+            trace.countIndexProbe();
+            return new RangeIterator(lo, loInclusive, hi, hiInclusive);
+        };
+    }
 
-    public List<E> inorderTraversal() {
-        List<E> elements = new ArrayList<>();
-        inorderTraversalRec(root, elements);
-        return elements;
+    // All values in key order
+    public Iterable<V> values() {
+        return () -> new RangeIterator(null, true, null, true);
     }
 
-    private void inorderTraversalRec(AVLNode node, List<E> elements) {
-        if (node != null) {
-            inorderTraversalRec(node.left, elements);
-            elements.add(node.element);
-            inorderTraversalRec(node.right, elements);
+    private class RangeIterator implements Iterator<V> {
+        private final Deque<AVLNode> stack = new ArrayDeque<>();
+        private final K hi;
+        private final boolean hiInclusive;
+
+        RangeIterator(K lo, boolean loInclusive, K hi, boolean hiInclusive) {
+            this.hi = hi;
+            this.hiInclusive = hiInclusive;
+            // stack the path to the first key inside the lower bound
+            AVLNode node = root;
+            while (node != null) {
+                int comparison = lo == null ? -1 : lo.compareTo(node.key);
+                if (comparison < 0 || comparison == 0 && loInclusive) {
+                    stack.push(node);
+                    node = node.left;
+                } else {
+                    node = node.right;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (stack.isEmpty()) {
+                return false;
+            }
+            if (hi == null) {
+                return true;
+            }
+            int comparison = stack.peek().key.compareTo(hi);
+            return comparison < 0 || comparison == 0 && hiInclusive;
+        }
+
+        @Override
+        public V next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            AVLNode node = stack.pop();
+            for (AVLNode next = node.right; next != null; next = next.left) {
+                stack.push(next);
+            }
+            return node.value;
+        }
+    }
+
+    /* ================= Traversal Operations ================= */
+
+    public List<V> inorderTraversal() {
+        List<V> values = new ArrayList<>(size);
+        for (V value : values()) {
+            values.add(value);
         }
+        return values;
     }
 
     // Level-order traversal to show the tree structure
@@ -239,4 +387,4 @@ public class AVLTree<E extends Comparable<E>>{
             System.out.println();
         }
     }
-}
\ No newline at end of file
+}
@@ -8,13 +8,22 @@ import java.util.Set;
 public class Database {
 
     private Map<String, Table> tables = new HashMap<>(); // Store tables by name
+    private final Trace trace; // shared with every table
+
+    public Database() {
+        this(new Trace());
+    }
+
+    public Database(Trace trace) {
+        this.trace = trace;
+    }
 
     // Method to create a new table
     public void createTable(String tableName, List<String> columns) {
         if (tables.containsKey(tableName)) {
             throw new IllegalArgumentException("Table already exists");
         }
-        tables.put(tableName, new Table(tableName, columns));
+        tables.put(tableName, new Table(tableName, columns, trace));
     }
 
     // Method to retrieve a table by name
@@ -1,42 +1,122 @@
 package edu.smu.smusql;
 
+import java.io.IOException;
 import java.lang.reflect.Array;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
 
 public class Engine {
-    private Database database = new Database();
+    private final Trace trace = new Trace();
+    private Database database = new Database(trace);
     private Parser parser = new Parser();
+    private WriteAheadLog log; // null for a purely in-memory engine
+    // SELECTs share it, every change holds it exclusively; see executeSQL
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public Engine() {
+    }
+
+    // An engine whose changes survive a restart: the statements already in the log are replayed
+    // into the database, then every successful CREATE, INSERT, UPDATE and DELETE is appended to it.
+    // See WriteAheadLog for commitIntervalMillis.
+    public Engine(Path logFile, long commitIntervalMillis) throws IOException {
+        log = WriteAheadLog.open(logFile, commitIntervalMillis, this::executeSQL);
+    }
 
     public Database getDatabase() {
         return database;
     }
 
+    // Forces the log and closes it; an in-memory engine has nothing to close
+    public void close() throws IOException {
+        if (log != null) {
+            log.close();
+        }
+    }
+
+    // Diagnostics sink and counters; tracing is off until a sink is set
+    public Trace getTrace() {
+        return trace;
+    }
+
+    // executeSQL and query may be called from several threads at once: SELECTs run together,
+    // and each CREATE, INSERT, UPDATE or DELETE runs alone. The public statement methods below
+    // (insert, update, delete, select, create) take no lock of their own.
     public String executeSQL(String query) {
-        String[] tokens = query.trim().split("\\s+");
-        String command = tokens[0].toUpperCase();
+        List<Token> tokens;
+        try {
+            tokens = Lexer.tokenize(query);
+        } catch (IllegalArgumentException e) {
+            return "ERROR: " + e.getMessage();
+        }
+        if (tokens.isEmpty()) {
+            return "ERROR: Unknown command";
+        }
+        String command = tokens.get(0).getText().toUpperCase();
 
         switch (command) {
             case "CREATE":
-                return create(tokens);
+                return change(query, () -> create(tokens));
             case "INSERT":
-                return insert(tokens);
+                return change(query, () -> insert(tokens));
             case "SELECT":
-                return select(tokens);
+                return read(() -> select(tokens));
             case "UPDATE":
-                return update(tokens);
+                return change(query, () -> update(tokens));
             case "DELETE":
-                return delete(tokens);
+                return change(query, () -> delete(tokens));
             default:
                 return "ERROR: Unknown command";
         }
     }
 
-public String insert(String[] tokens) {
-    if (!tokens[1].equalsIgnoreCase("INTO")) {
+    // Runs a CREATE, INSERT, UPDATE or DELETE with the engine lock held exclusively. A change that
+    // succeeded is appended to the log under the lock, so the log has the changes in the order
+    // they were made, and its commit is waited for once the lock is released, so other writers
+    // can join the same group commit. The statement is in the log before its result is returned.
+    private String change(String query, Supplier<String> statement) {
+        String result;
+        long sequence = -1;
+        lock.writeLock().lock();
+        try {
+            result = statement.get();
+            if (log != null && !result.startsWith("ERROR")) {
+                sequence = log.append(query);
+            }
+        } catch (IOException e) {
+            return "ERROR: Could not write the log: " + e.getMessage();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (sequence != -1) {
+            try {
+                log.awaitCommit(sequence);
+            } catch (IOException e) {
+                return "ERROR: Could not write the log: " + e.getMessage();
+            }
+        }
+        return result;
+    }
+
+    // Runs a SELECT with the engine lock shared, so it never sees a change half made
+    private <T> T read(Supplier<T> select) {
+        lock.readLock().lock();
+        try {
+            return select.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+public String insert(List<Token> tokens) {
+    if (!tokens.get(1).is("INTO")) {
         return "ERROR: Invalid INSERT syntax";
     }
 
-    String tableName = tokens[2];
+    String tableName = tokens.get(2).getText();
     Table table;
     try {
         table = database.getTable(tableName);
@@ -44,20 +124,12 @@ public String insert(String[] tokens) {
         return e.getMessage();
     }
 
-    if (!tokens[3].equalsIgnoreCase("VALUES")) {
+    if (!tokens.get(3).is("VALUES")) {
         return "ERROR: Invalid INSERT syntax";
     }
 
     // Extract values from the tokens
-    String valuesString = String.join(" ", Arrays.copyOfRange(tokens, 4, tokens.length));
-    valuesString = valuesString.replaceAll("[()]", ""); // Remove parentheses
-    String[] valuesArray = valuesString.split(",");
-
-    // Convert valuesArray to a list of objects
-    List<Object> values = new ArrayList<>();
-    for (String value : valuesArray) {
-        values.add(value.trim());
-    }
+    List<Object> values = new ArrayList<>(listBetweenParentheses(tokens, 4));
 
     // Get primary key from values
     String primaryKey = values.get(0).toString(); // Assuming the first value is the primary key
@@ -72,19 +144,18 @@ public String insert(String[] tokens) {
     return "Insertion Successful";
 }
 
-    public String update(String[] tokens) {
-        if (!tokens[2].equalsIgnoreCase("SET")) {
+    public String update(List<Token> tokens) {
+        if (!tokens.get(2).is("SET")) {
             return "ERROR: Invalid UPDATE syntax";
         }
     
-        String tableName = tokens[1];
-        String[] setClause = tokens[3].split("=");
-        if (setClause.length != 2) {
+        String tableName = tokens.get(1).getText();
+        if (tokens.size() < 6 || !tokens.get(4).is("=")) {
             return "ERROR: Invalid SET clause syntax";
         }
     
-        String columnToUpdate = setClause[0].trim();
-        String newValue = setClause[1].trim();
+        String columnToUpdate = tokens.get(3).getText();
+        String newValue = tokens.get(5).getText();
     
         Table table;
         try {
@@ -97,18 +168,31 @@ public String insert(String[] tokens) {
             return "ERROR: Column not found: " + columnToUpdate;
         }
     
-        List<String[]> whereClauseConditions = parser.parseWhereClause(tokens);
-        if (whereClauseConditions.isEmpty()) {
+        if (tokens.size() == 6 || !tokens.get(6).is("WHERE")) {
             return "ERROR: Invalid WHERE clause";
         }
-    
-        Set<Map<String, Object>> matchingRows = evaluateWhereCondition(whereClauseConditions.get(0), table);
-    
-        for (int i = 1; i < whereClauseConditions.size(); i++) {
-            Set<Map<String, Object>> newRows = evaluateWhereCondition(whereClauseConditions.get(i), table);
-            matchingRows.retainAll(newRows); // Use AND for simplicity in this example
+        List<String[]> whereClauseConditions;
+        try {
+            whereClauseConditions = parser.parseWhereClause(tokens);
+        } catch (IllegalArgumentException e) {
+            return "ERROR: " + e.getMessage();
         }
     
+        Set<Map<String, Object>> matchingRows = evaluateWhereConditions(whereClauseConditions, table);
+
+        // a new primary key moves the row in the tree, and must not collide with another row
+        if (columnToUpdate.equals(table.getPrimaryKeyColumn()) && !matchingRows.isEmpty()) {
+            String oldKey = matchingRows.iterator().next().get(columnToUpdate).toString();
+            boolean unchanged = matchingRows.size() == 1 && new PrimaryKey(oldKey).equals(new PrimaryKey(newValue));
+            if (!unchanged && (matchingRows.size() > 1 || table.getRow(newValue) != null)) {
+                return "ERROR: Duplicate primary key: " + newValue;
+            }
+            if (!unchanged) {
+                table.moveRow(oldKey, newValue);
+            }
+            return "1 row(s) updated in " + tableName;
+        }
+
         int updatedRowCount = 0;
         for (Map<String, Object> row : matchingRows) {
             row.put(columnToUpdate, newValue); // Update the column with the new value
@@ -118,12 +202,12 @@ public String insert(String[] tokens) {
         return updatedRowCount + " row(s) updated in " + tableName;
     }
 
-    public String delete(String[] tokens) {
-        if (!tokens[1].equalsIgnoreCase("FROM") || !tokens[3].equalsIgnoreCase("WHERE")) {
+    public String delete(List<Token> tokens) {
+        if (!tokens.get(1).is("FROM") || !tokens.get(3).is("WHERE")) {
             return "ERROR: Invalid DELETE syntax";
         }
 
-        String tableName = tokens[2];
+        String tableName = tokens.get(2).getText();
         Table table;
         try {
             table = database.getTable(tableName);
@@ -138,12 +222,7 @@ public String insert(String[] tokens) {
             return "ERROR: " + e.getMessage();
         }
     
-        Set<Map<String, Object>> rowsToDelete = evaluateWhereCondition(whereClauseConditions.get(0), table);
-    
-        for (int i = 1; i < whereClauseConditions.size(); i++) {
-            Set<Map<String, Object>> newRows = evaluateWhereCondition(whereClauseConditions.get(i), table);
-            rowsToDelete.retainAll(newRows); // Using AND logic for simplicity
-        }
+        Set<Map<String, Object>> rowsToDelete = evaluateWhereConditions(whereClauseConditions, table);
     
         // Collect primary keys to delete
         List<String> primaryKeysToDelete = new ArrayList<>();
@@ -165,47 +244,243 @@ public String insert(String[] tokens) {
         return primaryKeysToDelete.size() + " row(s) deleted from " + tableName;
     }
 
-    public String select(String[] tokens) {
-        if (!tokens[1].equals("*") || !tokens[2].equalsIgnoreCase("FROM")) {
-            return "ERROR: Invalid SELECT syntax";
+    public String select(List<Token> tokens) {
+        try {
+            return ResultWriter.toString(query(tokens));
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
         }
+    }
 
-        String tableName = tokens[3];
-        Table table;
+    // Runs a SELECT and returns a cursor over its rows instead of formatting them;
+    // executeSQL's text for the same query is ResultWriter.toString of the cursor
+    public ResultSet query(String query) {
+        List<Token> tokens;
         try {
-            table = database.getTable(tableName);
+            tokens = Lexer.tokenize(query);
         } catch (IllegalArgumentException e) {
-            return e.getMessage();
+            throw new IllegalArgumentException("ERROR: " + e.getMessage());
+        }
+        if (tokens.isEmpty() || !tokens.get(0).is("SELECT")) {
+            throw new IllegalArgumentException("ERROR: Only SELECT statements return rows");
+        }
+        return read(() -> query(tokens));
+    }
+
+    private ResultSet query(List<Token> tokens) {
+        if (tokens.size() < 4 || !tokens.get(1).is("*") || !tokens.get(2).is("FROM")) {
+            throw new IllegalArgumentException("ERROR: Invalid SELECT syntax");
+        }
+
+        String tableName = tokens.get(3).getText();
+        Table table = database.getTable(tableName);
+
+        // Optional LIMIT n [OFFSET m] at the end; the rest is parsed without it
+        long limit = -1;
+        long offset = 0;
+        for (int i = 4; i < tokens.size(); i++) {
+            if (tokens.get(i).is("LIMIT")) {
+                int end = tokens.size();
+                if (end != i + 2 && (end != i + 4 || !tokens.get(i + 2).is("OFFSET"))) {
+                    throw new IllegalArgumentException("ERROR: Invalid LIMIT syntax");
+                }
+                limit = rowCount(tokens.get(i + 1), "LIMIT");
+                if (end == i + 4) {
+                    offset = rowCount(tokens.get(i + 3), "OFFSET");
+                }
+                tokens = tokens.subList(0, i);
+                break;
+            }
         }
 
-        if (tokens.length == 4) {
-            return table.selectAll().toString(); // Select all rows
+        // Optional ORDER BY column [ASC|DESC] before the LIMIT
+        int orderIndex = -1;
+        for (int i = 4; i < tokens.size() && orderIndex == -1; i++) {
+            if (tokens.get(i).is("ORDER")) {
+                orderIndex = i;
+            }
+        }
+        int whereEnd = orderIndex == -1 ? tokens.size() : orderIndex;
+        if (whereEnd > 4 && !tokens.get(4).is("WHERE")) {
+            throw new IllegalArgumentException("ERROR: Invalid SELECT syntax");
+        }
+        List<String[]> whereClauseConditions;
+        try {
+            whereClauseConditions = parser.parseWhereClause(tokens.subList(0, whereEnd));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("ERROR: " + e.getMessage());
+        }
+
+        String orderColumn = null;
+        boolean descending = false;
+        if (orderIndex != -1) {
+            int end = tokens.size();
+            if (end != orderIndex + 3 && end != orderIndex + 4 || !tokens.get(orderIndex + 1).is("BY")) {
+                throw new IllegalArgumentException("ERROR: Invalid ORDER BY syntax");
+            }
+            orderColumn = tokens.get(orderIndex + 2).getText();
+            if (!table.getColumns().contains(orderColumn)) {
+                throw new IllegalArgumentException("ERROR: Column not found: " + orderColumn);
+            }
+            if (end == orderIndex + 4) {
+                descending = tokens.get(orderIndex + 3).is("DESC");
+                if (!descending && !tokens.get(orderIndex + 3).is("ASC")) {
+                    throw new IllegalArgumentException("ERROR: Invalid ORDER BY syntax");
+                }
+            }
+        } else if (limit != -1 || offset > 0) {
+            // A page of rows needs a fixed order: primary key order, which the tree walk stops early in
+            orderColumn = table.getPrimaryKeyColumn();
+        }
+
+        Iterator<Map<String, Object>> rows;
+        if (orderColumn != null) {
+            // Matching rows, or null when there is no WHERE clause
+            Set<Map<String, Object>> matches = whereEnd > 4 ? evaluateWhereConditions(whereClauseConditions, table) : null;
+            rows = selectOrdered(table, orderColumn, descending, matches, limit, offset).iterator();
+        } else {
+            rows = scan(table, whereEnd > 4 ? whereClauseConditions : List.of());
+        }
+        return new ResultSet(table.getColumns(), rows);
+    }
+
+    // The rows matching the WHERE clause in primary key order, tested a batch at a time as the
+    // cursor is read. If the clause has no OR, its conditions on the primary key bound the walk.
+    private Iterator<Map<String, Object>> scan(Table table, List<String[]> conditions) {
+        PrimaryKey lo = null;
+        PrimaryKey hi = null;
+        boolean loInclusive = true;
+        boolean hiInclusive = true;
+        boolean anded = conditions.stream().noneMatch(condition -> "OR".equals(condition[0]));
+        for (String[] condition : conditions) {
+            if (!anded || condition[0] != null || !condition[1].equals(table.getPrimaryKeyColumn())) {
+                continue;
+            }
+            PrimaryKey bound = new PrimaryKey(condition[3]);
+            String operator = condition[2];
+            boolean lower = operator.equals("=") || operator.equals(">") || operator.equals(">=");
+            boolean upper = operator.equals("=") || operator.equals("<") || operator.equals("<=");
+            // keep the tighter of two bounds on the same side; at a tie the exclusive one
+            int toLo = lo == null ? 1 : bound.compareTo(lo);
+            if (lower && (toLo > 0 || toLo == 0 && operator.equals(">"))) {
+                lo = bound;
+                loInclusive = !operator.equals(">");
+            }
+            int toHi = hi == null ? -1 : bound.compareTo(hi);
+            if (upper && (toHi < 0 || toHi == 0 && operator.equals("<"))) {
+                hi = bound;
+                hiInclusive = !operator.equals("<");
+            }
+        }
+        return table.scan(lo, loInclusive, hi, hiInclusive, row -> matches(conditions, row, table), lock.readLock());
+    }
+
+    // Whether a row satisfies the WHERE clause, by the rules of evaluateWhereConditions
+    private boolean matches(List<String[]> conditions, Map<String, Object> row, Table table) {
+        boolean run = true;
+        for (String[] condition : conditions) {
+            if ("OR".equals(condition[0])) {
+                if (run) {
+                    return true;
+                }
+                run = true;
+            } else if (condition[0] == null && run) {
+                run = test(condition, row, table);
+            }
+        }
+        return run;
+    }
+
+    // One condition on one row; the primary key compares as the tree orders it
+    private boolean test(String[] condition, Map<String, Object> row, Table table) {
+        Object columnValue = row.get(condition[1]);
+        if (columnValue == null) {
+            return false;
+        }
+        String operator = condition[2];
+        if (!table.getPrimaryKeyColumn().equals(condition[1]) || operator.equals("!=")) {
+            return evaluateCondition(columnValue.toString(), operator, condition[3]);
+        }
+        int comparison = new PrimaryKey(columnValue.toString()).compareTo(new PrimaryKey(condition[3]));
+        switch (operator) {
+            case "=":
+                return comparison == 0;
+            case "<":
+                return comparison < 0;
+            case "<=":
+                return comparison <= 0;
+            case ">":
+                return comparison > 0;
+            case ">=":
+                return comparison >= 0;
+            default:
+                return false;
         }
+    }
 
-        List<String[]> whereClauseConditions = parser.parseWhereClause(tokens);
-        Set<Map<String, Object>> rows = evaluateWhereCondition(whereClauseConditions.get(0), table);
+    // Rows in the ORDER BY order, skipping the first offset rows and cut to the limit if there is
+    // one. Ascending on the primary key walks the AVL tree in order and stops once the page is
+    // full; any other order keeps only the first offset + limit rows in a bounded heap instead
+    // of sorting every match.
+    private List<Map<String, Object>> selectOrdered(Table table, String column, boolean descending,
+                                                    Set<Map<String, Object>> matches, long limit, long offset) {
+        if (column.equals(table.getPrimaryKeyColumn()) && !descending) {
+            List<Map<String, Object>> ordered = new ArrayList<>();
+            long skipped = 0;
+            for (Map<String, Object> row : table.getPrimaryKeyTree().values()) {
+                if (limit != -1 && ordered.size() >= limit) {
+                    break;
+                }
+                if (matches != null && !matches.contains(row)) {
+                    continue;
+                }
+                if (skipped < offset) {
+                    skipped++;
+                } else {
+                    ordered.add(row);
+                }
+            }
+            return ordered;
+        }
 
-        for (int i = 1; i < whereClauseConditions.size(); i++) {
-            Set<Map<String, Object>> newRows = evaluateWhereCondition(whereClauseConditions.get(i), table);
-            rows.retainAll(newRows); // AND condition
+        Comparator<Map<String, Object>> order = Comparator.comparing(
+                (Map<String, Object> row) -> sortKey(row.get(column)), ColumnType.VALUE_ORDER);
+        if (descending) {
+            order = order.reversed();
         }
+        Iterator<Map<String, Object>> rows = matches == null
+                ? table.getPrimaryKeyTree().values().iterator()
+                : matches.iterator();
+        List<Map<String, Object>> ordered = TopK.select(rows, limit == -1 ? -1 : offset + limit, order);
+        return ordered.subList((int) Math.min(offset, ordered.size()), ordered.size());
+    }
 
-        return rows.toString();
+    // A LIMIT or OFFSET count
+    private static long rowCount(Token token, String clause) {
+        if (token.getType() != Token.Type.NUMBER || ColumnType.infer(token.getText()) != ColumnType.INT
+                || token.getText().startsWith("-")) {
+            throw new IllegalArgumentException("ERROR: " + clause + " must be a non-negative integer");
+        }
+        return Integer.parseInt(token.getText());
+    }
+
+    // Values are stored as written, so numbers are compared as numbers rather than as text
+    private static Object sortKey(Object value) {
+        String text = value.toString();
+        return ColumnType.infer(text).parse(text);
     }
 
-    public String create(String[] tokens) {
-        if (!tokens[1].equalsIgnoreCase("TABLE")) {
+    public String create(List<Token> tokens) {
+        if (!tokens.get(1).is("TABLE")) {
             return "ERROR: Invalid CREATE TABLE syntax";
         }
 
-        String tableName = tokens[2];
+        String tableName = tokens.get(2).getText();
         if (database.listTables().contains(tableName)) {
             return "ERROR: Table already exists";
         }
         
-        String columnList = queryBetweenParentheses(tokens, 3);
-        List<String> columns = Arrays.asList(columnList.split(","));
-        columns.replaceAll(String::trim); // Remove leading/trailing whitespace
+        List<String> columns = listBetweenParentheses(tokens, 3);
 
         if (columns.isEmpty()) {
             return "ERROR: No columns specified";
@@ -220,16 +495,54 @@ public String insert(String[] tokens) {
 
     // HELPER METHODS
 
-        // Helper method to extract content inside parentheses
-        private String queryBetweenParentheses(String[] tokens, int startIndex) {
-            StringBuilder result = new StringBuilder();
-            for (int i = startIndex; i < tokens.length; i++) {
-                result.append(tokens[i]).append(" ");
+    // Helper method to collect the comma separated items inside parentheses, as written (quotes kept)
+    private List<String> listBetweenParentheses(List<Token> tokens, int startIndex) {
+        List<String> items = new ArrayList<>();
+        StringBuilder item = new StringBuilder();
+        for (int i = startIndex; i < tokens.size(); i++) {
+            Token token = tokens.get(i);
+            if (token.is(",")) {
+                items.add(item.toString());
+                item.setLength(0);
+            } else if (!token.is("(") && !token.is(")")) {
+                if (item.length() > 0) {
+                    item.append(' ');
+                }
+                item.append(token.getText());
             }
-            return result.toString().trim().replaceAll("\\(", "").replaceAll("\\)", "");
         }
+        items.add(item.toString());
+        return items;
+    }
     
 
+    // AND binds tighter than OR: the rows of each run of AND-ed conditions are intersected,
+    // and the runs separated by OR are unioned
+    private Set<Map<String, Object>> evaluateWhereConditions(List<String[]> conditions, Table table) {
+        Set<Map<String, Object>> result = new HashSet<>();
+        Set<Map<String, Object>> rows = null;
+        for (String[] condition : conditions) {
+            if ("OR".equals(condition[0])) {
+                result.addAll(rows);
+                rows = null;
+                continue;
+            }
+            if (condition[0] != null) {
+                continue;
+            }
+            Set<Map<String, Object>> newRows = evaluateWhereCondition(condition, table);
+            if (rows == null) {
+                rows = newRows;
+            } else {
+                rows.retainAll(newRows);
+            }
+        }
+        if (rows != null) {
+            result.addAll(rows);
+        }
+        return result;
+    }
+
     private Set<Map<String, Object>> evaluateWhereCondition(String[] condition, Table table) {
         Set<Map<String, Object>> resultSet = new HashSet<>();
     
@@ -240,8 +553,15 @@ public String insert(String[] tokens) {
         String column = condition[1];
         String operator = condition[2];
         String value = condition[3];
+
+        // conditions on the primary key are answered by the AVL tree instead of a full scan
+        if (table.getPrimaryKeyColumn().equals(column) && !operator.equals("!=")) {
+            resultSet.addAll(table.selectPrimaryKeyRange(operator, value));
+            return resultSet;
+        }
     
-        for (Map<String, Object> row : table.getRows()) {
+        trace.countRowsScanned(table.size());
+        for (Map<String, Object> row : table.getPrimaryKeyTree().values()) {
             Object columnValue = row.get(column);
             if (columnValue != null && evaluateCondition(columnValue.toString(), operator, value)) {
                 resultSet.add(row);
@@ -24,23 +24,23 @@ public class Parser {
     // }
         
 
-    public void parseDelete(String[] tokens) {
+    public void parseDelete(List<Token> tokens) {
         // Eg delete from student where sid = 657889
-        String tableName = tokens[2]; // The name of the table to be deleted from.
+        String tableName = tokens.get(2).getText(); // The name of the table to be deleted from.
 
         List<String[]> whereClauseConditions = new ArrayList<>(); // Array for storing conditions from the where clause.
 
         // Parse WHERE clause conditions
-        if (tokens.length > 3 && tokens[3].toUpperCase().equals("WHERE")) {
-            for (int i = 4; i < tokens.length; i++) {
-                if (tokens[i].toUpperCase().equals("AND") || tokens[i].toUpperCase().equals("OR")) {
+        if (tokens.size() > 3 && tokens.get(3).is("WHERE")) {
+            for (int i = 4; i < tokens.size(); i++) {
+                if (tokens.get(i).is("AND") || tokens.get(i).is("OR")) {
                     // Add AND/OR conditions
-                    whereClauseConditions.add(new String[] {tokens[i].toUpperCase(), null, null, null});
-                } else if (isOperator(tokens[i])) {
+                    whereClauseConditions.add(new String[] {tokens.get(i).getText().toUpperCase(), null, null, null});
+                } else if (isOperator(tokens.get(i).getText())) {
                     // Add condition with operator (column, operator, value)
-                    String column = tokens[i - 1];
-                    String operator = tokens[i];
-                    String value = tokens[i + 1];
+                    String column = tokens.get(i - 1).getText();
+                    String operator = tokens.get(i).getText();
+                    String value = tokens.get(i + 1).getText();
                     whereClauseConditions.add(new String[] {null, column, operator, value});
                     i += 1; // Skip the value since it has been processed
     }
@@ -50,27 +50,27 @@ public class Parser {
     
 
 // Method to parse the UPDATE statement
-public void parseUpdate(String[] tokens) {
+public void parseUpdate(List<Token> tokens) {
 
-    String tableName = tokens[1]; // name of the table to be updated
+    String tableName = tokens.get(1).getText(); // name of the table to be updated
 
-    String setColumn = tokens[3]; // column to be updated
-    String newValue = tokens[5]; // new value for above column
+    String setColumn = tokens.get(3).getText(); // column to be updated
+    String newValue = tokens.get(5).getText(); // new value for above column
     
     // Initialize whereClauseConditions list
     List<String[]> whereClauseConditions = new ArrayList<>();
 
         // Parse WHERE clause conditions
-        if (tokens.length > 6 && tokens[6].equalsIgnoreCase("WHERE")) {
-            for (int i = 5; i < tokens.length; i++) {
-                if (tokens[i].equalsIgnoreCase("AND") || tokens[i].equalsIgnoreCase("OR")) {
+        if (tokens.size() > 6 && tokens.get(6).is("WHERE")) {
+            for (int i = 5; i < tokens.size(); i++) {
+                if (tokens.get(i).is("AND") || tokens.get(i).is("OR")) {
                     // Add AND/OR conditions
-                    whereClauseConditions.add(new String[] {tokens[i].toUpperCase(), null, null, null});
-                } else if (isOperator(tokens[i])) {
+                    whereClauseConditions.add(new String[] {tokens.get(i).getText().toUpperCase(), null, null, null});
+                } else if (isOperator(tokens.get(i).getText())) {
                     // Add condition with operator (column, operator, value)
-                    String column = tokens[i - 1];
-                    String operator = tokens[i];
-                    String value = tokens[i + 1];
+                    String column = tokens.get(i - 1).getText();
+                    String operator = tokens.get(i).getText();
+                    String value = tokens.get(i + 1).getText();
                     whereClauseConditions.add(new String[] {null, column, operator, value});
                     i += 1; // Skip the value since it has been processed
                 }
@@ -80,29 +80,31 @@ public void parseUpdate(String[] tokens) {
 }
 
     // Method to parse the CREATE TABLE statement
-    public List<String> parseCreate(String[] tokens) {
+    public List<String> parseCreate(List<Token> tokens) {
         List<String> columns = new ArrayList<>();        
 
         // Find the starting index of the column definitions
         int startIndex = 3; // Assuming tokens[0] is "CREATE", tokens[1] is "TABLE", tokens[2] is the table name
 
-        for (int i = startIndex; i < tokens.length; i++) {
-            String token = tokens[i].replaceAll("[(),]", "").trim(); // Remove parentheses and commas
-            if (!token.isEmpty()) {
-                columns.add(token);
+        for (int i = startIndex; i < tokens.size(); i++) {
+            Token token = tokens.get(i);
+            if (token.getType() != Token.Type.PUNCTUATION) { // Skip parentheses and commas
+                columns.add(token.getText());
             }
         }
 
         return columns;
     }
 
-public List<String[]> parseWhereClause(String[] tokens) {
+// Conditions of the WHERE clause as written: column operator value, joined by AND or OR.
+// Every token after WHERE has to be part of a condition, anything else is rejected.
+public List<String[]> parseWhereClause(List<Token> tokens) {
     List<String[]> whereClauseConditions = new ArrayList<>();
 
     // Find the starting index of the WHERE clause
     int whereIndex = -1;
-    for (int i = 0; i < tokens.length; i++) {
-        if (tokens[i].equalsIgnoreCase("WHERE")) {
+    for (int i = 0; i < tokens.size(); i++) {
+        if (tokens.get(i).is("WHERE")) {
             whereIndex = i;
             break;
         }
@@ -110,18 +112,31 @@ public List<String[]> parseWhereClause(String[] tokens) {
 
     // If WHERE clause is found, parse the conditions
     if (whereIndex != -1) {
-        for (int i = whereIndex + 1; i < tokens.length; i++) {
-            if (tokens[i].equalsIgnoreCase("AND") || tokens[i].equalsIgnoreCase("OR")) {
-                // Add AND/OR conditions
-                whereClauseConditions.add(new String[] {tokens[i].toUpperCase(), null, null, null});
-            } else if (isOperator(tokens[i])) {
-                // Add condition with operator (column, operator, value)
-                String column = tokens[i - 1];
-                String operator = tokens[i];
-                String value = tokens[i + 1];
-                whereClauseConditions.add(new String[] {null, column, operator, value});
-                i += 1; // Skip the value since it has been processed
+        int i = whereIndex + 1;
+        while (true) {
+            if (i + 2 >= tokens.size()) {
+                throw new IllegalArgumentException("Invalid WHERE clause near "
+                        + (i < tokens.size() ? tokens.get(i).getText() : "end of query"));
             }
+            Token column = tokens.get(i);
+            Token operator = tokens.get(i + 1);
+            Token value = tokens.get(i + 2);
+            if (column.getType() != Token.Type.IDENTIFIER || !isOperator(operator.getText()) || !value.isLiteral()) {
+                throw new IllegalArgumentException("Invalid WHERE clause near " + column.getText());
+            }
+            // <> is the same comparison as !=
+            String op = operator.is("<>") ? "!=" : operator.getText();
+            whereClauseConditions.add(new String[] {null, column.getText(), op, value.getText()});
+            i += 3;
+            if (i == tokens.size()) {
+                break;
+            }
+            if (!tokens.get(i).is("AND") && !tokens.get(i).is("OR")) {
+                throw new IllegalArgumentException("Invalid WHERE clause near " + tokens.get(i).getText());
+            }
+            // Add AND/OR conditions
+            whereClauseConditions.add(new String[] {tokens.get(i).getText().toUpperCase(), null, null, null});
+            i++;
         }
     }
     return whereClauseConditions;
@@ -129,18 +144,10 @@ public List<String[]> parseWhereClause(String[] tokens) {
 }
 
 
-    // Helper method to extract content inside parentheses
-    private String queryBetweenParentheses(String[] tokens, int startIndex) {
-        StringBuilder result = new StringBuilder();
-        for (int i = startIndex; i < tokens.length; i++) {
-            result.append(tokens[i]).append(" ");
-        }
-        return result.toString().trim().replaceAll("\\(", "").replaceAll("\\)", "");
-    }
-
     // Helper method to determine if a string is an operator
     private boolean isOperator(String token) {
-        return token.equals("=") || token.equals(">") || token.equals("<") || token.equals(">=") || token.equals("<=");
+        return token.equals("=") || token.equals("!=") || token.equals("<>")
+                || token.equals(">") || token.equals("<") || token.equals(">=") || token.equals("<=");
     }
 
     }
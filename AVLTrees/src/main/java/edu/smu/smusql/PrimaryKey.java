@@ -0,0 +1,42 @@
+package edu.smu.smusql;
+
+/*
+ * Key of a row in the table's AVL tree. The primary key is kept as written, but keys
+ * compare by their typed value (see ColumnType), so 9 < 10 and range predicates on
+ * numeric ids walk the tree in numeric order.
+ */
+public final class PrimaryKey implements Comparable<PrimaryKey> {
+
+    private final String text;
+    private final Object value;
+
+    public PrimaryKey(String text) {
+        this.text = text;
+        this.value = ColumnType.infer(text).parseLiteral(text);
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    @Override
+    public int compareTo(PrimaryKey other) {
+        return ColumnType.compareValues(value, other.value);
+    }
+
+    // consistent with compareTo: 7 and 7.0 are the same key
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof PrimaryKey && compareTo((PrimaryKey) other) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return value instanceof Number ? Double.hashCode(((Number) value).doubleValue()) : value.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
@@ -1,24 +1,36 @@
 package edu.smu.smusql;
 
 import java.lang.reflect.Method;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Predicate;
 
 
 public class Table {
+    // Rows a cursor tests and hands out per turn of the engine's read lock
+    private static final int READ_BATCH = 256;
+
     private final String tableName;
     private final List<String> columns; // List of column names
     private final String primaryKeyName;
-    private Map<String, Map<String, Object>> rows; // Stores the actual rows, keyed by primary key
-    private AVLTree<String> primaryKeyTree; // AVL Tree to index by primary key (assuming primary key is a String)
+    private AVLTree<PrimaryKey, Map<String, Object>> primaryKeyTree; // Stores the rows, ordered by primary key
+    private final Trace trace;
 
     // Constructor
     public Table(String tableName, List<String> columns) {
+        this(tableName, columns, new Trace());
+    }
+
+    public Table(String tableName, List<String> columns, Trace trace) {
         this.tableName = tableName;
         this.primaryKeyName = columns.get(0);
 
@@ -27,8 +39,8 @@ public class Table {
             throw new IllegalArgumentException("Duplicate column names found");
         }
         this.columns = columns;
-        this.rows = new HashMap<>();
-        this.primaryKeyTree = new AVLTree<>(); 
+        this.trace = trace;
+        this.primaryKeyTree = new AVLTree<>(trace);
     }
 
     // Getters for the table name and columns
@@ -40,16 +52,21 @@ public class Table {
         return columns;
     }
 
+    // All rows in primary key order
     public List<Map<String, Object>> getRows() {
+        return primaryKeyTree.inorderTraversal();
+    }
 
-        return new ArrayList<>();
-
+    public int size() {
+        return primaryKeyTree.size();
     }
 
-    
+    public Trace getTrace() {
+        return trace;
+    }
 
     // Method to get the primary key tree (for checking or debugging)
-    public AVLTree<String> getPrimaryKeyTree() {
+    public AVLTree<PrimaryKey, Map<String, Object>> getPrimaryKeyTree() {
         return primaryKeyTree;
     }
 
@@ -61,7 +78,8 @@ public class Table {
     // Method to insert a row into the table
     public void insertRow(String primaryKey, List<Object> values) {
         
-        if (primaryKeyTree != null && primaryKeyTree.search(primaryKey) != null) {
+        PrimaryKey key = new PrimaryKey(primaryKey);
+        if (primaryKeyTree.containsKey(key)) {
             throw new IllegalArgumentException("Primary key already exists: " + primaryKey);
         }
 
@@ -75,16 +93,13 @@ public class Table {
             row.put(columns.get(i), values.get(i));
         }
 
-        // Insert the row into the table (map of rows)
-        rows.put(primaryKey, row);
+        // Insert the row into the AVL Tree under its primary key
+        primaryKeyTree.insert(key, row);
 
-        // Insert the primary key into the AVL Tree
-        if (primaryKeyTree != null) {
-            primaryKeyTree.insert(primaryKey, primaryKey);
+        if (trace.isEnabled()) {
+            trace.event("Inserting into AVLTree: " + primaryKey);
         }
 
-        System.out.println("Inserting into AVLTree: " + primaryKey);
-
     }
 
     // Method to delete a row by primary key
@@ -98,25 +113,20 @@ public void deleteRow(String primaryKey) {
         throw new IllegalArgumentException("Primary key not found: " + primaryKey);
     }
 */
-    // Remove the row from the table (map of rows)
-    rows.remove(primaryKey);
-
-    // Remove the primary key from the AVL Tree
-    primaryKeyTree.delete(primaryKey);
+    // Remove the row from the AVL Tree
+    primaryKeyTree.delete(new PrimaryKey(primaryKey));
 
-    System.out.println("Deleting from AVLTree: " + primaryKey);
+    if (trace.isEnabled()) {
+        trace.event("Deleting from AVLTree: " + primaryKey);
+    }
 }
 
     // Method to update a row by primary key
     public void updateRow(String primaryKey, Map<String, Object> newValues) {
-        if (primaryKeyTree != null && primaryKeyTree.search(primaryKey) == null) {
-            throw new IllegalArgumentException("Primary key not found: " + primaryKey);
-        }
-
         // Update the row data
-        Map<String, Object> row = rows.get(primaryKey);
+        Map<String, Object> row = primaryKeyTree.search(new PrimaryKey(primaryKey));
         if (row == null) {
-            throw new IllegalArgumentException("Row not found for primary key: " + primaryKey);
+            throw new IllegalArgumentException("Primary key not found: " + primaryKey);
         }
 
         // Update the row with new values (only updating specified columns)
@@ -130,18 +140,129 @@ public void deleteRow(String primaryKey) {
         // The AVL Tree remains unchanged since the primary key is not modified
     }
 
-    // Method to retrieve a row by primary key
-    public Map<String, Object> getRow(String primaryKey) {
-        if (primaryKeyTree != null && primaryKeyTree.search(primaryKey) == null) {
-            return null;
+    // A new primary key moves the row: it is taken out of the tree and inserted again under
+    // the new key, so lookups, ranges and primary key order see it in its new place.
+    // The caller has checked that no other row holds the new key.
+    public void moveRow(String primaryKey, String newPrimaryKey) {
+        Map<String, Object> row = primaryKeyTree.delete(new PrimaryKey(primaryKey));
+        if (row == null) {
+            throw new IllegalArgumentException("Primary key not found: " + primaryKey);
         }
-        return rows.get(primaryKey);
+        row.put(primaryKeyName, newPrimaryKey);
+        primaryKeyTree.insert(new PrimaryKey(newPrimaryKey), row);
 
+        if (trace.isEnabled()) {
+            trace.event("Moving in AVLTree: " + primaryKey + " -> " + newPrimaryKey);
+        }
+    }
+
+    // Method to retrieve a row by primary key
+    public Map<String, Object> getRow(String primaryKey) {
+        return primaryKeyTree.search(new PrimaryKey(primaryKey));
     }
 
     // Method to perform a SELECT (retrieving all rows)
     public Set<Map<String, Object>> selectAll() {
-        return new HashSet<>(rows.values());
+        return new HashSet<>(primaryKeyTree.inorderTraversal());
+    }
+
+    // Rows whose primary key satisfies "key operator value", read from the tree instead of a scan
+    public List<Map<String, Object>> selectPrimaryKeyRange(String operator, String value) {
+        PrimaryKey bound = new PrimaryKey(value);
+        List<Map<String, Object>> result = new ArrayList<>();
+        Iterable<Map<String, Object>> rows;
+        switch (operator) {
+            case "=":
+                Map<String, Object> row = primaryKeyTree.search(bound);
+                if (row != null) {
+                    result.add(row);
+                }
+                return result;
+            case "<":
+                rows = primaryKeyTree.range(null, true, bound, false);
+                break;
+            case "<=":
+                rows = primaryKeyTree.range(null, true, bound, true);
+                break;
+            case ">":
+                rows = primaryKeyTree.range(bound, false, null, true);
+                break;
+            case ">=":
+                rows = primaryKeyTree.range(bound, true, null, true);
+                break;
+            default:
+                throw new IllegalArgumentException("Operator " + operator + " is not a range on the primary key");
+        }
+        for (Map<String, Object> match : rows) {
+            result.add(match);
+        }
+        return result;
+    }
+
+    // A cursor over the rows between lo and hi (null leaves a side open) that pass the filter, in
+    // primary key order. Each batch is read under the given lock, resuming after the last key read,
+    // so the tree may change between batches.
+    public Iterator<Map<String, Object>> scan(PrimaryKey lo, boolean loInclusive, PrimaryKey hi, boolean hiInclusive,
+                                              Predicate<Map<String, Object>> filter, Lock readLock) {
+        return new Scan(lo, loInclusive, hi, hiInclusive, filter, readLock);
+    }
+
+    private final class Scan implements Iterator<Map<String, Object>> {
+        private PrimaryKey from;
+        private boolean fromInclusive;
+        private final PrimaryKey hi;
+        private final boolean hiInclusive;
+        private final Predicate<Map<String, Object>> filter;
+        private final Lock readLock;
+        private final ArrayDeque<Map<String, Object>> batch = new ArrayDeque<>();
+        private boolean exhausted;
+
+        Scan(PrimaryKey lo, boolean loInclusive, PrimaryKey hi, boolean hiInclusive,
+             Predicate<Map<String, Object>> filter, Lock readLock) {
+            this.from = lo;
+            this.fromInclusive = loInclusive;
+            this.hi = hi;
+            this.hiInclusive = hiInclusive;
+            this.filter = filter;
+            this.readLock = readLock;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (batch.isEmpty() && !exhausted) {
+                fill();
+            }
+            return !batch.isEmpty();
+        }
+
+        @Override
+        public Map<String, Object> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return batch.poll();
+        }
+
+        private void fill() {
+            readLock.lock();
+            try {
+                Iterator<Map<String, Object>> rows = primaryKeyTree.range(from, fromInclusive, hi, hiInclusive).iterator();
+                Map<String, Object> row = null;
+                for (int tested = 0; tested < READ_BATCH && rows.hasNext(); tested++) {
+                    row = rows.next();
+                    if (filter.test(row)) {
+                        batch.add(row);
+                    }
+                }
+                exhausted = !rows.hasNext();
+                if (row != null) {
+                    from = new PrimaryKey(row.get(primaryKeyName).toString());
+                    fromInclusive = false;
+                }
+            } finally {
+                readLock.unlock();
+            }
+        }
     }
 
     // Method to perform a SELECT with a WHERE clause (condition on a column)
@@ -151,7 +272,7 @@ public void deleteRow(String primaryKey) {
         }
 
         List<Map<String, Object>> result = new ArrayList<>();
-        for (Map<String, Object> row : rows.values()) {
+        for (Map<String, Object> row : primaryKeyTree.values()) {
             if (value.equals(row.get(columnName))) {
                 result.add(row);
             }
@@ -162,7 +283,7 @@ public void deleteRow(String primaryKey) {
 
     // Optional: Print all rows (for debugging)
     public void printAllRows() {
-        for (Map<String, Object> row : rows.values()) {
+        for (Map<String, Object> row : primaryKeyTree.values()) {
             System.out.println(row);
         }
     }
@@ -0,0 +1,69 @@
+package edu.smu.smusql;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/*
+ * Diagnostics for one Engine: an optional event sink plus counters.
+ * Tracing is off until a sink is set, e.g. engine.getTrace().setSink(System.out::println).
+ * Callers check isEnabled() before building a message, so a disabled trace costs a
+ * null check. The counters are LongAdders, as SELECTs on several threads count at once
+ * and an adder's increments rarely contend.
+ */
+public class Trace {
+
+    private volatile Consumer<String> sink;
+
+    private final LongAdder rowsScanned = new LongAdder();  // rows tested against a WHERE clause
+    private final LongAdder indexProbes = new LongAdder();  // lookups answered by an index or the primary key instead of a scan
+    private final LongAdder rotations = new LongAdder();    // tree rebalancing rotations
+
+    public void setSink(Consumer<String> sink) {
+        this.sink = sink;
+    }
+
+    public boolean isEnabled() {
+        return sink != null;
+    }
+
+    public void event(String message) {
+        if (sink != null) {
+            sink.accept(message);
+        }
+    }
+
+    public void countRowsScanned(long rows) {
+        rowsScanned.add(rows);
+    }
+
+    public void countIndexProbe() {
+        indexProbes.increment();
+    }
+
+    public void countRotation() {
+        rotations.increment();
+    }
+
+    public long getRowsScanned() {
+        return rowsScanned.sum();
+    }
+
+    public long getIndexProbes() {
+        return indexProbes.sum();
+    }
+
+    public long getRotations() {
+        return rotations.sum();
+    }
+
+    public void resetCounters() {
+        rowsScanned.reset();
+        indexProbes.reset();
+        rotations.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "rows scanned=" + getRowsScanned() + ", index probes=" + getIndexProbes() + ", rotations=" + getRotations();
+    }
+}
@@ -0,0 +1,147 @@
+package edu.smu.smusql;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AVLTreeTest {
+
+    private AVLTree<Integer, String> tree;
+
+    // keys 10, 20, ..., 100
+    @BeforeEach
+    public void setUp() {
+        tree = new AVLTree<>();
+        for (int key = 10; key <= 100; key += 10) {
+            tree.insert(key, "v" + key);
+        }
+    }
+
+    @Test
+    public void testSequentialInsertsStayBalanced() {
+        Trace trace = new Trace();
+        AVLTree<Integer, Integer> ascending = new AVLTree<>(trace);
+        for (int key = 0; key < 1000; key++) {
+            assertTrue(ascending.insert(key, key));
+        }
+        assertTrue(ascending.isBalanced());
+        assertTrue(trace.getRotations() > 0);
+        assertEquals(1000, ascending.size());
+        assertFalse(ascending.insert(500, -1)); // duplicate keys leave the tree unchanged
+        assertEquals(500, ascending.search(500));
+        assertEquals(1000, ascending.size());
+    }
+
+    @Test
+    public void testDeletesRebalance() {
+        AVLTree<Integer, Integer> shuffled = new AVLTree<>();
+        List<Integer> keys = new ArrayList<>();
+        for (int key = 0; key < 1000; key++) {
+            keys.add(key);
+        }
+        Collections.shuffle(keys, new Random(7));
+        for (int key : keys) {
+            shuffled.insert(key, key);
+        }
+        // delete every key below 700 except the multiples of 7, which leaves a lopsided tree
+        for (int key : keys) {
+            if (key < 700 && key % 7 != 0) {
+                assertEquals(key, shuffled.delete(key));
+                assertTrue(shuffled.isBalanced(), () -> "unbalanced after deleting " + key);
+            }
+        }
+        assertNull(shuffled.delete(1));
+        assertEquals(100 + 300, shuffled.size());
+
+        List<Integer> expected = new ArrayList<>();
+        for (int key = 0; key < 1000; key++) {
+            if (key >= 700 || key % 7 == 0) {
+                expected.add(key);
+            }
+        }
+        assertEquals(expected, shuffled.inorderTraversal());
+    }
+
+    @Test
+    public void testCeilingAndFloor() {
+        assertEquals(30, tree.ceiling(30));
+        assertEquals(40, tree.ceiling(31));
+        assertEquals(10, tree.ceiling(-5));
+        assertNull(tree.ceiling(101));
+
+        assertEquals(30, tree.floor(30));
+        assertEquals(30, tree.floor(39));
+        assertEquals(100, tree.floor(1000));
+        assertNull(tree.floor(9));
+
+        assertNull(new AVLTree<Integer, String>().ceiling(1));
+        assertNull(new AVLTree<Integer, String>().floor(1));
+    }
+
+    @Test
+    public void testRangesAtTheTreeBounds() {
+        assertEquals(List.of("v10", "v20"), values(tree.range(null, true, 20, true)));
+        assertEquals(List.of("v10"), values(tree.range(null, true, 20, false)));
+        assertEquals(List.of(), values(tree.range(null, true, 10, false)));
+        assertEquals(List.of("v10"), values(tree.range(10, true, 10, true)));
+        assertEquals(List.of(), values(tree.range(10, false, 10, true)));
+
+        assertEquals(List.of("v90", "v100"), values(tree.range(90, true, null, true)));
+        assertEquals(List.of("v100"), values(tree.range(90, false, null, true)));
+        assertEquals(List.of(), values(tree.range(100, false, null, true)));
+        assertEquals(List.of("v100"), values(tree.range(100, true, 100, true)));
+
+        // bounds outside the keys, between keys, and crossed
+        assertEquals(10, values(tree.range(-100, true, 1000, true)).size());
+        assertEquals(List.of("v40", "v50"), values(tree.range(35, true, 55, false)));
+        assertEquals(List.of(), values(tree.range(101, true, null, true)));
+        assertEquals(List.of(), values(tree.range(null, true, 9, true)));
+        assertEquals(List.of(), values(tree.range(60, true, 40, true)));
+        assertEquals(List.of(), values(new AVLTree<Integer, String>().range(null, true, null, true)));
+    }
+
+    @Test
+    public void testRangeAfterDeletes() {
+        tree.delete(10);
+        tree.delete(50);
+        tree.delete(100);
+
+        assertEquals(List.of("v20", "v30", "v40", "v60"), values(tree.range(null, true, 60, true)));
+        assertEquals(List.of("v60"), values(tree.range(50, true, 60, true)));
+        assertEquals(List.of("v90"), values(tree.range(80, false, null, true)));
+        assertEquals(List.of(), values(tree.range(45, true, 55, true)));
+        assertEquals(20, tree.ceiling(10));
+        assertEquals(90, tree.floor(100));
+        assertTrue(tree.isBalanced());
+
+        for (int key = 20; key <= 90; key += 10) {
+            tree.delete(key);
+        }
+        assertTrue(tree.isEmpty());
+        assertEquals(List.of(), values(tree.values()));
+    }
+
+    @Test
+    public void testIteratorEnds() {
+        Iterator<String> values = tree.range(90, true, 95, true).iterator();
+        assertTrue(values.hasNext());
+        assertEquals("v90", values.next());
+        assertFalse(values.hasNext());
+        assertThrows(NoSuchElementException.class, values::next);
+    }
+
+    private static List<String> values(Iterable<String> range) {
+        List<String> values = new ArrayList<>();
+        for (String value : range) {
+            values.add(value);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,70 @@
+package edu.smu.smusql;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DeleteTest {
+
+    private Engine engine;
+
+    @BeforeEach
+    public void setUp() {
+        engine = new Engine();
+        engine.executeSQL("CREATE TABLE student (id, name, gpa)");
+        for (int id = 1; id <= 20; id++) {
+            engine.executeSQL("INSERT INTO student VALUES (" + id + ", 's" + id + "', " + (id % 2 == 0 ? "3.0" : "3.5") + ")");
+        }
+    }
+
+    @Test
+    public void testDeleteByPrimaryKey() {
+        assertEquals("1 row(s) deleted from student", engine.executeSQL("DELETE FROM student WHERE id = 7"));
+        assertEquals(List.of(), ids("SELECT * FROM student WHERE id = 7"));
+        assertEquals("0 row(s) deleted from student", engine.executeSQL("DELETE FROM student WHERE id = 7"));
+        assertEquals("Insertion Successful", engine.executeSQL("INSERT INTO student VALUES (7, 'again', 2.0)"));
+        assertEquals(List.of("7"), ids("SELECT * FROM student WHERE id = 7"));
+    }
+
+    @Test
+    public void testRangeAfterDelete() {
+        assertEquals("5 row(s) deleted from student", engine.executeSQL("DELETE FROM student WHERE id >= 16"));
+        assertEquals("5 row(s) deleted from student", engine.executeSQL("DELETE FROM student WHERE id <= 5"));
+        assertEquals("3 row(s) deleted from student", engine.executeSQL("DELETE FROM student WHERE gpa = 3.5 AND id < 12"));
+
+        // the new smallest and largest keys bound the ranges
+        assertEquals(List.of("6", "8", "10", "12"), ids("SELECT * FROM student WHERE id <= 12 ORDER BY id"));
+        assertEquals(List.of("6", "8"), ids("SELECT * FROM student WHERE id < 10 ORDER BY id"));
+        assertEquals(List.of("15"), ids("SELECT * FROM student WHERE id >= 15"));
+        assertEquals(List.of(), ids("SELECT * FROM student WHERE id > 15"));
+        assertEquals(List.of(), ids("SELECT * FROM student WHERE id < 6"));
+        assertEquals(List.of("6", "8", "10"), ids("SELECT * FROM student LIMIT 3"));
+        assertEquals(List.of("15", "14"), ids("SELECT * FROM student ORDER BY id DESC LIMIT 2"));
+
+        Table table = engine.getDatabase().getTable("student");
+        assertEquals(7, table.size());
+        assertTrue(table.getPrimaryKeyTree().isBalanced());
+    }
+
+    @Test
+    public void testDeleteEveryRow() {
+        assertEquals("20 row(s) deleted from student", engine.executeSQL("DELETE FROM student WHERE id > 0"));
+        assertEquals("[]", engine.executeSQL("SELECT * FROM student"));
+        assertEquals(List.of(), ids("SELECT * FROM student WHERE id >= 1 ORDER BY id"));
+        assertEquals("ERROR: Invalid DELETE syntax", engine.executeSQL("DELETE student WHERE id = 1"));
+        assertEquals("Table not found", engine.executeSQL("DELETE FROM missing WHERE id = 1"));
+    }
+
+    private List<Object> ids(String query) {
+        List<Object> ids = new ArrayList<>();
+        try (ResultSet rows = engine.query(query)) {
+            while (rows.next()) {
+                ids.add(rows.getValue("id"));
+            }
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,138 @@
+package edu.smu.smusql;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SelectTest {
+
+    private Engine engine;
+
+    @BeforeEach
+    public void setUp() {
+        engine = new Engine();
+        engine.executeSQL("CREATE TABLE student (id, name, gpa, age)");
+
+        // inserted out of key order, with ids that sort differently as text
+        engine.executeSQL("INSERT INTO student VALUES (10, 'Emma Wilson', 3.8, 22)");
+        engine.executeSQL("INSERT INTO student VALUES (2, 'Jane Smith', 3.9, 19)");
+        engine.executeSQL("INSERT INTO student VALUES (1, 'John Doe', 3.5, 20)");
+        engine.executeSQL("INSERT INTO student VALUES (9, 'Mark Davis', 3.2, 21)");
+    }
+
+    @Test
+    public void testSelectWithWhere() {
+        assertEquals(List.of("1"), ids("SELECT * FROM student WHERE gpa = 3.5"));
+        assertEquals(List.of("2", "10"), ids("SELECT * FROM student WHERE gpa > 3.5 ORDER BY id"));
+        assertEquals(List.of("1", "9"), ids("SELECT * FROM student WHERE age >= 20 AND gpa < 3.8 ORDER BY id"));
+        assertEquals(List.of("2", "9"), ids("SELECT * FROM student WHERE age < 20 OR gpa < 3.3 ORDER BY id"));
+        assertEquals("[]", engine.executeSQL("SELECT * FROM student WHERE name = 'Nobody'"));
+    }
+
+    @Test
+    public void testPrimaryKeyRangesInKeyOrder() {
+        assertEquals(List.of("9"), ids("SELECT * FROM student WHERE id = 9"));
+        assertEquals(List.of("1", "2", "9"), ids("SELECT * FROM student WHERE id < 10 ORDER BY id"));
+        assertEquals(List.of("9", "10"), ids("SELECT * FROM student WHERE id >= 9 ORDER BY id"));
+
+        // bounds at and beyond the smallest and largest keys
+        assertEquals(List.of("1"), ids("SELECT * FROM student WHERE id <= 1"));
+        assertEquals(List.of(), ids("SELECT * FROM student WHERE id < 1"));
+        assertEquals(List.of("10"), ids("SELECT * FROM student WHERE id >= 10"));
+        assertEquals(List.of(), ids("SELECT * FROM student WHERE id > 10"));
+        assertEquals(List.of(), ids("SELECT * FROM student WHERE id > 100"));
+        assertEquals(4, ids("SELECT * FROM student WHERE id > 0").size());
+    }
+
+    @Test
+    public void testPrimaryKeyBoundsCombine() {
+        assertEquals(List.of("2", "9"), ids("SELECT * FROM student WHERE id > 1 AND id <= 9"));
+        assertEquals(List.of("9", "10"), ids("SELECT * FROM student WHERE id >= 2 AND id > 2 AND id < 100"));
+        assertEquals(List.of(), ids("SELECT * FROM student WHERE id = 2 AND id > 2"));
+        assertEquals(List.of("2"), ids("SELECT * FROM student WHERE id = 2 AND age < 20"));
+        assertEquals(List.of("1", "10"), ids("SELECT * FROM student WHERE id < 2 OR id > 9"));
+        assertEquals(List.of("1", "2", "10"), ids("SELECT * FROM student WHERE id != 9"));
+    }
+
+    @Test
+    public void testCursorReadsBatchesAroundChanges() {
+        engine.executeSQL("CREATE TABLE orders (id, amount)");
+        for (int id = 0; id < 600; id++) {
+            engine.executeSQL("INSERT INTO orders VALUES (" + id + ", " + id % 7 + ")");
+        }
+        List<Object> ids = new ArrayList<>();
+        try (ResultSet rows = engine.query("SELECT * FROM orders WHERE id >= 100")) {
+            for (int i = 0; i < 10 && rows.next(); i++) {
+                ids.add(rows.getValue("id"));
+            }
+
+            // the walk resumes after the last key it read: rows deleted or inserted ahead of
+            // it are skipped or returned, rows behind it are not returned again
+            engine.executeSQL("DELETE FROM orders WHERE id = 500");
+            engine.executeSQL("DELETE FROM orders WHERE id < 150");
+            engine.executeSQL("INSERT INTO orders VALUES (1000, 1)");
+            while (rows.next()) {
+                ids.add(rows.getValue("id"));
+            }
+        }
+
+        List<Object> expected = new ArrayList<>();
+        for (int id = 100; id < 600; id++) {
+            if (id != 500) {
+                expected.add(String.valueOf(id));
+            }
+        }
+        expected.add("1000");
+        assertEquals(expected, ids);
+    }
+
+    @Test
+    public void testOrderByAndLimit() {
+        assertEquals(List.of("1", "2", "9", "10"), ids("SELECT * FROM student ORDER BY id"));
+        assertEquals(List.of("10", "9", "2", "1"), ids("SELECT * FROM student ORDER BY id DESC"));
+        assertEquals(List.of("2", "10", "1"), ids("SELECT * FROM student ORDER BY gpa DESC LIMIT 3"));
+        assertEquals(List.of("2", "9"), ids("SELECT * FROM student LIMIT 2 OFFSET 1"));
+        assertEquals(List.of("9"), ids("SELECT * FROM student WHERE age > 19 ORDER BY age LIMIT 1 OFFSET 1"));
+        assertEquals(List.of(), ids("SELECT * FROM student LIMIT 0"));
+        assertEquals(List.of(), ids("SELECT * FROM student LIMIT 2 OFFSET 4"));
+    }
+
+    @Test
+    public void testCursor() {
+        try (ResultSet rows = engine.query("SELECT * FROM student WHERE id = 2")) {
+            assertEquals(List.of("id", "name", "gpa", "age"), rows.getColumns());
+            assertThrows(IllegalStateException.class, () -> rows.getValue("name"));
+            assertTrue(rows.next());
+            assertEquals("'Jane Smith'", rows.getValue("name"));
+            assertEquals("19", rows.getValue(3));
+            assertThrows(IllegalArgumentException.class, () -> rows.getValue("zip"));
+            assertFalse(rows.next());
+        }
+        assertEquals(engine.executeSQL("SELECT * FROM student WHERE id = 2"),
+                ResultWriter.toString(engine.query("SELECT * FROM student WHERE id = 2")));
+    }
+
+    @Test
+    public void testErrors() {
+        assertEquals("Table not found", engine.executeSQL("SELECT * FROM missing"));
+        assertEquals("ERROR: Invalid SELECT syntax", engine.executeSQL("SELECT name FROM student"));
+        assertEquals("ERROR: Column not found: zip", engine.executeSQL("SELECT * FROM student ORDER BY zip"));
+        assertEquals("ERROR: LIMIT must be a non-negative integer", engine.executeSQL("SELECT * FROM student LIMIT -1"));
+        assertEquals("ERROR: Invalid LIMIT syntax", engine.executeSQL("SELECT * FROM student LIMIT 1 2"));
+        assertThrows(IllegalArgumentException.class, () -> engine.query("DELETE FROM student WHERE id = 1"));
+    }
+
+    // the ids of the rows a SELECT returns, in the order it returns them
+    private List<Object> ids(String query) {
+        List<Object> ids = new ArrayList<>();
+        try (ResultSet rows = engine.query(query)) {
+            while (rows.next()) {
+                ids.add(rows.getValue("id"));
+            }
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,66 @@
+package edu.smu.smusql;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UpdateTest {
+
+    private Engine engine;
+
+    @BeforeEach
+    public void setUp() {
+        engine = new Engine();
+        engine.executeSQL("CREATE TABLE users (id, name, age)");
+        engine.executeSQL("INSERT INTO users VALUES (1, 'Alice', 10)");
+        engine.executeSQL("INSERT INTO users VALUES (2, 'Bob', 20)");
+        engine.executeSQL("INSERT INTO users VALUES (3, 'Carl', 30)");
+    }
+
+    @Test
+    public void testUpdateColumn() {
+        assertEquals("2 row(s) updated in users", engine.executeSQL("UPDATE users SET age = 25 WHERE age >= 20"));
+        assertEquals(List.of("2", "3"), ids("SELECT * FROM users WHERE age = 25 ORDER BY id"));
+        assertEquals("0 row(s) updated in users", engine.executeSQL("UPDATE users SET age = 1 WHERE id = 9"));
+        assertEquals("ERROR: Column not found: zip", engine.executeSQL("UPDATE users SET zip = 1 WHERE id = 1"));
+    }
+
+    @Test
+    public void testUpdatePrimaryKeyMovesTheRow() {
+        assertEquals("1 row(s) updated in users", engine.executeSQL("UPDATE users SET id = 9 WHERE id = 1"));
+
+        assertEquals(List.of("9"), ids("SELECT * FROM users WHERE id = 9"));
+        assertEquals(List.of(), ids("SELECT * FROM users WHERE id = 1"));
+        assertEquals(List.of("2", "3", "9"), ids("SELECT * FROM users ORDER BY id"));
+        assertEquals(List.of("3", "9"), ids("SELECT * FROM users WHERE id > 2 ORDER BY id"));
+        assertEquals(List.of("2", "3"), ids("SELECT * FROM users LIMIT 2"));
+        assertEquals("Insertion Successful", engine.executeSQL("INSERT INTO users VALUES (1, 'Dan', 40)"));
+        assertEquals("ERROR: Primary key already exists: 9", engine.executeSQL("INSERT INTO users VALUES (9, 'Eve', 50)"));
+        assertEquals(List.of("1", "2", "3", "9"), ids("SELECT * FROM users ORDER BY id"));
+    }
+
+    @Test
+    public void testUpdatePrimaryKeyToExistingKeyIsRejected() {
+        assertEquals("ERROR: Duplicate primary key: 2", engine.executeSQL("UPDATE users SET id = 2 WHERE id = 1"));
+        // several rows cannot all take one key; nothing is changed
+        assertEquals("ERROR: Duplicate primary key: 9", engine.executeSQL("UPDATE users SET id = 9 WHERE age >= 10"));
+        assertEquals("1 row(s) updated in users", engine.executeSQL("UPDATE users SET id = 1 WHERE id = 1"));
+
+        assertEquals(List.of("1", "2", "3"), ids("SELECT * FROM users ORDER BY id"));
+        assertEquals(List.of(), ids("SELECT * FROM users WHERE id = 9"));
+        assertTrue(engine.getDatabase().getTable("users").getPrimaryKeyTree().isBalanced());
+    }
+
+    private List<Object> ids(String query) {
+        List<Object> ids = new ArrayList<>();
+        try (ResultSet rows = engine.query(query)) {
+            while (rows.next()) {
+                ids.add(rows.getValue("id"));
+            }
+        }
+        return ids;
+    }
+}
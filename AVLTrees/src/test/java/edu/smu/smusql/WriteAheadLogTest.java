@@ -0,0 +1,51 @@
+package edu.smu.smusql;
+
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WriteAheadLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testRestartReplaysChanges() throws Exception {
+        Path logFile = directory.resolve("smusql.wal");
+        Engine engine = new Engine(logFile, 0);
+        engine.executeSQL("CREATE TABLE student (id, name, gpa)");
+        engine.executeSQL("INSERT INTO student VALUES (1, 'John Doe', 3.5)");
+        engine.executeSQL("INSERT INTO student VALUES (2, 'Jane Smith', 3.9)");
+        engine.executeSQL("INSERT INTO student VALUES (3, 'Mark Davis', 3.2)");
+        engine.executeSQL("UPDATE student SET gpa = 3.7 WHERE id = 1");
+        engine.executeSQL("UPDATE student SET id = 10 WHERE id = 3");
+        engine.executeSQL("UPDATE student SET id = 10 WHERE id >= 1"); // fails, so it is not logged
+        engine.executeSQL("DELETE FROM student WHERE id = 2");
+        String before = engine.executeSQL("SELECT * FROM student ORDER BY id");
+        engine.close();
+
+        Engine restarted = new Engine(logFile, 0);
+        assertEquals(before, restarted.executeSQL("SELECT * FROM student ORDER BY id"));
+        assertEquals("3.7", restarted.getDatabase().getTable("student").getRow("1").get("gpa"));
+        assertEquals("'Mark Davis'", restarted.getDatabase().getTable("student").getRow("10").get("name"));
+        assertEquals(2, restarted.getDatabase().getTable("student").size());
+        restarted.close();
+    }
+
+    @Test
+    public void testGroupCommitOnIntervalIsForcedOnClose() throws Exception {
+        Path logFile = directory.resolve("smusql.wal");
+        Engine engine = new Engine(logFile, 50);
+        engine.executeSQL("CREATE TABLE student (id, name)");
+        for (int i = 0; i < 500; i++) {
+            engine.executeSQL("INSERT INTO student VALUES (" + i + ", 'Student " + i + "')");
+        }
+        engine.close();
+
+        Engine restarted = new Engine(logFile, 50);
+        assertEquals(500, restarted.getDatabase().getTable("student").size());
+        restarted.close();
+    }
+}
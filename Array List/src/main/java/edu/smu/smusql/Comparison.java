@@ -0,0 +1,105 @@
+package edu.smu.smusql;
+
+import java.util.Map;
+
+/*
+ * One "column operator value" condition of a WHERE clause.
+ * The literal is classified once when the condition is built: if it is not a number,
+ * cells are compared as strings straight away and never parsed; if it is, a cell is
+ * parsed only after a character scan has shown that it is numeric too.
+ * No exceptions are thrown or caught while rows are tested.
+ */
+public class Comparison {
+
+    private final String column;
+    private final String operator;
+    private final String literal;
+    private final boolean numericLiteral;
+    private final double number;
+
+    public Comparison(String column, String operator, String literal) {
+        if (!isSupported(operator)) {
+            throw new IllegalArgumentException("Unsupported operator: " + operator);
+        }
+        this.column = column;
+        this.operator = operator;
+        this.literal = literal;
+        this.numericLiteral = isNumeric(literal);
+        this.number = numericLiteral ? Double.parseDouble(literal) : 0;
+    }
+
+    public boolean test(Map<String, Object> row) {
+        Object cellValue = row.get(column);
+        if (cellValue == null) {
+            return false;
+        }
+        String cell = cellValue.toString();
+        int comparison = numericLiteral && isNumeric(cell)
+                ? Double.compare(Double.parseDouble(cell), number)
+                : cell.compareTo(literal);
+        switch (operator) {
+            case "=":
+                return comparison == 0;
+            case "!=":
+                return comparison != 0;
+            case ">":
+                return comparison > 0;
+            case ">=":
+                return comparison >= 0;
+            case "<":
+                return comparison < 0;
+            default:
+                return comparison <= 0;
+        }
+    }
+
+    private static boolean isSupported(String operator) {
+        return operator.equals("=") || operator.equals("!=") || operator.equals(">") || operator.equals(">=")
+                || operator.equals("<") || operator.equals("<=");
+    }
+
+    // Same strings Double.parseDouble accepts for our data: optional sign, digits with one
+    // decimal point, optional exponent and float/double suffix, or NaN/Infinity
+    public static boolean isNumeric(String s) {
+        int length = s.length();
+        int i = 0;
+        if (i < length && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+            i++;
+        }
+        if (s.startsWith("NaN", i) || s.startsWith("Infinity", i)) {
+            return s.length() == i + (s.charAt(i) == 'N' ? 3 : 8);
+        }
+        int digits = 0;
+        boolean point = false;
+        for (; i < length; i++) {
+            char c = s.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits++;
+            } else if (c == '.' && !point) {
+                point = true;
+            } else {
+                break;
+            }
+        }
+        if (digits == 0) {
+            return false;
+        }
+        if (i < length && (s.charAt(i) == 'e' || s.charAt(i) == 'E')) {
+            i++;
+            if (i < length && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+                i++;
+            }
+            int exponentDigits = 0;
+            for (; i < length && s.charAt(i) >= '0' && s.charAt(i) <= '9'; i++) {
+                exponentDigits++;
+            }
+            if (exponentDigits == 0) {
+                return false;
+            }
+        }
+        if (i < length && "fFdD".indexOf(s.charAt(i)) >= 0) {
+            i++;
+        }
+        return i == length;
+    }
+}
@@ -1,36 +1,110 @@
 package edu.smu.smusql;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
 
 public class Engine {
     private Database database = new Database();
     private Parser parser = new Parser();
+    private WriteAheadLog log; // null for a purely in-memory engine
+    // SELECTs share it, every change holds it exclusively; see executeSQL
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public Engine() {
+    }
+
+    // An engine whose changes survive a restart: the statements already in the log are replayed
+    // into the database, then every successful CREATE, INSERT, UPDATE and DELETE is appended to it.
+    // See WriteAheadLog for commitIntervalMillis.
+    public Engine(Path logFile, long commitIntervalMillis) throws IOException {
+        log = WriteAheadLog.open(logFile, commitIntervalMillis, this::executeSQL);
+    }
 
     public Database getDatabase() {
         return database;
     }
 
+    // Forces the log and closes it; an in-memory engine has nothing to close
+    public void close() throws IOException {
+        if (log != null) {
+            log.close();
+        }
+    }
+
+    // executeSQL and query may be called from several threads at once: SELECTs run together,
+    // and each CREATE, INSERT, UPDATE or DELETE runs alone. The public statement methods below
+    // (insert, update, delete, select, create) take no lock of their own.
     public String executeSQL(String query) {
-        String[] tokens = query.trim().split("\\s+");
-        String command = tokens[0].toUpperCase();
+        List<Token> tokens;
+        try {
+            tokens = Lexer.tokenize(query);
+        } catch (IllegalArgumentException e) {
+            return "ERROR: " + e.getMessage();
+        }
+        if (tokens.isEmpty()) {
+            return "ERROR: Unknown command";
+        }
+        String command = tokens.get(0).getText().toUpperCase();
 
         switch (command) {
             case "CREATE":
-                return create(tokens);
+                return change(query, () -> create(tokens));
             case "INSERT":
-                return insert(tokens);
+                return change(query, () -> insert(tokens));
             case "SELECT":
-                return select(tokens);
+                return read(() -> select(tokens));
             case "UPDATE":
-                return update(tokens);
+                return change(query, () -> update(tokens));
             case "DELETE":
-                return delete(tokens);
+                return change(query, () -> delete(tokens));
             default:
                 return "ERROR: Unknown command";
         }
     }
 
-    public String insert(String[] tokens) {
+    // Runs a CREATE, INSERT, UPDATE or DELETE with the engine lock held exclusively. A change that
+    // succeeded is appended to the log under the lock, so the log has the changes in the order
+    // they were made, and its commit is waited for once the lock is released, so other writers
+    // can join the same group commit. The statement is in the log before its result is returned.
+    private String change(String query, Supplier<String> statement) {
+        String result;
+        long sequence = -1;
+        lock.writeLock().lock();
+        try {
+            result = statement.get();
+            if (log != null && !result.startsWith("ERROR")) {
+                sequence = log.append(query);
+            }
+        } catch (IOException e) {
+            return "ERROR: Could not write the log: " + e.getMessage();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (sequence != -1) {
+            try {
+                log.awaitCommit(sequence);
+            } catch (IOException e) {
+                return "ERROR: Could not write the log: " + e.getMessage();
+            }
+        }
+        return result;
+    }
+
+    // Runs a SELECT with the engine lock shared, so it never sees a change half made
+    private <T> T read(Supplier<T> select) {
+        lock.readLock().lock();
+        try {
+            return select.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public String insert(List<Token> tokens) {
         // Parse tokens
         List<Object> parsedData = parser.parseInsert(tokens);
 
@@ -59,13 +133,13 @@ public class Engine {
         return "Insertion Successful";
     }
 
-    public String update(String[] tokens) {
+    public String update(List<Token> tokens) {
         // Check syntax
-        if (!tokens[2].equalsIgnoreCase("SET")) {
+        if (!tokens.get(2).is("SET")) {
             return "ERROR: Invalid UPDATE syntax";
         }
 
-        String tableName = tokens[1];
+        String tableName = tokens.get(1).getText();
 
         Table table = null;
         try {
@@ -75,39 +149,28 @@ public class Engine {
         }
 
         // Parse the columns and values to be updated
-        String updatedColumn = tokens[3];
+        String updatedColumn = tokens.get(3).getText();
         if (!table.getColumns().contains(updatedColumn)) {
             return "ERROR: Column not found: " + updatedColumn;
         }
-        if (!tokens[4].equals("=")) {
+        if (!tokens.get(4).is("=")) {
             return "ERROR: Invalid assignment in SET clause";
         }
-        String updatedValue = tokens[5];
+        String updatedValue = tokens.get(5).getText();
 
         // Check if there's a WHERE clause
         List<String[]> whereClauseConditions = new ArrayList<>();
         List<Boolean> andOrConditions = new ArrayList<>();
 
         // Parse WHERE clause conditions
-        if (tokens.length > 6 && tokens[6].equalsIgnoreCase("WHERE")) {
-            for (int i = 7; i < tokens.length; i++) {
-                if (tokens[i].equalsIgnoreCase("AND")) {
-                    // Store True for AND
-                    andOrConditions.add(true);
-                } else if (tokens[i].equalsIgnoreCase("OR")) {
-                    // Store False for OR
-                    andOrConditions.add(false);
-                } else if (isOperator(tokens[i])) {
-                    // Add condition with operator (column, operator, value)
-                    String column = tokens[i - 1];
-                    if (!table.getColumns().contains(column)) {
-                        return "ERROR: Column not found: " + column;
-                    }
-                    String operator = tokens[i];
-                    String value = tokens[i + 1];
-                    whereClauseConditions.add(new String[]{column, operator, value});
-                    i += 1; // Skip the value since it has been processed
-                }
+        if (tokens.size() > 6) {
+            if (!tokens.get(6).is("WHERE")) {
+                return "ERROR: Invalid UPDATE syntax";
+            }
+            try {
+                parseWhereClause(tokens, 7, table, whereClauseConditions, andOrConditions);
+            } catch (IllegalArgumentException e) {
+                return "ERROR: " + e.getMessage();
             }
         }
 
@@ -115,17 +178,21 @@ public class Engine {
         Set<Map<String, Object>> rowsToUpdate;
         if (whereClauseConditions.isEmpty()) {
             // No WHERE clause: update all rows
-            rowsToUpdate = new HashSet<>(table.getAllRows());
+            rowsToUpdate = new HashSet<>(table.getRowsView());
         } else {
-            rowsToUpdate = evaluateWhereCondition(whereClauseConditions.get(0), table);
-            for (int i = 1; i < whereClauseConditions.size(); i++) {
-                Set<Map<String, Object>> newRows = evaluateWhereCondition(whereClauseConditions.get(i), table);
-                if (andOrConditions.get(i - 1)) {
-                    rowsToUpdate.retainAll(newRows);
-                } else {
-                    rowsToUpdate.addAll(newRows);
-                }
+            rowsToUpdate = evaluateWhereClause(whereClauseConditions, andOrConditions, table);
+        }
+
+        // A new primary key re-points the row's slot in primaryKeyMap, and must not collide
+        // with another row; checked before any row changes
+        if (updatedColumn.equals(table.getPrimaryKey()) && !rowsToUpdate.isEmpty()) {
+            Map<String, Object> row = rowsToUpdate.iterator().next();
+            Map<String, Object> holder = table.getRowByPrimaryKey(updatedValue);
+            if (rowsToUpdate.size() > 1 || holder != null && holder != row) {
+                return "ERROR: Duplicate primary key: " + updatedValue;
             }
+            table.changePrimaryKey(row.get(table.getPrimaryKey()).toString(), updatedValue);
+            return "1 row(s) updated in " + tableName;
         }
 
         // Update the rows
@@ -136,13 +203,13 @@ public class Engine {
         return rowsToUpdate.size() + " row(s) updated in " + tableName;
     }
 
-    public String delete(String[] tokens) {
+    public String delete(List<Token> tokens) {
         // Check syntax
-        if (!tokens[1].equalsIgnoreCase("FROM")) {
+        if (!tokens.get(1).is("FROM")) {
             return "ERROR: Invalid DELETE syntax";
         }
 
-        String tableName = tokens[2];
+        String tableName = tokens.get(2).getText();
 
         // Check if table doesn't exist
         if (!database.listTables().contains(tableName)) {
@@ -162,25 +229,14 @@ public class Engine {
         List<Boolean> andOrConditions = new ArrayList<>();
 
         // Parse WHERE clause conditions
-        if (tokens.length > 3 && tokens[3].equalsIgnoreCase("WHERE")) {
-            for (int i = 4; i < tokens.length; i++) {
-                if (tokens[i].equalsIgnoreCase("AND")) {
-                    // Store True for AND
-                    andOrConditions.add(true);
-                } else if (tokens[i].equalsIgnoreCase("OR")) {
-                    // Store False for OR
-                    andOrConditions.add(false);
-                } else if (isOperator(tokens[i])) {
-                    // Add condition with operator (column, operator, value)
-                    String column = tokens[i - 1];
-                    if (!table.getColumns().contains(column)) {
-                        return "ERROR: Column not found: " + column;
-                    }
-                    String operator = tokens[i];
-                    String value = tokens[i + 1];
-                    whereClauseConditions.add(new String[]{column, operator, value});
-                    i += 1; // Skip the value since it has been processed
-                }
+        if (tokens.size() > 3) {
+            if (!tokens.get(3).is("WHERE")) {
+                return "ERROR: Invalid DELETE syntax";
+            }
+            try {
+                parseWhereClause(tokens, 4, table, whereClauseConditions, andOrConditions);
+            } catch (IllegalArgumentException e) {
+                return "ERROR: " + e.getMessage();
             }
         }
 
@@ -188,17 +244,9 @@ public class Engine {
         Set<Map<String, Object>> rowsToDelete;
         if (whereClauseConditions.isEmpty()) {
             // No WHERE clause: delete all rows
-            rowsToDelete = new HashSet<>(table.getAllRows());
+            rowsToDelete = new HashSet<>(table.getRowsView());
         } else {
-            rowsToDelete = evaluateWhereCondition(whereClauseConditions.get(0), table);
-            for (int i = 1; i < whereClauseConditions.size(); i++) {
-                Set<Map<String, Object>> newRows = evaluateWhereCondition(whereClauseConditions.get(i), table);
-                if (andOrConditions.get(i - 1)) {
-                    rowsToDelete.retainAll(newRows);
-                } else {
-                    rowsToDelete.addAll(newRows);
-                }
-            }
+            rowsToDelete = evaluateWhereClause(whereClauseConditions, andOrConditions, table);
         }
 
         // Delete the matched rows
@@ -210,114 +258,246 @@ public class Engine {
         return rowsToDelete.size() + " row(s) deleted from " + tableName;
     }
 
-    public String select(String[] tokens) {
+    public String select(List<Token> tokens) {
+        try {
+            return ResultWriter.toString(query(tokens));
+        } catch (IllegalArgumentException e) {
+            return "ERROR: " + e.getMessage();
+        }
+    }
+
+    // Runs a SELECT and returns a cursor over its rows instead of formatting them;
+    // executeSQL's text for the same query is ResultWriter.toString of the cursor
+    public ResultSet query(String query) {
+        List<Token> tokens = Lexer.tokenize(query);
+        if (tokens.isEmpty() || !tokens.get(0).is("SELECT")) {
+            throw new IllegalArgumentException("Only SELECT statements return rows");
+        }
+        return read(() -> query(tokens));
+    }
+
+    private ResultSet query(List<Token> tokens) {
         // Check if the query syntax is valid
-        if (!tokens[1].equals("*") || !tokens[2].equalsIgnoreCase("FROM")) {
-            return "ERROR: Invalid SELECT syntax";
+        if (tokens.size() < 4 || !tokens.get(1).is("*") || !tokens.get(2).is("FROM")) {
+            throw new IllegalArgumentException("Invalid SELECT syntax");
         }
 
         // Get the table name from the query
-        String tableName = tokens[3];
+        String tableName = tokens.get(3).getText();
 
         // Check if the table exists in the database
         if (!database.listTables().contains(tableName)) {
-            return "ERROR: No such table";
+            throw new IllegalArgumentException("No such table");
         }
-
-        // Retrieve the table
-        Table table = null;
-        try {
-            table = database.getTable(tableName);
-        } catch (IllegalArgumentException e) {
-            return e.getMessage();
+        Table table = database.getTable(tableName);
+
+        // Optional LIMIT n [OFFSET m] at the end; the rest is parsed without it
+        long limit = -1;
+        long offset = 0;
+        for (int i = 4; i < tokens.size(); i++) {
+            if (tokens.get(i).is("LIMIT")) {
+                int end = tokens.size();
+                if (end != i + 2 && (end != i + 4 || !tokens.get(i + 2).is("OFFSET"))) {
+                    throw new IllegalArgumentException("Invalid LIMIT syntax");
+                }
+                limit = rowCount(tokens.get(i + 1), "LIMIT");
+                if (end == i + 4) {
+                    offset = rowCount(tokens.get(i + 3), "OFFSET");
+                }
+                tokens = tokens.subList(0, i);
+                break;
+            }
         }
 
-        List<String> columns = table.getColumns();
+        // Optional ORDER BY column [ASC|DESC] before the LIMIT
+        String orderColumn = null;
+        boolean descending = false;
+        for (int i = 4; i < tokens.size(); i++) {
+            if (tokens.get(i).is("ORDER")) {
+                int end = tokens.size();
+                if (end != i + 3 && end != i + 4 || !tokens.get(i + 1).is("BY")) {
+                    throw new IllegalArgumentException("Invalid ORDER BY syntax");
+                }
+                orderColumn = tokens.get(i + 2).getText();
+                if (!table.getColumns().contains(orderColumn)) {
+                    throw new IllegalArgumentException("Column not found: " + orderColumn);
+                }
+                if (end == i + 4) {
+                    descending = tokens.get(i + 3).is("DESC");
+                    if (!descending && !tokens.get(i + 3).is("ASC")) {
+                        throw new IllegalArgumentException("Invalid ORDER BY syntax");
+                    }
+                }
+                tokens = tokens.subList(0, i);
+                break;
+            }
+        }
 
         // Initialize whereClauseConditions list
         List<String[]> whereClauseConditions = new ArrayList<>();
         List<Boolean> andOrConditions = new ArrayList<>();
-
-        Set<Map<String, Object>> rows;
-
-        if (tokens.length == 4) {
-            // No WHERE clause: select all rows
-            rows = new HashSet<>(table.getAllRows());
-        } else {
+        if (tokens.size() > 4) {
             // Parse WHERE clause conditions
-            if (tokens.length > 4 && tokens[4].equalsIgnoreCase("WHERE")) {
-                for (int i = 5; i < tokens.length; i++) {
-                    if (tokens[i].equalsIgnoreCase("AND")) {
-                        // Store True for AND
-                        andOrConditions.add(true);
-                    } else if (tokens[i].equalsIgnoreCase("OR")) {
-                        // Store False for OR
-                        andOrConditions.add(false);
-                    } else if (isOperator(tokens[i])) {
-                        // Add condition with operator (column, operator, value)
-                        String column = tokens[i - 1];
-                        if (!table.getColumns().contains(column)) {
-                            return "ERROR: Column not found: " + column;
-                        }
-                        String operator = tokens[i];
-                        String value = tokens[i + 1];
-                        whereClauseConditions.add(new String[]{column, operator, value});
-                        i += 1; // Skip the value since it has been processed
-                    }
-                }
-            }
-
-            if (whereClauseConditions.isEmpty()) {
-                return "ERROR: Invalid WHERE clause";
+            if (!tokens.get(4).is("WHERE")) {
+                throw new IllegalArgumentException("Invalid WHERE clause");
             }
+            parseWhereClause(tokens, 5, table, whereClauseConditions, andOrConditions);
+        }
 
-            rows = evaluateWhereCondition(whereClauseConditions.get(0), table);
+        Iterator<Map<String, Object>> rows;
+        List<Map<String, Object>> primaryKeyRows = primaryKeyRows(table, whereClauseConditions, andOrConditions);
+        if (orderColumn != null) {
+            rows = selectOrdered(table, whereClauseConditions, andOrConditions, orderColumn, descending, limit, offset).iterator();
+        } else if (limit != -1 || offset > 0) {
+            rows = selectPage(table, whereClauseConditions, andOrConditions, limit, offset).iterator();
+        } else if (primaryKeyRows != null) {
+            List<Comparison> comparisons = comparisons(whereClauseConditions);
+            primaryKeyRows.removeIf(row -> !matches(comparisons, andOrConditions, row));
+            rows = primaryKeyRows.iterator();
+        } else {
+            // the rows are tested and handed to the cursor a batch at a time as it is read
+            List<Comparison> comparisons = comparisons(whereClauseConditions);
+            rows = table.scan(row -> matches(comparisons, andOrConditions, row), lock.readLock());
+        }
+        return new ResultSet(table.getColumns(), rows);
+    }
 
-            for (int i = 1; i < whereClauseConditions.size(); i++) {
-                Set<Map<String, Object>> newRows = evaluateWhereCondition(whereClauseConditions.get(i), table);
-                if (andOrConditions.get(i - 1)) {
-                    rows.retainAll(newRows);
-                } else {
-                    rows.addAll(newRows);
-                }
+    // One page of the matching rows, in the order the table stores them. Each row is tested on
+    // its own as the list is walked, so the walk stops as soon as offset + limit rows have matched
+    // instead of evaluating the WHERE clause over the whole table first.
+    private List<Map<String, Object>> selectPage(Table table, List<String[]> whereClauseConditions,
+                                                 List<Boolean> andOrConditions, long limit, long offset) {
+        List<Comparison> comparisons = comparisons(whereClauseConditions);
+        List<Map<String, Object>> page = new ArrayList<>();
+        long skipped = 0;
+        for (Map<String, Object> row : candidates(table, whereClauseConditions, andOrConditions)) {
+            if (limit != -1 && page.size() >= limit) {
+                break;
+            }
+            if (!matches(comparisons, andOrConditions, row)) {
+                continue;
+            }
+            if (skipped < offset) {
+                skipped++;
+            } else {
+                page.add(row);
             }
         }
+        return page;
+    }
 
-        StringBuilder result = new StringBuilder();
-        result.append(String.join("\t", columns)).append("\n"); // Print column headers
+    // Matching rows in the ORDER BY order. With a LIMIT only the first offset + limit rows are
+    // kept, in a bounded heap, as the row list is scanned instead of sorting every match.
+    private List<Map<String, Object>> selectOrdered(Table table, List<String[]> whereClauseConditions,
+                                                    List<Boolean> andOrConditions, String column,
+                                                    boolean descending, long limit, long offset) {
+        List<Comparison> comparisons = comparisons(whereClauseConditions);
+        Comparator<Map<String, Object>> order = (row1, row2) ->
+                compareCells(row1.get(column).toString(), row2.get(column).toString());
+        if (descending) {
+            order = order.reversed();
+        }
+        Iterator<Map<String, Object>> rows = candidates(table, whereClauseConditions, andOrConditions).stream()
+                .filter(row -> matches(comparisons, andOrConditions, row))
+                .iterator();
+        List<Map<String, Object>> ordered = TopK.select(rows, limit == -1 ? -1 : offset + limit, order);
+        return ordered.subList((int) Math.min(offset, ordered.size()), ordered.size());
+    }
 
-        // Loop through the rows and append the values without the extra tab at the end
-        for (Map<String, Object> row : rows) {
-            for (int i = 0; i < columns.size(); i++) {
-                String column = columns.get(i);
-                Object value = row.getOrDefault(column, "NULL"); // Use "NULL" if the value is missing
+    // Cells are stored as text: numbers sort by value and before any other text, which sorts as strings
+    private static int compareCells(String cell1, String cell2) {
+        boolean numeric1 = Comparison.isNumeric(cell1);
+        boolean numeric2 = Comparison.isNumeric(cell2);
+        if (numeric1 && numeric2) {
+            return Double.compare(Double.parseDouble(cell1), Double.parseDouble(cell2));
+        }
+        if (numeric1 || numeric2) {
+            return numeric1 ? -1 : 1;
+        }
+        return cell1.compareTo(cell2);
+    }
 
-                result.append(value); // Append the value directly
+    // The rows a WHERE clause can match without a scan: when its conditions are all AND-ed and
+    // one is "primary key = literal", only the row primaryKeyMap holds under the literal.
+    // Otherwise, or for a number written another way than the key (1.0 for 1), every row.
+    private Collection<Map<String, Object>> candidates(Table table, List<String[]> whereClauseConditions,
+                                                       List<Boolean> andOrConditions) {
+        List<Map<String, Object>> rows = primaryKeyRows(table, whereClauseConditions, andOrConditions);
+        return rows != null ? rows : table.getRowsView();
+    }
 
-                // Append a tab only if it's not the last column
-                if (i < columns.size() - 1) {
-                    result.append("\t");
+    // The candidates of a WHERE clause found in primaryKeyMap, or null if it needs a scan
+    private List<Map<String, Object>> primaryKeyRows(Table table, List<String[]> whereClauseConditions,
+                                                     List<Boolean> andOrConditions) {
+        if (andOrConditions.contains(false)) {
+            return null;
+        }
+        for (String[] condition : whereClauseConditions) {
+            if (condition[1].equals("=") && condition[0].equals(table.getPrimaryKey())) {
+                Map<String, Object> row = table.getRowByPrimaryKey(condition[2]);
+                if (row != null) {
+                    return new ArrayList<>(List.of(row));
+                }
+                if (!isNumeric(condition[2])) {
+                    return new ArrayList<>();
                 }
             }
-            result.append("\n"); // Move to the next line after each row
         }
+        return null;
+    }
+
+    // The parsed conditions as Comparisons, to test rows one at a time
+    private List<Comparison> comparisons(List<String[]> whereClauseConditions) {
+        List<Comparison> comparisons = new ArrayList<>();
+        for (String[] condition : whereClauseConditions) {
+            comparisons.add(new Comparison(condition[0], condition[1], condition[2]));
+        }
+        return comparisons;
+    }
 
-        return result.toString();
+    // The WHERE clause tested on a single row, with the same precedence as evaluateWhereClause:
+    // true if every condition of some run of AND-ed conditions holds
+    private boolean matches(List<Comparison> comparisons, List<Boolean> andOrConditions, Map<String, Object> row) {
+        if (comparisons.isEmpty()) {
+            return true;
+        }
+        boolean run = comparisons.get(0).test(row);
+        for (int i = 1; i < comparisons.size(); i++) {
+            if (andOrConditions.get(i - 1)) {
+                run = run && comparisons.get(i).test(row);
+            } else if (run) {
+                return true;
+            } else {
+                run = comparisons.get(i).test(row);
+            }
+        }
+        return run;
+    }
+
+    // A LIMIT or OFFSET count
+    private static long rowCount(Token token, String clause) {
+        String text = token.getText();
+        if (token.getType() == Token.Type.NUMBER && text.chars().allMatch(Character::isDigit)) {
+            try {
+                return Integer.parseInt(text);
+            } catch (NumberFormatException e) {
+                // too large for a row count
+            }
+        }
+        throw new IllegalArgumentException(clause + " must be a non-negative integer");
     }
 
-    public String create(String[] tokens) {
-        if (!tokens[1].equalsIgnoreCase("TABLE")) {
+    public String create(List<Token> tokens) {
+        if (!tokens.get(1).is("TABLE")) {
             return "ERROR: Invalid CREATE TABLE syntax";
         }
 
-        String tableName = tokens[2];
+        String tableName = tokens.get(2).getText();
         if (database.listTables().contains(tableName)) {
             return "ERROR: Table already exists";
         }
 
-        String columnList = queryBetweenParentheses(tokens, 3);
-        List<String> columns = Arrays.asList(columnList.split(","));
-        columns.replaceAll(String::trim);
+        List<String> columns = listBetweenParentheses(tokens, 3);
 
         if (columns.isEmpty()) {
             return "ERROR: No columns specified";
@@ -331,28 +511,94 @@ public class Engine {
 
     // HELPER METHODS
 
-    // Helper method to extract content inside parentheses
-    private String queryBetweenParentheses(String[] tokens, int startIndex) {
-        StringBuilder result = new StringBuilder();
-        for (int i = startIndex; i < tokens.length; i++) {
-            result.append(tokens[i]).append(" ");
+    // Helper method to collect the comma separated items inside parentheses, as written (quotes kept)
+    private List<String> listBetweenParentheses(List<Token> tokens, int startIndex) {
+        List<String> items = new ArrayList<>();
+        StringBuilder item = new StringBuilder();
+        for (int i = startIndex; i < tokens.size(); i++) {
+            Token token = tokens.get(i);
+            if (token.is(",")) {
+                items.add(item.toString());
+                item.setLength(0);
+            } else if (!token.is("(") && !token.is(")")) {
+                if (item.length() > 0) {
+                    item.append(' ');
+                }
+                item.append(token.getText());
+            }
         }
-        return result.toString().trim().replaceAll("\\(", "").replaceAll("\\)", "");
+        items.add(item.toString());
+        return items;
+    }
+
+    // Helper method to parse the conditions of a WHERE clause that starts at index start:
+    // column operator value, joined by AND (stored as true) or OR (stored as false).
+    // Every token up to the end of the query has to be part of a condition.
+    private void parseWhereClause(List<Token> tokens, int start, Table table,
+                                  List<String[]> whereClauseConditions, List<Boolean> andOrConditions) {
+        int i = start;
+        while (true) {
+            if (i + 2 >= tokens.size()) {
+                throw new IllegalArgumentException("Invalid WHERE clause near "
+                        + (i < tokens.size() ? tokens.get(i).getText() : "end of query"));
+            }
+            Token column = tokens.get(i);
+            Token operator = tokens.get(i + 1);
+            Token value = tokens.get(i + 2);
+            if (column.getType() != Token.Type.IDENTIFIER || !isOperator(operator.getText()) || !value.isLiteral()) {
+                throw new IllegalArgumentException("Invalid WHERE clause near " + column.getText());
+            }
+            if (!table.getColumns().contains(column.getText())) {
+                throw new IllegalArgumentException("Column not found: " + column.getText());
+            }
+            // <> is the same comparison as !=
+            String op = operator.is("<>") ? "!=" : operator.getText();
+            whereClauseConditions.add(new String[]{column.getText(), op, value.getText()});
+            i += 3;
+            if (i == tokens.size()) {
+                return;
+            }
+            if (tokens.get(i).is("AND")) {
+                // Store True for AND
+                andOrConditions.add(true);
+            } else if (tokens.get(i).is("OR")) {
+                // Store False for OR
+                andOrConditions.add(false);
+            } else {
+                throw new IllegalArgumentException("Invalid WHERE clause near " + tokens.get(i).getText());
+            }
+            i++;
+        }
+    }
+
+    // AND binds tighter than OR: the rows of each run of AND-ed conditions are intersected,
+    // and the runs separated by OR are unioned
+    private Set<Map<String, Object>> evaluateWhereClause(List<String[]> whereClauseConditions,
+                                                         List<Boolean> andOrConditions, Table table) {
+        Set<Map<String, Object>> result = new HashSet<>();
+        Set<Map<String, Object>> rows = evaluateWhereCondition(whereClauseConditions.get(0), table);
+        for (int i = 1; i < whereClauseConditions.size(); i++) {
+            Set<Map<String, Object>> newRows = evaluateWhereCondition(whereClauseConditions.get(i), table);
+            if (andOrConditions.get(i - 1)) {
+                rows.retainAll(newRows);
+            } else {
+                result.addAll(rows);
+                rows = newRows;
+            }
+        }
+        result.addAll(rows);
+        return result;
     }
 
     // Helper method to determine if a string is an operator
     private boolean isOperator(String token) {
-        return token.equals("=") || token.equals(">") || token.equals("<") || token.equals(">=") || token.equals("<=");
+        return token.equals("=") || token.equals("!=") || token.equals("<>")
+                || token.equals(">") || token.equals("<") || token.equals(">=") || token.equals("<=");
     }
 
-    // Helper method to determine if a string is numeric
+    // Helper method to determine if a string is numeric, by scanning its characters
     private boolean isNumeric(String str) {
-        try {
-            Double.parseDouble(str);
-            return true;
-        } catch (NumberFormatException e) {
-            return false;
-        }
+        return Comparison.isNumeric(str);
     }
 
     private Object parseValue(String valueStr) {
@@ -377,60 +623,17 @@ public class Engine {
         String operator = whereClauseCondition[1].trim(); // Operator (e.g., ">", "<", "=", etc.)
         String valueStr = whereClauseCondition[2].trim(); // Value (e.g., "3.8")
 
+        // the literal is classified as number or string once, not once per row
+        Comparison comparison = new Comparison(column, operator, valueStr);
         Set<Map<String, Object>> matchingRows = new HashSet<>();
 
-        // Get all rows from the table
-        List<Map<String, Object>> allRows = table.getAllRows();
-
-        for (Map<String, Object> row : allRows) {
-            Object cellValue = row.get(column);
-
-            if (cellValue == null) continue;
-
-            int comparison = compareValues(cellValue.toString(), valueStr);
-
-            switch (operator) {
-                case "=":
-                    if (comparison == 0) {
-                        matchingRows.add(row);
-                    }
-                    break;
-                case ">":
-                    if (comparison > 0) {
-                        matchingRows.add(row);
-                    }
-                    break;
-                case ">=":
-                    if (comparison >= 0) {
-                        matchingRows.add(row);
-                    }
-                    break;
-                case "<":
-                    if (comparison < 0) {
-                        matchingRows.add(row);
-                    }
-                    break;
-                case "<=":
-                    if (comparison <= 0) {
-                        matchingRows.add(row);
-                    }
-                    break;
-                default:
-                    throw new IllegalArgumentException("Unsupported operator: " + operator);
+        List<String[]> conditions = Collections.singletonList(whereClauseCondition);
+        for (Map<String, Object> row : candidates(table, conditions, Collections.emptyList())) {
+            if (comparison.test(row)) {
+                matchingRows.add(row);
             }
         }
 
         return matchingRows;
     }
-
-    // Helper method to compare two values as numbers or strings
-    private int compareValues(String val1, String val2) {
-        if (isNumeric(val1) && isNumeric(val2)) {
-            Double num1 = Double.parseDouble(val1);
-            Double num2 = Double.parseDouble(val2);
-            return num1.compareTo(num2);
-        } else {
-            return val1.compareTo(val2);
-        }
-    }
 }
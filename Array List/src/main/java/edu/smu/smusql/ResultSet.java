@@ -0,0 +1,72 @@
+package edu.smu.smusql;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Forward-only cursor over the rows of a SELECT, returned by Engine.query.
+ * The caller reads the matching rows one at a time instead of receiving one String
+ * with every row formatted into it.
+ *
+ *   ResultSet rows = engine.query("SELECT * FROM student WHERE gpa > 3.5");
+ *   while (rows.next()) {
+ *       Object name = rows.getValue("name");
+ *   }
+ *
+ * Without ORDER BY or LIMIT the rows are tested and handed out a batch at a time as the
+ * cursor is read, each batch under the engine's read lock, so memory does not grow with
+ * the size of the answer. The cursor returns the table's own rows, not copies: a row
+ * changed or deleted while it is open shows that change if its batch has not been read,
+ * and rows inserted after it was opened are not returned.
+ */
+public class ResultSet implements AutoCloseable {
+
+    private final List<String> columns;
+    private final Iterator<Map<String, Object>> rows;
+    private Map<String, Object> current;
+    private boolean closed;
+
+    public ResultSet(List<String> columns, Iterator<Map<String, Object>> rows) {
+        this.columns = columns;
+        this.rows = rows;
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    // Moves to the next row; false once every row has been read
+    public boolean next() {
+        current = !closed && rows.hasNext() ? rows.next() : null;
+        if (current == null) {
+            close();
+        }
+        return current != null;
+    }
+
+    // The cursor has no more rows afterwards
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    // "NULL" if the row has no value for the column
+    public Object getValue(int columnIndex) {
+        return currentRow().getOrDefault(columns.get(columnIndex), "NULL");
+    }
+
+    public Object getValue(String column) {
+        if (!columns.contains(column)) {
+            throw new IllegalArgumentException("Column not found: " + column);
+        }
+        return currentRow().getOrDefault(column, "NULL");
+    }
+
+    private Map<String, Object> currentRow() {
+        if (current == null) {
+            throw new IllegalStateException("No current row, call next() first");
+        }
+        return current;
+    }
+}
@@ -1,18 +1,30 @@
 package edu.smu.smusql;
 
 import java.util.*;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Predicate;
 
 public class Table {
+    // Rows a cursor tests and hands out per turn of the engine's read lock
+    private static final int READ_BATCH = 256;
+
     private final String tableName;
     private final List<String> columns;
     private final String primaryKey;
 
-    // HashMap for exact primary key lookups
-    private Map<String, Map<String, Object>> primaryKeyMap;
+    // HashMap for exact primary key lookups, pointing at the row's slot in rows
+    private Map<String, Integer> primaryKeyMap;
 
     // List to store all rows
     private List<Map<String, Object>> rows;
 
+    // Primary key of the row in the same slot of rows, so a moved row can be re-pointed in primaryKeyMap
+    private List<String> rowKeys;
+
+    // Scans with slots left to read; deleteRow moves their pending slots along with the rows.
+    // Weak, so a cursor that is dropped before it is read to the end is forgotten.
+    private final Set<Scan> scans = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+
     // Constructor to initialize the table with a name, columns, and primary key
     public Table(String tableName, List<String> columns) {
         this.tableName = tableName;
@@ -27,6 +39,7 @@ public class Table {
         this.columns = new ArrayList<>(columns);
         this.primaryKeyMap = new HashMap<>();
         this.rows = new ArrayList<>();
+        this.rowKeys = new ArrayList<>();
     }
 
     // Insert a row into the table
@@ -44,13 +57,15 @@ public class Table {
             String value = values.get(i).toString().trim(); // Convert each value to String and trim whitespace
             row.put(columns.get(i), value);
         }
-        primaryKeyMap.put(primaryKeyValue, row);
+        primaryKeyMap.put(primaryKeyValue, rows.size());
         rows.add(row);
+        rowKeys.add(primaryKeyValue);
     }
 
     // Get row by primary key (exact match)
     public Map<String, Object> getRowByPrimaryKey(String primaryKeyValue) {
-        return primaryKeyMap.get(primaryKeyValue); // O(1) average time
+        Integer slot = primaryKeyMap.get(primaryKeyValue); // O(1) average time
+        return slot == null ? null : rows.get(slot);
     }
 
     // Range query on a column
@@ -125,11 +140,107 @@ public class Table {
         return new ArrayList<>(rows);
     }
 
+    // The rows in slot order without copying them, for a scan that may stop early
+    public List<Map<String, Object>> getRowsView() {
+        return Collections.unmodifiableList(rows);
+    }
+
+    // Gives the row a new primary key in the same slot; the caller has checked that no other
+    // row holds the new key
+    public void changePrimaryKey(String primaryKeyValue, String newPrimaryKeyValue) {
+        Integer slot = primaryKeyMap.remove(primaryKeyValue);
+        if (slot == null) {
+            throw new IllegalArgumentException("Primary key not found: " + primaryKeyValue);
+        }
+        primaryKeyMap.put(newPrimaryKeyValue, slot);
+        rowKeys.set(slot, newPrimaryKeyValue);
+        rows.get(slot).put(primaryKey, newPrimaryKeyValue);
+    }
+
+    // Swap-remove: the last row moves into the freed slot, so nothing is searched or shifted.
+    // Row order is not preserved, which SELECT does not promise without ORDER BY.
     public void deleteRow(String primaryKeyValue) {
-        Map<String, Object> row = primaryKeyMap.remove(primaryKeyValue);
-        if (row != null) {
-            rows.remove(row);
+        Integer slot = primaryKeyMap.remove(primaryKeyValue);
+        if (slot == null) {
+            return;
+        }
+        int last = rows.size() - 1;
+        synchronized (scans) {
+            for (Scan scan : scans) {
+                scan.moved(last, slot);
+            }
         }
+        Map<String, Object> lastRow = rows.remove(last);
+        String lastKey = rowKeys.remove(last);
+        if (slot != last) {
+            rows.set(slot, lastRow);
+            rowKeys.set(slot, lastKey);
+            primaryKeyMap.put(lastKey, slot);
+        }
+    }
+
+    // A cursor over the rows that pass the filter, in slot order. Each batch is tested under the
+    // given lock, and rows inserted after the cursor was opened are not returned.
+    public Iterator<Map<String, Object>> scan(Predicate<Map<String, Object>> filter, Lock readLock) {
+        Scan scan = new Scan(filter, readLock);
+        scans.add(scan);
+        return scan;
     }
 
-}
\ No newline at end of file
+    // The slots a cursor has still to read are the set bits of pending
+    private final class Scan implements Iterator<Map<String, Object>> {
+        private final BitSet pending = new BitSet();
+        private final Predicate<Map<String, Object>> filter;
+        private final Lock readLock;
+        private final ArrayDeque<Map<String, Object>> batch = new ArrayDeque<>();
+
+        Scan(Predicate<Map<String, Object>> filter, Lock readLock) {
+            this.filter = filter;
+            this.readLock = readLock;
+            pending.set(0, rows.size());
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (batch.isEmpty() && !pending.isEmpty()) {
+                fill();
+            }
+            return !batch.isEmpty();
+        }
+
+        @Override
+        public Map<String, Object> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return batch.poll();
+        }
+
+        private void fill() {
+            readLock.lock();
+            try {
+                int tested = 0;
+                for (int slot = pending.nextSetBit(0); slot >= 0 && tested < READ_BATCH; slot = pending.nextSetBit(slot + 1)) {
+                    Map<String, Object> row = rows.get(slot);
+                    if (filter.test(row)) {
+                        batch.add(row);
+                    }
+                    pending.clear(slot);
+                    tested++;
+                }
+                if (pending.isEmpty()) {
+                    scans.remove(this);
+                }
+            } finally {
+                readLock.unlock();
+            }
+        }
+
+        // The row in slot from is moved to slot to, whose row is deleted
+        void moved(int from, int to) {
+            boolean moving = from != to && pending.get(from);
+            pending.clear(from);
+            pending.set(to, moving);
+        }
+    }
+}
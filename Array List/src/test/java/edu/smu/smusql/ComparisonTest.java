@@ -0,0 +1,53 @@
+package edu.smu.smusql;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ComparisonTest {
+
+    @Test
+    public void testIsNumeric() {
+        assertTrue(Comparison.isNumeric("1"));
+        assertTrue(Comparison.isNumeric("-3.5"));
+        assertTrue(Comparison.isNumeric("+.5"));
+        assertTrue(Comparison.isNumeric("2."));
+        assertTrue(Comparison.isNumeric("1e3"));
+        assertTrue(Comparison.isNumeric("1.5E-2"));
+        assertTrue(Comparison.isNumeric("7d"));
+        assertTrue(Comparison.isNumeric("NaN"));
+        assertTrue(Comparison.isNumeric("-Infinity"));
+
+        assertFalse(Comparison.isNumeric(""));
+        assertFalse(Comparison.isNumeric("-"));
+        assertFalse(Comparison.isNumeric("."));
+        assertFalse(Comparison.isNumeric("1.2.3"));
+        assertFalse(Comparison.isNumeric("1e"));
+        assertFalse(Comparison.isNumeric("e5"));
+        assertFalse(Comparison.isNumeric("12abc"));
+        assertFalse(Comparison.isNumeric("'3'"));
+        assertFalse(Comparison.isNumeric("NaNa"));
+    }
+
+    @Test
+    public void testNumbersCompareByValue() {
+        Map<String, Object> row = Map.of("id", "10", "gpa", "3.50");
+        assertTrue(new Comparison("id", ">", "9").test(row)); // "10" < "9" as text
+        assertTrue(new Comparison("gpa", "=", "3.5").test(row));
+        assertTrue(new Comparison("id", "<=", "1e1").test(row));
+        assertFalse(new Comparison("id", "!=", "10.0").test(row));
+    }
+
+    @Test
+    public void testTextComparesAsText() {
+        Map<String, Object> row = Map.of("name", "'Bob'", "code", "A10");
+        assertTrue(new Comparison("name", "=", "'Bob'").test(row));
+        assertTrue(new Comparison("name", ">", "'Alice'").test(row));
+        // A number literal against a cell that is not a number falls back to text order
+        assertTrue(new Comparison("code", ">", "5").test(row));
+        assertFalse(new Comparison("missing", "=", "1").test(row));
+        assertThrows(IllegalArgumentException.class, () -> new Comparison("name", "LIKE", "'B%'"));
+    }
+}
@@ -0,0 +1,112 @@
+package edu.smu.smusql;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrencyTest {
+
+    private static final int WRITERS = 4;
+    private static final int READERS = 4;
+    private static final int ROWS_PER_WRITER = 500;
+
+    @Test
+    public void testConcurrentWritersKeepTheSlotsConsistent() throws Exception {
+        Engine engine = new Engine();
+        engine.executeSQL("CREATE TABLE orders (id, customer, amount)");
+
+        Queue<String> failures = new ConcurrentLinkedQueue<>();
+        AtomicBoolean writing = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> writers = new ArrayList<>();
+        List<Thread> readers = new ArrayList<>();
+
+        // each writer on its own range of ids
+        for (int w = 0; w < WRITERS; w++) {
+            int first = w * ROWS_PER_WRITER;
+            writers.add(worker(failures, () -> {
+                await(start);
+                for (int id = first; id < first + ROWS_PER_WRITER; id++) {
+                    check(failures, engine.executeSQL("INSERT INTO orders VALUES (" + id + ", 'c" + id % 10 + "', " + id % 100 + ")"));
+                    if (id % 3 == 0) {
+                        check(failures, engine.executeSQL("UPDATE orders SET amount = 1000 WHERE id = " + id));
+                    }
+                    if (id % 5 == 0) {
+                        check(failures, engine.executeSQL("DELETE FROM orders WHERE id = " + id));
+                    }
+                }
+            }));
+        }
+        for (int r = 0; r < READERS; r++) {
+            readers.add(worker(failures, () -> {
+                await(start);
+                while (writing.get()) {
+                    check(failures, engine.executeSQL("SELECT * FROM orders WHERE id >= 100 AND id < 120"));
+                    check(failures, engine.executeSQL("SELECT * FROM orders WHERE customer = 'c3' ORDER BY amount DESC LIMIT 5"));
+                    try (ResultSet rows = engine.query("SELECT * FROM orders LIMIT 50")) {
+                        while (rows.next()) {
+                            rows.getValue("amount");
+                        }
+                    }
+                }
+            }));
+        }
+
+        writers.forEach(Thread::start);
+        readers.forEach(Thread::start);
+        start.countDown();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        writing.set(false);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertTrue(failures.isEmpty(), () -> failures.size() + " failures, first: " + failures.peek());
+        // every fifth id is deleted again
+        Table table = engine.getDatabase().getTable("orders");
+        assertEquals(WRITERS * ROWS_PER_WRITER * 4 / 5, table.getRowsView().size());
+        for (int id = 0; id < WRITERS * ROWS_PER_WRITER; id++) {
+            Map<String, Object> row = table.getRowByPrimaryKey(String.valueOf(id));
+            if (id % 5 == 0) {
+                assertNull(row);
+            } else {
+                assertEquals(String.valueOf(id), row.get("id"));
+                assertEquals(id % 3 == 0 ? "1000" : String.valueOf(id % 100), row.get("amount"));
+            }
+        }
+    }
+
+    // exceptions in a thread would otherwise only be printed
+    private static Thread worker(Queue<String> failures, Runnable body) {
+        return new Thread(() -> {
+            try {
+                body.run();
+            } catch (RuntimeException e) {
+                failures.add(e.toString());
+            }
+        });
+    }
+
+    private static void check(Queue<String> failures, String result) {
+        if (result.startsWith("ERROR")) {
+            failures.add(result);
+        }
+    }
+
+    private static void await(CountDownLatch start) {
+        try {
+            start.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -31,15 +31,15 @@ public class DeleteTest {
         String deleteResult = engine.executeSQL(deleteQuery);
 
         // Verify DELETE was successful
-        assertEquals("DELETE successful", deleteResult);
+        assertEquals("1 row(s) deleted from student", deleteResult);
 
         // Check that row with id=1 is no longer present
         String selectQuery = "SELECT * FROM student WHERE id = 1";
         String selectResult = engine.executeSQL(selectQuery);
         assertEquals("id\tname\tgpa\tage\n", selectResult); // Expecting no rows
 
-        // Verify other rows still exist
-        String selectAllQuery = "SELECT * FROM student";
+        // Verify other rows still exist (deleting reorders the rows, so they are sorted)
+        String selectAllQuery = "SELECT * FROM student ORDER BY id";
         String selectAllResult = engine.executeSQL(selectAllQuery);
         String expected = "id\tname\tgpa\tage\n" +
                           "2\t'Jane Smith'\t3.9\t19\n" +
@@ -53,10 +53,10 @@ public class DeleteTest {
         // DELETE rows where gpa < 3.8
         String deleteQuery = "DELETE FROM student WHERE gpa < 3.8";
         String deleteResult = engine.executeSQL(deleteQuery);
-        assertEquals("DELETE successful", deleteResult);
+        assertEquals("2 row(s) deleted from student", deleteResult);
 
         // Verify only the expected rows remain
-        String selectAllQuery = "SELECT * FROM student";
+        String selectAllQuery = "SELECT * FROM student ORDER BY id";
         String selectAllResult = engine.executeSQL(selectAllQuery);
         String expected = "id\tname\tgpa\tage\n" +
                           "2\t'Jane Smith'\t3.9\t19\n" +
@@ -69,7 +69,7 @@ public class DeleteTest {
         // Attempt to DELETE a non-existent row
         String deleteQuery = "DELETE FROM student WHERE id = 10";
         String deleteResult = engine.executeSQL(deleteQuery);
-        assertEquals("DELETE successful", deleteResult); // Should still return "DELETE successful"
+        assertEquals("0 row(s) deleted from student", deleteResult); // Should still succeed, deleting nothing
 
         // Verify no rows were actually deleted
         String selectAllQuery = "SELECT * FROM student";
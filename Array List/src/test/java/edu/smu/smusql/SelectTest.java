@@ -1,5 +1,8 @@
 package edu.smu.smusql;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
@@ -119,4 +122,85 @@ public class SelectTest {
 
         assertEquals("ERROR: Column not found: nonExistentColumn", result);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testLimitAndOffset() {
+        assertEquals(List.of("1", "2"), ids("SELECT * FROM student LIMIT 2"));
+        assertEquals(List.of("2", "3"), ids("SELECT * FROM student LIMIT 2 OFFSET 1"));
+        assertEquals(List.of("3", "4"), ids("SELECT * FROM student WHERE gpa < 3.9 LIMIT 5 OFFSET 1"));
+        assertEquals(List.of(), ids("SELECT * FROM student LIMIT 0"));
+        assertEquals(List.of(), ids("SELECT * FROM student LIMIT 2 OFFSET 4"));
+        assertEquals("ERROR: LIMIT must be a non-negative integer", engine.executeSQL("SELECT * FROM student LIMIT -1"));
+    }
+
+    @Test
+    public void testOrderBy() {
+        assertEquals(List.of("2", "1", "3", "4"), ids("SELECT * FROM student ORDER BY age"));
+        assertEquals(List.of("2", "4", "1", "3"), ids("SELECT * FROM student ORDER BY gpa DESC"));
+        assertEquals(List.of("4", "3"), ids("SELECT * FROM student WHERE age > 19 ORDER BY id DESC LIMIT 2"));
+        assertEquals(List.of("1"), ids("SELECT * FROM student WHERE age > 19 ORDER BY age LIMIT 1"));
+        assertEquals(List.of("3"), ids("SELECT * FROM student WHERE age > 19 ORDER BY age LIMIT 1 OFFSET 1"));
+        assertEquals("ERROR: Column not found: zip", engine.executeSQL("SELECT * FROM student ORDER BY zip"));
+    }
+
+    @Test
+    public void testCursor() {
+        try (ResultSet rows = engine.query("SELECT * FROM student WHERE id = 2")) {
+            assertEquals(List.of("id", "name", "gpa", "age"), rows.getColumns());
+            assertThrows(IllegalStateException.class, () -> rows.getValue("name"));
+            assertTrue(rows.next());
+            assertEquals("'Jane Smith'", rows.getValue("name"));
+            assertEquals("19", rows.getValue(3));
+            assertThrows(IllegalArgumentException.class, () -> rows.getValue("zip"));
+            assertFalse(rows.next());
+        }
+        // The streaming writer prints what executeSQL returns
+        assertEquals(engine.executeSQL("SELECT * FROM student WHERE gpa > 3.4"),
+                ResultWriter.toString(engine.query("SELECT * FROM student WHERE gpa > 3.4")));
+        assertThrows(IllegalArgumentException.class, () -> engine.query("DELETE FROM student WHERE id = 1"));
+    }
+
+    @Test
+    public void testCursorReadsBatchesAroundDeletes() {
+        engine.executeSQL("CREATE TABLE orders (id, amount)");
+        for (int id = 0; id < 600; id++) {
+            engine.executeSQL("INSERT INTO orders VALUES (" + id + ", " + id % 7 + ")");
+        }
+        List<Integer> ids = new ArrayList<>();
+        try (ResultSet rows = engine.query("SELECT * FROM orders WHERE id >= 100")) {
+            for (int i = 0; i < 10 && rows.next(); i++) {
+                ids.add(Integer.parseInt(rows.getValue("id").toString()));
+            }
+
+            // Deleting moves the last rows into the freed slots; the cursor follows them,
+            // skips a deleted row past the batch it has read and does not return a row twice
+            engine.executeSQL("DELETE FROM orders WHERE id < 50");
+            engine.executeSQL("DELETE FROM orders WHERE id = 500");
+            engine.executeSQL("DELETE FROM orders WHERE id = 100");
+            engine.executeSQL("INSERT INTO orders VALUES (1000, 1)");
+            while (rows.next()) {
+                ids.add(Integer.parseInt(rows.getValue("id").toString()));
+            }
+        }
+
+        List<Integer> expected = new ArrayList<>();
+        for (int id = 100; id < 600; id++) {
+            if (id != 500) {
+                expected.add(id);
+            }
+        }
+        ids.sort(null);
+        assertEquals(expected, ids);
+    }
+
+    // The ids of the rows a SELECT returns, in the order it returns them
+    private List<Object> ids(String query) {
+        List<Object> ids = new ArrayList<>();
+        try (ResultSet rows = engine.query(query)) {
+            while (rows.next()) {
+                ids.add(rows.getValue("id"));
+            }
+        }
+        return ids;
+    }
+}
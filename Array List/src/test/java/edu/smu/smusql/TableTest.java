@@ -0,0 +1,99 @@
+package edu.smu.smusql;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TableTest {
+    private Table table;
+
+    @BeforeEach
+    public void setUp() {
+        table = new Table("users", Arrays.asList("id", "name"));
+        for (int id = 1; id <= 4; id++) {
+            table.insertRow(String.valueOf(id), Arrays.asList(id, "user" + id));
+        }
+    }
+
+    @Test
+    public void testDeleteLastRow() {
+        // The last slot is freed without moving any other row
+        table.deleteRow("4");
+        assertNull(table.getRowByPrimaryKey("4"));
+        assertEquals(List.of("1", "2", "3"), ids());
+        assertSlotsConsistent();
+    }
+
+    @Test
+    public void testDeleteFromOneRowTable() {
+        Table single = new Table("single", Arrays.asList("id", "name"));
+        single.insertRow("1", Arrays.asList(1, "only"));
+        single.deleteRow("1");
+        assertNull(single.getRowByPrimaryKey("1"));
+        assertTrue(single.getRowsView().isEmpty());
+
+        // The freed key can be inserted again
+        single.insertRow("1", Arrays.asList(1, "again"));
+        assertEquals("again", single.getRowByPrimaryKey("1").get("name"));
+    }
+
+    @Test
+    public void testLookupsAfterSwap() {
+        // Row 4 moves into the slot row 1 leaves
+        table.deleteRow("1");
+        assertEquals(List.of("4", "2", "3"), ids());
+        assertEquals("user4", table.getRowByPrimaryKey("4").get("name"));
+        assertSlotsConsistent();
+
+        // Deleting the moved row frees its new slot, not its old one
+        table.deleteRow("4");
+        assertNull(table.getRowByPrimaryKey("4"));
+        assertEquals("user2", table.getRowByPrimaryKey("2").get("name"));
+        assertEquals("user3", table.getRowByPrimaryKey("3").get("name"));
+        assertSlotsConsistent();
+
+        // Deleting a missing key changes nothing
+        table.deleteRow("9");
+        assertEquals(List.of("3", "2"), ids());
+    }
+
+    @Test
+    public void testChangePrimaryKeyKeepsTheSlot() {
+        table.changePrimaryKey("2", "20");
+        assertNull(table.getRowByPrimaryKey("2"));
+        assertEquals("user2", table.getRowByPrimaryKey("20").get("name"));
+        assertEquals(List.of("1", "20", "3", "4"), ids());
+
+        // The old key is free again, the new one is taken
+        table.insertRow("2", Arrays.asList(2, "new"));
+        assertThrows(IllegalArgumentException.class, () -> table.insertRow("20", Arrays.asList(20, "dup")));
+
+        // A later swap re-points the renamed row by its new key
+        table.deleteRow("1");
+        table.deleteRow("20");
+        assertNull(table.getRowByPrimaryKey("20"));
+        assertSlotsConsistent();
+    }
+
+    // The primary keys in slot order
+    private List<Object> ids() {
+        List<Object> ids = new ArrayList<>();
+        for (Map<String, Object> row : table.getRowsView()) {
+            ids.add(row.get("id"));
+        }
+        return ids;
+    }
+
+    // Every row is found under its own primary key
+    private void assertSlotsConsistent() {
+        for (Map<String, Object> row : table.getRowsView()) {
+            assertSame(row, table.getRowByPrimaryKey(row.get("id").toString()));
+        }
+    }
+}
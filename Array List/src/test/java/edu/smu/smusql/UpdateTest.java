@@ -0,0 +1,57 @@
+package edu.smu.smusql;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UpdateTest {
+    private Engine engine;
+
+    @BeforeEach
+    public void setUp() {
+        engine = new Engine();
+        engine.executeSQL("CREATE TABLE users (id, name, age)");
+        engine.executeSQL("INSERT INTO users VALUES (1, 'Alice', 10)");
+        engine.executeSQL("INSERT INTO users VALUES (2, 'Bob', 20)");
+        engine.executeSQL("INSERT INTO users VALUES (3, 'Carl', 30)");
+    }
+
+    @Test
+    public void testUpdateColumn() {
+        assertEquals("2 row(s) updated in users", engine.executeSQL("UPDATE users SET age = 25 WHERE age >= 20"));
+        assertEquals("id\tname\tage\n2\t'Bob'\t25\n3\t'Carl'\t25\n",
+                engine.executeSQL("SELECT * FROM users WHERE age = 25 ORDER BY id"));
+        assertEquals("0 row(s) updated in users", engine.executeSQL("UPDATE users SET age = 1 WHERE id = 9"));
+        assertEquals("ERROR: Column not found: zip", engine.executeSQL("UPDATE users SET zip = 1 WHERE id = 1"));
+    }
+
+    @Test
+    public void testUpdatePrimaryKeyRemapsTheRow() {
+        assertEquals("1 row(s) updated in users", engine.executeSQL("UPDATE users SET id = 9 WHERE id = 1"));
+
+        Table table = engine.getDatabase().getTable("users");
+        assertNull(table.getRowByPrimaryKey("1"));
+        assertEquals("'Alice'", table.getRowByPrimaryKey("9").get("name"));
+        assertEquals("id\tname\tage\n9\t'Alice'\t10\n", engine.executeSQL("SELECT * FROM users WHERE id = 9"));
+        assertEquals("id\tname\tage\n", engine.executeSQL("SELECT * FROM users WHERE id = 1"));
+
+        // The old key is free again and the new one is taken
+        assertEquals("Insertion Successful", engine.executeSQL("INSERT INTO users VALUES (1, 'Dan', 40)"));
+        assertEquals("ERROR: Duplicate primary key: 9", engine.executeSQL("INSERT INTO users VALUES (9, 'Eve', 50)"));
+        assertEquals("1 row(s) deleted from users", engine.executeSQL("DELETE FROM users WHERE id = 9"));
+        assertEquals("id\tname\tage\n1\t'Dan'\t40\n2\t'Bob'\t20\n3\t'Carl'\t30\n",
+                engine.executeSQL("SELECT * FROM users ORDER BY id"));
+    }
+
+    @Test
+    public void testUpdatePrimaryKeyToExistingKeyIsRejected() {
+        assertEquals("ERROR: Duplicate primary key: 2", engine.executeSQL("UPDATE users SET id = 2 WHERE id = 1"));
+        // Several rows cannot all take one key; nothing is changed
+        assertEquals("ERROR: Duplicate primary key: 9", engine.executeSQL("UPDATE users SET id = 9 WHERE age >= 10"));
+        assertEquals("1 row(s) updated in users", engine.executeSQL("UPDATE users SET id = 1 WHERE id = 1"));
+
+        assertEquals("id\tname\tage\n1\t'Alice'\t10\n2\t'Bob'\t20\n3\t'Carl'\t30\n",
+                engine.executeSQL("SELECT * FROM users ORDER BY id"));
+        assertNull(engine.getDatabase().getTable("users").getRowByPrimaryKey("9"));
+    }
+}
@@ -0,0 +1,83 @@
+package edu.smu.smusql;
+
+import java.util.BitSet;
+
+/*
+ * One attribute of a columnar Table, stored in an array indexed by row ordinal.
+ * Rows are appended at the end and deleted by moving the last row into the freed
+ * ordinal, so every column of a table always holds exactly the table's row count.
+ *
+ * match() evaluates "value operator literal" for the whole column in one loop over
+ * the array and marks the matching ordinals in a BitSet.
+ */
+public abstract class Column {
+
+    protected static final int INITIAL_CAPACITY = 16;
+
+    protected int size;
+
+    public static Column of(ColumnType type) {
+        switch (type) {
+            case INT:
+                return new IntColumn();
+            case DOUBLE:
+                return new DoubleColumn();
+            default:
+                return new StringColumn();
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // value is already converted to the column's type (Integer, Double or String)
+    public abstract void append(Object value);
+
+    public abstract Object get(int row);
+
+    public abstract void set(int row, Object value);
+
+    // Moves the last value into the given row and drops the last slot
+    public abstract void removeBySwap(int row);
+
+    // Marks every row whose value satisfies "value operator literal"
+    public abstract void match(String operator, Object literal, BitSet result);
+
+    // Row-at-a-time check, used when a primary key lookup already picked the row
+    public boolean test(int row, String operator, Object literal) {
+        return accepts(ColumnType.compareValues(get(row), literal), operator);
+    }
+
+    // Fallback for literals of another type than the column, e.g. an INT column against 'abc'
+    protected void matchByComparison(String operator, Object literal, BitSet result) {
+        for (int row = 0; row < size; row++) {
+            if (test(row, operator, literal)) {
+                result.set(row);
+            }
+        }
+    }
+
+    protected static boolean accepts(int comparison, String operator) {
+        switch (operator) {
+            case "=":
+                return comparison == 0;
+            case "!=":
+                return comparison != 0;
+            case ">":
+                return comparison > 0;
+            case "<":
+                return comparison < 0;
+            case ">=":
+                return comparison >= 0;
+            case "<=":
+                return comparison <= 0;
+            default:
+                throw new IllegalArgumentException("ERROR: Unsupported operator " + operator);
+        }
+    }
+
+    protected static int grow(int capacity) {
+        return capacity + (capacity >> 1) + 1;
+    }
+}
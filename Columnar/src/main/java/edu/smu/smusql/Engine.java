@@ -0,0 +1,457 @@
+package edu.smu.smusql;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+public class Engine {
+    private final Database database;
+    private WriteAheadLog log; // null for a purely in-memory engine
+    // SELECTs share it, every change holds it exclusively; see executeSQL
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public Engine() {
+        this.database = new Database();
+    }
+
+    // An engine whose changes survive a restart: the statements already in the log are replayed
+    // into the database, then every successful CREATE, INSERT, UPDATE and DELETE is appended to it.
+    // See WriteAheadLog for commitIntervalMillis.
+    public Engine(Path logFile, long commitIntervalMillis) throws IOException {
+        this();
+        this.log = WriteAheadLog.open(logFile, commitIntervalMillis, this::executeSQL);
+    }
+
+    // Forces the log and closes it; an in-memory engine has nothing to close
+    public void close() throws IOException {
+        if (log != null) {
+            log.close();
+        }
+    }
+
+    // executeSQL and query may be called from several threads at once: SELECTs run together,
+    // and each CREATE, INSERT, UPDATE or DELETE runs alone.
+    public String executeSQL(String query) {
+        List<Token> tokens;
+        try {
+            tokens = Lexer.tokenize(query);
+        } catch (IllegalArgumentException e) {
+            return "ERROR: " + e.getMessage();
+        }
+        if (tokens.isEmpty()) {
+            return "ERROR: Unknown command";
+        }
+        String command = tokens.get(0).getText().toUpperCase();
+
+        try {
+            switch (command) {
+                case "CREATE":
+                    return change(query, () -> create(tokens));
+                case "INSERT":
+                    return change(query, () -> insert(tokens));
+                case "SELECT":
+                    return read(() -> select(tokens));
+                case "UPDATE":
+                    return change(query, () -> update(tokens));
+                case "DELETE":
+                    return change(query, () -> delete(tokens));
+                default:
+                    return "ERROR: Unknown command";
+            }
+        } catch (IllegalArgumentException e) {
+            // syntax errors are thrown with their ERROR message
+            return e.getMessage();
+        }
+    }
+
+    // Runs a CREATE, INSERT, UPDATE or DELETE with the engine lock held exclusively. A change that
+    // succeeded is appended to the log under the lock, so the log has the changes in the order
+    // they were made, and its commit is waited for once the lock is released, so other writers
+    // can join the same group commit. The statement is in the log before its result is returned.
+    private String change(String query, Supplier<String> statement) {
+        String result;
+        long sequence = -1;
+        lock.writeLock().lock();
+        try {
+            result = statement.get();
+            if (log != null && !result.startsWith("ERROR")) {
+                sequence = log.append(query);
+            }
+        } catch (IOException e) {
+            return "ERROR: Could not write the log: " + e.getMessage();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (sequence != -1) {
+            try {
+                log.awaitCommit(sequence);
+            } catch (IOException e) {
+                return "ERROR: Could not write the log: " + e.getMessage();
+            }
+        }
+        return result;
+    }
+
+    // Runs a SELECT with the engine lock shared, so it never sees a change half made
+    private <T> T read(Supplier<T> select) {
+        lock.readLock().lock();
+        try {
+            return select.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // CREATE TABLE command
+    private String create(List<Token> tokens) {
+        if (tokens.size() < 4 || !tokens.get(1).is("TABLE")) {
+            return "ERROR: Invalid CREATE TABLE syntax";
+        }
+        String tableName = tokens.get(2).getText();
+        if (database.tableExists(tableName)) {
+            return "ERROR: Table already exists";
+        }
+
+        List<String> definitions = listBetweenParentheses(tokens, 3);
+        List<String> columns = new ArrayList<>();
+        ColumnType[] types = new ColumnType[definitions.size()];
+
+        // each definition is "name" or "name TYPE"; untyped columns are inferred on first insert
+        for (int i = 0; i < definitions.size(); i++) {
+            String definition = definitions.get(i);
+            int space = definition.indexOf(' ');
+            columns.add(space == -1 ? definition : definition.substring(0, space));
+            if (space != -1) {
+                try {
+                    types[i] = ColumnType.fromName(definition.substring(space + 1));
+                } catch (IllegalArgumentException e) {
+                    return "ERROR: " + e.getMessage();
+                }
+            }
+        }
+
+        database.createTable(tableName, columns, types);
+        return "Table " + tableName + " created";
+    }
+
+    // INSERT INTO command
+    private String insert(List<Token> tokens) {
+        if (tokens.size() < 5 || !tokens.get(1).is("INTO")) {
+            return "ERROR: Invalid INSERT INTO syntax";
+        }
+        Table table = resolveTable(tokens.get(2));
+
+        // quoted values arrive without their quotes
+        return table.insertRow(listBetweenParentheses(tokens, 4));
+    }
+
+    // Runs a SELECT and returns a cursor over its rows instead of the formatted text;
+    // errors are thrown as IllegalArgumentException with the message executeSQL would return
+    public ResultSet query(String sql) {
+        List<Token> tokens;
+        try {
+            tokens = Lexer.tokenize(sql);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("ERROR: " + e.getMessage());
+        }
+        if (tokens.isEmpty() || !tokens.get(0).is("SELECT")) {
+            throw new IllegalArgumentException("ERROR: Only SELECT statements return rows");
+        }
+        return read(() -> query(tokens));
+    }
+
+    private String select(List<Token> tokens) {
+        return ResultWriter.toString(query(tokens));
+    }
+
+    // SELECT * FROM command with optional WHERE, ORDER BY column [ASC|DESC] and LIMIT n [OFFSET m]
+    private ResultSet query(List<Token> tokens) {
+        if (tokens.size() < 4 || !tokens.get(1).is("*") || !tokens.get(2).is("FROM")) {
+            throw new IllegalArgumentException("ERROR: Invalid SELECT syntax");
+        }
+        Table table = resolveTable(tokens.get(3));
+
+        // Optional LIMIT n [OFFSET m] at the end; the rest is parsed without it
+        long limit = -1;
+        long offset = 0;
+        for (int i = 4; i < tokens.size(); i++) {
+            if (tokens.get(i).is("LIMIT")) {
+                int end = tokens.size();
+                if (end != i + 2 && (end != i + 4 || !tokens.get(i + 2).is("OFFSET"))) {
+                    throw new IllegalArgumentException("ERROR: Invalid LIMIT syntax");
+                }
+                limit = rowCount(tokens.get(i + 1), "LIMIT");
+                if (end == i + 4) {
+                    offset = rowCount(tokens.get(i + 3), "OFFSET");
+                }
+                tokens = tokens.subList(0, i);
+                break;
+            }
+        }
+
+        // Optional ORDER BY column [ASC|DESC] before the LIMIT
+        int orderColumn = -1;
+        boolean descending = false;
+        for (int i = 4; i < tokens.size(); i++) {
+            if (tokens.get(i).is("ORDER")) {
+                int end = tokens.size();
+                if (end != i + 3 && end != i + 4 || !tokens.get(i + 1).is("BY")) {
+                    throw new IllegalArgumentException("ERROR: Invalid ORDER BY syntax");
+                }
+                orderColumn = resolveColumn(table, tokens.get(i + 2));
+                if (end == i + 4) {
+                    descending = tokens.get(i + 3).is("DESC");
+                    if (!descending && !tokens.get(i + 3).is("ASC")) {
+                        throw new IllegalArgumentException("ERROR: Invalid ORDER BY syntax");
+                    }
+                }
+                tokens = tokens.subList(0, i);
+                break;
+            }
+        }
+        BitSet rows = findRows(table, tokens, 4);
+        if (orderColumn != -1) {
+            return new ResultSet(table.getColumns(), selectOrdered(table, rows, orderColumn, descending, limit, offset));
+        }
+
+        // the WHERE clause is one pass per column over primitive arrays; building the row
+        // lists is the expensive part, so the page is cut out of the BitSet and its rows are
+        // only read out of the columns as the cursor reaches them
+        int row = rows.nextSetBit(0);
+        for (long skipped = 0; row >= 0 && skipped < offset; skipped++) {
+            row = rows.nextSetBit(row + 1);
+        }
+        rows.clear(0, row >= 0 ? row : rows.length());
+        for (long taken = 0; row >= 0 && limit != -1 && taken < limit; taken++) {
+            row = rows.nextSetBit(row + 1);
+        }
+        if (row >= 0 && limit != -1) {
+            rows.clear(row, rows.length());
+        }
+        return new ResultSet(table.getColumns(), table.scan(rows, lock.readLock()));
+    }
+
+    // Matching rows in the ORDER BY order. Row numbers are sorted by the order column's value;
+    // with a LIMIT only the first offset + limit of them are kept, in a bounded heap, and only
+    // the rows of the page are read out of the columns.
+    private Iterator<List<Object>> selectOrdered(Table table, BitSet rows, int column, boolean descending,
+                                                 long limit, long offset) {
+        Comparator<Integer> order = Comparator.comparing((Integer row) -> table.getValue(row, column),
+                ColumnType.VALUE_ORDER);
+        if (descending) {
+            order = order.reversed();
+        }
+        List<Integer> ordered = TopK.select(rows.stream().boxed().iterator(), limit == -1 ? -1 : offset + limit, order);
+        List<List<Object>> page = new ArrayList<>();
+        for (int i = (int) Math.min(offset, ordered.size()); i < ordered.size(); i++) {
+            page.add(table.getRow(ordered.get(i)));
+        }
+        return page.iterator();
+    }
+
+    // A LIMIT or OFFSET count
+    private static long rowCount(Token token, String clause) {
+        if (token.getType() != Token.Type.NUMBER || ColumnType.infer(token.getText()) != ColumnType.INT
+                || token.getText().startsWith("-")) {
+            throw new IllegalArgumentException("ERROR: " + clause + " must be a non-negative integer");
+        }
+        return Integer.parseInt(token.getText());
+    }
+
+    // UPDATE command
+    private String update(List<Token> tokens) {
+        if (tokens.size() < 6 || !tokens.get(2).is("SET") || !tokens.get(4).is("=")) {
+            return "ERROR: Invalid UPDATE syntax";
+        }
+        Table table = resolveTable(tokens.get(1));
+        int targetIndex = resolveColumn(table, tokens.get(3));
+        Object newValue;
+        try {
+            newValue = table.parseValue(targetIndex, tokens.get(5).getValue());
+        } catch (IllegalArgumentException e) {
+            return "ERROR: " + e.getMessage();
+        }
+
+        BitSet rows = findRows(table, tokens, 6);
+        // a new primary key moves the row, which must not collide with another row; checked
+        // before any row changes so a rejected UPDATE leaves the table as it was
+        if (targetIndex == 0 && !rows.isEmpty()) {
+            int holder = table.findByPrimaryKey(newValue);
+            boolean unchanged = rows.cardinality() == 1 && holder == rows.nextSetBit(0);
+            if (!unchanged && (rows.cardinality() > 1 || holder != -1)) {
+                return "ERROR: Duplicate primary key: " + newValue;
+            }
+        }
+        int updatedRows = 0;
+        for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+            String error = table.updateValue(row, targetIndex, newValue);
+            if (error != null) {
+                return error;
+            }
+            updatedRows++;
+        }
+
+        if (updatedRows > 0) {
+            return "UPDATE successful, updated " + updatedRows + " rows";
+        } else {
+            return "No rows updated";
+        }
+    }
+
+    private String delete(List<Token> tokens) {
+        if (tokens.size() < 3 || !tokens.get(1).is("FROM")) {
+            return "ERROR: Invalid DELETE syntax";
+        }
+        Table table = resolveTable(tokens.get(2));
+        BitSet rows = findRows(table, tokens, 3);
+
+        if (rows.isEmpty()) {
+            return tokens.size() <= 3
+                ? "No rows to delete"
+                : "No rows matched the condition, nothing to delete";
+        }
+
+        int deletedCount = table.deleteRows(rows);
+        return "Deleted " + deletedCount + " row(s) from " + table.getTableName();
+    }
+
+    private Table resolveTable(Token name) {
+        if (!database.tableExists(name.getText())) {
+            throw new IllegalArgumentException("ERROR: Table does not exist");
+        }
+        return database.getTable(name.getText());
+    }
+
+    private int resolveColumn(Table table, Token name) {
+        int columnIndex = table.getColumns().indexOf(name.getText());
+        if (columnIndex == -1) {
+            throw new IllegalArgumentException("ERROR: Column " + name.getText() + " does not exist");
+        }
+        return columnIndex;
+    }
+
+    /* ================= WHERE evaluation ================= */
+
+    // One "column operator literal" comparison, with the literal already converted to the column's type
+    private static class Condition {
+        final int column;
+        final String operator;
+        final Object literal;
+
+        Condition(int column, String operator, Object literal) {
+            this.column = column;
+            this.operator = operator;
+            this.literal = literal;
+        }
+    }
+
+    // Rows selected by the WHERE clause starting at whereIndex, or every row if there is none
+    private BitSet findRows(Table table, List<Token> tokens, int whereIndex) {
+        if (tokens.size() <= whereIndex) {
+            return table.allRows();
+        }
+        if (!tokens.get(whereIndex).is("WHERE")) {
+            throw new IllegalArgumentException("ERROR: Expected WHERE but found " + tokens.get(whereIndex));
+        }
+
+        List<Condition> conditions = new ArrayList<>();
+        List<String> logicalOperators = new ArrayList<>();
+        int i = whereIndex + 1;
+        while (i < tokens.size()) {
+            if (!conditions.isEmpty()) {
+                if (!tokens.get(i).is("AND") && !tokens.get(i).is("OR")) {
+                    throw new IllegalArgumentException("ERROR: Expected AND or OR in WHERE clause but found " + tokens.get(i));
+                }
+                logicalOperators.add(tokens.get(i).getText().toUpperCase());
+                i++;
+            }
+            if (i + 2 >= tokens.size()) {
+                throw new IllegalArgumentException("ERROR: Incomplete condition in WHERE clause");
+            }
+            int column = resolveColumn(table, tokens.get(i));
+            String operator = tokens.get(i + 1).getText();
+            if (!isValidOperator(operator)) {
+                throw new IllegalArgumentException("ERROR: Invalid operator in WHERE clause: " + operator);
+            }
+            conditions.add(new Condition(column, operator, table.parseLiteral(column, tokens.get(i + 2).getValue())));
+            i += 3;
+        }
+        if (conditions.isEmpty()) {
+            throw new IllegalArgumentException("ERROR: Incomplete condition in WHERE clause");
+        }
+
+        if (!logicalOperators.contains("OR")) {
+            for (Condition condition : conditions) {
+                if (condition.column == 0 && condition.operator.equals("=")) {
+                    return primaryKeyLookup(table, condition.literal, conditions);
+                }
+            }
+        }
+
+        // one pass over a column per condition; AND binds tighter than OR, so each run of
+        // AND-ed conditions is intersected and the runs separated by OR are unioned
+        BitSet result = new BitSet();
+        BitSet rows = table.match(conditions.get(0).column, conditions.get(0).operator, conditions.get(0).literal);
+        for (int c = 1; c < conditions.size(); c++) {
+            boolean and = logicalOperators.get(c - 1).equals("AND");
+            if (and && rows.isEmpty()) {
+                continue;
+            }
+            Condition condition = conditions.get(c);
+            BitSet matches = table.match(condition.column, condition.operator, condition.literal);
+            if (and) {
+                rows.and(matches);
+            } else {
+                result.or(rows);
+                rows = matches;
+            }
+        }
+        result.or(rows);
+        return result;
+    }
+
+    // "id = literal" picks at most one row; the other conditions are checked on that row only
+    private BitSet primaryKeyLookup(Table table, Object key, List<Condition> conditions) {
+        BitSet rows = new BitSet();
+        int row = table.findByPrimaryKey(key);
+        if (row == -1) {
+            return rows;
+        }
+        for (Condition condition : conditions) {
+            if (!table.test(row, condition.column, condition.operator, condition.literal)) {
+                return rows;
+            }
+        }
+        rows.set(row);
+        return rows;
+    }
+
+    private boolean isValidOperator(String operator) {
+        return operator.equals("=") || operator.equals(">") || operator.equals("<") ||
+            operator.equals(">=") || operator.equals("<=") || operator.equals("!=");
+    }
+
+    // helper method to collect the comma separated items inside parentheses
+    // an item made of several words (unquoted New York) is joined with single spaces
+    private List<String> listBetweenParentheses(List<Token> tokens, int startIndex) {
+        List<String> items = new ArrayList<>();
+        StringBuilder item = new StringBuilder();
+        for (int i = startIndex; i < tokens.size(); i++) {
+            Token token = tokens.get(i);
+            if (token.is(",")) {
+                items.add(item.toString());
+                item.setLength(0);
+            } else if (!token.is("(") && !token.is(")")) {
+                if (item.length() > 0) {
+                    item.append(' ');
+                }
+                item.append(token.getValue());
+            }
+        }
+        items.add(item.toString());
+        return items;
+    }
+}
@@ -0,0 +1,67 @@
+package edu.smu.smusql;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+// INT column backed by a growable int[]
+public class IntColumn extends Column {
+
+    private int[] values = new int[INITIAL_CAPACITY];
+
+    @Override
+    public void append(Object value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, grow(values.length));
+        }
+        values[size++] = (Integer) value;
+    }
+
+    @Override
+    public Object get(int row) {
+        return values[row];
+    }
+
+    @Override
+    public void set(int row, Object value) {
+        values[row] = (Integer) value;
+    }
+
+    @Override
+    public void removeBySwap(int row) {
+        values[row] = values[--size];
+    }
+
+    @Override
+    public void match(String operator, Object literal, BitSet result) {
+        if (!(literal instanceof Number)) {
+            matchByComparison(operator, literal, result);
+            return;
+        }
+        // ints widen to double exactly, so one comparison covers INT and DOUBLE literals
+        double v = ((Number) literal).doubleValue();
+        int[] data = values;
+        int n = size;
+        switch (operator) {
+            case "=":
+                for (int i = 0; i < n; i++) if (data[i] == v) result.set(i);
+                break;
+            case "!=":
+                for (int i = 0; i < n; i++) if (data[i] != v) result.set(i);
+                break;
+            case ">":
+                for (int i = 0; i < n; i++) if (data[i] > v) result.set(i);
+                break;
+            case "<":
+                for (int i = 0; i < n; i++) if (data[i] < v) result.set(i);
+                break;
+            case ">=":
+                for (int i = 0; i < n; i++) if (data[i] >= v) result.set(i);
+                break;
+            case "<=":
+                for (int i = 0; i < n; i++) if (data[i] <= v) result.set(i);
+                break;
+            default:
+                throw new IllegalArgumentException("ERROR: Unsupported operator " + operator);
+        }
+    }
+}
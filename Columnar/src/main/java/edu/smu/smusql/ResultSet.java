@@ -0,0 +1,74 @@
+package edu.smu.smusql;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/*
+ * Forward-only cursor over the rows of a SELECT, returned by Engine.query.
+ * Which rows match is settled when the query runs; their values are copied out of the
+ * columns a batch at a time as the cursor reaches them, so memory does not grow with the
+ * size of the answer. A row deleted or updated while the cursor is open is skipped, or
+ * shows its new values, if its batch has not been read yet.
+ * ORDER BY results are read out when the query runs.
+ *
+ *   ResultSet rows = engine.query("SELECT * FROM users WHERE age > 30");
+ *   while (rows.next()) {
+ *       Object name = rows.getValue(1);
+ *   }
+ */
+public class ResultSet implements AutoCloseable {
+
+    private final List<String> columns;
+    private final Iterator<List<Object>> rows;
+    private List<Object> current;
+    private boolean closed;
+
+    ResultSet(List<String> columns, Iterator<List<Object>> rows) {
+        this.columns = columns;
+        this.rows = rows;
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    // Moves to the next row; false once every row has been read
+    public boolean next() {
+        current = !closed && rows.hasNext() ? rows.next() : null;
+        if (current == null) {
+            close();
+        }
+        return current != null;
+    }
+
+    // The cursor has no more rows afterwards
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    public Object getValue(int columnIndex) {
+        return currentRow().get(columnIndex);
+    }
+
+    public Object getValue(String column) {
+        int columnIndex = columns.indexOf(column);
+        if (columnIndex == -1) {
+            throw new IllegalArgumentException("ERROR: Column " + column + " does not exist");
+        }
+        return currentRow().get(columnIndex);
+    }
+
+    // The current row's values in column order, read-only
+    public List<Object> getRow() {
+        return Collections.unmodifiableList(currentRow());
+    }
+
+    private List<Object> currentRow() {
+        if (current == null) {
+            throw new IllegalStateException("No current row, call next() first");
+        }
+        return current;
+    }
+}
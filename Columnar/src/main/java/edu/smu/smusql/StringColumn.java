@@ -0,0 +1,130 @@
+package edu.smu.smusql;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * STRING column stored dictionary-coded: each distinct value is kept once and rows
+ * hold its int code. Low-cardinality columns such as city or category cost four bytes
+ * per row, and a predicate is evaluated once per distinct value instead of once per row.
+ *
+ * Codes are never reused, so the dictionary only pays off while few distinct values pass
+ * through the column. Once a value beyond MAX_DICTIONARY_SIZE arrives, the column drops
+ * its dictionary and stores plain Strings from then on, so a high-cardinality column such
+ * as name costs no more than a String[] and its dictionary does not grow without bound.
+ */
+public class StringColumn extends Column {
+
+    public static final int MAX_DICTIONARY_SIZE = 1024;
+
+    private int[] codes = new int[INITIAL_CAPACITY];
+    private List<String> dictionary = new ArrayList<>();
+    private Map<String, Integer> codeOf = new HashMap<>();
+    private String[] values; // the rows' values once the column is no longer coded, null until then
+
+    @Override
+    public void append(Object value) {
+        String text = (String) value;
+        if (staysCoded(text)) {
+            if (size == codes.length) {
+                codes = Arrays.copyOf(codes, grow(codes.length));
+            }
+            codes[size++] = encode(text);
+        } else {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, grow(values.length));
+            }
+            values[size++] = text;
+        }
+    }
+
+    @Override
+    public Object get(int row) {
+        return values != null ? values[row] : dictionary.get(codes[row]);
+    }
+
+    @Override
+    public void set(int row, Object value) {
+        String text = (String) value;
+        if (staysCoded(text)) {
+            codes[row] = encode(text);
+        } else {
+            values[row] = text;
+        }
+    }
+
+    @Override
+    public void removeBySwap(int row) {
+        if (values != null) {
+            values[row] = values[--size];
+            values[size] = null;
+        } else {
+            codes[row] = codes[--size];
+        }
+    }
+
+    public boolean isDictionaryCoded() {
+        return values == null;
+    }
+
+    // distinct values coded so far, 0 once the column stores plain Strings
+    public int distinctValues() {
+        return values != null ? 0 : dictionary.size();
+    }
+
+    // Whether the column is still coded once the value is stored: a new value that would
+    // take the dictionary past MAX_DICTIONARY_SIZE turns the column into plain Strings first
+    private boolean staysCoded(String value) {
+        if (values == null && dictionary.size() >= MAX_DICTIONARY_SIZE && !codeOf.containsKey(value)) {
+            values = new String[codes.length];
+            for (int row = 0; row < size; row++) {
+                values[row] = dictionary.get(codes[row]);
+            }
+            codes = null;
+            dictionary = null;
+            codeOf = null;
+        }
+        return values == null;
+    }
+
+    private int encode(String value) {
+        Integer code = codeOf.get(value);
+        if (code == null) {
+            code = dictionary.size();
+            dictionary.add(value);
+            codeOf.put(value, code);
+        }
+        return code;
+    }
+
+    @Override
+    public void match(String operator, Object literal, BitSet result) {
+        if (values != null) {
+            matchByComparison(operator, literal, result);
+            return;
+        }
+        int[] data = codes;
+        int n = size;
+
+        // equality needs a single code, and no row can match a value missing from the dictionary
+        if (operator.equals("=")) {
+            Integer code = codeOf.get(literal.toString());
+            if (code != null) {
+                int c = code;
+                for (int i = 0; i < n; i++) if (data[i] == c) result.set(i);
+            }
+            return;
+        }
+
+        // decide each distinct value once, then a single pass over the codes
+        boolean[] accepted = new boolean[dictionary.size()];
+        for (int code = 0; code < accepted.length; code++) {
+            accepted[code] = accepts(ColumnType.compareValues(dictionary.get(code), literal), operator);
+        }
+        for (int i = 0; i < n; i++) if (accepted[data[i]]) result.set(i);
+    }
+}
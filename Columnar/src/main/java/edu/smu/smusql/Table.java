@@ -0,0 +1,268 @@
+package edu.smu.smusql;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.locks.Lock;
+
+/*
+ * Column-oriented table: one Column per attribute, all indexed by row ordinal
+ * 0..rowCount-1, plus a hash map from primary key (the first column) to ordinal.
+ * A row only exists as a List<Object> when it is handed out by getRow.
+ *
+ * Cursors read their rows out of the columns READ_BATCH at a time through a Scan,
+ * each batch under the engine's read lock, so an open cursor holds no lock.
+ */
+public class Table {
+    private static final int READ_BATCH = 256;
+
+    private final String tableName;
+    private final List<String> columns;
+    private ColumnType[] types;     // null entries are inferred from the first inserted value
+    private final Column[] data;    // created once the column's type is known
+    private int rowCount;
+    private final Map<Object, Integer> primaryKeyIndex;
+    // Scans with rows left to read; deleteRow moves their pending ordinals along with the rows.
+    // Weak, so a cursor that is dropped before it is read to the end is forgotten.
+    private final Set<Scan> scans = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+
+    public Table(String tableName, List<String> columns) {
+        this(tableName, columns, new ColumnType[columns.size()]);
+    }
+
+    public Table(String tableName, List<String> columns, ColumnType[] types) {
+        this.tableName = tableName;
+        this.columns = columns;
+        this.types = types;
+        this.data = new Column[columns.size()];
+        this.primaryKeyIndex = new HashMap<>();
+        for (int i = 0; i < types.length; i++) {
+            if (types[i] != null) {
+                data[i] = Column.of(types[i]);
+            }
+        }
+    }
+
+    public String insertRow(List<String> rowValues) {
+        if (rowValues.size() != columns.size()) {
+            return "Mismatch between columns and values provided";
+        }
+        if (rowValues.contains(null)) {
+            return "Null values not allowed";
+        }
+        // convert every value first so a type mismatch leaves the table untouched
+        ColumnType[] rowTypes = new ColumnType[types.length];
+        Object[] row = new Object[rowValues.size()];
+        try {
+            for (int i = 0; i < row.length; i++) {
+                String value = rowValues.get(i);
+                rowTypes[i] = types[i] != null ? types[i] : ColumnType.infer(value);
+                row[i] = rowTypes[i].parse(value);
+            }
+        } catch (IllegalArgumentException e) {
+            return "ERROR: " + e.getMessage();
+        }
+        Object key = keyFor(row[0]);
+        if (primaryKeyIndex.containsKey(key)) {
+            return "Primary key " + row[0] + " existed";
+        }
+        types = rowTypes;
+        for (int i = 0; i < row.length; i++) {
+            if (data[i] == null) {
+                data[i] = Column.of(types[i]);
+            }
+            data[i].append(row[i]);
+        }
+        primaryKeyIndex.put(key, rowCount++);
+        return "Row Inserted";
+    }
+
+    // Marks the rows whose column satisfies "value operator literal"
+    public BitSet match(int columnIndex, String operator, Object literal) {
+        BitSet result = new BitSet(rowCount);
+        if (rowCount > 0) {
+            data[columnIndex].match(operator, literal, result);
+        }
+        return result;
+    }
+
+    public BitSet allRows() {
+        BitSet result = new BitSet(rowCount);
+        result.set(0, rowCount);
+        return result;
+    }
+
+    public boolean test(int row, int columnIndex, String operator, Object literal) {
+        return data[columnIndex].test(row, operator, literal);
+    }
+
+    // ordinal of the row with this primary key, or -1
+    public int findByPrimaryKey(Object literal) {
+        Integer row = primaryKeyIndex.get(keyFor(literal));
+        return row == null ? -1 : row;
+    }
+
+    public List<Object> getRow(int row) {
+        List<Object> values = new ArrayList<>(data.length);
+        for (Column column : data) {
+            values.add(column.get(row));
+        }
+        return values;
+    }
+
+    public Object getValue(int row, int columnIndex) {
+        return data[columnIndex].get(row);
+    }
+
+    // Changing the primary key moves the row's entry in the primary key index
+    public String updateValue(int row, int columnIndex, Object value) {
+        if (columnIndex == 0) {
+            Object oldKey = keyFor(data[0].get(row));
+            Object newKey = keyFor(value);
+            if (!newKey.equals(oldKey)) {
+                if (primaryKeyIndex.containsKey(newKey)) {
+                    return "ERROR: Primary key " + value + " existed";
+                }
+                primaryKeyIndex.remove(oldKey);
+                primaryKeyIndex.put(newKey, row);
+            }
+        }
+        data[columnIndex].set(row, value);
+        return null;
+    }
+
+    // Swap-remove: the last row moves into this ordinal in every column
+    public void deleteRow(int row) {
+        int last = rowCount - 1;
+        synchronized (scans) {
+            for (Scan scan : scans) {
+                scan.moved(last, row);
+            }
+        }
+        primaryKeyIndex.remove(keyFor(data[0].get(row)));
+        for (Column column : data) {
+            column.removeBySwap(row);
+        }
+        rowCount--;
+        if (row != last) {
+            primaryKeyIndex.put(keyFor(data[0].get(row)), row);
+        }
+    }
+
+    // Deletes the marked rows, highest ordinal first so a row moved by the swap is never one still to delete
+    public int deleteRows(BitSet rows) {
+        int deleted = 0;
+        for (int row = rows.previousSetBit(rowCount - 1); row >= 0; row = rows.previousSetBit(row - 1)) {
+            deleteRow(row);
+            deleted++;
+        }
+        return deleted;
+    }
+
+    // A cursor over the marked rows, in ordinal order, reading each batch under the given lock.
+    // Takes ownership of the BitSet.
+    Iterator<List<Object>> scan(BitSet rows, Lock readLock) {
+        Scan scan = new Scan(rows, readLock);
+        scans.add(scan);
+        return scan;
+    }
+
+    // The rows a cursor has still to read are the set bits of pending; a batch is copied out
+    // of the columns only when the cursor reaches it
+    private final class Scan implements Iterator<List<Object>> {
+        private final BitSet pending;
+        private final Lock readLock;
+        private final ArrayDeque<List<Object>> batch = new ArrayDeque<>();
+
+        Scan(BitSet pending, Lock readLock) {
+            this.pending = pending;
+            this.readLock = readLock;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (batch.isEmpty()) {
+                fill();
+            }
+            return !batch.isEmpty();
+        }
+
+        @Override
+        public List<Object> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return batch.poll();
+        }
+
+        private void fill() {
+            readLock.lock();
+            try {
+                for (int row = pending.nextSetBit(0); row >= 0 && batch.size() < READ_BATCH; row = pending.nextSetBit(row + 1)) {
+                    batch.add(getRow(row));
+                    pending.clear(row);
+                }
+                if (pending.isEmpty()) {
+                    scans.remove(this);
+                }
+            } finally {
+                readLock.unlock();
+            }
+        }
+
+        // The row at ordinal from is moved to ordinal to, whose row is deleted
+        void moved(int from, int to) {
+            boolean moving = from != to && pending.get(from);
+            pending.clear(from);
+            pending.set(to, moving);
+        }
+    }
+
+    // converts a SET value for storage in the given column
+    public Object parseValue(int columnIndex, String value) {
+        ColumnType type = types[columnIndex] != null ? types[columnIndex] : ColumnType.infer(value);
+        return type.parse(value);
+    }
+
+    // converts a WHERE literal once per query so the column loops compare primitives
+    public Object parseLiteral(int columnIndex, String literal) {
+        ColumnType type = types[columnIndex] != null ? types[columnIndex] : ColumnType.infer(literal);
+        return type.parseLiteral(literal);
+    }
+
+    // WHERE literals compare numerically, so 30.0 must find the INT key 30
+    private Object keyFor(Object value) {
+        if (types[0] == ColumnType.INT && value instanceof Double) {
+            double number = (Double) value;
+            return number == Math.rint(number) && Math.abs(number) <= Integer.MAX_VALUE ? (Object) (int) number : value;
+        }
+        if (types[0] == ColumnType.DOUBLE && value instanceof Integer) {
+            return ((Integer) value).doubleValue();
+        }
+        return value;
+    }
+
+    public ColumnType getColumnType(int columnIndex) {
+        return types[columnIndex];
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+}
@@ -0,0 +1,55 @@
+package edu.smu.smusql;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DeleteTest {
+
+    private Engine engine;
+
+    @BeforeEach
+    public void setUp() {
+        engine = new Engine();
+        engine.executeSQL("CREATE TABLE users (id, name, age)");
+        for (int i = 1; i <= 6; i++) {
+            engine.executeSQL("INSERT INTO users VALUES (" + i + ", 'User" + i + "', " + (20 + i) + ")");
+        }
+    }
+
+    @Test
+    public void testDeleteByPrimaryKeyMovesLastRow() {
+        assertEquals("Deleted 1 row(s) from users", engine.executeSQL("DELETE FROM users WHERE id = 2"));
+        // the last row takes the freed slot and stays reachable through the primary key index
+        String expected = "id\tname\tage\n" +
+                          "1\tUser1\t21\t\n" +
+                          "6\tUser6\t26\t\n" +
+                          "3\tUser3\t23\t\n" +
+                          "4\tUser4\t24\t\n" +
+                          "5\tUser5\t25\t\n";
+        assertEquals(expected, engine.executeSQL("SELECT * FROM users"));
+        assertEquals("id\tname\tage\n6\tUser6\t26\t\n", engine.executeSQL("SELECT * FROM users WHERE id = 6"));
+    }
+
+    @Test
+    public void testDeleteRangeIncludingLastRows() {
+        assertEquals("Deleted 4 row(s) from users", engine.executeSQL("DELETE FROM users WHERE age >= 22 AND age != 25"));
+        String expected = "id\tname\tage\n" +
+                          "1\tUser1\t21\t\n" +
+                          "5\tUser5\t25\t\n";
+        assertEquals(expected, engine.executeSQL("SELECT * FROM users"));
+        assertEquals("id\tname\tage\n5\tUser5\t25\t\n", engine.executeSQL("SELECT * FROM users WHERE id = 5"));
+    }
+
+    @Test
+    public void testDeleteAll() {
+        assertEquals("Deleted 6 row(s) from users", engine.executeSQL("DELETE FROM users"));
+        assertEquals("No rows to delete", engine.executeSQL("DELETE FROM users"));
+        assertEquals("Row Inserted", engine.executeSQL("INSERT INTO users VALUES (1, 'User1', 21)"));
+    }
+
+    @Test
+    public void testDeleteNoMatch() {
+        assertEquals("No rows matched the condition, nothing to delete", engine.executeSQL("DELETE FROM users WHERE id = 99"));
+    }
+}
@@ -0,0 +1,68 @@
+package edu.smu.smusql;
+
+import java.util.BitSet;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DictionaryTest {
+
+    @Test
+    public void testLowCardinalityColumnStaysCoded() {
+        StringColumn column = new StringColumn();
+        for (int row = 0; row < 5000; row++) {
+            column.append("city" + row % 10);
+        }
+        column.set(0, "city3");
+        column.removeBySwap(1);
+
+        assertTrue(column.isDictionaryCoded());
+        assertEquals(10, column.distinctValues());
+        assertEquals("city9", column.get(1)); // the last row moved into the freed ordinal
+        BitSet matches = new BitSet();
+        column.match("=", "city3", matches);
+        assertEquals(501, matches.cardinality());
+    }
+
+    @Test
+    public void testHighCardinalityColumnDropsItsDictionary() {
+        StringColumn column = new StringColumn();
+        for (int row = 0; row < StringColumn.MAX_DICTIONARY_SIZE; row++) {
+            column.append("name" + row);
+        }
+        assertTrue(column.isDictionaryCoded());
+
+        column.set(7, "someone new");
+        assertFalse(column.isDictionaryCoded());
+        assertEquals(0, column.distinctValues());
+        assertEquals("name6", column.get(6));
+        assertEquals("someone new", column.get(7));
+
+        column.append("name1");
+        column.removeBySwap(0);
+        assertEquals("name1", column.get(0));
+        assertEquals(StringColumn.MAX_DICTIONARY_SIZE, column.size());
+        BitSet matches = new BitSet();
+        column.match("=", "name1", matches);
+        assertEquals(BitSet.valueOf(new long[] { 0b11 }), matches);
+        matches.clear();
+        column.match(">=", "name998", matches);
+        assertEquals(3, matches.cardinality()); // name998, name999 and someone new
+    }
+
+    @Test
+    public void testQueriesAfterTheColumnDropsItsDictionary() {
+        Engine engine = new Engine();
+        engine.executeSQL("CREATE TABLE users (id, name, city)");
+        for (int id = 0; id < 3000; id++) {
+            engine.executeSQL("INSERT INTO users VALUES (" + id + ", 'user" + id + "', 'city" + id % 10 + "')");
+        }
+        engine.executeSQL("UPDATE users SET name = 'renamed' WHERE city = 'city3'");
+        engine.executeSQL("DELETE FROM users WHERE id < 1000");
+
+        assertEquals("id\tname\tcity\n2999\tuser2999\tcity9\t\n", engine.executeSQL("SELECT * FROM users WHERE name = 'user2999'"));
+        assertEquals("id\tname\tcity\n1003\trenamed\tcity3\t\n",
+                engine.executeSQL("SELECT * FROM users WHERE name = 'renamed' AND id < 1010"));
+        assertEquals("id\tname\tcity\n", engine.executeSQL("SELECT * FROM users WHERE name = 'user5'"));
+    }
+}
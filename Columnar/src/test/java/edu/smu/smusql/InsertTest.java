@@ -0,0 +1,50 @@
+package edu.smu.smusql;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InsertTest {
+
+    private Engine engine;
+
+    @BeforeEach
+    public void setUp() {
+        engine = new Engine();
+        engine.executeSQL("CREATE TABLE users (id, name, age)");
+    }
+
+    @Test
+    public void testInsertRow() {
+        assertEquals("Row Inserted", engine.executeSQL("INSERT INTO users VALUES (1, 'John Doe', 30)"));
+        assertEquals("id\tname\tage\n1\tJohn Doe\t30\t\n", engine.executeSQL("SELECT * FROM users"));
+    }
+
+    @Test
+    public void testInsertDuplicatePrimaryKey() {
+        engine.executeSQL("INSERT INTO users VALUES (1, 'John Doe', 30)");
+        assertEquals("Primary key 1 existed", engine.executeSQL("INSERT INTO users VALUES (1, 'Jane Doe', 25)"));
+    }
+
+    @Test
+    public void testInsertTypeMismatch() {
+        engine.executeSQL("INSERT INTO users VALUES (1, 'John Doe', 30)");
+        assertEquals("ERROR: Type mismatch: thirty is not an INT", engine.executeSQL("INSERT INTO users VALUES (2, 'Jane Doe', thirty)"));
+        assertEquals("id\tname\tage\n1\tJohn Doe\t30\t\n", engine.executeSQL("SELECT * FROM users"));
+    }
+
+    @Test
+    public void testInsertDeclaredTypes() {
+        engine.executeSQL("CREATE TABLE products (id INT, name STRING, price DOUBLE)");
+        engine.executeSQL("INSERT INTO products VALUES (1, 'Pen', 3)");
+        assertEquals("id\tname\tprice\n1\tPen\t3.0\t\n", engine.executeSQL("SELECT * FROM products"));
+    }
+
+    @Test
+    public void testInsertManyRowsGrowsColumns() {
+        for (int i = 0; i < 1000; i++) {
+            engine.executeSQL("INSERT INTO users VALUES (" + i + ", 'User" + i + "', " + (i % 50) + ")");
+        }
+        assertEquals("id\tname\tage\n999\tUser999\t49\t\n", engine.executeSQL("SELECT * FROM users WHERE id = 999"));
+    }
+}
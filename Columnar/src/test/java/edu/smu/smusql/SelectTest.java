@@ -0,0 +1,213 @@
+package edu.smu.smusql;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SelectTest {
+
+    private Engine engine;
+
+    @BeforeEach
+    public void setUp() {
+        engine = new Engine();
+
+        // Create a table for testing
+        engine.executeSQL("CREATE TABLE student (id, name, gpa, age, city)");
+
+        // Insert some sample data
+        engine.executeSQL("INSERT INTO student VALUES (1, 'John Doe', 3.5, 20, 'Boston')");
+        engine.executeSQL("INSERT INTO student VALUES (2, 'Jane Smith', 3.9, 9, 'New York')");
+        engine.executeSQL("INSERT INTO student VALUES (3, 'Mark Davis', 3.2, 21, 'Boston')");
+        engine.executeSQL("INSERT INTO student VALUES (4, 'Emma Wilson', 3.8, 22, 'Chicago')");
+    }
+
+    @Test
+    public void testSelectAll() {
+        String expected = "id\tname\tgpa\tage\tcity\n" +
+                          "1\tJohn Doe\t3.5\t20\tBoston\t\n" +
+                          "2\tJane Smith\t3.9\t9\tNew York\t\n" +
+                          "3\tMark Davis\t3.2\t21\tBoston\t\n" +
+                          "4\tEmma Wilson\t3.8\t22\tChicago\t\n";
+        assertEquals(expected, engine.executeSQL("SELECT * FROM student"));
+    }
+
+    @Test
+    public void testSelectIntRangeIsNumeric() {
+        // 9 < 20 numerically although "9" > "20" as strings
+        String expected = "id\tname\tgpa\tage\tcity\n" +
+                          "2\tJane Smith\t3.9\t9\tNew York\t\n";
+        assertEquals(expected, engine.executeSQL("SELECT * FROM student WHERE age < 20"));
+    }
+
+    @Test
+    public void testSelectDoubleRangeWithAnd() {
+        String expected = "id\tname\tgpa\tage\tcity\n" +
+                          "1\tJohn Doe\t3.5\t20\tBoston\t\n" +
+                          "4\tEmma Wilson\t3.8\t22\tChicago\t\n";
+        assertEquals(expected, engine.executeSQL("SELECT * FROM student WHERE gpa >= 3.5 AND gpa < 3.9"));
+    }
+
+    @Test
+    public void testSelectDictionaryCodedEqualityAndOr() {
+        String expected = "id\tname\tgpa\tage\tcity\n" +
+                          "1\tJohn Doe\t3.5\t20\tBoston\t\n" +
+                          "3\tMark Davis\t3.2\t21\tBoston\t\n" +
+                          "4\tEmma Wilson\t3.8\t22\tChicago\t\n";
+        assertEquals(expected, engine.executeSQL("SELECT * FROM student WHERE city = 'Boston' OR city = 'Chicago'"));
+        assertEquals("id\tname\tgpa\tage\tcity\n", engine.executeSQL("SELECT * FROM student WHERE city = 'Miami'"));
+    }
+
+    @Test
+    public void testSelectStringRange() {
+        String expected = "id\tname\tgpa\tage\tcity\n" +
+                          "2\tJane Smith\t3.9\t9\tNew York\t\n";
+        assertEquals(expected, engine.executeSQL("SELECT * FROM student WHERE city > 'Chicago'"));
+    }
+
+    @Test
+    public void testSelectByPrimaryKey() {
+        String expected = "id\tname\tgpa\tage\tcity\n" +
+                          "3\tMark Davis\t3.2\t21\tBoston\t\n";
+        assertEquals(expected, engine.executeSQL("SELECT * FROM student WHERE id = 3"));
+        assertEquals(expected, engine.executeSQL("SELECT * FROM student WHERE id = 3.0 AND city = 'Boston'"));
+        assertEquals("id\tname\tgpa\tage\tcity\n", engine.executeSQL("SELECT * FROM student WHERE id = 3 AND age > 30"));
+    }
+
+    @Test
+    public void testSelectAndBindsTighterThanOr() {
+        String expected = "id\tname\tgpa\tage\tcity\n" +
+                          "1\tJohn Doe\t3.5\t20\tBoston\t\n" +
+                          "3\tMark Davis\t3.2\t21\tBoston\t\n";
+        assertEquals(expected, engine.executeSQL("SELECT * FROM student WHERE city = 'Boston' OR age = 22 AND name = 'Nobody'"));
+        assertEquals(expected, engine.executeSQL("SELECT * FROM student WHERE age = 22 AND name = 'Nobody' OR city = 'Boston'"));
+    }
+
+    @Test
+    public void testSelectRejectsUnknownWhereTokens() {
+        assertTrue(engine.executeSQL("SELECT * FROM student WHERE age BETWEEN 9 AND 20").startsWith("ERROR:"));
+        assertTrue(engine.executeSQL("SELECT * FROM student WHERE NOT (age > 20)").startsWith("ERROR:"));
+        assertTrue(engine.executeSQL("SELECT * FROM student WHERE age > 20 LIMIT").startsWith("ERROR:"));
+    }
+
+    @Test
+    public void testQueryReturnsCursorOverMatchingRows() {
+        ResultSet rows = engine.query("SELECT * FROM student WHERE city = 'Boston'");
+
+        assertTrue(rows.next());
+        assertEquals(1, rows.getValue("id"));
+        assertEquals("John Doe", rows.getValue(1));
+        engine.executeSQL("DELETE FROM student WHERE id = 3"); // the cursor already holds its rows
+        assertTrue(rows.next());
+        assertEquals("Mark Davis", rows.getValue("name"));
+        assertFalse(rows.next());
+        assertThrows(IllegalArgumentException.class, () -> engine.query("DELETE FROM student"));
+    }
+
+    @Test
+    public void testResultWriterStreamsSameTextAsSelect() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int written = ResultWriter.write(engine.query("SELECT * FROM student WHERE age > 9"), out);
+
+        assertEquals(3, written);
+        assertEquals(engine.executeSQL("SELECT * FROM student WHERE age > 9"), out.toString("UTF-8"));
+    }
+
+    @Test
+    public void testSelectWithLimitAndOffset() {
+        String expected = "id\tname\tgpa\tage\tcity\n" +
+                          "2\tJane Smith\t3.9\t9\tNew York\t\n" +
+                          "3\tMark Davis\t3.2\t21\tBoston\t\n";
+        assertEquals(expected, engine.executeSQL("SELECT * FROM student LIMIT 2 OFFSET 1"));
+        assertEquals("id\tname\tgpa\tage\tcity\n", engine.executeSQL("SELECT * FROM student LIMIT 0"));
+        assertEquals("id\tname\tgpa\tage\tcity\n", engine.executeSQL("SELECT * FROM student LIMIT 5 OFFSET 4"));
+    }
+
+    @Test
+    public void testSelectWithWhereAndLimit() {
+        String expected = "id\tname\tgpa\tage\tcity\n" +
+                          "3\tMark Davis\t3.2\t21\tBoston\t\n";
+        assertEquals(expected, engine.executeSQL("SELECT * FROM student WHERE age > 9 LIMIT 1 OFFSET 1"));
+    }
+
+    @Test
+    public void testSelectWithInvalidLimit() {
+        assertEquals("ERROR: LIMIT must be a non-negative integer", engine.executeSQL("SELECT * FROM student LIMIT -1"));
+        assertEquals("ERROR: OFFSET must be a non-negative integer", engine.executeSQL("SELECT * FROM student LIMIT 1 OFFSET 0.5"));
+        assertEquals("ERROR: Invalid LIMIT syntax", engine.executeSQL("SELECT * FROM student LIMIT 1 2"));
+    }
+
+    @Test
+    public void testSelectOrderByDescendingWithLimit() {
+        String expected = "id\tname\tgpa\tage\tcity\n" +
+                          "2\tJane Smith\t3.9\t9\tNew York\t\n" +
+                          "4\tEmma Wilson\t3.8\t22\tChicago\t\n";
+        assertEquals(expected, engine.executeSQL("SELECT * FROM student ORDER BY gpa DESC LIMIT 2"));
+    }
+
+    @Test
+    public void testSelectWithWhereOrderByAscending() {
+        // INT values sort numerically: 9 before 20
+        String expected = "id\tname\tgpa\tage\tcity\n" +
+                          "2\tJane Smith\t3.9\t9\tNew York\t\n" +
+                          "1\tJohn Doe\t3.5\t20\tBoston\t\n" +
+                          "4\tEmma Wilson\t3.8\t22\tChicago\t\n";
+        assertEquals(expected, engine.executeSQL("SELECT * FROM student WHERE gpa > 3.4 ORDER BY age ASC"));
+    }
+
+    @Test
+    public void testSelectOrderByWithOffset() {
+        String expected = "id\tname\tgpa\tage\tcity\n" +
+                          "1\tJohn Doe\t3.5\t20\tBoston\t\n";
+        assertEquals(expected, engine.executeSQL("SELECT * FROM student ORDER BY name DESC LIMIT 1 OFFSET 1"));
+    }
+
+    @Test
+    public void testSelectWithInvalidOrderBy() {
+        assertEquals("ERROR: Invalid ORDER BY syntax", engine.executeSQL("SELECT * FROM student ORDER gpa"));
+        assertEquals("ERROR: Invalid ORDER BY syntax", engine.executeSQL("SELECT * FROM student ORDER BY gpa UP"));
+        assertEquals("ERROR: Column grade does not exist", engine.executeSQL("SELECT * FROM student ORDER BY grade"));
+    }
+
+    @Test
+    public void testSelectUnknownColumn() {
+        assertEquals("ERROR: Column grade does not exist", engine.executeSQL("SELECT * FROM student WHERE grade = 1"));
+    }
+
+    @Test
+    public void testCursorReadsBatchesAroundDeletes() {
+        engine.executeSQL("CREATE TABLE orders (id, amount)");
+        for (int id = 0; id < 600; id++) {
+            engine.executeSQL("INSERT INTO orders VALUES (" + id + ", " + id % 7 + ")");
+        }
+        ResultSet rows = engine.query("SELECT * FROM orders WHERE id >= 100");
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 10 && rows.next(); i++) {
+            ids.add(((Number) rows.getValue("id")).intValue());
+        }
+
+        // deleting moves the last rows into the freed ordinals; the cursor follows them,
+        // skips a deleted row past the batch it has read and does not return a row twice
+        engine.executeSQL("DELETE FROM orders WHERE id < 50");
+        engine.executeSQL("DELETE FROM orders WHERE id = 500");
+        engine.executeSQL("DELETE FROM orders WHERE id = 100");
+        engine.executeSQL("INSERT INTO orders VALUES (1000, 1)");
+        while (rows.next()) {
+            ids.add(((Number) rows.getValue("id")).intValue());
+        }
+
+        List<Integer> expected = new ArrayList<>();
+        for (int id = 100; id < 600; id++) {
+            if (id != 500) {
+                expected.add(id);
+            }
+        }
+        ids.sort(null);
+        assertEquals(expected, ids);
+        assertEquals("id\tamount\n", engine.executeSQL("SELECT * FROM orders WHERE id > 100 LIMIT 2 OFFSET 600"));
+    }
+}
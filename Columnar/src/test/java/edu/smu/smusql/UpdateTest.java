@@ -0,0 +1,61 @@
+package edu.smu.smusql;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UpdateTest {
+
+    private Engine engine;
+
+    @BeforeEach
+    public void setUp() {
+        engine = new Engine();
+        engine.executeSQL("CREATE TABLE users (id, name, age, city)");
+        engine.executeSQL("INSERT INTO users VALUES (1, 'John', 30, 'Boston')");
+        engine.executeSQL("INSERT INTO users VALUES (2, 'Jane', 25, 'Chicago')");
+        engine.executeSQL("INSERT INTO users VALUES (3, 'Mark', 35, 'Boston')");
+    }
+
+    @Test
+    public void testUpdateByDictionaryColumn() {
+        assertEquals("UPDATE successful, updated 2 rows", engine.executeSQL("UPDATE users SET city = 'New York' WHERE city = 'Boston'"));
+        String expected = "id\tname\tage\tcity\n" +
+                          "1\tJohn\t30\tNew York\t\n" +
+                          "3\tMark\t35\tNew York\t\n";
+        assertEquals(expected, engine.executeSQL("SELECT * FROM users WHERE city = 'New York'"));
+    }
+
+    @Test
+    public void testUpdateTypeMismatch() {
+        assertEquals("ERROR: Type mismatch: old is not an INT", engine.executeSQL("UPDATE users SET age = old WHERE id = 1"));
+    }
+
+    @Test
+    public void testUpdatePrimaryKeyMovesIndexEntry() {
+        assertEquals("UPDATE successful, updated 1 rows", engine.executeSQL("UPDATE users SET id = 10 WHERE id = 1"));
+        assertEquals("id\tname\tage\tcity\n", engine.executeSQL("SELECT * FROM users WHERE id = 1"));
+        assertEquals("id\tname\tage\tcity\n10\tJohn\t30\tBoston\t\n", engine.executeSQL("SELECT * FROM users WHERE id = 10"));
+        assertEquals("ERROR: Duplicate primary key: 2", engine.executeSQL("UPDATE users SET id = 2 WHERE id = 3"));
+        assertEquals("UPDATE successful, updated 1 rows", engine.executeSQL("UPDATE users SET id = 2 WHERE id = 2"));
+    }
+
+    @Test
+    public void testPrimaryKeyUpdateOfSeveralRowsIsRejectedWhole() {
+        assertEquals("ERROR: Duplicate primary key: 9", engine.executeSQL("UPDATE users SET id = 9 WHERE age >= 10"));
+        assertEquals("ERROR: Duplicate primary key: 9", engine.executeSQL("UPDATE users SET id = 9 WHERE city = 'Boston'"));
+
+        String unchanged = "id\tname\tage\tcity\n" +
+                           "1\tJohn\t30\tBoston\t\n" +
+                           "2\tJane\t25\tChicago\t\n" +
+                           "3\tMark\t35\tBoston\t\n";
+        assertEquals(unchanged, engine.executeSQL("SELECT * FROM users"));
+        assertEquals("id\tname\tage\tcity\n", engine.executeSQL("SELECT * FROM users WHERE id = 9"));
+        assertEquals("Row Inserted", engine.executeSQL("INSERT INTO users VALUES (9, 'Anna', 40, 'Denver')"));
+    }
+
+    @Test
+    public void testUpdateNoMatch() {
+        assertEquals("No rows updated", engine.executeSQL("UPDATE users SET age = 40 WHERE age > 100"));
+    }
+}
@@ -0,0 +1,317 @@
+package edu.smu.smusql;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * The select list of an aggregate query, e.g.
+ *   SELECT category, COUNT(*), AVG(price) FROM products GROUP BY category
+ *
+ * Rows are aggregated in one pass into a hash map from the group key to the group's
+ * accumulators. The accumulators are primitive arrays with one slot per select item,
+ * so adding a row to an existing group neither allocates nor boxes a number.
+ *
+ * Without a WHERE clause some queries are answered without reading any row: COUNT(*)
+ * is the size of the row map, or of each value's key set in the GROUP BY column's
+ * index, and MIN/MAX of an indexed column only look at the column's distinct values.
+ */
+final class Aggregation {
+
+    enum Function { COUNT, SUM, MIN, MAX, AVG }
+
+    private static final Object NO_GROUP = new Object(); // the single group of a query without GROUP BY
+
+    private final Table table;
+    private final Function[] functions; // per select item, null for a GROUP BY column
+    private final int[] itemColumns;    // per select item, -1 for COUNT(*)
+    private final int[] groupColumns;
+    private final List<String> columns;
+
+    private Aggregation(Table table, Function[] functions, int[] itemColumns, int[] groupColumns,
+                        List<String> columns) {
+        this.table = table;
+        this.functions = functions;
+        this.itemColumns = itemColumns;
+        this.groupColumns = groupColumns;
+        this.columns = columns;
+    }
+
+    // Parses the select list (the tokens between SELECT and FROM) against the GROUP BY column names.
+    // Every plain column of the select list must be one of the GROUP BY columns.
+    static Aggregation parse(Table table, List<Token> selectList, List<Token> groupBy) {
+        int[] groupColumns = new int[groupBy.size()];
+        for (int i = 0; i < groupBy.size(); i++) {
+            groupColumns[i] = column(table, groupBy.get(i));
+        }
+
+        List<List<Token>> items = split(selectList);
+        Function[] functions = new Function[items.size()];
+        int[] itemColumns = new int[items.size()];
+        List<String> columns = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            List<Token> item = items.get(i);
+            if (item.size() == 1 && item.get(0).is("*")) {
+                throw new IllegalArgumentException("ERROR: SELECT * cannot be combined with aggregates or GROUP BY");
+            } else if (item.size() == 1) {
+                int column = column(table, item.get(0));
+                itemColumns[i] = column;
+                if (Arrays.stream(groupColumns).noneMatch(c -> c == column)) {
+                    throw new IllegalArgumentException("ERROR: Column " + item.get(0) + " must appear in GROUP BY");
+                }
+            } else {
+                functions[i] = function(item);
+                itemColumns[i] = item.get(2).is("*") ? -1 : column(table, item.get(2));
+                if (itemColumns[i] == -1 && functions[i] != Function.COUNT) {
+                    throw new IllegalArgumentException("ERROR: Only COUNT accepts *");
+                }
+                if (itemColumns[i] != -1 && (functions[i] == Function.SUM || functions[i] == Function.AVG)
+                        && table.getColumnType(itemColumns[i]) == ColumnType.STRING) {
+                    throw new IllegalArgumentException("ERROR: " + functions[i] + " needs a numeric column");
+                }
+            }
+            columns.add(label(table, functions[i], itemColumns[i]));
+        }
+        return new Aggregation(table, functions, itemColumns, groupColumns, Collections.unmodifiableList(columns));
+    }
+
+    private static List<List<Token>> split(List<Token> selectList) {
+        List<List<Token>> items = new ArrayList<>();
+        List<Token> item = new ArrayList<>();
+        for (Token token : selectList) {
+            if (token.is(",")) {
+                items.add(item);
+                item = new ArrayList<>();
+            } else {
+                item.add(token);
+            }
+        }
+        items.add(item);
+        for (List<Token> tokens : items) {
+            if (tokens.size() != 1 && tokens.size() != 4) {
+                throw new IllegalArgumentException("ERROR: Invalid SELECT syntax");
+            }
+        }
+        return items;
+    }
+
+    // FUNCTION ( column ) or COUNT ( * )
+    private static Function function(List<Token> item) {
+        if (!item.get(1).is("(") || !item.get(3).is(")")) {
+            throw new IllegalArgumentException("ERROR: Invalid SELECT syntax");
+        }
+        for (Function function : Function.values()) {
+            if (item.get(0).is(function.name())) {
+                return function;
+            }
+        }
+        throw new IllegalArgumentException("ERROR: Unknown aggregate function " + item.get(0));
+    }
+
+    private static int column(Table table, Token name) {
+        int columnIndex = table.getColumns().indexOf(name.getText());
+        if (columnIndex == -1) {
+            throw new IllegalArgumentException("ERROR: Column " + name.getText() + " does not exist");
+        }
+        return columnIndex;
+    }
+
+    private static String label(Table table, Function function, int column) {
+        String name = column == -1 ? "*" : table.getColumns().get(column);
+        return function == null ? name : function + "(" + name + ")";
+    }
+
+    // The result column names, e.g. [category, COUNT(*), AVG(price)]
+    List<String> getColumns() {
+        return columns;
+    }
+
+    // Position in the result of an ORDER BY item written like a select item, or -1
+    int indexOf(List<Token> item) {
+        if (item.size() == 1) {
+            return columns.indexOf(item.get(0).getText());
+        }
+        if (item.size() != 4) {
+            return -1;
+        }
+        int column = item.get(2).is("*") ? -1 : column(table, item.get(2));
+        return columns.indexOf(label(table, function(item), column));
+    }
+
+    /* ================= Hash aggregation ================= */
+
+    // Accumulators of one group, one slot per select item
+    private final class Group {
+        private final List<Object> firstRow; // supplies the GROUP BY column values
+        private final long[] counts = new long[functions.length];
+        private final long[] integerSums = new long[functions.length];
+        private final double[] fractionalSums = new double[functions.length];
+        private final boolean[] fractional = new boolean[functions.length];
+        private final Object[] extremes = new Object[functions.length];
+
+        private Group(List<Object> firstRow) {
+            this.firstRow = firstRow;
+        }
+
+        private void add(List<Object> row) {
+            for (int i = 0; i < functions.length; i++) {
+                Function function = functions[i];
+                if (function == null) {
+                    continue;
+                }
+                counts[i]++;
+                if (function == Function.COUNT) {
+                    continue;
+                }
+                Object value = row.get(itemColumns[i]);
+                if (function == Function.MIN || function == Function.MAX) {
+                    if (extremes[i] == null || replaces(function, value, extremes[i])) {
+                        extremes[i] = value;
+                    }
+                } else if (value instanceof Integer) {
+                    integerSums[i] += (Integer) value;
+                } else if (value instanceof Number) {
+                    fractionalSums[i] += ((Number) value).doubleValue();
+                    fractional[i] = true;
+                } else {
+                    throw new IllegalArgumentException("ERROR: " + function + " needs a numeric column");
+                }
+            }
+        }
+
+        private List<Object> toRow() {
+            List<Object> row = new ArrayList<>(functions.length);
+            for (int i = 0; i < functions.length; i++) {
+                Function function = functions[i];
+                if (function == null) {
+                    row.add(firstRow.get(itemColumns[i]));
+                } else if (function == Function.COUNT) {
+                    row.add(counts[i]);
+                } else if (counts[i] == 0) {
+                    row.add(null); // SUM, AVG, MIN and MAX of no rows
+                } else if (function == Function.SUM) {
+                    row.add(fractional[i] ? (Object) (integerSums[i] + fractionalSums[i]) : (Object) integerSums[i]);
+                } else if (function == Function.AVG) {
+                    row.add((integerSums[i] + fractionalSums[i]) / counts[i]);
+                } else {
+                    row.add(extremes[i]);
+                }
+            }
+            return row;
+        }
+    }
+
+    // One result row per group, groups in the order they were first seen. A query without
+    // GROUP BY always has one row, even when no row matched (COUNT(*) is then 0).
+    List<List<Object>> aggregate(Iterator<List<Object>> rows) {
+        Map<Object, Group> groups = new LinkedHashMap<>();
+        if (groupColumns.length == 0) {
+            groups.put(NO_GROUP, new Group(null));
+        }
+        while (rows.hasNext()) {
+            List<Object> row = rows.next();
+            Object key = groupKey(row);
+            Group group = groups.get(key);
+            if (group == null) {
+                group = new Group(row);
+                groups.put(key, group);
+            }
+            group.add(row);
+        }
+        List<List<Object>> result = new ArrayList<>(groups.size());
+        for (Group group : groups.values()) {
+            result.add(group.toRow());
+        }
+        return result;
+    }
+
+    // a single GROUP BY column is its own key, so the common case allocates no key object
+    private Object groupKey(List<Object> row) {
+        switch (groupColumns.length) {
+            case 0:
+                return NO_GROUP;
+            case 1:
+                return row.get(groupColumns[0]);
+            default:
+                Object[] key = new Object[groupColumns.length];
+                for (int i = 0; i < key.length; i++) {
+                    key[i] = row.get(groupColumns[i]);
+                }
+                return Arrays.asList(key);
+        }
+    }
+
+    /* ================= Answers from the indexes ================= */
+
+    // The result of the query over the whole table read from the row map and the indexes alone, or
+    // null if some select item needs the rows or they still hold versions a view at asOf cannot see
+    List<List<Object>> fromIndexes(long asOf) {
+        return table.readCurrent(asOf, this::fromCurrentIndexes);
+    }
+
+    private List<List<Object>> fromCurrentIndexes() {
+        if (groupColumns.length > 1) {
+            return null;
+        }
+        if (groupColumns.length == 1) {
+            return groupedFromIndex(groupColumns[0]);
+        }
+        List<Object> row = new ArrayList<>(functions.length);
+        for (int i = 0; i < functions.length; i++) {
+            if (functions[i] == Function.COUNT) {
+                row.add((long) table.getRows().size());
+            } else if ((functions[i] == Function.MIN || functions[i] == Function.MAX)
+                    && table.hasIndex(itemColumns[i])) {
+                row.add(extreme(table.getIndex(itemColumns[i]).keySet(), functions[i]));
+            } else {
+                return null;
+            }
+        }
+        table.getTrace().countIndexProbe();
+        return Collections.singletonList(row);
+    }
+
+    // GROUP BY an indexed column: each distinct value's key set is the group, so counts are set sizes
+    private List<List<Object>> groupedFromIndex(int groupColumn) {
+        if (!table.hasIndex(groupColumn)) {
+            return null;
+        }
+        for (int i = 0; i < functions.length; i++) {
+            boolean answered = functions[i] == null || functions[i] == Function.COUNT
+                    || (functions[i] == Function.MIN || functions[i] == Function.MAX) && itemColumns[i] == groupColumn;
+            if (!answered) {
+                return null;
+            }
+        }
+        table.getTrace().countIndexProbe();
+        List<List<Object>> result = new ArrayList<>();
+        for (Map.Entry<Object, Set<Object>> entry : table.getIndex(groupColumn).entrySet()) {
+            List<Object> row = new ArrayList<>(functions.length);
+            for (Function function : functions) {
+                row.add(function == Function.COUNT ? (Object) (long) entry.getValue().size() : entry.getKey());
+            }
+            result.add(row);
+        }
+        return result;
+    }
+
+    private static Object extreme(Set<Object> values, Function function) {
+        Object extreme = null;
+        for (Object value : values) {
+            if (extreme == null || replaces(function, value, extreme)) {
+                extreme = value;
+            }
+        }
+        return extreme;
+    }
+
+    private static boolean replaces(Function function, Object value, Object extreme) {
+        int comparison = ColumnType.compareValues(value, extreme);
+        return function == Function.MIN ? comparison < 0 : comparison > 0;
+    }
+}
@@ -0,0 +1,132 @@
+package edu.smu.smusql;
+
+import java.util.Comparator;
+
+/*
+ * Storage type of a column. Declared in CREATE TABLE (e.g. "age INT") or inferred
+ * from the first value inserted into the column. Cells are stored as Integer, Double
+ * or String so predicates compare values directly instead of re-parsing strings.
+ */
+public enum ColumnType {
+    INT, DOUBLE, STRING;
+
+    // Orders typed cell values: numbers numerically (mixed INT/DOUBLE allowed), everything else as strings
+    public static final Comparator<Object> VALUE_ORDER = ColumnType::compareValues;
+
+    // Maps a type name from CREATE TABLE to a column type
+    public static ColumnType fromName(String name) {
+        switch (name.toUpperCase()) {
+            case "INT":
+            case "INTEGER":
+                return INT;
+            case "DOUBLE":
+            case "FLOAT":
+            case "DECIMAL":
+                return DOUBLE;
+            case "STRING":
+            case "TEXT":
+            case "VARCHAR":
+                return STRING;
+            default:
+                throw new IllegalArgumentException("Unknown column type: " + name);
+        }
+    }
+
+    // Picks the narrowest type that can hold the literal
+    public static ColumnType infer(String literal) {
+        if (isInteger(literal)) {
+            // Anything longer than 9 digits might not fit into an int
+            return digitCount(literal) <= 9 ? INT : DOUBLE;
+        }
+        return isDecimal(literal) ? DOUBLE : STRING;
+    }
+
+    // Converts a value for storage, rejecting values that do not fit the column type
+    public Object parse(String literal) {
+        switch (this) {
+            case INT:
+                if (!isInteger(literal) || digitCount(literal) > 9) {
+                    throw new IllegalArgumentException("Type mismatch: " + literal + " is not an INT");
+                }
+                return Integer.valueOf(literal);
+            case DOUBLE:
+                if (!isInteger(literal) && !isDecimal(literal)) {
+                    throw new IllegalArgumentException("Type mismatch: " + literal + " is not a DOUBLE");
+                }
+                return Double.valueOf(literal);
+            default:
+                return literal;
+        }
+    }
+
+    // Converts a WHERE literal for comparison against this column. Unlike parse this never fails:
+    // a literal that does not fit is compared by its own type instead.
+    public Object parseLiteral(String literal) {
+        if (this == STRING) {
+            return literal;
+        }
+        ColumnType literalType = infer(literal);
+        if (literalType == STRING) {
+            return literal;
+        }
+        return this == INT && literalType == INT ? (Object) Integer.valueOf(literal) : (Object) Double.valueOf(literal);
+    }
+
+    public static int compareValues(Object a, Object b) {
+        if (a instanceof Integer && b instanceof Integer) {
+            return Integer.compare((Integer) a, (Integer) b);
+        }
+        if (a instanceof Number && b instanceof Number) {
+            return Double.compare(((Number) a).doubleValue(), ((Number) b).doubleValue());
+        }
+        return a.toString().compareTo(b.toString());
+    }
+
+    /* ================= Literal scanning (no exceptions) ================= */
+
+    private static boolean isInteger(String s) {
+        int start = signLength(s);
+        if (start == s.length()) {
+            return false;
+        }
+        for (int i = start; i < s.length(); i++) {
+            if (!Character.isDigit(s.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Digits with a single decimal point and an optional exponent, e.g. 3.5, -0.25, 1.0E7
+    private static boolean isDecimal(String s) {
+        int i = signLength(s);
+        int digits = 0;
+        boolean point = false;
+        for (; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (Character.isDigit(c)) {
+                digits++;
+            } else if (c == '.' && !point) {
+                point = true;
+            } else {
+                break;
+            }
+        }
+        if (digits == 0) {
+            return false;
+        }
+        if (i < s.length() && (s.charAt(i) == 'e' || s.charAt(i) == 'E')) {
+            String exponent = s.substring(i + 1);
+            return isInteger(exponent);
+        }
+        return i == s.length();
+    }
+
+    private static int signLength(String s) {
+        return !s.isEmpty() && (s.charAt(0) == '-' || s.charAt(0) == '+') ? 1 : 0;
+    }
+
+    private static int digitCount(String s) {
+        return s.length() - signLength(s);
+    }
+}
@@ -1,25 +1,39 @@
 package edu.smu.smusql;
 
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class Database {
 
+    // Store tables by name; statements look tables up without a lock, see TableLocks
     private Map<String, Table> tables;
+    private final Trace trace; // shared with every table
+    // The commit clock and open views shared by every table, see Versions
+    private final Versions versions = new Versions();
 
     public Database() {
-        this.tables = new HashMap<>();
+        this(new Trace());
+    }
+
+    public Database(Trace trace) {
+        this.tables = new ConcurrentHashMap<>();
+        this.trace = trace;
     }
 
     // Method to create a new table
     public void createTable(String tableName, List<String> columns) {
-        if (tables.containsKey(tableName.toLowerCase())) {
+        createTable(tableName, columns, new ColumnType[columns.size()]);
+    }
+
+    // Method to create a new table with declared column types (null entries are inferred)
+    public void createTable(String tableName, List<String> columns, ColumnType[] types) {
+        if (tables.putIfAbsent(tableName.toLowerCase(), new Table(tableName, columns, types, trace, versions)) != null) {
             throw new IllegalArgumentException("Table already exists");
         }
-        tables.put(tableName.toLowerCase(), new Table(tableName, columns));
     }
 
     // Method to retrieve a table by name
@@ -35,6 +49,14 @@ public class Database {
         return tables.containsKey(tableName.toLowerCase());
     }
 
+    Versions getVersions() {
+        return versions;
+    }
+
+    public Collection<Table> getTables() {
+        return tables.values();
+    }
+
     // Method to list all tables
     public Set<String> listTables() {
         return new HashSet<>(tables.keySet());
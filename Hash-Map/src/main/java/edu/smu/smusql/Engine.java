@@ -1,336 +1,606 @@
 package edu.smu.smusql;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
-
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import edu.smu.smusql.PreparedStatement.Slot;
+
+/*
+ * Statements may be executed from any number of threads. Each INSERT, UPDATE and DELETE takes
+ * the write lock of its table (see TableLocks) and stores new row versions; a SELECT reads the
+ * versions committed when it started (see Versions) without any table lock, so readers and
+ * writers never wait for each other. CREATE TABLE, CREATE INDEX and checkpoints hold catalogLock
+ * exclusively, and statements are planned under it shared, so a plan never sees an index
+ * half built or a plan cache half cleared.
+ */
 public class Engine {
+    // number of distinct statement shapes whose plans are kept for reuse
+    private static final int PLAN_CACHE_SIZE = 256;
+    // stand in for a number and a quoted string in the normalized text of a cached statement;
+    // the two differ so a plan knows which of its values were quoted
+    private static final Token PLACEHOLDER = new Token(Token.Type.IDENTIFIER, "?");
+    private static final Token QUOTED_PLACEHOLDER = new Token(Token.Type.STRING, "'?'");
+    // the log size that triggers a checkpoint, so restarts replay at most this much
+    private static final long CHECKPOINT_LOG_BYTES = 64L * 1024 * 1024;
+
+    private final Trace trace;
     private final Database database;
+    private final PlanCache planCache;
+    private WriteAheadLog log; // null for a purely in-memory engine
+    private Path snapshotFile; // null when the log is never checkpointed
+    // shared while planning and changing a table, exclusive for CREATE and checkpoints
+    private final ReentrantReadWriteLock catalogLock = new ReentrantReadWriteLock();
 
     public Engine() {
-        this.database = new Database();
+        this.trace = new Trace();
+        this.database = new Database(trace);
+        this.planCache = new PlanCache(PLAN_CACHE_SIZE);
+    }
+
+    // An engine whose changes survive a restart: the statements already in the log are replayed
+    // into the database, then every successful CREATE, INSERT, UPDATE and DELETE is appended to it.
+    // See WriteAheadLog for commitIntervalMillis.
+    public Engine(Path logFile, long commitIntervalMillis) throws IOException {
+        this();
+        this.log = WriteAheadLog.open(logFile, commitIntervalMillis, this::executeSQL);
+    }
+
+    // An engine that also checkpoints: it starts from the snapshot, if there is one, and replays
+    // only the statements logged after it. Once the log grows past CHECKPOINT_LOG_BYTES the
+    // database is written to a new snapshot and the log starts over.
+    public Engine(Path snapshotFile, Path logFile, long commitIntervalMillis) throws IOException {
+        this();
+        this.snapshotFile = snapshotFile;
+        long checkpointGeneration = -1;
+        if (Files.exists(snapshotFile)) {
+            checkpointGeneration = Snapshot.read(snapshotFile, database);
+        }
+        this.log = WriteAheadLog.open(logFile, commitIntervalMillis, checkpointGeneration, this::executeSQL);
+    }
+
+    // Writes the database to the snapshot file and empties the log
+    public void checkpoint() throws IOException {
+        checkpoint(0);
+    }
+
+    // Checkpoints unless the log is still shorter than minimumLogLength, which another thread's
+    // checkpoint may have made it while this one waited for the lock. Prepared statements change
+    // tables without catalogLock, so the tables are read locked as well.
+    private void checkpoint(long minimumLogLength) throws IOException {
+        if (snapshotFile == null) {
+            throw new IllegalStateException("Engine was created without a snapshot file");
+        }
+        catalogLock.writeLock().lock();
+        try {
+            if (log.length() >= minimumLogLength) {
+                TableLocks locks = TableLocks.read(database.getTables());
+                try {
+                    Snapshot.write(database, log.getGeneration(), snapshotFile);
+                } finally {
+                    locks.release();
+                }
+                log.reset();
+            }
+        } finally {
+            catalogLock.writeLock().unlock();
+        }
+    }
+
+    // Reclaims the row versions replaced before the oldest open read view, which the vacuum
+    // thread would otherwise reclaim shortly
+    public void vacuum() {
+        database.getVersions().vacuum();
+    }
+
+    // Forces the log and closes it; an in-memory engine has nothing to close
+    public void close() throws IOException {
+        if (log != null) {
+            log.close();
+        }
+    }
+
+    // Diagnostics sink and counters; tracing is off until a sink is set
+    public Trace getTrace() {
+        return trace;
     }
 
     public String executeSQL(String query) {
-        String[] tokens = query.trim().split("\\s+");
-        String command = tokens[0].toUpperCase();
+        List<Token> tokens;
+        try {
+            tokens = Lexer.tokenize(query);
+        } catch (IllegalArgumentException e) {
+            return "ERROR: " + e.getMessage();
+        }
+        if (tokens.isEmpty()) {
+            return "ERROR: Unknown command";
+        }
+        String command = tokens.get(0).getText().toUpperCase();
 
         switch (command) {
             case "CREATE":
-                return create(tokens);
             case "INSERT":
-                return insert(tokens);
-            case "SELECT":
-                return select(tokens);
             case "UPDATE":
-                return update(tokens);
             case "DELETE":
-                return delete(tokens);
+                return change(query, tokens);
+            case "SELECT":
+                return executeCached(tokens);
             default:
                 return "ERROR: Unknown command";
         }
     }
 
-    // CREATE TABLE command
-    private String create(String[] tokens) {
-        if (tokens.length < 4 || !tokens[1].equalsIgnoreCase("TABLE")) {
-            return "ERROR: Invalid CREATE TABLE syntax";
-        }
-        String tableName = tokens[2];
-        if (database.tableExists(tableName)) {
-            return "ERROR: Table already exists";
+    // Runs CREATE with catalogLock held exclusively, or INSERT, UPDATE and DELETE with it shared
+    // and the write lock of their table. A statement that succeeded is in the log before its
+    // result is returned: it is appended while the locks are held, so the log has each table's
+    // changes in the order they were made, and waited for once they are released, so writers to
+    // other tables can join the same group commit.
+    private String change(String query, List<Token> tokens) {
+        Lock catalog = tokens.get(0).is("CREATE") ? catalogLock.writeLock() : catalogLock.readLock();
+        String result;
+        long sequence = -1;
+        catalog.lock();
+        try {
+            TableLocks locks = null;
+            try {
+                if (tokens.get(0).is("CREATE")) {
+                    result = create(tokens);
+                } else {
+                    List<String> literals = new ArrayList<>();
+                    PreparedStatement statement;
+                    try {
+                        statement = cachedPlan(tokens, literals);
+                    } catch (IllegalArgumentException e) {
+                        return e.getMessage();
+                    }
+                    locks = TableLocks.write(statement.getTable());
+                    result = statement.execute(literals.toArray(new String[0]));
+                }
+                if (log != null && !result.startsWith("ERROR")) {
+                    sequence = log.append(query);
+                }
+            } finally {
+                if (locks != null) {
+                    locks.release();
+                }
+            }
+        } catch (IOException e) {
+            return "ERROR: Could not write the log: " + e.getMessage();
+        } finally {
+            catalog.unlock();
         }
 
-        String columnList = queryBetweenParentheses(tokens, 3);
-        List<String> columns = Arrays.asList(columnList.split(","));
-        columns.replaceAll(String::trim);
-
-        database.createTable(tableName, columns);
-        return "Table " + tableName + " created";
+        if (sequence != -1) {
+            try {
+                log.awaitCommit(sequence);
+            } catch (IOException e) {
+                return "ERROR: Could not write the log: " + e.getMessage();
+            }
+            if (snapshotFile != null && log.length() >= CHECKPOINT_LOG_BYTES) {
+                try {
+                    checkpoint(CHECKPOINT_LOG_BYTES);
+                } catch (IOException e) {
+                    // the statement is safe in the log, which keeps growing until a checkpoint succeeds
+                }
+            }
+        }
+        return result;
     }
 
-    // INSERT INTO command
-    private String insert(String[] tokens) {
-        if (tokens.length < 5 || !tokens[1].equalsIgnoreCase("INTO")) {
-            return "ERROR: Invalid INSERT INTO syntax";
+    // Parses an INSERT, SELECT, UPDATE or DELETE once for repeated execution with bound ? values
+    public PreparedStatement prepare(String sql) {
+        List<Token> tokens = Lexer.tokenize(sql);
+        if (tokens.isEmpty() || tokens.get(0).is("CREATE")) {
+            throw new IllegalArgumentException("Only INSERT, SELECT, UPDATE and DELETE statements can be prepared");
         }
-        String tableName = tokens[2];
-        if (!database.tableExists(tableName)) {
-            return "ERROR: Table does not exist";
+        catalogLock.readLock().lock();
+        try {
+            PreparedStatement statement = compile(tokens);
+            return log == null ? statement : statement.loggedBy(this, tokens);
+        } finally {
+            catalogLock.readLock().unlock();
         }
+    }
 
-        Table table = database.getTable(tableName);
-
-        String valuesList = queryBetweenParentheses(tokens, 4);
-        List<Object> values = Arrays.asList(valuesList.split(","));
-        for (int i = 0; i < values.size(); i++) {
-            values.set(i, values.get(i).toString().trim());
+    // Runs a SELECT and returns a cursor over its rows instead of the formatted text;
+    // errors are thrown as IllegalArgumentException with the message executeSQL would return
+    public ResultSet query(String sql) {
+        List<Token> tokens;
+        try {
+            tokens = Lexer.tokenize(sql);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("ERROR: " + e.getMessage());
         }
-
-        return table.insertRow(values);
+        if (tokens.isEmpty() || !tokens.get(0).is("SELECT")) {
+            throw new IllegalArgumentException("ERROR: Only SELECT statements return rows");
+        }
+        List<String> literals = new ArrayList<>();
+        PreparedStatement statement = plannedSelect(tokens, literals);
+        return statement.query(literals.toArray(new String[0]));
     }
 
-    // SELECT * FROM command with optional WHERE
-    private String select(String[] tokens) {
-        if (tokens.length < 4 || !tokens[1].equals("*") || !tokens[2].equalsIgnoreCase("FROM")) {
-            return "ERROR: Invalid SELECT syntax";
+    // A SELECT takes no catalogLock while it runs, only a read view
+    private String executeCached(List<Token> tokens) {
+        List<String> literals = new ArrayList<>();
+        PreparedStatement statement;
+        try {
+            statement = plannedSelect(tokens, literals);
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
         }
-        String tableName = tokens[3];
-        if (!database.tableExists(tableName)) {
-            return "ERROR: Table does not exist";
+        return statement.execute(literals.toArray(new String[0]));
+    }
+
+    private PreparedStatement plannedSelect(List<Token> tokens, List<String> literals) {
+        catalogLock.readLock().lock();
+        try {
+            return cachedPlan(tokens, literals);
+        } finally {
+            catalogLock.readLock().unlock();
         }
+    }
 
-        Table table = database.getTable(tableName);
-        List<List<Object>> resultRows = table.getAllRows();
+    // Statements that differ only in their literals share one cached plan; the literals become its parameters.
+    // Called with catalogLock held; the cache itself is locked as threads share it.
+    private PreparedStatement cachedPlan(List<Token> tokens, List<String> literals) {
+        List<Token> normalized = new ArrayList<>(tokens.size());
+        String key = normalize(tokens, normalized, literals);
 
-        if (tokens.length > 4 && tokens[4].equalsIgnoreCase("WHERE")) {
-            resultRows = applyWhereClause(table, tokens, 4);  // Use refactored method here
+        PreparedStatement statement;
+        synchronized (planCache) {
+            statement = planCache.get(key); // an access order LinkedHashMap changes on get
+        }
+        if (statement == null) {
+            statement = compile(normalized);
+            synchronized (planCache) {
+                planCache.put(key, statement);
+            }
         }
+        if (statement.getParameterCount() != literals.size()) {
+            throw new IllegalArgumentException("ERROR: ? placeholders need a prepared statement");
+        }
+        return statement;
+    }
 
-        return formatRows(resultRows, table.getColumns());
+    // Replaces every number with ? and every quoted string with '?' and returns the resulting text
+    private static String normalize(List<Token> tokens, List<Token> normalized, List<String> literals) {
+        StringBuilder key = new StringBuilder();
+        for (Token token : tokens) {
+            if (token.getType() == Token.Type.NUMBER || token.getType() == Token.Type.STRING) {
+                literals.add(token.getValue());
+                token = token.getType() == Token.Type.STRING ? QUOTED_PLACEHOLDER : PLACEHOLDER;
+            }
+            normalized.add(token);
+            key.append(token.getText()).append(' ');
+        }
+        return key.toString();
     }
 
-    // UPDATE command
-    private String update(String[] tokens) {
-        if (tokens.length < 7 || !tokens[2].equalsIgnoreCase("SET")) {
-            return "ERROR: Invalid UPDATE syntax";
+    // CREATE TABLE command
+    private String create(List<Token> tokens) {
+        if (tokens.size() > 1 && tokens.get(1).is("INDEX")) {
+            return createIndex(tokens);
         }
-        String tableName = tokens[1];
-        if (!database.tableExists(tableName)) {
-            return "ERROR: Table does not exist";
+        if (tokens.size() < 4 || !tokens.get(1).is("TABLE")) {
+            return "ERROR: Invalid CREATE TABLE syntax";
         }
-    
-        Table table = database.getTable(tableName);
-        String targetColumn = tokens[3];
-        String newValue = tokens[5].replaceAll("^['\"]|['\"]$", "");
-    
-        // parse WHERE clause if provided
-        List<List<Object>> rowsToUpdate = table.getAllRows();
-        if (tokens.length > 6 && tokens[6].equalsIgnoreCase("WHERE")) {
-            rowsToUpdate = applyWhereClause(table, tokens, 6); // apply WHERE conditions to filter rows
+        String tableName = tokens.get(2).getText();
+        if (database.tableExists(tableName)) {
+            return "ERROR: Table already exists";
         }
-    
-        // track if any rows were updated
-        int updatedRows = 0;
 
-        // perform the update on filtered rows
-        for (List<Object> row : rowsToUpdate) {
-            table.updateRow(row, targetColumn, newValue);
-            updatedRows++; // Increment if a row was updated
-        }
-    
-        // Return a message based on whether rows were updated
-        if (updatedRows > 0) {
-            return "UPDATE successful, updated " + updatedRows + " rows";
-        } else {
-            return "No rows updated";
+        List<String> definitions = listBetweenParentheses(tokens, 3);
+        List<String> columns = new ArrayList<>();
+        ColumnType[] types = new ColumnType[definitions.size()];
+
+        // each definition is "name" or "name TYPE"; untyped columns are inferred on first insert
+        for (int i = 0; i < definitions.size(); i++) {
+            String definition = definitions.get(i);
+            int space = definition.indexOf(' ');
+            columns.add(space == -1 ? definition : definition.substring(0, space));
+            if (space != -1) {
+                try {
+                    types[i] = ColumnType.fromName(definition.substring(space + 1));
+                } catch (IllegalArgumentException e) {
+                    return "ERROR: " + e.getMessage();
+                }
+            }
         }
+
+        database.createTable(tableName, columns, types);
+        return "Table " + tableName + " created";
     }
 
-    private String delete(String[] tokens) {
-        // ensure correct syntax
-        if (tokens.length < 3 || !tokens[1].equalsIgnoreCase("FROM")) {
-            return "ERROR: Invalid DELETE syntax";
+    // CREATE INDEX [name] ON table (column)
+    private String createIndex(List<Token> tokens) {
+        int on = tokens.size() > 2 && tokens.get(2).is("ON") ? 2 : 3;
+        if (tokens.size() < on + 5 || !tokens.get(on).is("ON") || !tokens.get(on + 2).is("(")
+                || !tokens.get(on + 4).is(")")) {
+            return "ERROR: Invalid CREATE INDEX syntax";
         }
-    
-        String tableName = tokens[2];
-    
-        // check if table exists
+        String tableName = tokens.get(on + 1).getText();
         if (!database.tableExists(tableName)) {
             return "ERROR: Table does not exist";
         }
-    
         Table table = database.getTable(tableName);
-    
-        // Fetch rows to delete
-        List<List<Object>> rowsToDelete = table.getAllRows();
-        if (tokens.length > 3 && tokens[3].equalsIgnoreCase("WHERE")) {
-            rowsToDelete = applyWhereClause(table, tokens, 3); // Apply WHERE clause
-        }
-    
-        if (rowsToDelete.isEmpty()) {
-            return tokens.length <= 3 
-                ? "No rows to delete" 
-                : "No rows matched the condition, nothing to delete";
-        }
-    
-        // Delete rows directly 
-        int deletedCount = 0;
-        Iterator<Map.Entry<Object, List<Object>>> iterator = table.getRows().entrySet().iterator();
-    
-        while (iterator.hasNext()) {
-            Map.Entry<Object, List<Object>> entry = iterator.next();
-            if (rowsToDelete.contains(entry.getValue())) {
-                iterator.remove();
-                deletedCount++;
+        String columnName = tokens.get(on + 3).getText();
+        int columnIndex = table.getColumns().indexOf(columnName);
+        if (columnIndex == -1) {
+            return "ERROR: Column " + columnName + " does not exist";
+        }
+        // prepared statements change the table without catalogLock
+        TableLocks locks = TableLocks.write(table);
+        try {
+            if (!table.createIndex(columnIndex)) {
+                return "ERROR: Index on " + tableName + "(" + columnName + ") already exists";
             }
+        } finally {
+            locks.release();
         }
-    
-        return "Deleted " + deletedCount + " row(s) from " + tableName;
+        // cached plans chose their access path without this index
+        synchronized (planCache) {
+            planCache.clear();
+        }
+        return "Index on " + tableName + "(" + columnName + ") created";
     }
-    
-
 
-    // helper method to format rows for SELECT output
-    private String formatRows(List<List<Object>> rows, List<String> columns) {
-        StringBuilder result = new StringBuilder(String.join("\t", columns)).append("\n");
-        for (List<Object> row : rows) {
-            for (Object value : row) {
-                result.append(value).append("\t");
-            }
-            result.append("\n");
+    // Turns INSERT, SELECT, UPDATE and DELETE into a plan; syntax errors are thrown with their ERROR message
+    private PreparedStatement compile(List<Token> tokens) {
+        Placeholders placeholders = new Placeholders();
+        switch (tokens.get(0).getText().toUpperCase()) {
+            case "INSERT":
+                return compileInsert(tokens, placeholders);
+            case "SELECT":
+                return compileSelect(tokens, placeholders);
+            case "UPDATE":
+                return compileUpdate(tokens, placeholders);
+            case "DELETE":
+                return compileDelete(tokens, placeholders);
+            default:
+                throw new IllegalArgumentException("ERROR: Unknown command");
         }
-        return result.toString();
     }
 
-    // jelper method to extract content inside parentheses
-    private String queryBetweenParentheses(String[] tokens, int startIndex) {
-        StringBuilder result = new StringBuilder();
-        for (int i = startIndex; i < tokens.length; i++) {
-            result.append(tokens[i]).append(" ");
+    // INSERT INTO command
+    private PreparedStatement compileInsert(List<Token> tokens, Placeholders placeholders) {
+        if (tokens.size() < 5 || !tokens.get(1).is("INTO")) {
+            throw new IllegalArgumentException("ERROR: Invalid INSERT INTO syntax");
+        }
+        Table table = resolveTable(tokens.get(2));
+
+        // quoted values arrive without their quotes
+        List<Slot> values = new ArrayList<>();
+        for (List<Token> item : itemsBetweenParentheses(tokens, 4)) {
+            values.add(item.size() == 1 ? placeholders.slot(item.get(0)) : Slot.constant(joinValues(item), false));
         }
-        return result.toString().trim().replaceAll("\\(", "").replaceAll("\\)", "");
+
+        return PreparedStatement.insert(table, values, placeholders.count);
     }
 
-    private List<List<Object>> applyWhereClause(Table table, String[] tokens, int whereIndex) {
-        List<List<Object>> filteredRows = table.getAllRows();
-        List<String> columnNames = new ArrayList<>();
-        List<String> operators = new ArrayList<>();
-        List<Object> values = new ArrayList<>();
-        List<String> logicalOperators = new ArrayList<>();
-    
-        int i = whereIndex + 1;  // start processing after the WHERE keyword
-        while (i < tokens.length) {
-            if (tokens[i].equalsIgnoreCase("AND") || tokens[i].equalsIgnoreCase("OR")) {
-                logicalOperators.add(tokens[i].toUpperCase());  // Save logical operators like AND/OR
-                i++;
-                continue;
+    // SELECT * FROM command with optional WHERE, ORDER BY column [ASC|DESC] and LIMIT n [OFFSET m].
+    // Instead of * the select list may hold COUNT/SUM/MIN/MAX/AVG calls and the GROUP BY columns:
+    //   SELECT category, COUNT(*), AVG(price) FROM products WHERE ... GROUP BY category ORDER BY ...
+    // FROM may join tables on equal columns, which are then written table.column:
+    //   SELECT * FROM orders JOIN users ON orders.user_id = users.id WHERE users.city = 'Paris'
+    private PreparedStatement compileSelect(List<Token> tokens, Placeholders placeholders) {
+        int fromIndex = indexOfKeyword(tokens, "FROM", 1);
+        if (fromIndex == 1 || fromIndex + 1 >= tokens.size()) {
+            throw new IllegalArgumentException("ERROR: Invalid SELECT syntax");
+        }
+        Table table = resolveTable(tokens.get(fromIndex + 1));
+        int start = fromIndex + 2;
+
+        Join join = null;
+        while (start < tokens.size() && tokens.get(start).is("JOIN")) {
+            // JOIN table ON column = column
+            if (start + 5 >= tokens.size() || !tokens.get(start + 2).is("ON") || !tokens.get(start + 4).is("=")) {
+                throw new IllegalArgumentException("ERROR: Invalid JOIN syntax");
             }
-    
-            // ensure that we have at least three tokens: column, operator, value
-            if (i + 2 >= tokens.length) {
-                System.out.println("ERROR: Incomplete condition in WHERE clause.");
-                return new ArrayList<>(); // prevent further processing if the condition is incomplete
+            if (join == null) {
+                join = new Join(table);
+            }
+            join.add(resolveTable(tokens.get(start + 1)), tokens.get(start + 3), tokens.get(start + 5));
+            start += 6;
+        }
+        if (join != null) {
+            table = join.getSchema();
+        }
+
+        int limitIndex = indexOfKeyword(tokens, "LIMIT", start);
+        int orderIndex = indexOfKeyword(tokens.subList(0, limitIndex), "ORDER", start);
+        int groupIndex = indexOfKeyword(tokens.subList(0, orderIndex), "GROUP", start);
+        Expression where = parseWhereClause(table, tokens.subList(0, groupIndex), start, placeholders);
+
+        Aggregation aggregation = null;
+        List<Token> selectList = tokens.subList(1, fromIndex);
+        if (groupIndex < orderIndex) {
+            if (groupIndex + 2 >= orderIndex || !tokens.get(groupIndex + 1).is("BY")) {
+                throw new IllegalArgumentException("ERROR: Invalid GROUP BY syntax");
             }
+            aggregation = Aggregation.parse(table, selectList, columnList(tokens.subList(groupIndex + 2, orderIndex)));
+        } else if (selectList.size() != 1 || !selectList.get(0).is("*")) {
+            aggregation = Aggregation.parse(table, selectList, new ArrayList<>());
+        }
 
-            String columnName = tokens[i];
-            String operator = tokens[i + 1];
-            String value = tokens[i + 2].replaceAll("^['\"]|['\"]$", "");  // remove any surrounding quotes from value
-    
-            System.out.println("Parsing condition: " + columnName + " " + operator + " " + value);
-    
-            // Check if the operator is valid
-            if (!isValidOperator(operator)) {
-                System.out.println("ERROR: Invalid operator in WHERE clause: " + operator);
-                return new ArrayList<>();  // return empty if invalid operator found
+        int orderColumn = -1;
+        boolean descending = false;
+        if (orderIndex < limitIndex) {
+            int end = limitIndex;
+            if (end > orderIndex + 3 && (tokens.get(end - 1).is("DESC") || tokens.get(end - 1).is("ASC"))) {
+                descending = tokens.get(end - 1).is("DESC");
+                end--;
             }
-    
-            columnNames.add(columnName);
-            operators.add(operator);
-            values.add(value);
-    
-            i += 3;  // move to the next condition or logical operator
-        }
-        
-        return filterRowsWithLogic(table, columnNames, operators, values, logicalOperators);
-    }
-
-    
-    private List<List<Object>> filterRowsWithLogic(
-    Table table, List<String> columnNames, List<String> operators, List<Object> values, List<String> logicalOperators) {
-    
-    List<List<Object>> filteredRows = new ArrayList<>();
-
-    for (List<Object> row : table.getAllRows()) {
-        boolean matches = true; 
-
-        for (int i = 0; i < columnNames.size(); i++) {
-            String columnName = columnNames.get(i);
-            String operator = operators.get(i);
-            Object value = values.get(i);
-
-            // find the index of the current column
-            int columnIndex = table.getColumns().indexOf(columnName);
-            if (columnIndex == -1) {
-                System.out.println("ERROR: Column " + columnName + " does not exist.");
-                matches = false;
-                break; 
+            if (end < orderIndex + 3 || !tokens.get(orderIndex + 1).is("BY")) {
+                throw new IllegalArgumentException("ERROR: Invalid ORDER BY syntax");
             }
+            List<Token> orderBy = tokens.subList(orderIndex + 2, end);
+            if (aggregation != null) {
+                orderColumn = aggregation.indexOf(orderBy);
+                if (orderColumn == -1) {
+                    throw new IllegalArgumentException("ERROR: ORDER BY must name a column of the result");
+                }
+            } else if (orderBy.size() == 1) {
+                orderColumn = resolveColumn(table, orderBy.get(0));
+            } else {
+                throw new IllegalArgumentException("ERROR: Invalid ORDER BY syntax");
+            }
+        }
 
-            Object cellValue = row.get(columnIndex);
-            boolean conditionMatch = evaluateCondition(cellValue.toString(), operator, value.toString());
-
-            if (i == 0) {
-                matches = conditionMatch; // initialize with the first condition
-            } else if (i - 1 < logicalOperators.size()) { 
-                // ensure logical operator is in bounds
-                String logicalOperator = logicalOperators.get(i - 1);
-                if (logicalOperator.equals("AND")) {
-                    matches &= conditionMatch;
-                } else if (logicalOperator.equals("OR")) {
-                    matches |= conditionMatch;
+        Slot limit = null;
+        Slot offset = null;
+        if (limitIndex < tokens.size()) {
+            if (limitIndex + 1 >= tokens.size()) {
+                throw new IllegalArgumentException("ERROR: Invalid LIMIT syntax");
+            }
+            limit = placeholders.slot(tokens.get(limitIndex + 1));
+            if (limitIndex + 2 < tokens.size()) {
+                if (limitIndex + 4 != tokens.size() || !tokens.get(limitIndex + 2).is("OFFSET")) {
+                    throw new IllegalArgumentException("ERROR: Invalid LIMIT syntax");
                 }
+                offset = placeholders.slot(tokens.get(limitIndex + 3));
+            }
+        }
+        if (join != null) {
+            return PreparedStatement.selectJoin(join, aggregation, where, orderColumn, descending, limit, offset,
+                    placeholders.count);
+        }
+        return PreparedStatement.select(table, aggregation, where, orderColumn, descending, limit, offset,
+                placeholders.count);
+    }
+
+    // comma separated column names, e.g. the GROUP BY list
+    private static List<Token> columnList(List<Token> tokens) {
+        List<Token> names = new ArrayList<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            if (i % 2 == 1 ? !tokens.get(i).is(",") : tokens.get(i).is(",")) {
+                throw new IllegalArgumentException("ERROR: Invalid GROUP BY syntax");
+            }
+            if (i % 2 == 0) {
+                names.add(tokens.get(i));
             }
+        }
+        if (tokens.size() % 2 == 0) {
+            throw new IllegalArgumentException("ERROR: Invalid GROUP BY syntax");
+        }
+        return names;
+    }
 
-            
-            if (!matches && i > 0 && logicalOperators.get(i - 1).equals("AND")) {
-                break;
+    // position of the keyword at or after start, or the number of tokens if it does not occur
+    private static int indexOfKeyword(List<Token> tokens, String keyword, int start) {
+        for (int i = start; i < tokens.size(); i++) {
+            if (tokens.get(i).is(keyword)) {
+                return i;
             }
         }
+        return tokens.size();
+    }
 
-        if (matches) {
-            filteredRows.add(row);
+    // UPDATE command
+    private PreparedStatement compileUpdate(List<Token> tokens, Placeholders placeholders) {
+        if (tokens.size() < 7 || !tokens.get(2).is("SET") || !tokens.get(4).is("=")) {
+            throw new IllegalArgumentException("ERROR: Invalid UPDATE syntax");
         }
+        Table table = resolveTable(tokens.get(1));
+        int targetIndex = resolveColumn(table, tokens.get(3));
+        Slot newValue = placeholders.slot(tokens.get(5));
+
+        // parse WHERE clause if provided
+        Expression where = parseWhereClause(table, tokens, 6, placeholders);
+        return PreparedStatement.update(table, targetIndex, newValue, where, placeholders.count);
     }
 
-        return filteredRows;
+    private PreparedStatement compileDelete(List<Token> tokens, Placeholders placeholders) {
+        // ensure correct syntax
+        if (tokens.size() < 3 || !tokens.get(1).is("FROM")) {
+            throw new IllegalArgumentException("ERROR: Invalid DELETE syntax");
+        }
+        Table table = resolveTable(tokens.get(2));
+
+        Expression where = parseWhereClause(table, tokens, 3, placeholders);
+        return PreparedStatement.delete(table, where, placeholders.count);
     }
 
-    private boolean isValidOperator(String operator) {
-        return operator.equals("=") || operator.equals(">") || operator.equals("<") ||
-            operator.equals(">=") || operator.equals("<=") || operator.equals("!=");
+    private Table resolveTable(Token name) {
+        if (!database.tableExists(name.getText())) {
+            throw new IllegalArgumentException("ERROR: Table does not exist");
+        }
+        return database.getTable(name.getText());
     }
 
+    private int resolveColumn(Table table, Token name) {
+        int columnIndex = table.getColumns().indexOf(name.getText());
+        if (columnIndex == -1) {
+            throw new IllegalArgumentException("ERROR: Column " + name.getText() + " does not exist");
+        }
+        return columnIndex;
+    }
 
-    private boolean evaluateCondition(String cellValue, String operator, String value) {
-        value = value.replaceAll("^['\"]|['\"]$", ""); // Remove quotes around the value if present
-        try {
-            //parse as numbers
-            double cellNumber = Double.parseDouble(cellValue);
-            double compareValue = Double.parseDouble(value);
-    
-            switch (operator) {
-                case "=":
-                    return cellNumber == compareValue;
-                case ">":
-                    return cellNumber > compareValue;
-                case "<":
-                    return cellNumber < compareValue;
-                case ">=":
-                    return cellNumber >= compareValue;
-                case "<=":
-                    return cellNumber <= compareValue;
-                default:
-                    throw new IllegalArgumentException("ERROR: Unsupported operator " + operator);
-            }
-        } catch (NumberFormatException e) {
-            // treat as string
-            switch (operator) {
-                case "=":
-                    return cellValue.equals(value);
-                case "!=":
-                    return !cellValue.equals(value);
-                default:
-                    throw new IllegalArgumentException("ERROR: Unsupported operator " + operator + " for non-numeric values");
-            }
+    // the WHERE clause starting at whereIndex as an expression tree, or null if the statement ends before it
+    private Expression parseWhereClause(Table table, List<Token> tokens, int whereIndex, Placeholders placeholders) {
+        if (tokens.size() <= whereIndex) {
+            return null;
+        }
+        if (!tokens.get(whereIndex).is("WHERE")) {
+            throw new IllegalArgumentException("ERROR: Expected WHERE but found " + tokens.get(whereIndex));
+        }
+        Expression where = WhereParser.parse(table, tokens, whereIndex + 1, placeholders::slot);
+        if (trace.isEnabled()) {
+            trace.event("Parsed WHERE clause: " + where);
         }
+        return where;
     }
-    
-}
 
+    // helper method to collect the comma separated items inside parentheses
+    // an item made of several words (unquoted New York) is joined with single spaces
+    private List<String> listBetweenParentheses(List<Token> tokens, int startIndex) {
+        List<String> items = new ArrayList<>();
+        for (List<Token> item : itemsBetweenParentheses(tokens, startIndex)) {
+            items.add(joinValues(item));
+        }
+        return items;
+    }
 
-                
+    // the tokens of each comma separated item inside parentheses
+    private List<List<Token>> itemsBetweenParentheses(List<Token> tokens, int startIndex) {
+        List<List<Token>> items = new ArrayList<>();
+        List<Token> item = new ArrayList<>();
+        for (int i = startIndex; i < tokens.size(); i++) {
+            Token token = tokens.get(i);
+            if (token.is(",")) {
+                items.add(item);
+                item = new ArrayList<>();
+            } else if (!token.is("(") && !token.is(")")) {
+                item.add(token);
+            }
+        }
+        items.add(item);
+        return items;
+    }
 
-                
+    private static String joinValues(List<Token> item) {
+        StringBuilder joined = new StringBuilder();
+        for (Token token : item) {
+            if (joined.length() > 0) {
+                joined.append(' ');
+            }
+            joined.append(token.getValue());
+        }
+        return joined.toString();
+    }
 
-                
+    // numbers the ? placeholders of one statement in the order they appear
+    private static class Placeholders {
+        private int count;
 
-                
\ No newline at end of file
+        Slot slot(Token token) {
+            if (token == QUOTED_PLACEHOLDER) {
+                return Slot.parameter(count++, true);
+            }
+            return token.is("?") ? Slot.parameter(count++, false)
+                    : Slot.constant(token.getValue(), token.getType() == Token.Type.STRING);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package edu.smu.smusql;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+
+import edu.smu.smusql.PreparedStatement.Slot;
+
+/*
+ * Syntax tree of a WHERE clause, built by WhereParser with columns already resolved
+ * to ordinals. Values are Slots, so one tree serves every execution of a prepared
+ * statement; compile turns it into the Predicate rows are tested with, once the
+ * placeholder values are known.
+ */
+abstract class Expression {
+
+    // Relative cost of testing one row, used to put the cheap conjuncts of an AND first
+    abstract int cost();
+
+    abstract Predicate<List<Object>> compile(Table table, String[] parameters);
+
+    // The expressions that must all hold: the children of a top-level AND, or the expression itself
+    List<Expression> conjuncts() {
+        return Collections.singletonList(this);
+    }
+
+    // "column operator value"
+    static final class Comparison extends Expression {
+        final int column;
+        final String operator;
+        final Slot value;
+
+        Comparison(int column, String operator, Slot value) {
+            this.column = column;
+            this.operator = operator;
+            this.value = value;
+        }
+
+        // equality is a single compare, and a reference check on dictionary-encoded columns
+        @Override
+        int cost() {
+            return operator.equals("=") || operator.equals("!=") ? 1 : 2;
+        }
+
+        // = and != on a dictionary-encoded column compare against the dictionary's instance by reference;
+        // a literal missing from the dictionary stays null, which no row holds.
+        @Override
+        Predicate<List<Object>> compile(Table table, String[] parameters) {
+            Object literal = table.parseLiteral(column, value.resolve(parameters));
+            StringDictionary dictionary = table.getDictionary(column);
+            if (dictionary != null && literal instanceof String
+                    && (operator.equals("=") || operator.equals("!="))) {
+                Object instance = dictionary.lookup((String) literal);
+                return RowPredicates.sameInstance(column, operator, instance);
+            }
+            return RowPredicates.compare(column, table.getColumnType(column), operator, literal);
+        }
+
+        @Override
+        public String toString() {
+            return "#" + column + " " + operator + " " + value;
+        }
+    }
+
+    // "column BETWEEN low AND high", both ends included
+    static final class Between extends Expression {
+        final int column;
+        final Slot low;
+        final Slot high;
+
+        Between(int column, Slot low, Slot high) {
+            this.column = column;
+            this.low = low;
+            this.high = high;
+        }
+
+        @Override
+        int cost() {
+            return 3;
+        }
+
+        @Override
+        Predicate<List<Object>> compile(Table table, String[] parameters) {
+            ColumnType type = table.getColumnType(column);
+            Object lowLiteral = table.parseLiteral(column, low.resolve(parameters));
+            Object highLiteral = table.parseLiteral(column, high.resolve(parameters));
+            return RowPredicates.compare(column, type, ">=", lowLiteral)
+                    .and(RowPredicates.compare(column, type, "<=", highLiteral));
+        }
+
+        @Override
+        public String toString() {
+            return "#" + column + " BETWEEN " + low + " AND " + high;
+        }
+    }
+
+    // "column IN (value, ...)"
+    static final class In extends Expression {
+        final int column;
+        final List<Slot> values;
+
+        In(int column, List<Slot> values) {
+            this.column = column;
+            this.values = values;
+        }
+
+        // one hash lookup per row, whatever the length of the list
+        @Override
+        int cost() {
+            return 3;
+        }
+
+        @Override
+        Predicate<List<Object>> compile(Table table, String[] parameters) {
+            List<Object> literals = new ArrayList<>(values.size());
+            for (Slot value : values) {
+                literals.add(table.parseLiteral(column, value.resolve(parameters)));
+            }
+            return RowPredicates.in(column, table.getColumnType(column), literals);
+        }
+
+        @Override
+        public String toString() {
+            return "#" + column + " IN " + values;
+        }
+    }
+
+    static final class Not extends Expression {
+        final Expression operand;
+
+        Not(Expression operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        int cost() {
+            return operand.cost();
+        }
+
+        @Override
+        Predicate<List<Object>> compile(Table table, String[] parameters) {
+            return operand.compile(table, parameters).negate();
+        }
+
+        @Override
+        public String toString() {
+            return "NOT (" + operand + ")";
+        }
+    }
+
+    // Every operand must hold; the cheapest are tested first so most rows are rejected early
+    static final class And extends Expression {
+        final List<Expression> operands;
+
+        And(List<Expression> operands) {
+            this.operands = new ArrayList<>(operands);
+            this.operands.sort(Comparator.comparingInt(Expression::cost));
+        }
+
+        @Override
+        int cost() {
+            return totalCost(operands);
+        }
+
+        @Override
+        List<Expression> conjuncts() {
+            return operands;
+        }
+
+        @Override
+        Predicate<List<Object>> compile(Table table, String[] parameters) {
+            Predicate<List<Object>> predicate = operands.get(0).compile(table, parameters);
+            for (int i = 1; i < operands.size(); i++) {
+                predicate = predicate.and(operands.get(i).compile(table, parameters));
+            }
+            return predicate;
+        }
+
+        @Override
+        public String toString() {
+            return join(operands, " AND ");
+        }
+    }
+
+    // At least one operand must hold; tested in order, stopping at the first match
+    static final class Or extends Expression {
+        final List<Expression> operands;
+
+        Or(List<Expression> operands) {
+            this.operands = operands;
+        }
+
+        @Override
+        int cost() {
+            return totalCost(operands) + 1;
+        }
+
+        @Override
+        Predicate<List<Object>> compile(Table table, String[] parameters) {
+            Predicate<List<Object>> predicate = operands.get(0).compile(table, parameters);
+            for (int i = 1; i < operands.size(); i++) {
+                predicate = predicate.or(operands.get(i).compile(table, parameters));
+            }
+            return predicate;
+        }
+
+        @Override
+        public String toString() {
+            return join(operands, " OR ");
+        }
+    }
+
+    // The expressions left once the conjunct answered by an index lookup is taken out, or null if none are
+    static Expression without(Expression where, Expression answered) {
+        List<Expression> rest = new ArrayList<>(where.conjuncts());
+        rest.remove(answered);
+        if (rest.isEmpty()) {
+            return null;
+        }
+        return rest.size() == 1 ? rest.get(0) : new And(rest);
+    }
+
+    private static int totalCost(List<Expression> operands) {
+        int cost = 0;
+        for (Expression operand : operands) {
+            cost += operand.cost();
+        }
+        return cost;
+    }
+
+    private static String join(List<Expression> operands, String separator) {
+        StringBuilder joined = new StringBuilder("(");
+        for (Expression operand : operands) {
+            if (joined.length() > 1) {
+                joined.append(separator);
+            }
+            joined.append(operand);
+        }
+        return joined.append(')').toString();
+    }
+}
@@ -0,0 +1,159 @@
+package edu.smu.smusql;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/*
+ * The tables of "FROM t0 JOIN t1 ON a = b [JOIN t2 ON c = d]*", joined left to right.
+ * A joined row is the concatenation of one row from each table, and its columns are
+ * the tables' columns qualified by the table name (orders.user_id, users.id); the
+ * ON, WHERE, ORDER BY and select list of a join name columns that way.
+ *
+ * Each JOIN is an equi-join carried out in the cheapest way available:
+ * - the joined table's key is its primary key: every row so far probes the table's
+ *   row map, so nothing is built
+ * - the first JOIN's other key is the first table's primary key: the joined table is
+ *   streamed and probes the first table's row map instead
+ * - otherwise a hash join: the smaller input is loaded into a hash table on its key
+ *   and the other input streams past it
+ */
+final class Join {
+
+    private final List<Table> tables = new ArrayList<>();
+    private final List<int[]> keys = new ArrayList<>(); // per JOIN: {column of the row so far, column of the joined table}
+    private final List<String> columns = new ArrayList<>();
+    private Table schema;
+
+    Join(Table first) {
+        addTable(first);
+    }
+
+    private void addTable(Table table) {
+        for (Table joined : tables) {
+            if (joined.getTableName().equals(table.getTableName())) {
+                throw new IllegalArgumentException("ERROR: Table " + table.getTableName() + " is joined twice");
+            }
+        }
+        tables.add(table);
+        for (String column : table.getColumns()) {
+            columns.add(table.getTableName() + "." + column);
+        }
+        // types stay unknown: WHERE literals are compared by value, and the joined rows hold
+        // the tables' own dictionary instances, which this table has no dictionary for
+        schema = new Table(String.join("_", tableNames()), Collections.unmodifiableList(new ArrayList<>(columns)),
+                new ColumnType[columns.size()], table.getTrace());
+    }
+
+    private List<String> tableNames() {
+        List<String> names = new ArrayList<>();
+        for (Table table : tables) {
+            names.add(table.getTableName());
+        }
+        return names;
+    }
+
+    // Adds "JOIN table ON left = right"; one side of the ON must be a column of the new table
+    void add(Table table, Token left, Token right) {
+        int width = columns.size();
+        addTable(table);
+        int leftColumn = resolve(left);
+        int rightColumn = resolve(right);
+        if (leftColumn >= width == rightColumn >= width) {
+            throw new IllegalArgumentException("ERROR: JOIN condition must compare a column of "
+                    + table.getTableName() + " with a column of an earlier table");
+        }
+        if (leftColumn >= width) {
+            int swap = leftColumn;
+            leftColumn = rightColumn;
+            rightColumn = swap;
+        }
+        keys.add(new int[] { leftColumn, rightColumn - width });
+    }
+
+    private int resolve(Token name) {
+        int columnIndex = columns.indexOf(name.getText());
+        if (columnIndex == -1) {
+            throw new IllegalArgumentException("ERROR: Column " + name.getText() + " does not exist");
+        }
+        return columnIndex;
+    }
+
+    // The joined columns as a table without rows, so WHERE, ORDER BY and aggregates resolve against it
+    Table getSchema() {
+        return schema;
+    }
+
+    List<Table> getTables() {
+        return tables;
+    }
+
+    // The joined rows as a view reading at asOf sees the tables, produced lazily except for
+    // the build side of a hash join
+    Stream<List<Object>> rows(long asOf) {
+        Table first = tables.get(0);
+        Trace trace = first.getTrace();
+        Stream<List<Object>> rows = scan(first, asOf);
+        long estimate = first.getRows().size();
+
+        for (int i = 0; i < keys.size(); i++) {
+            Table right = tables.get(i + 1);
+            int leftColumn = keys.get(i)[0];
+            int rightColumn = keys.get(i)[1];
+
+            if (rightColumn == 0) {
+                // probe the joined table's primary key; each row so far matches at most one row
+                rows = rows.flatMap(left -> {
+                    trace.countIndexProbe();
+                    List<Object> match = right.getRow(left.get(leftColumn), asOf);
+                    return match == null ? Stream.empty() : Stream.of(concat(left, match));
+                });
+            } else if (i == 0 && leftColumn == 0) {
+                // the first table's primary key: stream the joined table and probe the first table
+                rows = scan(right, asOf).flatMap(row -> {
+                    trace.countIndexProbe();
+                    List<Object> match = first.getRow(row.get(rightColumn), asOf);
+                    return match == null ? Stream.empty() : Stream.of(concat(match, row));
+                });
+                estimate = right.getRows().size();
+            } else if (right.getRows().size() <= estimate) {
+                Map<Object, List<List<Object>>> built = build(scan(right, asOf), rightColumn);
+                rows = rows.flatMap(left -> probe(built, left.get(leftColumn)).stream().map(row -> concat(left, row)));
+            } else {
+                Map<Object, List<List<Object>>> built = build(rows, leftColumn);
+                rows = scan(right, asOf).flatMap(row -> probe(built, row.get(rightColumn)).stream().map(left -> concat(left, row)));
+                estimate = right.getRows().size();
+            }
+        }
+        return rows;
+    }
+
+    private static Stream<List<Object>> scan(Table table, long asOf) {
+        return table.getTrace().countScanned(table.rows(asOf));
+    }
+
+    private static Map<Object, List<List<Object>>> build(Stream<List<Object>> rows, int column) {
+        Map<Object, List<List<Object>>> built = new HashMap<>();
+        rows.forEach(row -> built.computeIfAbsent(key(row.get(column)), k -> new ArrayList<>(1)).add(row));
+        return built;
+    }
+
+    private static List<List<Object>> probe(Map<Object, List<List<Object>>> built, Object value) {
+        return built.getOrDefault(key(value), Collections.emptyList());
+    }
+
+    // numbers are matched by value across tables, so an INT 7 finds a DOUBLE 7.0
+    private static Object key(Object value) {
+        return value instanceof Number ? (Object) ((Number) value).doubleValue() : value;
+    }
+
+    private static List<Object> concat(List<Object> left, List<Object> right) {
+        List<Object> row = new ArrayList<>(left.size() + right.size());
+        row.addAll(left);
+        row.addAll(right);
+        return row;
+    }
+}
@@ -0,0 +1,121 @@
+package edu.smu.smusql;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Hand-written single-pass tokenizer for smuSQL statements.
+ * Walks the query once, character by character, without regular expressions:
+ * - quoted literals become one STRING token, spaces included ('New York')
+ * - parentheses, commas and operators are separate tokens even without surrounding spaces
+ * - any other run of characters is a word, classified as NUMBER or IDENTIFIER
+ * A trailing ';' is dropped.
+ */
+public final class Lexer {
+
+    private Lexer() {
+    }
+
+    public static List<Token> tokenize(String sql) {
+        List<Token> tokens = new ArrayList<>();
+        int length = sql.length();
+        int i = 0;
+
+        while (i < length) {
+            char c = sql.charAt(i);
+            int start = i;
+
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '\'' || c == '"') {
+                i = endOfQuoted(sql, i);
+                tokens.add(new Token(Token.Type.STRING, sql.substring(start, i)));
+            } else if (c == '(' || c == ')' || c == ',' || c == ';') {
+                i++;
+                tokens.add(new Token(Token.Type.PUNCTUATION, sql.substring(start, i)));
+            } else if (isOperatorChar(c)) {
+                i++;
+                // two-character operators: <= >= != <>
+                if (i < length && (sql.charAt(i) == '=' && c != '=' && c != '*' || c == '<' && sql.charAt(i) == '>')) {
+                    i++;
+                } else if (c == '!') {
+                    throw new IllegalArgumentException("Unexpected character '!' at position " + start);
+                }
+                tokens.add(new Token(Token.Type.OPERATOR, sql.substring(start, i)));
+            } else {
+                while (i < length && !isDelimiter(sql.charAt(i))) {
+                    i++;
+                }
+                String word = sql.substring(start, i);
+                tokens.add(new Token(isNumber(word) ? Token.Type.NUMBER : Token.Type.IDENTIFIER, word));
+            }
+        }
+
+        if (!tokens.isEmpty() && tokens.get(tokens.size() - 1).is(";")) {
+            tokens.remove(tokens.size() - 1);
+        }
+        return tokens;
+    }
+
+    // Returns the index just past the closing quote; a doubled quote inside the literal is an escaped quote
+    private static int endOfQuoted(String sql, int start) {
+        char quote = sql.charAt(start);
+        int i = start + 1;
+        while (i < sql.length()) {
+            if (sql.charAt(i) == quote) {
+                if (i + 1 < sql.length() && sql.charAt(i + 1) == quote) {
+                    i += 2;
+                    continue;
+                }
+                return i + 1;
+            }
+            i++;
+        }
+        throw new IllegalArgumentException("Unterminated string literal at position " + start);
+    }
+
+    private static boolean isOperatorChar(char c) {
+        return c == '=' || c == '<' || c == '>' || c == '!' || c == '*';
+    }
+
+    private static boolean isDelimiter(char c) {
+        return Character.isWhitespace(c) || c == '\'' || c == '"' || c == '(' || c == ')' || c == ',' || c == ';'
+                || isOperatorChar(c);
+    }
+
+    // Optional sign, digits with at most one decimal point, optional exponent
+    private static boolean isNumber(String word) {
+        int i = 0;
+        int length = word.length();
+        if (word.charAt(0) == '-' || word.charAt(0) == '+') {
+            i++;
+        }
+        int digits = 0;
+        boolean point = false;
+        for (; i < length; i++) {
+            char c = word.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits++;
+            } else if (c == '.' && !point) {
+                point = true;
+            } else {
+                break;
+            }
+        }
+        if (digits == 0) {
+            return false;
+        }
+        if (i < length && (word.charAt(i) == 'e' || word.charAt(i) == 'E')) {
+            i++;
+            if (i < length && (word.charAt(i) == '-' || word.charAt(i) == '+')) {
+                i++;
+            }
+            int exponentDigits = 0;
+            for (; i < length && word.charAt(i) >= '0' && word.charAt(i) <= '9'; i++) {
+                exponentDigits++;
+            }
+            return exponentDigits > 0 && i == length;
+        }
+        return i == length;
+    }
+}
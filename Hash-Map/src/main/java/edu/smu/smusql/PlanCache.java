@@ -0,0 +1,26 @@
+package edu.smu.smusql;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * Bounded LRU cache of prepared statements, keyed by SQL text with its literals
+ * replaced by ? placeholders. A LinkedHashMap in access order keeps the least
+ * recently used plan first, so it is the one dropped when the cache is full.
+ */
+public class PlanCache extends LinkedHashMap<String, PreparedStatement> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int capacity;
+
+    public PlanCache(int capacity) {
+        super(16, 0.75f, true);
+        this.capacity = capacity;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+        return size() > capacity;
+    }
+}
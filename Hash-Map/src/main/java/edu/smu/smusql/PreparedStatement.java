@@ -0,0 +1,460 @@
+package edu.smu.smusql;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import edu.smu.smusql.Expression.Comparison;
+
+/*
+ * A parsed INSERT, SELECT, UPDATE or DELETE statement, created by Engine.prepare.
+ * The table and every column are resolved once when the statement is prepared, so
+ * execute() goes straight to the rows without tokenizing or validating the SQL again.
+ *
+ * Values may be ? placeholders, numbered from 0 in the order they appear:
+ *   PreparedStatement statement = engine.prepare("UPDATE users SET age = ? WHERE id = ?");
+ *   statement.bind(30, 7).execute();
+ *
+ * A statement may be executed while other threads use the same Engine: a SELECT reads the
+ * rows committed when it started (see Versions) without a lock, an INSERT, UPDATE or DELETE
+ * takes the write lock of the table it changes (see TableLocks). The bound parameters
+ * belong to the statement, so each thread needs its own.
+ *
+ * On an engine with a write-ahead log, an INSERT, UPDATE or DELETE is run as the SQL text
+ * with its bound values written in, so the log holds a statement it can replay.
+ */
+public class PreparedStatement {
+
+    enum Command { INSERT, SELECT, UPDATE, DELETE }
+
+    // How the rows a statement works on are found
+    public enum AccessPath {
+        ALL_ROWS,     // no WHERE clause, every row qualifies
+        PRIMARY_KEY,  // an "=" on the first column fetches the single row straight from the row map
+        INDEX_LOOKUP, // an "=" on an indexed column picks the candidates, the rest of the WHERE is checked on them
+        SCAN          // every row is tested against the WHERE clause
+    }
+
+    // A value in the statement: either a constant written in the SQL or a ? placeholder.
+    // A quoted value is a string even if it looks like a number ('007'), so it is typed STRING
+    // when it decides the type of a column.
+    static final class Slot {
+        private final String constant;
+        private final int parameter;
+        private final boolean quoted;
+
+        private Slot(String constant, int parameter, boolean quoted) {
+            this.constant = constant;
+            this.parameter = parameter;
+            this.quoted = quoted;
+        }
+
+        static Slot constant(String value, boolean quoted) {
+            return new Slot(value, -1, quoted);
+        }
+
+        static Slot parameter(int index, boolean quoted) {
+            return new Slot(null, index, quoted);
+        }
+
+        String resolve(String[] parameters) {
+            return parameter == -1 ? constant : parameters[parameter];
+        }
+
+        boolean isQuoted() {
+            return quoted;
+        }
+
+        @Override
+        public String toString() {
+            return parameter == -1 ? constant : "?" + parameter;
+        }
+    }
+
+    private final Command command;
+    private final Table table;
+    private final int parameterCount;
+    private final String[] parameters;
+
+    private List<Slot> values = new ArrayList<>();              // INSERT
+    private int targetColumn = -1;                              // UPDATE
+    private Slot newValue;                                      // UPDATE
+    private Expression where;                                   // null without a WHERE clause
+    private AccessPath accessPath = AccessPath.ALL_ROWS;
+    private Comparison indexedCondition;                        // PRIMARY_KEY/INDEX_LOOKUP, the conjunct answered by the lookup
+    private Expression residual;                                // what is left to test on each row, null if nothing
+    private int orderColumn = -1;                               // SELECT, -1 without ORDER BY
+    private boolean descending;                                 // SELECT, ORDER BY ... DESC
+    private Slot limit;                                         // SELECT, null without LIMIT
+    private Slot offset;                                        // SELECT, null without OFFSET
+    private Aggregation aggregation;                            // SELECT, null unless aggregates or GROUP BY
+    private Join join;                                          // SELECT, null without JOIN; table is then its schema
+    private Engine engine;                                      // set when writes have to be logged
+    private List<Token> source;                                 // the prepared SQL, for the log
+
+    private PreparedStatement(Command command, Table table, int parameterCount) {
+        this.command = command;
+        this.table = table;
+        this.parameterCount = parameterCount;
+        this.parameters = new String[parameterCount];
+    }
+
+    static PreparedStatement insert(Table table, List<Slot> values, int parameterCount) {
+        PreparedStatement statement = new PreparedStatement(Command.INSERT, table, parameterCount);
+        statement.values = values;
+        return statement;
+    }
+
+    static PreparedStatement select(Table table, Aggregation aggregation, Expression where, int orderColumn,
+                                    boolean descending, Slot limit, Slot offset, int parameterCount) {
+        PreparedStatement statement = new PreparedStatement(Command.SELECT, table, parameterCount);
+        statement.aggregation = aggregation;
+        statement.orderColumn = orderColumn;
+        statement.descending = descending;
+        statement.limit = limit;
+        statement.offset = offset;
+        return withWhere(statement, where);
+    }
+
+    // A SELECT over joined tables: the WHERE clause is tested on each joined row, as no index covers them
+    static PreparedStatement selectJoin(Join join, Aggregation aggregation, Expression where, int orderColumn,
+                                        boolean descending, Slot limit, Slot offset, int parameterCount) {
+        PreparedStatement statement = select(join.getSchema(), aggregation, null, orderColumn, descending, limit,
+                offset, parameterCount);
+        statement.join = join;
+        if (where != null) {
+            statement.where = where;
+            statement.accessPath = AccessPath.SCAN;
+            statement.residual = where;
+        }
+        return statement;
+    }
+
+    static PreparedStatement update(Table table, int targetColumn, Slot newValue, Expression where,
+                                    int parameterCount) {
+        PreparedStatement statement = new PreparedStatement(Command.UPDATE, table, parameterCount);
+        statement.targetColumn = targetColumn;
+        statement.newValue = newValue;
+        return withWhere(statement, where);
+    }
+
+    static PreparedStatement delete(Table table, Expression where, int parameterCount) {
+        return withWhere(new PreparedStatement(Command.DELETE, table, parameterCount), where);
+    }
+
+    private static PreparedStatement withWhere(PreparedStatement statement, Expression where) {
+        statement.where = where;
+        statement.chooseAccessPath();
+        return statement;
+    }
+
+    public int getParameterCount() {
+        return parameterCount;
+    }
+
+    public AccessPath getAccessPath() {
+        return accessPath;
+    }
+
+    // Only a conjunct, a condition every matching row must satisfy, can be answered by an index:
+    // the primary key if one is "id = value", else a secondary index on an "=" conjunct.
+    // The remaining conjuncts are tested on the rows the lookup returns, cheapest first.
+    private void chooseAccessPath() {
+        if (where == null) {
+            accessPath = AccessPath.ALL_ROWS;
+            return;
+        }
+        accessPath = AccessPath.SCAN;
+        residual = where;
+        for (Expression conjunct : where.conjuncts()) {
+            if (isEquality(conjunct) && ((Comparison) conjunct).column == 0) {
+                useIndex(AccessPath.PRIMARY_KEY, (Comparison) conjunct);
+                return;
+            }
+        }
+        for (Expression conjunct : where.conjuncts()) {
+            if (isEquality(conjunct) && table.hasIndex(((Comparison) conjunct).column)) {
+                useIndex(AccessPath.INDEX_LOOKUP, (Comparison) conjunct);
+                return;
+            }
+        }
+    }
+
+    private static boolean isEquality(Expression expression) {
+        return expression instanceof Comparison && ((Comparison) expression).operator.equals("=");
+    }
+
+    // Writes of a statement prepared on an engine with a log go through the engine, which logs them
+    PreparedStatement loggedBy(Engine engine, List<Token> source) {
+        this.engine = engine;
+        this.source = source;
+        return this;
+    }
+
+    private void useIndex(AccessPath path, Comparison conjunct) {
+        accessPath = path;
+        indexedCondition = conjunct;
+        residual = Expression.without(where, conjunct);
+    }
+
+    // Sets every placeholder at once, in order; values are converted to the column types on execute
+    public PreparedStatement bind(Object... values) {
+        if (values.length != parameterCount) {
+            throw new IllegalArgumentException("Expected " + parameterCount + " parameters but got " + values.length);
+        }
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == null) {
+                throw new IllegalArgumentException("Parameter " + i + " is null");
+            }
+            parameters[i] = String.valueOf(values[i]);
+        }
+        return this;
+    }
+
+    public String execute() {
+        for (int i = 0; i < parameterCount; i++) {
+            if (parameters[i] == null) {
+                return "ERROR: Parameter " + i + " is not bound";
+            }
+        }
+        if (command == Command.SELECT) {
+            return execute(parameters); // query opens its read view
+        }
+        if (engine != null) {
+            return engine.executeSQL(boundSql());
+        }
+        TableLocks locks = TableLocks.write(table);
+        try {
+            return execute(parameters);
+        } finally {
+            locks.release();
+        }
+    }
+
+    // The prepared SQL with every ? replaced by its bound value: a value that reads as a number is
+    // written as one, anything else as a quoted string, so it is typed as it is on execute
+    private String boundSql() {
+        StringBuilder sql = new StringBuilder();
+        int parameter = 0;
+        for (Token token : source) {
+            if (sql.length() > 0) {
+                sql.append(' ');
+            }
+            if (!token.is("?")) {
+                sql.append(token.getText());
+            } else {
+                String value = parameters[parameter++];
+                sql.append(ColumnType.infer(value) == ColumnType.STRING ? "'" + value.replace("'", "''") + "'" : value);
+            }
+        }
+        return sql.toString();
+    }
+
+    // The table an INSERT, UPDATE or DELETE changes, whose write lock the caller holds during execute
+    Table getTable() {
+        return table;
+    }
+
+    // Runs a SELECT with the bound parameters, returning a cursor instead of the formatted text
+    public ResultSet executeQuery() {
+        if (command != Command.SELECT) {
+            throw new IllegalStateException("Only a SELECT returns rows");
+        }
+        for (int i = 0; i < parameterCount; i++) {
+            if (parameters[i] == null) {
+                throw new IllegalStateException("Parameter " + i + " is not bound");
+            }
+        }
+        return query(parameters);
+    }
+
+    // LIMIT and OFFSET are applied to the lazy row stream, so the scan stops once the page is full.
+    // Hash indexes keep no order, so ORDER BY has to see every matching row: with a LIMIT only the
+    // first OFFSET + LIMIT rows are kept, in a bounded heap, instead of sorting them all.
+    // An aggregate query orders and pages its result rows, one per group, the same way.
+    // The cursor holds its read view until it is exhausted or closed. The view is opened before
+    // the WHERE clause is compiled, so the dictionaries it compiles against cover every visible row.
+    ResultSet query(String[] parameters) {
+        Versions.ReadView view = versions().open();
+        try {
+            return cursor(parameters, view.getTimestamp()).holding(view);
+        } catch (RuntimeException e) {
+            view.close();
+            throw e;
+        }
+    }
+
+    // the tables of one Database share their Versions
+    private Versions versions() {
+        return (join == null ? table : join.getTables().get(0)).getVersions();
+    }
+
+    private ResultSet cursor(String[] parameters, long asOf) {
+        Stream<List<Object>> rows = aggregation == null ? rows(parameters, asOf) : aggregate(parameters, asOf);
+        long skip = offset == null ? 0 : rowCount(offset, "OFFSET", parameters);
+        long max = limit == null ? -1 : rowCount(limit, "LIMIT", parameters);
+        if (orderColumn != -1) {
+            Comparator<List<Object>> order = Comparator.comparing(row -> row.get(orderColumn), ColumnType.VALUE_ORDER);
+            if (descending) {
+                order = order.reversed();
+            }
+            rows = TopK.select(rows.iterator(), max == -1 ? -1 : skip + max, order).stream();
+        }
+        rows = rows.skip(skip);
+        if (max != -1) {
+            rows = rows.limit(max);
+        }
+        return new ResultSet(aggregation == null ? table.getColumns() : aggregation.getColumns(), rows.iterator());
+    }
+
+    // Without a WHERE clause the indexes may answer the query without reading the rows
+    private Stream<List<Object>> aggregate(String[] parameters, long asOf) {
+        List<List<Object>> groups = accessPath == AccessPath.ALL_ROWS && join == null
+                ? aggregation.fromIndexes(asOf) : null;
+        if (groups == null) {
+            groups = aggregation.aggregate(rows(parameters, asOf).iterator());
+        }
+        return groups.stream();
+    }
+
+    private static long rowCount(Slot slot, String clause, String[] parameters) {
+        String value = slot.resolve(parameters);
+        if (ColumnType.infer(value) != ColumnType.INT || value.startsWith("-")) {
+            throw new IllegalArgumentException("ERROR: " + clause + " must be a non-negative integer");
+        }
+        return Integer.parseInt(value);
+    }
+
+    // Runs the statement with the given placeholder values; used by Engine for cached plans,
+    // so the bound parameters of this object are left alone. An INSERT, UPDATE or DELETE expects
+    // the caller to hold the table's write lock.
+    String execute(String[] parameters) {
+        switch (command) {
+            case INSERT:
+                return executeInsert(parameters);
+            case SELECT:
+                try (ResultSet rows = query(parameters)) {
+                    return ResultWriter.toString(rows);
+                } catch (IllegalArgumentException e) {
+                    return e.getMessage();
+                }
+            case UPDATE:
+                return executeUpdate(parameters);
+            default:
+                return executeDelete(parameters);
+        }
+    }
+
+    private String executeInsert(String[] parameters) {
+        List<String> row = new ArrayList<>(values.size());
+        boolean[] quoted = new boolean[values.size()];
+        for (Slot value : values) {
+            quoted[row.size()] = value.isQuoted();
+            row.add(value.resolve(parameters));
+        }
+        return table.insertRow(row, quoted);
+    }
+
+    private String executeUpdate(String[] parameters) {
+        Object value;
+        try {
+            value = table.parseValue(targetColumn, newValue.resolve(parameters), newValue.isQuoted());
+        } catch (IllegalArgumentException e) {
+            return "ERROR: " + e.getMessage();
+        }
+
+        List<List<Object>> rowsToUpdate = findRows(parameters);
+        // a new primary key moves the row, which must not collide with another row
+        if (targetColumn == 0 && !rowsToUpdate.isEmpty()) {
+            boolean unchanged = rowsToUpdate.size() == 1
+                    && ColumnType.compareValues(rowsToUpdate.get(0).get(0), value) == 0;
+            if (!unchanged && (rowsToUpdate.size() > 1 || table.containsKey(value))) {
+                return "ERROR: Duplicate primary key: " + value;
+            }
+        }
+
+        // track if any rows were updated
+        int updatedRows = 0;
+
+        // perform the update on filtered rows
+        for (List<Object> row : rowsToUpdate) {
+            table.updateRow(row, targetColumn, value);
+            updatedRows++; // Increment if a row was updated
+        }
+
+        // Return a message based on whether rows were updated
+        if (updatedRows > 0) {
+            return "UPDATE successful, updated " + updatedRows + " rows";
+        } else {
+            return "No rows updated";
+        }
+    }
+
+    private String executeDelete(String[] parameters) {
+        if (accessPath == AccessPath.ALL_ROWS) {
+            int deletedCount = table.deleteAllRows();
+            return deletedCount == 0 ? "No rows to delete" : "Deleted " + deletedCount + " row(s) from " + table.getTableName();
+        }
+
+        List<List<Object>> rowsToDelete = findRows(parameters);
+
+        if (rowsToDelete.isEmpty()) {
+            return "No rows matched the condition, nothing to delete";
+        }
+
+        // Delete through the table so its indexes drop the rows too
+        int deletedCount = 0;
+        for (List<Object> row : rowsToDelete) {
+            if (table.deleteRow(row.get(0))) {
+                deletedCount++;
+            }
+        }
+
+        return "Deleted " + deletedCount + " row(s) from " + table.getTableName();
+    }
+
+    // UPDATE and DELETE change the table, so they collect their rows before touching any;
+    // they hold the write lock and work on the newest versions
+    private List<List<Object>> findRows(String[] parameters) {
+        return rows(parameters, Versions.LATEST).collect(Collectors.toList());
+    }
+
+    // The matching rows as a view reading at asOf sees them, found lazily as the stream is consumed
+    private Stream<List<Object>> rows(String[] parameters, long asOf) {
+        Trace trace = table.getTrace();
+        if (join != null) {
+            Stream<List<Object>> joined = join.rows(asOf);
+            return residual == null ? joined : joined.filter(residual.compile(table, parameters));
+        }
+        if (accessPath == AccessPath.ALL_ROWS) {
+            return trace.countScanned(table.rows(asOf));
+        }
+
+        Predicate<List<Object>> filter = residual == null ? row -> true : residual.compile(table, parameters);
+        if (accessPath == AccessPath.PRIMARY_KEY) {
+            trace.countIndexProbe();
+            List<Object> row = table.getRow(indexKey(parameters), asOf);
+            return row != null && filter.test(row) ? Stream.of(row) : Stream.empty();
+        }
+        if (accessPath == AccessPath.INDEX_LOOKUP) {
+            trace.countIndexProbe();
+            // the index also lists rows under the values of their other versions
+            Predicate<List<Object>> indexed = indexedCondition.compile(table, parameters);
+            Set<Object> keys = table.lookup(indexedCondition.column, indexKey(parameters));
+            return trace.countScanned(keys.stream().map(key -> table.getRow(key, asOf)).filter(Objects::nonNull))
+                    .filter(indexed.and(filter));
+        }
+
+        return trace.countScanned(table.rows(asOf)).filter(filter);
+    }
+
+    // the value the PRIMARY_KEY or INDEX_LOOKUP conjunct looks up, in the column's type
+    private Object indexKey(String[] parameters) {
+        return table.parseLiteral(indexedCondition.column, indexedCondition.value.resolve(parameters));
+    }
+}
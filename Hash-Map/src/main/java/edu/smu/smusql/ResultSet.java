@@ -0,0 +1,86 @@
+package edu.smu.smusql;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/*
+ * Forward-only cursor over the rows of a SELECT, returned by Engine.query and
+ * PreparedStatement.executeQuery. Rows are found as the cursor advances rather
+ * than collected up front, so the first row is available at once and memory does
+ * not grow with the size of the result.
+ *
+ *   ResultSet rows = engine.query("SELECT * FROM users WHERE age > 30");
+ *   while (rows.next()) {
+ *       Object name = rows.getValue(1);
+ *   }
+ *
+ * The cursor returns the rows as they were when it was opened, whatever is written while
+ * it is read, and writers never wait for it. Until it is exhausted or closed it keeps the
+ * versions it could still see from being reclaimed: close a cursor that is not read to the end.
+ */
+public class ResultSet implements AutoCloseable {
+
+    private final List<String> columns;
+    private final Iterator<List<Object>> rows;
+    private List<Object> current;
+    private Versions.ReadView view; // null if the cursor holds none
+    private boolean closed;
+
+    ResultSet(List<String> columns, Iterator<List<Object>> rows) {
+        this.columns = columns;
+        this.rows = rows;
+    }
+
+    ResultSet holding(Versions.ReadView view) {
+        this.view = view;
+        return this;
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    // Moves to the next row; false once every row has been read
+    public boolean next() {
+        current = !closed && rows.hasNext() ? rows.next() : null;
+        if (current == null) {
+            close();
+        }
+        return current != null;
+    }
+
+    // Closes the read view; the cursor has no more rows afterwards
+    @Override
+    public void close() {
+        closed = true;
+        if (view != null) {
+            view.close();
+            view = null;
+        }
+    }
+
+    public Object getValue(int columnIndex) {
+        return currentRow().get(columnIndex);
+    }
+
+    public Object getValue(String column) {
+        int columnIndex = columns.indexOf(column);
+        if (columnIndex == -1) {
+            throw new IllegalArgumentException("Column " + column + " does not exist");
+        }
+        return currentRow().get(columnIndex);
+    }
+
+    // The current row's values in column order, read-only
+    public List<Object> getRow() {
+        return Collections.unmodifiableList(currentRow());
+    }
+
+    private List<Object> currentRow() {
+        if (current == null) {
+            throw new IllegalStateException("No current row, call next() first");
+        }
+        return current;
+    }
+}
@@ -0,0 +1,154 @@
+package edu.smu.smusql;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/*
+ * Builds the Predicate a WHERE clause is evaluated with. Everything that does not
+ * depend on the row is decided here, once per execution: the column ordinal, the
+ * literal's type and the operator each pick a small specialised lambda, so testing
+ * a row is a field load, an unboxing and one compare.
+ */
+final class RowPredicates {
+
+    private RowPredicates() {
+    }
+
+    // "cell = literal" or "cell != literal" against a dictionary instance, compared by reference
+    static Predicate<List<Object>> sameInstance(int column, String operator, Object instance) {
+        if (operator.equals("=")) {
+            return row -> row.get(column) == instance;
+        }
+        return row -> row.get(column) != instance;
+    }
+
+    // "cell operator literal" with the literal already converted by Table.parseLiteral
+    static Predicate<List<Object>> compare(int column, ColumnType type, String operator, Object literal) {
+        if (type == ColumnType.INT && literal instanceof Integer) {
+            return compareInt(column, operator, (Integer) literal);
+        }
+        if ((type == ColumnType.INT || type == ColumnType.DOUBLE) && literal instanceof Number) {
+            return compareNumber(column, operator, ((Number) literal).doubleValue());
+        }
+        if (type == ColumnType.STRING) {
+            return compareString(column, operator, literal.toString());
+        }
+        // column type not known yet (no rows) or a literal that does not fit the column
+        switch (operator) {
+            case "=":
+                return row -> ColumnType.compareValues(row.get(column), literal) == 0;
+            case "!=":
+                return row -> ColumnType.compareValues(row.get(column), literal) != 0;
+            case ">":
+                return row -> ColumnType.compareValues(row.get(column), literal) > 0;
+            case "<":
+                return row -> ColumnType.compareValues(row.get(column), literal) < 0;
+            case ">=":
+                return row -> ColumnType.compareValues(row.get(column), literal) >= 0;
+            case "<=":
+                return row -> ColumnType.compareValues(row.get(column), literal) <= 0;
+            default:
+                throw unsupported(operator);
+        }
+    }
+
+    // "cell IN (literals)" as one hash lookup; numbers are matched by value, so 30 finds 30.0 as compareValues does
+    static Predicate<List<Object>> in(int column, ColumnType type, List<Object> literals) {
+        if (type == ColumnType.INT && allInstances(literals, Integer.class)) {
+            Set<Object> values = new HashSet<>(literals);
+            return row -> values.contains(row.get(column));
+        }
+        if ((type == ColumnType.INT || type == ColumnType.DOUBLE) && allInstances(literals, Number.class)) {
+            Set<Double> values = new HashSet<>();
+            for (Object literal : literals) {
+                values.add(((Number) literal).doubleValue());
+            }
+            return row -> values.contains(((Number) row.get(column)).doubleValue());
+        }
+        if (type == ColumnType.STRING) {
+            Set<String> values = new HashSet<>();
+            for (Object literal : literals) {
+                values.add(literal.toString());
+            }
+            return row -> values.contains(row.get(column));
+        }
+        Predicate<List<Object>> predicate = compare(column, type, "=", literals.get(0));
+        for (int i = 1; i < literals.size(); i++) {
+            predicate = predicate.or(compare(column, type, "=", literals.get(i)));
+        }
+        return predicate;
+    }
+
+    private static boolean allInstances(List<Object> literals, Class<?> type) {
+        for (Object literal : literals) {
+            if (!type.isInstance(literal)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Predicate<List<Object>> compareInt(int column, String operator, int value) {
+        switch (operator) {
+            case "=":
+                return row -> (Integer) row.get(column) == value;
+            case "!=":
+                return row -> (Integer) row.get(column) != value;
+            case ">":
+                return row -> (Integer) row.get(column) > value;
+            case "<":
+                return row -> (Integer) row.get(column) < value;
+            case ">=":
+                return row -> (Integer) row.get(column) >= value;
+            case "<=":
+                return row -> (Integer) row.get(column) <= value;
+            default:
+                throw unsupported(operator);
+        }
+    }
+
+    // Double.compare rather than the primitive operators so NaN orders as ColumnType.compareValues does
+    private static Predicate<List<Object>> compareNumber(int column, String operator, double value) {
+        switch (operator) {
+            case "=":
+                return row -> Double.compare(((Number) row.get(column)).doubleValue(), value) == 0;
+            case "!=":
+                return row -> Double.compare(((Number) row.get(column)).doubleValue(), value) != 0;
+            case ">":
+                return row -> Double.compare(((Number) row.get(column)).doubleValue(), value) > 0;
+            case "<":
+                return row -> Double.compare(((Number) row.get(column)).doubleValue(), value) < 0;
+            case ">=":
+                return row -> Double.compare(((Number) row.get(column)).doubleValue(), value) >= 0;
+            case "<=":
+                return row -> Double.compare(((Number) row.get(column)).doubleValue(), value) <= 0;
+            default:
+                throw unsupported(operator);
+        }
+    }
+
+    private static Predicate<List<Object>> compareString(int column, String operator, String value) {
+        switch (operator) {
+            case "=":
+                return row -> value.equals(row.get(column));
+            case "!=":
+                return row -> !value.equals(row.get(column));
+            case ">":
+                return row -> ((String) row.get(column)).compareTo(value) > 0;
+            case "<":
+                return row -> ((String) row.get(column)).compareTo(value) < 0;
+            case ">=":
+                return row -> ((String) row.get(column)).compareTo(value) >= 0;
+            case "<=":
+                return row -> ((String) row.get(column)).compareTo(value) <= 0;
+            default:
+                throw unsupported(operator);
+        }
+    }
+
+    private static IllegalArgumentException unsupported(String operator) {
+        return new IllegalArgumentException("ERROR: Unsupported operator " + operator);
+    }
+}
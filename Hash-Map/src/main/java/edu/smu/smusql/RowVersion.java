@@ -0,0 +1,72 @@
+package edu.smu.smusql;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/*
+ * One version of a row. A stored row is never changed: UPDATE stores a changed copy and
+ * DELETE an empty version marked deleted, each linked to the version it replaced, so a
+ * SELECT that started earlier follows the chain back to the row as it was then. Versions
+ * are rows themselves, so the row map still maps every key to a row.
+ */
+final class RowVersion extends ArrayList<Object> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Versions.Commit commit;
+    private final boolean deleted;
+    private volatile RowVersion previous; // cut by the vacuum once no open view can see it
+
+    // A new row holding the values
+    RowVersion(List<Object> values, Versions.Commit commit) {
+        super(values);
+        this.commit = commit;
+        this.deleted = false;
+        this.previous = null;
+    }
+
+    // Replaces a version: a copy of it to be changed by the caller, or a deleted marker
+    RowVersion(RowVersion replaced, Versions.Commit commit, boolean deleted) {
+        super(deleted ? new ArrayList<>(0) : replaced);
+        this.commit = commit;
+        this.deleted = deleted;
+        this.previous = replaced;
+    }
+
+    // The row as a view reading at asOf sees it: this version or the newest older one
+    // committed by then, or null if the row did not exist or was deleted at that time
+    List<Object> at(long asOf) {
+        RowVersion version = this;
+        while (version != null && version.commit.getTimestamp() > asOf) {
+            version = version.previous;
+        }
+        return version == null || version.deleted ? null : version;
+    }
+
+    long getTimestamp() {
+        return commit.getTimestamp();
+    }
+
+    boolean isDeleted() {
+        return deleted;
+    }
+
+    RowVersion getPrevious() {
+        return previous;
+    }
+
+    void setPrevious(RowVersion previous) {
+        this.previous = previous;
+    }
+
+    // Whether this version or an older one still linked holds the value in the column
+    boolean holds(int column, Object value) {
+        for (RowVersion version = this; version != null; version = version.previous) {
+            if (!version.deleted && Objects.equals(version.get(column), value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
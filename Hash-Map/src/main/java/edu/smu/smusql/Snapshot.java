@@ -0,0 +1,189 @@
+package edu.smu.smusql;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/*
+ * Binary image of a whole Database, written at a checkpoint so a restart loads it instead
+ * of replaying every statement since the write-ahead log was created.
+ *
+ *   [int MAGIC][int VERSION][long log generation][int table count], then per table:
+ *   [name][int column count][per column: name, byte type or -1 if not yet known]
+ *   [int row count][rows, one value per column]
+ *   [int indexed column count][indexed column positions]
+ *
+ * Strings are [int length][UTF-8 bytes] and values carry a one-byte type tag.
+ *
+ * Restoring maps the file into memory and hands the typed rows to the table in one batch,
+ * skipping the parsing and checks of insertRow. The hash indexes are not stored: each is
+ * rebuilt with one pass over the loaded rows, which costs no more than reading it would.
+ * Only the newest version of each live row is written, see Versions.
+ */
+final class Snapshot {
+
+    private static final int MAGIC = 0x534D5153; // "SMQS"
+    private static final int VERSION = 1;
+
+    private static final byte INT_VALUE = 0;
+    private static final byte DOUBLE_VALUE = 1;
+    private static final byte STRING_VALUE = 2;
+
+    private Snapshot() {
+    }
+
+    /* ================= Writing ================= */
+
+    // Writes the snapshot next to the target and renames it into place, so a crash leaves
+    // either the previous snapshot or the new one, never half of one
+    static void write(Database database, long logGeneration, Path path) throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            // the stream is not closed, the try closes the channel after the force
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(logGeneration);
+            Set<String> tableNames = database.listTables();
+            out.writeInt(tableNames.size());
+            for (String tableName : tableNames) {
+                writeTable(out, database.getTable(tableName));
+            }
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeTable(DataOutputStream out, Table table) throws IOException {
+        List<String> columns = table.getColumns();
+        writeString(out, table.getTableName());
+        out.writeInt(columns.size());
+        for (int i = 0; i < columns.size(); i++) {
+            ColumnType type = table.getColumnType(i);
+            writeString(out, columns.get(i));
+            out.writeByte(type == null ? -1 : type.ordinal());
+        }
+
+        List<List<Object>> rows = table.getAllRows(); // the newest version of each live row
+        out.writeInt(rows.size());
+        for (List<Object> row : rows) {
+            for (Object value : row) {
+                writeValue(out, value);
+            }
+        }
+
+        List<Integer> indexed = new ArrayList<>();
+        for (int i = 0; i < columns.size(); i++) {
+            if (table.hasIndex(i)) {
+                indexed.add(i);
+            }
+        }
+        out.writeInt(indexed.size());
+        for (int columnIndex : indexed) {
+            out.writeInt(columnIndex);
+        }
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value instanceof Integer) {
+            out.writeByte(INT_VALUE);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE_VALUE);
+            out.writeDouble((Double) value);
+        } else {
+            out.writeByte(STRING_VALUE);
+            writeString(out, (String) value);
+        }
+    }
+
+    // not writeUTF, which is limited to 64KB and uses a modified encoding
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /* ================= Restoring ================= */
+
+    // Loads the snapshot's tables into an empty database and returns the log generation it covers
+    static long read(Path path, Database database) throws IOException {
+        ByteBuffer in;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot too large to map: " + path);
+            }
+            in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()); // stays valid after close
+        }
+        if (in.getInt() != MAGIC || in.getInt() != VERSION) {
+            throw new IOException("Not a snapshot: " + path);
+        }
+        long logGeneration = in.getLong();
+        int tableCount = in.getInt();
+        for (int i = 0; i < tableCount; i++) {
+            readTable(in, database);
+        }
+        return logGeneration;
+    }
+
+    private static void readTable(ByteBuffer in, Database database) {
+        String tableName = readString(in);
+        int columnCount = in.getInt();
+        List<String> columns = new ArrayList<>(columnCount);
+        ColumnType[] types = new ColumnType[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            columns.add(readString(in));
+            byte type = in.get();
+            types[i] = type == -1 ? null : ColumnType.values()[type];
+        }
+        database.createTable(tableName, columns, types);
+        Table table = database.getTable(tableName);
+
+        int rowCount = in.getInt();
+        List<List<Object>> rows = new ArrayList<>(rowCount);
+        for (int i = 0; i < rowCount; i++) {
+            List<Object> row = new ArrayList<>(columnCount);
+            for (int c = 0; c < columnCount; c++) {
+                row.add(readValue(in));
+            }
+            rows.add(row);
+        }
+        table.loadRows(rows);
+
+        int indexCount = in.getInt();
+        for (int i = 0; i < indexCount; i++) {
+            table.createIndex(in.getInt());
+        }
+    }
+
+    private static Object readValue(ByteBuffer in) {
+        byte tag = in.get();
+        switch (tag) {
+            case INT_VALUE:
+                return in.getInt();
+            case DOUBLE_VALUE:
+                return in.getDouble();
+            default:
+                return readString(in);
+        }
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
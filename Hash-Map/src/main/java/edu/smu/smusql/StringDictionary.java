@@ -0,0 +1,41 @@
+package edu.smu.smusql;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Dictionary of the distinct values of one STRING column. Every row refers to the
+ * dictionary's single instance of its value, so a column such as city holds ten
+ * Strings however many rows there are, and "city = 'Boston'" becomes a reference
+ * compare against the dictionary entry instead of String.equals on every row.
+ *
+ * Dictionaries only pay off for low-cardinality columns: once a column has more
+ * than MAX_SIZE distinct values Table stops encoding it. The values already stored
+ * are ordinary Strings, so dropping the dictionary needs no rewrite of the rows.
+ * Statements look values up while a writer adds to it, so the map is concurrent.
+ */
+public class StringDictionary {
+
+    public static final int MAX_SIZE = 1024;
+
+    private final Map<String, String> entries = new ConcurrentHashMap<>();
+
+    // The shared instance for the value, added if it is new
+    public String encode(String value) {
+        String entry = entries.putIfAbsent(value, value);
+        return entry == null ? value : entry;
+    }
+
+    // The shared instance for the value, or null if no row has ever held it
+    public String lookup(String value) {
+        return entries.get(value);
+    }
+
+    public boolean isFull() {
+        return entries.size() > MAX_SIZE;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+}
@@ -2,43 +2,196 @@ package edu.smu.smusql;
 
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 
-
+/*
+ * Rows are stored as RowVersions (see Versions): the row map holds the newest version of
+ * each row, and a row deleted while a SELECT could still see it stays there, marked deleted,
+ * until the vacuum drops it. An index lists a row under the value of every version still
+ * linked to it, so a view finds the row under the value it sees and rechecks the others.
+ *
+ * The row map and the indexes are concurrent maps: statements read them without a lock
+ * while a writer holding the table's write lock changes them.
+ */
 public class Table {
     private String tableName;
     private List<String> columns;
-    private Map<Object, List<Object>> rows;
+    // null entries are inferred from the first inserted value; volatile as statements are
+    // planned without the table lock
+    private volatile ColumnType[] types;
+    private Map<Object, List<Object>> rows; // every row is a RowVersion
+    // secondary indexes from CREATE INDEX: column index -> (value -> primary keys of the rows holding it)
+    private Map<Integer, Map<Object, Set<Object>>> indexes;
+    // per STRING column, null for other types and for columns with too many distinct values
+    private StringDictionary[] dictionaries;
+    private Trace trace;
+    // Taken around every statement changing this table, see TableLocks
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Versions versions;
+    private Versions.Commit pending;  // the commit of the running statement, null between statements
+    private boolean changed;          // whether the running statement has stored a version yet
+    private List<Object> replaced = new ArrayList<>(); // rows the running statement updated or deleted
+    private volatile Versions.Commit lastCommit = Versions.INITIAL;
+    private int retained;             // rows queued for the vacuum, whose old versions are still linked
 
     public Table(String tableName, List<String> columns){
+        this(tableName, columns, new ColumnType[columns.size()]);
+    }
+
+    public Table(String tableName, List<String> columns, ColumnType[] types){
+        this(tableName, columns, types, new Trace());
+    }
+
+    public Table(String tableName, List<String> columns, ColumnType[] types, Trace trace){
+        this(tableName, columns, types, trace, new Versions());
+    }
+
+    // A table whose commits share the database's clock
+    Table(String tableName, List<String> columns, ColumnType[] types, Trace trace, Versions versions){
         this.tableName = tableName;
         this.columns = columns;
-        this.rows = new HashMap<>();
+        this.types = types;
+        this.versions = versions;
+        this.rows = new ConcurrentHashMap<>();
+        this.indexes = new ConcurrentHashMap<>();
+        this.dictionaries = new StringDictionary[columns.size()];
+        this.trace = trace;
+        for (int i = 0; i < types.length; i++) {
+            if (types[i] == ColumnType.STRING) {
+                dictionaries[i] = new StringDictionary();
+            }
+        }
     }
 
     //insert row with unique key,
-    public String insertRow(List<Object> rowValues){
+    public String insertRow(List<String> rowValues){
+        return insertRow(rowValues, new boolean[rowValues.size()]);
+    }
+
+    // quoted[i] is true for a value written in quotes, which makes an untyped column STRING
+    public String insertRow(List<String> rowValues, boolean[] quoted){
         if(rowValues.size() != columns.size()){
             return "Mismatch between columns and values provided";
         }
         if (rowValues.contains(null)) {
             return "Null values not allowed";
         }
-        Object key = rowValues.get(0);
-        if(rows.containsKey(key)){
+        // convert every value first so a type mismatch leaves the table untouched
+        ColumnType[] rowTypes = new ColumnType[types.length];
+        List<Object> row = new ArrayList<>(rowValues.size());
+        try {
+            for (int i = 0; i < rowValues.size(); i++) {
+                String value = rowValues.get(i);
+                rowTypes[i] = types[i] != null ? types[i] : inferType(value, quoted[i]);
+                row.add(rowTypes[i].parse(value));
+            }
+        } catch (IllegalArgumentException e) {
+            return "ERROR: " + e.getMessage();
+        }
+        Object key = row.get(0);
+        RowVersion current = (RowVersion) rows.get(key);
+        if(current != null && !current.isDeleted()){
             return "Primary key " + key + " existed";
         }
-        rows.put(key,rowValues);
+        for (int i = 0; i < types.length; i++) {
+            if (types[i] == null && rowTypes[i] == ColumnType.STRING) {
+                dictionaries[i] = new StringDictionary(); // column type inferred just now
+            }
+        }
+        types = rowTypes;
+        for (int i = 0; i < row.size(); i++) {
+            if (dictionaries[i] != null) {
+                row.set(i, encode(i, (String) row.get(i)));
+            }
+        }
+        boolean ownCommit = beginChange();
+        // a row deleted while a SELECT could still see it comes back as a new version of it
+        RowVersion version = new RowVersion(row, pending);
+        if (current != null) {
+            version.setPrevious(current);
+            replaced.add(key);
+        }
+        rows.put(key,version);
+        addToIndexes(key, version, current);
+        endChange(ownCommit);
         return "Row Inserted";
     }
 
+    // converts a SET value for storage in the given column
+    public Object parseValue(int columnIndex, String value){
+        return parseValue(columnIndex, value, false);
+    }
+
+    public Object parseValue(int columnIndex, String value, boolean quoted){
+        ColumnType type = types[columnIndex] != null ? types[columnIndex] : inferType(value, quoted);
+        return type.parse(value);
+    }
+
+    // a quoted value is a string whatever it looks like, so '007' keeps its zeros
+    private static ColumnType inferType(String value, boolean quoted){
+        return quoted ? ColumnType.STRING : ColumnType.infer(value);
+    }
+
+    // converts a WHERE literal once per query so rows can be compared without parsing
+    public Object parseLiteral(int columnIndex, String literal){
+        ColumnType type = types[columnIndex] != null ? types[columnIndex] : ColumnType.infer(literal);
+        return type.parseLiteral(literal);
+    }
+
+    public ColumnType getColumnType(int columnIndex){
+        return types[columnIndex];
+    }
+
+    // Bulk load of an empty table from a snapshot: the values are already typed, so rows are
+    // stored without parsing into a map sized for them, and indexes are created afterwards
+    void loadRows(List<List<Object>> loadedRows){
+        rows = new ConcurrentHashMap<>(loadedRows.size() * 4 / 3 + 1);
+        for (List<Object> row : loadedRows) {
+            for (int i = 0; i < row.size(); i++) {
+                if (dictionaries[i] != null) {
+                    row.set(i, encode(i, (String) row.get(i)));
+                }
+            }
+            rows.put(row.get(0), new RowVersion(row, Versions.INITIAL));
+        }
+    }
+
+    /* ================= Dictionary encoding ================= */
+
+    private String encode(int columnIndex, String value){
+        StringDictionary dictionary = dictionaries[columnIndex];
+        String entry = dictionary.encode(value);
+        if (dictionary.isFull()) {
+            dictionaries[columnIndex] = null; // high cardinality, stop encoding this column
+        }
+        return entry;
+    }
+
+    // true while every row of the column refers to the dictionary's instance of its value
+    public boolean isDictionaryEncoded(int columnIndex){
+        return dictionaries[columnIndex] != null;
+    }
+
+    // The column's dictionary, or null once the column is not encoded; a statement reads it once,
+    // as a writer may stop encoding the column while the statement runs
+    public StringDictionary getDictionary(int columnIndex){
+        return dictionaries[columnIndex];
+    }
+
     //select row with matching criteria
     public List<List<Object>> getAllRows(){
-        return new ArrayList<>(rows.values());
+        return rows(Versions.LATEST).collect(Collectors.toList());
     }
    
     public String updateWhere(String columnName, Object value, String targetColumn, Object newValue){
@@ -48,9 +201,9 @@ public class Table {
             return "Invalid Column";
         }
         int updatedRows = 0;
-        for(List<Object> row : rows.values()){
+        for(List<Object> row : getAllRows()){
             if(row.get(columnsIndex).equals(value)){
-                row.set(targetIndex,newValue);
+                updateRow(row, targetIndex, newValue);
                 updatedRows++; //increment
             }
         }
@@ -64,14 +217,11 @@ public class Table {
         }
         // value = value.replaceAll("^['\"]|['\"]$", ""); // Strip quotes if present
         int deletedRows = 0;
-        Iterator<Map.Entry<Object, List<Object>>> iterator = rows.entrySet().iterator();
-    
-        while (iterator.hasNext()) {
-            Map.Entry<Object, List<Object>> entry = iterator.next();
-            Object cellValue = entry.getValue().get(columnIndex);
+        for (List<Object> row : getAllRows()) {
+            Object cellValue = row.get(columnIndex);
             
-            if (evaluateCondition(cellValue.toString(), operator, value)) {
-                iterator.remove(); // Safely removes the row
+            if (evaluateCondition(cellValue, operator, value)) {
+                deleteRow(row.get(0));
                 deletedRows++;
             }
         }
@@ -104,15 +254,112 @@ public class Table {
     }
 
     public int deleteAllRows() {
-        int count = rows.size();
-        rows.clear();
+        int count = 0;
+        for (Object primaryKey : rows.keySet()) {
+            if (deleteRow(primaryKey)) {
+                count++;
+            }
+        }
         return count;
     }
 
  
 
+    // point lookup on the first column, with the same numeric matching as a WHERE id = literal
+    public List<Object> getRow(Object primaryKey) {
+        return getRow(primaryKey, Versions.LATEST);
+    }
+
+    // the row as a view reading at asOf sees it, or null
+    List<Object> getRow(Object primaryKey, long asOf) {
+        RowVersion row = (RowVersion) rows.get(keyFor(0, primaryKey));
+        return row == null ? null : row.at(asOf);
+    }
+
+    // the rows visible at asOf, in no particular order
+    Stream<List<Object>> rows(long asOf) {
+        return rows.values().stream().map(row -> ((RowVersion) row).at(asOf)).filter(Objects::nonNull);
+    }
+
+    // marks the row deleted; it stays in the row map and indexes until no view can see it
     public boolean deleteRow(Object primaryKey) {
-        return rows.remove(primaryKey) != null;
+        RowVersion row = (RowVersion) rows.get(primaryKey);
+        if (row == null || row.isDeleted()) {
+            return false;
+        }
+        boolean ownCommit = beginChange();
+        rows.put(primaryKey, new RowVersion(row, pending, true));
+        replaced.add(primaryKey);
+        endChange(ownCommit);
+        return true;
+    }
+
+    /* ================= Secondary indexes ================= */
+
+    // builds a hash index over the existing rows, every version still linked included;
+    // returns false if the column is already indexed
+    public boolean createIndex(int columnIndex) {
+        if (indexes.containsKey(columnIndex)) {
+            return false;
+        }
+        Map<Object, Set<Object>> index = new ConcurrentHashMap<>();
+        for (Map.Entry<Object, List<Object>> entry : rows.entrySet()) {
+            for (RowVersion version = (RowVersion) entry.getValue(); version != null; version = version.getPrevious()) {
+                if (!version.isDeleted()) {
+                    index.computeIfAbsent(version.get(columnIndex), v -> ConcurrentHashMap.newKeySet()).add(entry.getKey());
+                }
+            }
+        }
+        indexes.put(columnIndex, index);
+        return true;
+    }
+
+    public boolean hasIndex(int columnIndex) {
+        return indexes.containsKey(columnIndex);
+    }
+
+    // read-only view of an index, value -> primary keys of the rows holding it; also lists rows
+    // under the values of their older versions while a SELECT may see them
+    public Map<Object, Set<Object>> getIndex(int columnIndex) {
+        return Collections.unmodifiableMap(indexes.get(columnIndex));
+    }
+
+    // primary keys of the rows whose indexed column equals the value
+    public Set<Object> lookup(int columnIndex, Object value) {
+        Set<Object> keys = indexes.get(columnIndex).get(keyFor(columnIndex, value));
+        return keys == null ? Collections.emptySet() : keys;
+    }
+
+    // WHERE literals compare numerically, so 30.0 must find the INT 30 stored in a hash key
+    private Object keyFor(int columnIndex, Object value) {
+        if (types[columnIndex] == ColumnType.INT && value instanceof Double) {
+            double number = (Double) value;
+            return number == Math.rint(number) && Math.abs(number) <= Integer.MAX_VALUE ? (Object) (int) number : value;
+        }
+        if (types[columnIndex] == ColumnType.DOUBLE && value instanceof Integer) {
+            return ((Integer) value).doubleValue();
+        }
+        return value;
+    }
+
+    // lists a new version under its values, unless an older version still linked holds them
+    private void addToIndexes(Object primaryKey, List<Object> row, RowVersion previous) {
+        for (Map.Entry<Integer, Map<Object, Set<Object>>> index : indexes.entrySet()) {
+            Object value = row.get(index.getKey());
+            if (previous == null || !previous.holds(index.getKey(), value)) {
+                index.getValue().computeIfAbsent(value, v -> ConcurrentHashMap.newKeySet()).add(primaryKey);
+            }
+        }
+    }
+
+    private static void removeFromIndex(Map<Object, Set<Object>> index, Object value, Object primaryKey) {
+        Set<Object> keys = index.get(value);
+        if (keys != null) {
+            keys.remove(primaryKey);
+            if (keys.isEmpty()) {
+                index.remove(value);
+            }
+        }
     }
 
     public String getTableName(){
@@ -121,9 +368,131 @@ public class Table {
     public List<String> getColumns(){
         return columns;
     }
+    // the newest version of every row; while SELECTs run it may also hold deleted rows
     public Map<Object, List<Object>> getRows() {
         return rows;
     }
+
+    public Trace getTrace() {
+        return trace;
+    }
+
+    ReentrantReadWriteLock getLock() {
+        return lock;
+    }
+
+    Versions getVersions() {
+        return versions;
+    }
+
+    /* ================= Versions ================= */
+
+    // Called by TableLocks.write with the write lock held: the versions stored until endWrite
+    // belong to one commit
+    void beginWrite() {
+        pending = versions.begin();
+        changed = false;
+    }
+
+    // Commits the statement's versions, if it stored any, and reclaims the versions they replaced:
+    // at once when no open view can see them, otherwise through the vacuum
+    void endWrite() {
+        Versions.Commit commit = pending;
+        pending = null;
+        if (!changed) {
+            return;
+        }
+        versions.commit(commit);
+        lastCommit = commit;
+        if (replaced.isEmpty()) {
+            return;
+        }
+        long oldest = versions.oldestView();
+        if (oldest >= commit.getTimestamp()) {
+            reclaim(replaced, oldest);
+        } else {
+            retained += replaced.size();
+            versions.retire(this, commit, replaced);
+        }
+        replaced = new ArrayList<>();
+    }
+
+    // A change made outside TableLocks.write, by a caller using the table directly, is its own commit
+    private boolean beginChange() {
+        boolean ownCommit = pending == null;
+        if (ownCommit) {
+            beginWrite();
+        }
+        changed = true;
+        return ownCommit;
+    }
+
+    private void endChange(boolean ownCommit) {
+        if (ownCommit) {
+            endWrite();
+        }
+    }
+
+    // Reclaims rows queued by endWrite once no view older than oldest is open
+    void vacuum(List<Object> primaryKeys, long oldest) {
+        lock.writeLock().lock();
+        try {
+            reclaim(primaryKeys, oldest);
+            retained -= primaryKeys.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Unlinks the versions of the rows that no view reading at oldest or later can see, takes
+    // them out of the indexes unless a linked version holds the same value, and drops rows
+    // whose deletion every view sees
+    private void reclaim(List<Object> primaryKeys, long oldest) {
+        for (Object primaryKey : primaryKeys) {
+            RowVersion newest = (RowVersion) rows.get(primaryKey);
+            if (newest == null) {
+                continue; // reclaimed already, by an earlier commit's turn
+            }
+            RowVersion kept = newest;
+            while (kept.getTimestamp() > oldest && kept.getPrevious() != null) {
+                kept = kept.getPrevious();
+            }
+            boolean gone = kept == newest && newest.isDeleted() && newest.getTimestamp() <= oldest;
+            RowVersion unlinked = gone ? newest : kept.getPrevious();
+            if (!gone) {
+                kept.setPrevious(null); // before the walk, so holds only sees the versions left
+            }
+            for (RowVersion version = unlinked; version != null; version = version.getPrevious()) {
+                if (version.isDeleted()) {
+                    continue;
+                }
+                for (Map.Entry<Integer, Map<Object, Set<Object>>> index : indexes.entrySet()) {
+                    Object value = version.get(index.getKey());
+                    if (gone || !newest.holds(index.getKey(), value)) {
+                        removeFromIndex(index.getValue(), value, primaryKey);
+                    }
+                }
+            }
+            if (gone) {
+                rows.remove(primaryKey);
+            }
+        }
+    }
+
+    // Runs an answer read from the indexes alone, under the read lock so no writer changes them
+    // meanwhile, if they hold exactly the rows visible at asOf: nothing committed since and no
+    // replaced version left. Null otherwise.
+    <T> T readCurrent(long asOf, Supplier<T> answer) {
+        if (lastCommit.getTimestamp() > asOf) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            return lastCommit.getTimestamp() <= asOf && retained == 0 ? answer.get() : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
     
 
     public List<List<Object>> filterRows(String columnName, String operator, Object value) {
@@ -134,7 +503,7 @@ public class Table {
             return result; // Column not found, return empty list
         }
 
-        for (List<Object> row : rows.values()) {
+        for (List<Object> row : getAllRows()) {
             Object cellValue = row.get(columnIndex);
 
             // Perform the appropriate comparison based on the operator
@@ -158,8 +527,56 @@ public class Table {
     public void updateRow(List<Object> row, String targetColumn, Object newValue) {
         int targetIndex = columns.indexOf(targetColumn);
         if (targetIndex != -1) {
-            row.set(targetIndex, newValue);
+            updateRow(row, targetIndex, newValue);
+        }
+    }
+
+    // stores a new version of the row with one cell changed, listing the row under the new value in
+    // that column's index; the old value stays listed while the old version is linked
+    public void updateRow(List<Object> row, int targetIndex, Object newValue) {
+        if (dictionaries[targetIndex] != null && newValue instanceof String) {
+            newValue = encode(targetIndex, (String) newValue);
         }
+        Object primaryKey = row.get(0);
+        RowVersion current = (RowVersion) rows.get(primaryKey);
+        if (targetIndex == 0 && !keyFor(0, newValue).equals(primaryKey)) {
+            moveRow(primaryKey, current, keyFor(0, newValue));
+            return;
+        }
+        boolean ownCommit = beginChange();
+        RowVersion version = new RowVersion(current, pending, false);
+        version.set(targetIndex, newValue);
+        Map<Object, Set<Object>> index = indexes.get(targetIndex);
+        if (index != null && !current.holds(targetIndex, newValue)) {
+            index.computeIfAbsent(newValue, v -> ConcurrentHashMap.newKeySet()).add(primaryKey);
+        }
+        rows.put(primaryKey, version);
+        replaced.add(primaryKey);
+        endChange(ownCommit);
+    }
+
+    // A new primary key moves the row: the old key gets a deleted version and the new key the
+    // changed row, both in the running commit, so a view sees the row under exactly one key.
+    // The caller has checked that no live row holds the new key.
+    private void moveRow(Object primaryKey, RowVersion current, Object newKey) {
+        boolean ownCommit = beginChange();
+        RowVersion existing = (RowVersion) rows.get(newKey); // a deleted row an older view may see
+        RowVersion moved = new RowVersion(current, pending);
+        moved.set(0, newKey);
+        if (existing != null) {
+            moved.setPrevious(existing);
+            replaced.add(newKey);
+        }
+        rows.put(newKey, moved);
+        addToIndexes(newKey, moved, existing);
+        rows.put(primaryKey, new RowVersion(current, pending, true));
+        replaced.add(primaryKey);
+        endChange(ownCommit);
+    }
+
+    // whether a row that is not deleted holds the primary key
+    boolean containsKey(Object primaryKey) {
+        return getRow(primaryKey) != null;
     }
 
 }
@@ -0,0 +1,68 @@
+package edu.smu.smusql;
+
+import java.util.Collection;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
+
+/*
+ * The table locks held by one statement. INSERT, UPDATE and DELETE take the write lock of
+ * the one table they change, so writers to different tables never wait for each other, and
+ * the versions they store between write and release form one commit (see Versions).
+ * SELECTs read through a Versions.ReadView and hold a table's read lock briefly if at all;
+ * read is for work that needs whole tables to stand still, such as writing a checkpoint.
+ *
+ * Read locks are taken in table name order. Otherwise two such readers could each hold a
+ * table the other is waiting for while a writer queued on it keeps new readers out.
+ *
+ * The locks are ReentrantReadWriteLocks: a reader arriving while a writer is queued waits
+ * behind it, so a steady stream of readers cannot starve writers (StampedLock readers
+ * barge and did). Locks belong to the thread that took them, so they must be released on
+ * the thread that took them.
+ */
+final class TableLocks {
+
+    private final Lock[] locks;
+    private final Table written; // null for read locks
+    private boolean released;
+
+    private TableLocks(Lock[] locks, Table written) {
+        this.locks = locks;
+        this.written = written;
+    }
+
+    static TableLocks read(Collection<Table> tables) {
+        TreeMap<String, Table> ordered = new TreeMap<>();
+        for (Table table : tables) {
+            ordered.put(table.getTableName(), table);
+        }
+        Lock[] locks = new Lock[ordered.size()];
+        int i = 0;
+        for (Table table : ordered.values()) {
+            locks[i] = table.getLock().readLock();
+            locks[i].lock();
+            i++;
+        }
+        return new TableLocks(locks, null);
+    }
+
+    static TableLocks write(Table table) {
+        Lock lock = table.getLock().writeLock();
+        lock.lock();
+        table.beginWrite();
+        return new TableLocks(new Lock[] { lock }, table);
+    }
+
+    // Commits the written table's statement and releases every lock; later calls do nothing
+    void release() {
+        if (released) {
+            return;
+        }
+        released = true;
+        if (written != null) {
+            written.endWrite();
+        }
+        for (int i = locks.length - 1; i >= 0; i--) {
+            locks[i].unlock();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package edu.smu.smusql;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/*
+ * The k smallest items of a sequence under an order, kept in a bounded heap.
+ * The heap is a max-heap of the items kept so far, so each new item is compared
+ * with the largest of them and only replaces it when it is smaller: O(n log k)
+ * time and O(k) memory, where sorting everything would take O(n log n) and O(n).
+ */
+final class TopK<T> {
+
+    private final int k;
+    private final Comparator<? super T> order;
+    private final PriorityQueue<T> heap;
+
+    TopK(int k, Comparator<? super T> order) {
+        this.k = k;
+        this.order = order;
+        this.heap = new PriorityQueue<>(Math.max(1, Math.min(k, 1024)), Collections.reverseOrder(order));
+    }
+
+    // The first k items of the sequence in order; k below 0 means all of them
+    static <T> List<T> select(Iterator<T> items, long k, Comparator<? super T> order) {
+        if (k < 0 || k > Integer.MAX_VALUE) {
+            List<T> all = new ArrayList<>();
+            items.forEachRemaining(all::add);
+            all.sort(order);
+            return all;
+        }
+        TopK<T> topK = new TopK<>((int) k, order);
+        items.forEachRemaining(topK::offer);
+        return topK.toSortedList();
+    }
+
+    void offer(T item) {
+        if (heap.size() < k) {
+            heap.add(item);
+        } else if (k > 0 && order.compare(item, heap.peek()) < 0) {
+            heap.poll();
+            heap.add(item);
+        }
+    }
+
+    List<T> toSortedList() {
+        List<T> sorted = new ArrayList<>(heap);
+        sorted.sort(order);
+        return sorted;
+    }
+}
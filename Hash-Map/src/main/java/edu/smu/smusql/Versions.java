@@ -0,0 +1,174 @@
+package edu.smu.smusql;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+ * Multi-version concurrency control for one Database. INSERT, UPDATE and DELETE never
+ * change a stored row: they add a new version of it (see RowVersion) stamped with the
+ * Commit of their statement. The commit takes its timestamp from the clock when the
+ * statement ends, so every version a statement made becomes visible at the same moment.
+ *
+ * A SELECT reads through a ReadView, the clock value when it started. It sees the newest
+ * version of each row committed at or before that timestamp whatever writers do while it
+ * runs, so it never waits for a writer to finish and no writer waits for it to finish.
+ *
+ * A version replaced by an UPDATE or DELETE is kept until no open view can see it. The
+ * statement reclaims it at once when no SELECT is running; otherwise the row is queued and
+ * the vacuum thread reclaims it after the views older than the commit have closed. The
+ * thread is started when the first row is queued and stops once the queue is empty.
+ */
+final class Versions {
+
+    // reads the newest version of every row, including those of the statement still running
+    static final long LATEST = Long.MAX_VALUE;
+    // the commit of rows restored from a snapshot, visible to every view
+    static final Commit INITIAL = new Commit(0);
+    // how long the vacuum thread waits for old views to close before it looks again
+    private static final long VACUUM_INTERVAL_MILLIS = 10;
+
+    // The commit shared by every version one statement made; LATEST until the statement ends
+    static final class Commit {
+        private volatile long timestamp;
+
+        private Commit(long timestamp) {
+            this.timestamp = timestamp;
+        }
+
+        long getTimestamp() {
+            return timestamp;
+        }
+    }
+
+    // The committed state one SELECT reads; closing it lets the vacuum reclaim what only it could see
+    static final class ReadView implements AutoCloseable {
+        private final Versions versions;
+        private final long timestamp;
+        private boolean closed;
+
+        private ReadView(Versions versions, long timestamp) {
+            this.versions = versions;
+            this.timestamp = timestamp;
+        }
+
+        long getTimestamp() {
+            return timestamp;
+        }
+
+        // Later calls do nothing
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                versions.close(timestamp);
+            }
+        }
+    }
+
+    // Rows of one table replaced by one commit, waiting for the views that may still see them
+    private static final class Retired {
+        private final Table table;
+        private final Commit commit;
+        private final List<Object> primaryKeys;
+
+        private Retired(Table table, Commit commit, List<Object> primaryKeys) {
+            this.table = table;
+            this.commit = commit;
+            this.primaryKeys = primaryKeys;
+        }
+    }
+
+    private volatile long clock;
+    private final TreeMap<Long, Integer> openViews = new TreeMap<>(); // timestamp -> views reading at it, guarded by this
+    private final Queue<Retired> retired = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean vacuuming = new AtomicBoolean();
+    // one vacuum pass at a time, so Engine.vacuum cannot miss rows the thread holds; not this,
+    // which a writer locks for oldestView while holding its table's write lock
+    private final Object vacuumLock = new Object();
+
+    Commit begin() {
+        return new Commit(LATEST);
+    }
+
+    // Makes every version of the commit visible to the views opened from now on
+    synchronized void commit(Commit commit) {
+        commit.timestamp = clock + 1;
+        clock = commit.timestamp; // after the commit's timestamp, so a view that reads it sees the commit
+    }
+
+    synchronized ReadView open() {
+        long timestamp = clock;
+        openViews.merge(timestamp, 1, Integer::sum);
+        return new ReadView(this, timestamp);
+    }
+
+    private synchronized void close(long timestamp) {
+        openViews.computeIfPresent(timestamp, (t, count) -> count == 1 ? null : count - 1);
+    }
+
+    // The timestamp of the oldest open view, or the clock when there is none: a version replaced
+    // at or before it can be seen by no view
+    synchronized long oldestView() {
+        return openViews.isEmpty() ? clock : openViews.firstKey();
+    }
+
+    // Queues rows a commit replaced while older views were open, for the vacuum thread
+    void retire(Table table, Commit commit, List<Object> primaryKeys) {
+        retired.add(new Retired(table, commit, primaryKeys));
+        if (vacuuming.compareAndSet(false, true)) {
+            Thread thread = new Thread(this::runVacuum, "smusql-vacuum");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    private void runVacuum() {
+        while (true) {
+            vacuum();
+            if (retired.isEmpty()) {
+                vacuuming.set(false);
+                // a row queued after the check would otherwise wait for the next retire
+                if (retired.isEmpty() || !vacuuming.compareAndSet(false, true)) {
+                    return;
+                }
+            }
+            try {
+                Thread.sleep(VACUUM_INTERVAL_MILLIS);
+            } catch (InterruptedException e) {
+                vacuuming.set(false);
+                return;
+            }
+        }
+    }
+
+    // Reclaims every queued row whose commit all open views can see; run by the vacuum thread
+    // and by Engine.vacuum
+    void vacuum() {
+        synchronized (vacuumLock) {
+            long oldest = oldestView();
+            Map<Table, List<Object>> reclaimable = new IdentityHashMap<>();
+            List<Retired> waiting = new ArrayList<>();
+            for (int i = retired.size(); i > 0; i--) {
+                Retired next = retired.poll();
+                if (next == null) {
+                    break;
+                }
+                if (next.commit.getTimestamp() > oldest) {
+                    waiting.add(next);
+                } else {
+                    reclaimable.computeIfAbsent(next.table, t -> new ArrayList<>()).addAll(next.primaryKeys);
+                }
+            }
+            retired.addAll(waiting);
+            for (Map.Entry<Table, List<Object>> entry : reclaimable.entrySet()) {
+                entry.getKey().vacuum(entry.getValue(), oldest);
+            }
+        }
+    }
+}
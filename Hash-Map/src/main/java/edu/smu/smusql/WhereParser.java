@@ -0,0 +1,161 @@
+package edu.smu.smusql;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import edu.smu.smusql.Expression.And;
+import edu.smu.smusql.Expression.Between;
+import edu.smu.smusql.Expression.Comparison;
+import edu.smu.smusql.Expression.In;
+import edu.smu.smusql.Expression.Not;
+import edu.smu.smusql.Expression.Or;
+import edu.smu.smusql.PreparedStatement.Slot;
+
+/*
+ * Recursive-descent parser for WHERE clauses. One method per precedence level,
+ * loosest first, so AND binds tighter than OR and NOT tighter than both:
+ *
+ *   or        := and ( OR and )*
+ *   and       := not ( AND not )*
+ *   not       := NOT not | primary
+ *   primary   := ( or )
+ *              | column [NOT] BETWEEN value AND value
+ *              | column [NOT] IN ( value [, value]* )
+ *              | column operator value
+ *
+ * Syntax errors are thrown as IllegalArgumentException with their ERROR message.
+ */
+final class WhereParser {
+
+    private final Table table;
+    private final List<Token> tokens;
+    private final Function<Token, Slot> slots;  // numbers ? placeholders as they are met
+    private int position;
+
+    private WhereParser(Table table, List<Token> tokens, int start, Function<Token, Slot> slots) {
+        this.table = table;
+        this.tokens = tokens;
+        this.slots = slots;
+        this.position = start;
+    }
+
+    // Parses everything from start to the end of the tokens as one expression
+    static Expression parse(Table table, List<Token> tokens, int start, Function<Token, Slot> slots) {
+        WhereParser parser = new WhereParser(table, tokens, start, slots);
+        if (start >= tokens.size()) {
+            throw new IllegalArgumentException("ERROR: Incomplete condition in WHERE clause");
+        }
+        Expression expression = parser.parseOr();
+        if (parser.position < tokens.size()) {
+            throw new IllegalArgumentException("ERROR: Expected AND or OR in WHERE clause but found " + tokens.get(parser.position));
+        }
+        return expression;
+    }
+
+    private Expression parseOr() {
+        List<Expression> operands = new ArrayList<>();
+        operands.add(parseAnd());
+        while (accept("OR")) {
+            operands.add(parseAnd());
+        }
+        return operands.size() == 1 ? operands.get(0) : new Or(operands);
+    }
+
+    private Expression parseAnd() {
+        List<Expression> operands = new ArrayList<>();
+        operands.add(parseNot());
+        while (accept("AND")) {
+            operands.add(parseNot());
+        }
+        return operands.size() == 1 ? operands.get(0) : new And(operands);
+    }
+
+    private Expression parseNot() {
+        if (accept("NOT")) {
+            return new Not(parseNot());
+        }
+        return parsePrimary();
+    }
+
+    private Expression parsePrimary() {
+        if (accept("(")) {
+            Expression expression = parseOr();
+            expect(")");
+            return expression;
+        }
+
+        int column = resolveColumn(next());
+        boolean negated = accept("NOT");
+        if (accept("BETWEEN")) {
+            Slot low = value();
+            expect("AND");
+            Expression between = new Between(column, low, value());
+            return negated ? new Not(between) : between;
+        }
+        if (accept("IN")) {
+            expect("(");
+            List<Slot> values = new ArrayList<>();
+            values.add(value());
+            while (accept(",")) {
+                values.add(value());
+            }
+            expect(")");
+            Expression in = new In(column, values);
+            return negated ? new Not(in) : in;
+        }
+        if (negated) {
+            throw new IllegalArgumentException("ERROR: Expected BETWEEN or IN after NOT in WHERE clause");
+        }
+
+        String operator = next().getText();
+        if (!isValidOperator(operator)) {
+            throw new IllegalArgumentException("ERROR: Invalid operator in WHERE clause: " + operator);
+        }
+        return new Comparison(column, operator.equals("<>") ? "!=" : operator, value());
+    }
+
+    // quoted literals come without their quotes
+    private Slot value() {
+        Token token = next();
+        if (!token.isLiteral() && !token.is("?")) {
+            throw new IllegalArgumentException("ERROR: Expected a value in WHERE clause but found " + token);
+        }
+        return slots.apply(token);
+    }
+
+    private int resolveColumn(Token name) {
+        int columnIndex = table.getColumns().indexOf(name.getText());
+        if (columnIndex == -1) {
+            throw new IllegalArgumentException("ERROR: Column " + name.getText() + " does not exist");
+        }
+        return columnIndex;
+    }
+
+    private Token next() {
+        if (position >= tokens.size()) {
+            throw new IllegalArgumentException("ERROR: Incomplete condition in WHERE clause");
+        }
+        return tokens.get(position++);
+    }
+
+    private boolean accept(String expected) {
+        if (position < tokens.size() && tokens.get(position).is(expected)) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(String expected) {
+        Token token = next();
+        if (!token.is(expected)) {
+            throw new IllegalArgumentException("ERROR: Expected " + expected + " in WHERE clause but found " + token);
+        }
+    }
+
+    private static boolean isValidOperator(String operator) {
+        return operator.equals("=") || operator.equals(">") || operator.equals("<") || operator.equals(">=")
+                || operator.equals("<=") || operator.equals("!=") || operator.equals("<>");
+    }
+}
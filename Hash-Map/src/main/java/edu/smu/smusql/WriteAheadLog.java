@@ -0,0 +1,373 @@
+package edu.smu.smusql;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/*
+ * Append-only log of the statements that changed the database, replayed into a fresh
+ * Engine on startup. Statements are logged after they ran and before executeSQL returns,
+ * so every acknowledged change is in the log and a statement that failed never is.
+ *
+ * The file starts with [int MAGIC][long generation], followed by the records. Each record
+ * is the statement's UTF-8 bytes behind an 8-byte header:
+ *   [int payload length][int CRC32 of the payload][payload]
+ * A record cut short or with a wrong checksum (a write torn by a crash) ends the log:
+ * replay stops there and the file is truncated, so new records follow the last good one.
+ *
+ * A checkpoint writes a snapshot of the database tagged with the log's generation, then
+ * resets the log: its records are dropped and its generation goes up by one. Should the
+ * process die between the two steps, the log still carries the snapshot's generation, so
+ * open knows its records are already in the snapshot and does not replay them twice.
+ *
+ * Group commit: records are gathered in a buffer and written with a single
+ * FileChannel.force for the whole batch.
+ * - commitIntervalMillis == 0: commit returns once its record is on disk. Callers that
+ *   commit while another is forcing wait for it and are then forced together.
+ * - commitIntervalMillis > 0: commit returns at once and a background thread forces the
+ *   batch every interval, so a crash loses at most the last interval of statements.
+ */
+public final class WriteAheadLog {
+
+    private static final int MAGIC = 0x534D5157; // "SMQW"
+    private static final int FILE_HEADER_SIZE = 12;
+    private static final int HEADER_SIZE = 8;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final Thread flusher; // null when every commit waits for its force
+
+    private ByteBuffer pending = ByteBuffer.allocate(BUFFER_SIZE); // records not yet written
+    private ByteBuffer spare = ByteBuffer.allocate(BUFFER_SIZE);   // swapped in while a batch is written
+    private long appended;  // records added to pending so far
+    private long durable;   // records written and forced so far
+    private boolean forcing;
+    private IOException failure;
+    private boolean closed;
+    private long generation;
+    private long length; // of the file once every record so far is written
+
+    private WriteAheadLog(FileChannel channel, long generation, long length, long commitIntervalMillis) {
+        this.channel = channel;
+        this.generation = generation;
+        this.length = length;
+        if (commitIntervalMillis > 0) {
+            flusher = new Thread(() -> flushEvery(commitIntervalMillis), "wal-flusher");
+            flusher.setDaemon(true);
+            flusher.start();
+        } else {
+            flusher = null;
+        }
+    }
+
+    // Opens or creates the log, passing every statement already in it to replay, in order
+    public static WriteAheadLog open(Path path, long commitIntervalMillis, Consumer<String> replay) throws IOException {
+        return open(path, commitIntervalMillis, -1, replay);
+    }
+
+    // Opens or creates the log next to a snapshot of checkpointGeneration (-1 for none):
+    // only a log of a later generation holds statements the snapshot is missing
+    public static WriteAheadLog open(Path path, long commitIntervalMillis, long checkpointGeneration,
+                                     Consumer<String> replay) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        long generation;
+        long length = FILE_HEADER_SIZE;
+        try {
+            generation = readGeneration(channel, path);
+            if (generation <= checkpointGeneration) {
+                // empty, cut short while being created, or already in the snapshot
+                generation = checkpointGeneration + 1;
+                writeHeader(channel, generation);
+            } else {
+                length = replay(channel, replay);
+                channel.truncate(length);
+                channel.position(length);
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return new WriteAheadLog(channel, generation, length, commitIntervalMillis);
+    }
+
+    // The generation in the file header, or -1 if the header is incomplete
+    private static long readGeneration(FileChannel channel, Path path) throws IOException {
+        if (channel.size() < FILE_HEADER_SIZE) {
+            return -1;
+        }
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+        while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+            // read until the header is complete
+        }
+        header.flip();
+        if (header.getInt() != MAGIC) {
+            throw new IOException("Not a write-ahead log: " + path);
+        }
+        return header.getLong();
+    }
+
+    // Replaces the whole file with an empty log of the given generation
+    private static void writeHeader(FileChannel channel, long generation) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE).putInt(MAGIC).putLong(generation);
+        header.flip();
+        channel.truncate(0);
+        channel.position(0);
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        channel.force(true);
+    }
+
+    // Returns the length of the valid prefix of the log
+    private static long replay(FileChannel channel, Consumer<String> replay) throws IOException {
+        long size = channel.size();
+        long position = FILE_HEADER_SIZE;
+        channel.position(position);
+        // the stream is not closed, that would close the channel
+        InputStream stream = Channels.newInputStream(channel);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream, BUFFER_SIZE));
+        CRC32 crc = new CRC32();
+        while (position + HEADER_SIZE <= size) {
+            int length = in.readInt();
+            int checksum = in.readInt();
+            if (length < 0 || position + HEADER_SIZE + length > size) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            try {
+                in.readFully(payload);
+            } catch (EOFException e) {
+                break;
+            }
+            crc.reset();
+            crc.update(payload);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            replay.accept(new String(payload, StandardCharsets.UTF_8));
+            position += HEADER_SIZE + length;
+        }
+        return position;
+    }
+
+    // Logs one statement; with a commit interval of 0 it is on disk when this returns
+    public void commit(String statement) throws IOException {
+        awaitCommit(append(statement));
+    }
+
+    // Adds the statement to the batch being gathered and returns its sequence number. This
+    // fixes its place in the log, so a caller can append while it holds the lock that ordered
+    // the change and wait for the write in awaitCommit after releasing it.
+    public long append(String statement) throws IOException {
+        byte[] payload = statement.getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        synchronized (this) {
+            if (closed) {
+                throw new IOException("Write-ahead log is closed");
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            ensureCapacity(HEADER_SIZE + payload.length);
+            pending.putInt(payload.length).putInt((int) crc.getValue()).put(payload);
+            length += HEADER_SIZE + payload.length;
+            return ++appended;
+        }
+    }
+
+    // With a commit interval of 0, waits until the appended record is on disk
+    public void awaitCommit(long sequence) throws IOException {
+        if (flusher == null) {
+            awaitDurable(sequence);
+            return;
+        }
+        boolean full;
+        synchronized (this) {
+            full = pending.position() >= BUFFER_SIZE;
+        }
+        if (full) {
+            groupCommit(); // keep the batch bounded when statements arrive faster than the interval
+        }
+    }
+
+    private void ensureCapacity(int recordSize) {
+        if (pending.remaining() < recordSize) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + recordSize));
+            pending.flip();
+            larger.put(pending);
+            pending = larger;
+        }
+    }
+
+    // Forces every record committed so far
+    public void flush() throws IOException {
+        long sequence;
+        synchronized (this) {
+            sequence = appended;
+        }
+        awaitDurable(sequence);
+    }
+
+    private void awaitDurable(long sequence) throws IOException {
+        while (true) {
+            synchronized (this) {
+                while (forcing && durable < sequence) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Interrupted while waiting for the write-ahead log");
+                    }
+                }
+                if (durable >= sequence) {
+                    return;
+                }
+                if (failure != null) {
+                    throw failure;
+                }
+            }
+            groupCommit();
+        }
+    }
+
+    // Writes the pending batch and forces it once. The lock is released during the I/O,
+    // so other callers keep appending to the spare buffer and make up the next batch.
+    private void groupCommit() throws IOException {
+        ByteBuffer batch;
+        long batchEnd;
+        synchronized (this) {
+            if (forcing || durable == appended || failure != null) {
+                return;
+            }
+            batch = pending;
+            batchEnd = appended;
+            pending = spare;
+            spare = null;
+            forcing = true;
+        }
+        try {
+            batch.flip();
+            while (batch.hasRemaining()) {
+                channel.write(batch);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            synchronized (this) {
+                failure = e;
+                forcing = false;
+                notifyAll();
+            }
+            throw e;
+        }
+        synchronized (this) {
+            batch.clear();
+            spare = batch.capacity() == BUFFER_SIZE ? batch : ByteBuffer.allocate(BUFFER_SIZE);
+            durable = batchEnd;
+            forcing = false;
+            notifyAll();
+        }
+    }
+
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    // Size of the log in bytes, counting records not yet written
+    public synchronized long length() {
+        return length;
+    }
+
+    // Drops every record once a snapshot tagged with getGeneration() holds their effect, and
+    // starts the next generation. No statement may be committed between the snapshot and this.
+    public void reset() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                throw new IOException("Write-ahead log is closed");
+            }
+            while (forcing) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for the write-ahead log");
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            pending.clear();
+            durable = appended;
+            try {
+                writeHeader(channel, generation + 1);
+            } catch (IOException e) {
+                failure = e;
+                throw e;
+            }
+            generation++;
+            length = FILE_HEADER_SIZE;
+        }
+    }
+
+    // The flusher is woken by close rather than interrupted: an interrupt during a write would close the channel
+    private void flushEvery(long commitIntervalMillis) {
+        while (true) {
+            synchronized (this) {
+                long deadline = System.currentTimeMillis() + commitIntervalMillis;
+                long remaining = commitIntervalMillis;
+                while (!closed && remaining > 0) {
+                    try {
+                        wait(remaining);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    remaining = deadline - System.currentTimeMillis();
+                }
+                if (closed) {
+                    return;
+                }
+            }
+            try {
+                groupCommit();
+            } catch (IOException e) {
+                return; // kept in failure, the next commit reports it
+            }
+        }
+    }
+
+    // Forces the remaining records and closes the file
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            notifyAll();
+        }
+        if (flusher != null) {
+            try {
+                flusher.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
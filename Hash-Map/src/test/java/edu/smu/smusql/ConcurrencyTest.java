@@ -0,0 +1,119 @@
+package edu.smu.smusql;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrencyTest {
+
+    private static final int WRITERS = 4;
+    private static final int READERS = 4;
+    private static final int ROWS_PER_WRITER = 2000;
+
+    @Test
+    public void testConcurrentWritersKeepIndexesConsistent() throws Exception {
+        Engine engine = new Engine();
+        engine.executeSQL("CREATE TABLE orders (id, customer, amount)");
+        engine.executeSQL("CREATE TABLE payments (id, customer, amount)");
+        engine.executeSQL("CREATE INDEX ON orders (customer)");
+        engine.executeSQL("CREATE INDEX ON payments (amount)");
+
+        Queue<String> failures = new ConcurrentLinkedQueue<>();
+        AtomicBoolean writing = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> writers = new ArrayList<>();
+        List<Thread> readers = new ArrayList<>();
+
+        // two writers per table, each on its own range of ids; one of each pair uses prepared statements
+        for (int w = 0; w < WRITERS; w++) {
+            String table = w % 2 == 0 ? "orders" : "payments";
+            int first = w * ROWS_PER_WRITER;
+            boolean prepared = w < 2;
+            writers.add(worker(failures, () -> {
+                await(start);
+                PreparedStatement insert = engine.prepare("INSERT INTO " + table + " VALUES (?, ?, ?)");
+                for (int id = first; id < first + ROWS_PER_WRITER; id++) {
+                    check(failures, prepared
+                            ? insert.bind(id, "c" + id % 10, id % 100).execute()
+                            : engine.executeSQL("INSERT INTO " + table + " VALUES (" + id + ", 'c" + id % 10 + "', " + id % 100 + ")"));
+                    if (id % 3 == 0) {
+                        check(failures, engine.executeSQL("UPDATE " + table + " SET amount = 1000 WHERE id = " + id));
+                    }
+                    if (id % 5 == 0) {
+                        check(failures, engine.executeSQL("DELETE FROM " + table + " WHERE id = " + id));
+                    }
+                }
+            }));
+        }
+        for (int r = 0; r < READERS; r++) {
+            readers.add(worker(failures, () -> {
+                await(start);
+                while (writing.get()) {
+                    check(failures, engine.executeSQL("SELECT customer, COUNT(*), MAX(amount) FROM orders GROUP BY customer"));
+                    check(failures, engine.executeSQL("SELECT * FROM payments WHERE amount >= 50 AND amount < 60 LIMIT 10"));
+                    check(failures, engine.executeSQL(
+                            "SELECT * FROM orders JOIN payments ON orders.customer = payments.customer LIMIT 5"));
+                }
+            }));
+        }
+
+        writers.forEach(Thread::start);
+        readers.forEach(Thread::start);
+        start.countDown();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        writing.set(false);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertTrue(failures.isEmpty(), () -> failures.size() + " failures, first: " + failures.peek());
+        engine.vacuum();
+        // every fifth id is deleted again
+        int expectedRows = WRITERS / 2 * ROWS_PER_WRITER * 4 / 5;
+        assertEquals("COUNT(*)\n" + expectedRows + "\t\n", engine.executeSQL("SELECT COUNT(*) FROM orders"));
+        assertEquals("COUNT(*)\n" + expectedRows + "\t\n", engine.executeSQL("SELECT COUNT(*) FROM payments"));
+
+        // an index lookup finds the same rows as a scan that cannot use the index
+        for (int c = 0; c < 10; c++) {
+            assertEquals(engine.executeSQL("SELECT COUNT(*) FROM orders WHERE NOT customer != 'c" + c + "'"),
+                    engine.executeSQL("SELECT COUNT(*) FROM orders WHERE customer = 'c" + c + "'"));
+        }
+        for (int amount : new int[] { 0, 7, 50, 99, 1000 }) {
+            assertEquals(engine.executeSQL("SELECT COUNT(*) FROM payments WHERE NOT amount != " + amount),
+                    engine.executeSQL("SELECT COUNT(*) FROM payments WHERE amount = " + amount));
+        }
+    }
+
+    // exceptions in a thread would otherwise only be printed
+    private static Thread worker(Queue<String> failures, Runnable body) {
+        return new Thread(() -> {
+            try {
+                body.run();
+            } catch (RuntimeException e) {
+                failures.add(e.toString());
+            }
+        });
+    }
+
+    private static void check(Queue<String> failures, String result) {
+        if (result.startsWith("ERROR")) {
+            failures.add(result);
+        }
+    }
+
+    private static void await(CountDownLatch start) {
+        try {
+            start.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package edu.smu.smusql;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DictionaryTest {
+
+    private Table table;
+
+    @BeforeEach
+    public void setUp() {
+        table = new Table("users", List.of("id", "name", "city"));
+        table.insertRow(Arrays.asList("1", "Alice", "Boston"));
+        table.insertRow(Arrays.asList("2", "Bob", new String("Boston")));
+    }
+
+    @Test
+    public void testRowsShareOneInstancePerValue() {
+        assertTrue(table.isDictionaryEncoded(2));
+        assertFalse(table.isDictionaryEncoded(0)); // INT column
+        assertSame(table.getRow(1).get(2), table.getRow(2).get(2));
+        assertEquals(1, table.getDictionary(2).size());
+        assertNull(table.getDictionary(2).lookup("Miami"));
+    }
+
+    @Test
+    public void testUpdatedValueIsEncoded() {
+        table.insertRow(Arrays.asList("3", "Carl", "Miami"));
+        table.updateRow(table.getRow(1), 2, new String("Miami"));
+
+        assertSame(table.getRow(3).get(2), table.getRow(1).get(2));
+        assertEquals(2, table.getDictionary(2).size());
+    }
+
+    @Test
+    public void testHighCardinalityColumnStopsEncoding() {
+        for (int id = 3; id <= StringDictionary.MAX_SIZE + 3; id++) {
+            table.insertRow(Arrays.asList(String.valueOf(id), "n" + id, "city" + id));
+        }
+
+        assertFalse(table.isDictionaryEncoded(2));
+        assertNull(table.getDictionary(2));
+        assertEquals("Boston", table.getRow(1).get(2));
+        assertEquals("city500", table.getRow(500).get(2));
+    }
+
+    @Test
+    public void testEngineMatchesEncodedAndUnencodedValues() {
+        Engine engine = new Engine();
+        engine.executeSQL("CREATE TABLE users (id, city)");
+        engine.executeSQL("INSERT INTO users VALUES (1, 'Boston')");
+        engine.executeSQL("INSERT INTO users VALUES (2, 'Denver')");
+
+        assertEquals("id\tcity\n1\tBoston\t\n", engine.executeSQL("SELECT * FROM users WHERE city = 'Boston'"));
+        assertEquals("id\tcity\n", engine.executeSQL("SELECT * FROM users WHERE city = 'Miami'")); // never in the dictionary
+        assertEquals("id\tcity\n2\tDenver\t\n", engine.executeSQL("SELECT * FROM users WHERE city != 'Boston'"));
+
+        for (int id = 3; id <= StringDictionary.MAX_SIZE + 3; id++) {
+            engine.executeSQL("INSERT INTO users VALUES (" + id + ", 'city" + id + "')");
+        }
+        assertEquals("id\tcity\n1\tBoston\t\n", engine.executeSQL("SELECT * FROM users WHERE city = 'Boston'"));
+        assertEquals("id\tcity\n700\tcity700\t\n", engine.executeSQL("SELECT * FROM users WHERE city = 'city700'"));
+    }
+}
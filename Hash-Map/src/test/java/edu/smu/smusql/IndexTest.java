@@ -0,0 +1,90 @@
+package edu.smu.smusql;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IndexTest {
+
+    private Table table;
+
+    @BeforeEach
+    public void setUp() {
+        table = new Table("users", List.of("id", "name", "age", "city"));
+        table.insertRow(Arrays.asList("1", "Alice", "30", "Boston"));
+        table.insertRow(Arrays.asList("2", "Bob", "25", "Boston"));
+        table.insertRow(Arrays.asList("3", "Carl", "30", "Denver"));
+    }
+
+    @Test
+    public void testCreateIndexListsExistingRows() {
+        assertTrue(table.createIndex(2));
+        assertFalse(table.createIndex(2));
+        assertTrue(table.hasIndex(2));
+        assertFalse(table.hasIndex(3));
+
+        assertEquals(Set.of(1, 3), table.lookup(2, 30));
+        assertEquals(Set.of(2), table.lookup(2, 25));
+        assertEquals(Set.of(1, 3), table.lookup(2, 30.0)); // a DOUBLE literal finds the INT values
+        assertTrue(table.lookup(2, 99).isEmpty());
+    }
+
+    @Test
+    public void testInsertAddsToIndex() {
+        table.createIndex(3);
+        table.insertRow(Arrays.asList("4", "Dan", "40", "Denver"));
+
+        assertEquals(Set.of(3, 4), table.lookup(3, "Denver"));
+    }
+
+    @Test
+    public void testUpdateMovesRowToNewValue() {
+        table.createIndex(3);
+        table.updateRow(table.getRow(2), 3, "Miami");
+
+        assertEquals(Set.of(1), table.lookup(3, "Boston"));
+        assertEquals(Set.of(2), table.lookup(3, "Miami"));
+
+        table.updateRow(table.getRow(1), 3, "Miami");
+        assertFalse(table.getIndex(3).containsKey("Boston")); // no row holds it any more
+        assertEquals(Set.of(1, 2), table.lookup(3, "Miami"));
+    }
+
+    @Test
+    public void testDeleteRemovesFromIndex() {
+        table.createIndex(2);
+        assertTrue(table.deleteRow(1));
+        assertFalse(table.deleteRow(1));
+
+        assertEquals(Set.of(3), table.lookup(2, 30));
+        table.deleteRow(3);
+        assertFalse(table.getIndex(2).containsKey(30));
+        assertEquals(Set.of(2), table.lookup(2, 25));
+    }
+
+    @Test
+    public void testEngineAnswersThroughIndexAfterChanges() {
+        Engine engine = new Engine();
+        engine.executeSQL("CREATE TABLE users (id, name, age, city)");
+        engine.executeSQL("INSERT INTO users VALUES (1, 'Alice', 30, 'Boston')");
+        engine.executeSQL("INSERT INTO users VALUES (2, 'Bob', 25, 'Boston')");
+        assertEquals("Index on users(city) created", engine.executeSQL("CREATE INDEX ON users (city)"));
+        assertEquals("ERROR: Index on users(city) already exists", engine.executeSQL("CREATE INDEX ON users (city)"));
+        assertEquals("ERROR: Column zip does not exist", engine.executeSQL("CREATE INDEX ON users (zip)"));
+
+        engine.executeSQL("UPDATE users SET city = 'Miami' WHERE id = 1");
+        engine.executeSQL("INSERT INTO users VALUES (3, 'Carl', 30, 'Boston')");
+        engine.executeSQL("DELETE FROM users WHERE id = 2");
+
+        engine.getTrace().setSink(message -> { }); // scanned rows are counted only while tracing is on
+        engine.getTrace().resetCounters();
+        assertEquals("id\tname\tage\tcity\n3\tCarl\t30\tBoston\t\n", engine.executeSQL("SELECT * FROM users WHERE city = 'Boston'"));
+        assertEquals("id\tname\tage\tcity\n1\tAlice\t30\tMiami\t\n", engine.executeSQL("SELECT * FROM users WHERE city = 'Miami'"));
+        assertEquals(2, engine.getTrace().getIndexProbes());
+        assertEquals(2, engine.getTrace().getRowsScanned());
+    }
+}
@@ -0,0 +1,53 @@
+package edu.smu.smusql;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InsertTest {
+
+    private Engine engine;
+
+    @BeforeEach
+    public void setUp() {
+        engine = new Engine();
+        engine.executeSQL("CREATE TABLE student (id, name, gpa)");
+    }
+
+    @Test
+    public void testInsertInfersTypesFromFirstRow() {
+        assertEquals("Row Inserted", engine.executeSQL("INSERT INTO student VALUES (1, 'Alice', 3.5)"));
+        assertEquals("Row Inserted", engine.executeSQL("INSERT INTO student VALUES (2, 'Bob', 4)"));
+
+        assertEquals("ERROR: Type mismatch: x is not a DOUBLE",
+                engine.executeSQL("INSERT INTO student VALUES (3, 'Carl', x)"));
+        assertEquals("id\tname\tgpa\n1\tAlice\t3.5\t\n2\tBob\t4.0\t\n", engine.executeSQL("SELECT * FROM student"));
+    }
+
+    @Test
+    public void testQuotedNumberIsAString() {
+        engine.executeSQL("CREATE TABLE codes (id, code)");
+        assertEquals("Row Inserted", engine.executeSQL("INSERT INTO codes VALUES (1, '007')"));
+        assertEquals("Row Inserted", engine.executeSQL("INSERT INTO codes VALUES (2, 'abc')"));
+
+        assertEquals("id\tcode\n1\t007\t\n", engine.executeSQL("SELECT * FROM codes WHERE code = '007'"));
+        assertEquals("id\tcode\n2\tabc\t\n", engine.executeSQL("SELECT * FROM codes WHERE id = 2"));
+    }
+
+    @Test
+    public void testQuotedAndUnquotedLiteralsDoNotShareAPlan() {
+        engine.executeSQL("CREATE TABLE a (id, code)");
+        engine.executeSQL("CREATE TABLE b (id, code)");
+        engine.executeSQL("INSERT INTO a VALUES (1, 7)");
+        engine.executeSQL("INSERT INTO b VALUES (1, '7')");
+
+        assertEquals("ERROR: Type mismatch: x is not an INT", engine.executeSQL("INSERT INTO a VALUES (2, x)"));
+        assertEquals("Row Inserted", engine.executeSQL("INSERT INTO b VALUES (2, 'x')"));
+    }
+
+    @Test
+    public void testDuplicatePrimaryKeyIsRejected() {
+        engine.executeSQL("INSERT INTO student VALUES (1, 'Alice', 3.5)");
+        assertEquals("Primary key 1 existed", engine.executeSQL("INSERT INTO student VALUES (1, 'Bob', 3.0)"));
+    }
+}
@@ -0,0 +1,71 @@
+package edu.smu.smusql;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JoinTest {
+
+    private Engine engine;
+
+    @BeforeEach
+    public void setUp() {
+        engine = new Engine();
+
+        engine.executeSQL("CREATE TABLE users (id, name, city)");
+        engine.executeSQL("CREATE TABLE orders (id, user_id, quantity)");
+
+        engine.executeSQL("INSERT INTO users VALUES (1, 'Ann', 'Paris')");
+        engine.executeSQL("INSERT INTO users VALUES (2, 'Bob', 'Rome')");
+        engine.executeSQL("INSERT INTO orders VALUES (10, 1, 3)");
+        engine.executeSQL("INSERT INTO orders VALUES (11, 2, 1)");
+        engine.executeSQL("INSERT INTO orders VALUES (12, 1, 5)");
+        engine.executeSQL("INSERT INTO orders VALUES (13, 7, 2)"); // no such user
+    }
+
+    @Test
+    public void testJoinOnPrimaryKey() {
+        String result = engine.executeSQL("SELECT * FROM orders JOIN users ON orders.user_id = users.id");
+
+        String expected = "orders.id\torders.user_id\torders.quantity\tusers.id\tusers.name\tusers.city\n" +
+                          "10\t1\t3\t1\tAnn\tParis\t\n" +
+                          "11\t2\t1\t2\tBob\tRome\t\n" +
+                          "12\t1\t5\t1\tAnn\tParis\t\n";
+
+        assertEquals(expected, result);
+    }
+
+    @Test
+    public void testJoinWithWhereOnBothTables() {
+        String result = engine.executeSQL("SELECT * FROM users JOIN orders ON users.id = orders.user_id "
+                + "WHERE users.city = 'Paris' AND orders.quantity > 3");
+
+        String expected = "users.id\tusers.name\tusers.city\torders.id\torders.user_id\torders.quantity\n" +
+                          "1\tAnn\tParis\t12\t1\t5\t\n";
+
+        assertEquals(expected, result);
+    }
+
+    @Test
+    public void testHashJoinOnNonKeyColumns() {
+        engine.executeSQL("CREATE TABLE bonuses (id, quantity)");
+        engine.executeSQL("INSERT INTO bonuses VALUES (100, 5)");
+        engine.executeSQL("INSERT INTO bonuses VALUES (101, 3)");
+        engine.executeSQL("INSERT INTO bonuses VALUES (102, 3)");
+
+        // neither quantity column is a primary key, so the smaller side is built into a hash table
+        String result = engine.executeSQL("SELECT COUNT(*) FROM orders JOIN bonuses ON orders.quantity = bonuses.quantity");
+
+        assertEquals("COUNT(*)\n3\t\n", result);
+        assertEquals("ERROR: Column user_id does not exist",
+                engine.executeSQL("SELECT * FROM orders JOIN users ON user_id = users.id"));
+    }
+
+    @Test
+    public void testGroupByJoinedColumn() {
+        String result = engine.executeSQL("SELECT users.name, COUNT(*) FROM orders JOIN users "
+                + "ON orders.user_id = users.id GROUP BY users.name ORDER BY users.name");
+
+        assertEquals("users.name\tCOUNT(*)\n" + "Ann\t2\t\n" + "Bob\t1\t\n", result);
+    }
+}
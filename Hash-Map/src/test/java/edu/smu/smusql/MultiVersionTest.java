@@ -0,0 +1,151 @@
+package edu.smu.smusql;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MultiVersionTest {
+
+    private static final int ROWS = 600;
+
+    private Engine engine;
+
+    @BeforeEach
+    public void setUp() {
+        engine = new Engine();
+        engine.executeSQL("CREATE TABLE student (id, name, gpa)");
+        for (int id = 0; id < ROWS; id++) {
+            engine.executeSQL("INSERT INTO student VALUES (" + id + ", 's" + id + "', " + (id % 4 == 0 ? "2.5" : "3.5") + ")");
+        }
+    }
+
+    @Test
+    public void testCursorKeepsItsSnapshotWhileTheSameThreadWrites() {
+        try (ResultSet rows = engine.query("SELECT * FROM student")) {
+            assertTrue(rows.next());
+            Set<Object> ids = new HashSet<>();
+            ids.add(rows.getValue("id"));
+
+            // a cursor holds no lock, so these do not wait for it
+            assertEquals("UPDATE successful, updated " + ROWS + " rows", engine.executeSQL("UPDATE student SET gpa = 1.0 WHERE id >= 0"));
+            assertEquals("Deleted 300 row(s) from student", engine.executeSQL("DELETE FROM student WHERE id >= 300"));
+            engine.executeSQL("INSERT INTO student VALUES (1000, 'new', 4.0)");
+
+            while (rows.next()) {
+                assertTrue(ids.add(rows.getValue("id")));
+                assertNotEquals(1.0, rows.getValue("gpa"));
+            }
+            assertEquals(ROWS, ids.size());
+            assertFalse(ids.contains(1000));
+        }
+        assertEquals("COUNT(*)\n301\t\n", engine.executeSQL("SELECT COUNT(*) FROM student"));
+    }
+
+    @Test
+    public void testRowsListedUnderOldAndNewValueAreReadOnce() {
+        engine.executeSQL("CREATE INDEX ON student (gpa)");
+        try (ResultSet before = engine.query("SELECT * FROM student WHERE gpa >= 2.0 AND gpa <= 4.0")) {
+            engine.executeSQL("UPDATE student SET gpa = 3.0 WHERE gpa = 2.5");
+            engine.executeSQL("DELETE FROM student WHERE id < 100");
+
+            // the index still lists the updated rows under 2.5 for the open cursor
+            assertEquals(ROWS - 100, count(engine.query("SELECT * FROM student WHERE gpa >= 2.0 AND gpa <= 4.0")));
+            assertEquals(0, count(engine.query("SELECT * FROM student WHERE gpa = 2.5")));
+            assertEquals("COUNT(*)\n" + (ROWS - 100) / 4 + "\t\n", engine.executeSQL("SELECT COUNT(*) FROM student WHERE gpa = 3.0"));
+
+            int atTwoAndAHalf = 0;
+            int read = 0;
+            while (before.next()) {
+                if (before.getValue("gpa").equals(2.5)) {
+                    atTwoAndAHalf++;
+                }
+                read++;
+            }
+            assertEquals(ROWS / 4, atTwoAndAHalf);
+            assertEquals(ROWS, read);
+        }
+    }
+
+    @Test
+    public void testPrimaryKeyUpdateIsVisibleOnlyToLaterViews() {
+        engine.executeSQL("CREATE TABLE users (id, name, age)");
+        engine.executeSQL("CREATE INDEX ON users (age)");
+        engine.executeSQL("INSERT INTO users VALUES (1, 'Alice', 30)");
+        engine.executeSQL("INSERT INTO users VALUES (2, 'Bob', 9)");
+
+        try (ResultSet before = engine.query("SELECT * FROM users WHERE age >= 9 AND age <= 30 ORDER BY id")) {
+            assertEquals("UPDATE successful, updated 1 rows", engine.executeSQL("UPDATE users SET id = 99 WHERE id = 1"));
+            assertEquals("id\tname\tage\n99\tAlice\t30\t\n", engine.executeSQL("SELECT * FROM users WHERE id = 99"));
+
+            // the old key is free again; the new row must not be confused with the moved one
+            engine.executeSQL("INSERT INTO users VALUES (1, 'Carl', 40)");
+            assertEquals("id\tname\tage\n99\tAlice\t30\t\n", engine.executeSQL("SELECT * FROM users WHERE age = 30"));
+            assertEquals("id\tname\tage\n2\tBob\t9\t\n99\tAlice\t30\t\n",
+                    engine.executeSQL("SELECT * FROM users WHERE age >= 9 AND age <= 30 ORDER BY id"));
+
+            // the cursor opened earlier still sees Alice under her old key, once
+            assertTrue(before.next());
+            assertEquals(1, before.getValue("id"));
+            assertEquals("Alice", before.getValue("name"));
+            assertTrue(before.next());
+            assertEquals(2, before.getValue("id"));
+            assertFalse(before.next());
+        }
+
+        engine.vacuum();
+        assertEquals("id\tname\tage\n1\tCarl\t40\t\n", engine.executeSQL("SELECT * FROM users WHERE age = 40"));
+        assertEquals("COUNT(*)\n3\t\n", engine.executeSQL("SELECT COUNT(*) FROM users"));
+    }
+
+    @Test
+    public void testVacuumReclaimsVersionsOnceViewsClose() {
+        Database database = new Database();
+        database.createTable("student", List.of("id", "name", "gpa"));
+        Table table = database.getTable("student");
+        for (int id = 0; id < ROWS; id++) {
+            table.insertRow(Arrays.asList(String.valueOf(id), "s" + id, id % 4 == 0 ? "2.5" : "3.5"));
+        }
+        table.createIndex(2);
+
+        Versions.ReadView open = database.getVersions().open();
+        for (Object primaryKey : table.lookup(2, 2.5).toArray()) {
+            table.updateRow(table.getRow(primaryKey), 2, 3.0);
+        }
+        for (int id = 500; id < ROWS; id++) {
+            table.deleteRow(id);
+        }
+        table.insertRow(Arrays.asList("550", "again", "2.0"));
+        // deleted rows and replaced values wait for the open view
+        assertEquals(ROWS, table.getRows().size());
+        assertEquals(ROWS / 4, table.lookup(2, 2.5).size());
+
+        open.close();
+        database.getVersions().vacuum();
+
+        assertEquals(501, table.getRows().size());
+        assertNull(table.getRow(599));
+        assertEquals(2.0, table.getRow(550).get(2));
+        assertFalse(table.getIndex(2).containsKey(2.5));
+        int listed = 0;
+        for (Object value : table.getIndex(2).keySet()) {
+            for (Object primaryKey : table.lookup(2, value)) {
+                assertEquals(value, table.getRow(primaryKey).get(2));
+                listed++;
+            }
+        }
+        assertEquals(501, listed);
+    }
+
+    private static int count(ResultSet rows) {
+        int count = 0;
+        while (rows.next()) {
+            count++;
+        }
+        return count;
+    }
+}
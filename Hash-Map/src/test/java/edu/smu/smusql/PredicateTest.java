@@ -0,0 +1,63 @@
+package edu.smu.smusql;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PredicateTest {
+
+    private static final String HEADER = "id\tname\tage\tgpa\tcity\n";
+    private static final String ALICE = "1\tAlice\t30\t3.5\tBoston\t\n";
+    private static final String BOB = "2\tBob\t9\t4.0\tBoston\t\n";
+    private static final String CARL = "3\tCarl\t30\t2.0\tDenver\t\n";
+    private static final String DAN = "4\tDan\t41\t3.9\tAustin\t\n";
+
+    private Engine engine;
+
+    @BeforeEach
+    public void setUp() {
+        engine = new Engine();
+        engine.executeSQL("CREATE TABLE users (id, name, age, gpa, city)");
+        engine.executeSQL("INSERT INTO users VALUES (1, 'Alice', 30, 3.5, 'Boston')");
+        engine.executeSQL("INSERT INTO users VALUES (2, 'Bob', 9, 4, 'Boston')");
+        engine.executeSQL("INSERT INTO users VALUES (3, 'Carl', 30, 2.0, 'Denver')");
+        engine.executeSQL("INSERT INTO users VALUES (4, 'Dan', 41, 3.9, 'Austin')");
+    }
+
+    @Test
+    public void testIntColumnComparesNumerically() {
+        // 9 < 10 numerically although "9" > "10" as strings
+        assertEquals(HEADER + BOB, engine.executeSQL("SELECT * FROM users WHERE age < 10"));
+        assertEquals(HEADER + BOB + DAN, engine.executeSQL("SELECT * FROM users WHERE age != 30"));
+        assertEquals(HEADER + ALICE + CARL + DAN, engine.executeSQL("SELECT * FROM users WHERE age >= 30"));
+    }
+
+    @Test
+    public void testLiteralOfTheOtherNumericType() {
+        assertEquals(HEADER + ALICE + CARL + DAN, engine.executeSQL("SELECT * FROM users WHERE age > 29.5"));
+        assertEquals(HEADER + ALICE + CARL, engine.executeSQL("SELECT * FROM users WHERE age = 30.0"));
+        assertEquals(HEADER + BOB, engine.executeSQL("SELECT * FROM users WHERE gpa = 4"));
+        assertEquals(HEADER + ALICE + BOB + DAN, engine.executeSQL("SELECT * FROM users WHERE gpa >= 3"));
+    }
+
+    @Test
+    public void testStringColumnComparesLexicographically() {
+        assertEquals(HEADER + DAN, engine.executeSQL("SELECT * FROM users WHERE city < 'Boston'"));
+        assertEquals(HEADER + BOB + CARL, engine.executeSQL("SELECT * FROM users WHERE name >= 'Bob' AND name <= 'Carl'"));
+        assertEquals(HEADER + CARL + DAN, engine.executeSQL("SELECT * FROM users WHERE city != 'Boston'"));
+    }
+
+    @Test
+    public void testLiteralThatDoesNotFitTheColumnMatchesNothing() {
+        assertEquals(HEADER, engine.executeSQL("SELECT * FROM users WHERE age = 'x'"));
+        assertEquals(HEADER, engine.executeSQL("SELECT * FROM users WHERE age = 30.5"));
+    }
+
+    @Test
+    public void testUpdateAndDeleteUseTheSamePredicates() {
+        assertEquals("UPDATE successful, updated 2 rows", engine.executeSQL("UPDATE users SET gpa = 1.0 WHERE age = 30.0"));
+        assertEquals("Deleted 1 row(s) from users", engine.executeSQL("DELETE FROM users WHERE gpa > 3.95"));
+        assertEquals(HEADER + "1\tAlice\t30\t1.0\tBoston\t\n" + "3\tCarl\t30\t1.0\tDenver\t\n" + DAN,
+                engine.executeSQL("SELECT * FROM users"));
+    }
+}
@@ -0,0 +1,95 @@
+package edu.smu.smusql;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PreparedStatementTest {
+
+    private Engine engine;
+
+    @BeforeEach
+    public void setUp() {
+        engine = new Engine();
+        engine.executeSQL("CREATE TABLE users (id, name, age, city)");
+        engine.executeSQL("INSERT INTO users VALUES (1, 'Alice', 30, 'Boston')");
+        engine.executeSQL("INSERT INTO users VALUES (2, 'Bob', 25, 'Boston')");
+        engine.executeSQL("INSERT INTO users VALUES (3, 'Carl', 30, 'Denver')");
+    }
+
+    @Test
+    public void testCachedPlanUsesEachStatementsLiterals() {
+        // the three SELECTs share one plan; each must see its own literals, not the first one's
+        assertEquals("id\tname\tage\tcity\n1\tAlice\t30\tBoston\t\n", engine.executeSQL("SELECT * FROM users WHERE id = 1"));
+        assertEquals("id\tname\tage\tcity\n2\tBob\t25\tBoston\t\n", engine.executeSQL("SELECT * FROM users WHERE id = 2"));
+        assertEquals("id\tname\tage\tcity\n", engine.executeSQL("SELECT * FROM users WHERE id = 9"));
+
+        assertEquals("id\tname\tage\tcity\n3\tCarl\t30\tDenver\t\n",
+                engine.executeSQL("SELECT * FROM users WHERE city = 'Denver' AND age = 30"));
+        assertEquals("id\tname\tage\tcity\n2\tBob\t25\tBoston\t\n",
+                engine.executeSQL("SELECT * FROM users WHERE city = 'Boston' AND age = 25"));
+
+        assertEquals("UPDATE successful, updated 1 rows", engine.executeSQL("UPDATE users SET age = 31 WHERE id = 1"));
+        assertEquals("UPDATE successful, updated 1 rows", engine.executeSQL("UPDATE users SET age = 26 WHERE id = 2"));
+        assertEquals("COUNT(*)\n1\t\n", engine.executeSQL("SELECT COUNT(*) FROM users WHERE age = 26"));
+    }
+
+    @Test
+    public void testPreparedStatementBindsParameters() {
+        PreparedStatement select = engine.prepare("SELECT * FROM users WHERE age = ? AND city = ?");
+        assertEquals(2, select.getParameterCount());
+        assertEquals("id\tname\tage\tcity\n1\tAlice\t30\tBoston\t\n", select.bind(30, "Boston").execute());
+        assertEquals("id\tname\tage\tcity\n3\tCarl\t30\tDenver\t\n", select.bind(30, "Denver").execute());
+
+        PreparedStatement insert = engine.prepare("INSERT INTO users VALUES (?, ?, ?, ?)");
+        assertEquals("Row Inserted", insert.bind(4, "Dan", 40, "Miami").execute());
+        assertEquals("Primary key 4 existed", insert.bind(4, "Eve", 41, "Miami").execute());
+        assertEquals("COUNT(*)\n4\t\n", engine.executeSQL("SELECT COUNT(*) FROM users"));
+    }
+
+    @Test
+    public void testUnboundParametersAreRejected() {
+        assertEquals("ERROR: Parameter 0 is not bound", engine.prepare("SELECT * FROM users WHERE id = ?").execute());
+        assertEquals("ERROR: ? placeholders need a prepared statement", engine.executeSQL("SELECT * FROM users WHERE id = ?"));
+        assertThrows(IllegalArgumentException.class, () -> engine.prepare("SELECT * FROM users WHERE id = ?").bind(1, 2));
+    }
+
+    @Test
+    public void testAccessPathFollowsTheWhereClause() {
+        assertEquals(PreparedStatement.AccessPath.ALL_ROWS, engine.prepare("SELECT * FROM users").getAccessPath());
+        assertEquals(PreparedStatement.AccessPath.PRIMARY_KEY,
+                engine.prepare("SELECT * FROM users WHERE age > ? AND id = ?").getAccessPath());
+        assertEquals(PreparedStatement.AccessPath.SCAN,
+                engine.prepare("SELECT * FROM users WHERE id = ? OR age = ?").getAccessPath());
+    }
+
+    @Test
+    public void testCreateIndexReplansCachedStatements() {
+        Trace trace = engine.getTrace();
+        engine.executeSQL("SELECT * FROM users WHERE city = 'Boston'");
+        assertEquals(0, trace.getIndexProbes());
+
+        engine.executeSQL("CREATE INDEX ON users (city)");
+        trace.setSink(message -> { }); // scanned rows are counted only while tracing is on
+        trace.resetCounters();
+        assertEquals("COUNT(*)\n2\t\n", engine.executeSQL("SELECT COUNT(*) FROM users WHERE city = 'Boston'"));
+        assertEquals("id\tname\tage\tcity\n3\tCarl\t30\tDenver\t\n", engine.executeSQL("SELECT * FROM users WHERE city = 'Denver'"));
+        assertTrue(trace.getIndexProbes() > 0);
+        assertEquals(3, trace.getRowsScanned()); // only the rows the index returned
+    }
+
+    @Test
+    public void testPlanCacheDropsLeastRecentlyUsedPlan() {
+        PlanCache cache = new PlanCache(2);
+        PreparedStatement first = engine.prepare("SELECT * FROM users WHERE id = ?");
+        PreparedStatement second = engine.prepare("SELECT * FROM users WHERE age = ?");
+        cache.put("first", first);
+        cache.put("second", second);
+        cache.get("first");
+        cache.put("third", engine.prepare("SELECT * FROM users"));
+
+        assertSame(first, cache.get("first"));
+        assertNull(cache.get("second"));
+        assertEquals(2, cache.size());
+    }
+}
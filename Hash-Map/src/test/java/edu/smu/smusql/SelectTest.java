@@ -0,0 +1,128 @@
+package edu.smu.smusql;
+
+import java.io.ByteArrayOutputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SelectTest {
+
+    private static final String HEADER = "id\tname\tage\tcity\n";
+    private static final String ALICE = "1\tAlice\t30\tBoston\t\n";
+    private static final String BOB = "2\tBob\t9\tBoston\t\n";
+    private static final String CARL = "3\tCarl\t30\tDenver\t\n";
+    private static final String DAN = "4\tDan\t41\tAustin\t\n";
+
+    private Engine engine;
+
+    @BeforeEach
+    public void setUp() {
+        engine = new Engine();
+        engine.executeSQL("CREATE TABLE users (id, name, age, city)");
+        engine.executeSQL("INSERT INTO users VALUES (1, 'Alice', 30, 'Boston')");
+        engine.executeSQL("INSERT INTO users VALUES (2, 'Bob', 9, 'Boston')");
+        engine.executeSQL("INSERT INTO users VALUES (3, 'Carl', 30, 'Denver')");
+        engine.executeSQL("INSERT INTO users VALUES (4, 'Dan', 41, 'Austin')");
+    }
+
+    @Test
+    public void testQueryReturnsCursorOverMatchingRows() {
+        ResultSet rows = engine.query("SELECT * FROM users WHERE age = 30");
+
+        assertTrue(rows.next());
+        assertEquals(1, rows.getValue("id"));
+        assertEquals("Alice", rows.getValue(1));
+        assertTrue(rows.next());
+        assertEquals(3, rows.getValue("id"));
+        assertFalse(rows.next());
+    }
+
+    @Test
+    public void testQueryRejectsOtherStatements() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> engine.query("DELETE FROM users WHERE id = 1"));
+        assertEquals("ERROR: Only SELECT statements return rows", e.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> engine.query("SELECT * FROM users").getValue("zip"));
+    }
+
+    @Test
+    public void testResultWriterStreamsSameTextAsSelect() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int written = ResultWriter.write(engine.query("SELECT * FROM users"), out);
+
+        assertEquals(4, written);
+        assertEquals(engine.executeSQL("SELECT * FROM users"), out.toString("UTF-8"));
+        assertEquals(HEADER, ResultWriter.toString(engine.query("SELECT * FROM users WHERE age > 50")));
+    }
+
+    @Test
+    public void testSelectWithLimitAndOffset() {
+        assertEquals(HEADER + BOB + CARL, engine.executeSQL("SELECT * FROM users LIMIT 2 OFFSET 1"));
+        assertEquals(HEADER + CARL, engine.executeSQL("SELECT * FROM users WHERE age = 30 LIMIT 1 OFFSET 1"));
+        assertEquals(HEADER, engine.executeSQL("SELECT * FROM users LIMIT 0"));
+        assertEquals(HEADER, engine.executeSQL("SELECT * FROM users LIMIT 3 OFFSET 4"));
+    }
+
+    @Test
+    public void testLimitStopsTheScanEarly() {
+        engine.getTrace().resetCounters();
+        assertEquals(HEADER + ALICE, engine.executeSQL("SELECT * FROM users WHERE city = 'Boston' LIMIT 1"));
+        assertEquals(0, engine.getTrace().getRowsScanned()); // rows are counted only while tracing is on
+
+        engine.getTrace().setSink(message -> { });
+        assertEquals(HEADER + ALICE, engine.executeSQL("SELECT * FROM users WHERE city = 'Boston' LIMIT 1"));
+        assertEquals(1, engine.getTrace().getRowsScanned());
+    }
+
+    @Test
+    public void testSelectWithInvalidLimit() {
+        assertEquals("ERROR: LIMIT must be a non-negative integer", engine.executeSQL("SELECT * FROM users LIMIT -1"));
+        assertEquals("ERROR: Invalid LIMIT syntax", engine.executeSQL("SELECT * FROM users LIMIT 1 2"));
+    }
+
+    @Test
+    public void testSelectOrderByWithLimitAndOffset() {
+        assertEquals(HEADER + CARL + BOB, engine.executeSQL("SELECT * FROM users ORDER BY name DESC LIMIT 2 OFFSET 1"));
+        // INT values sort numerically: 9 before 30
+        assertEquals(HEADER + BOB + DAN, engine.executeSQL("SELECT * FROM users WHERE age != 30 ORDER BY age"));
+        assertEquals(HEADER + DAN, engine.executeSQL("SELECT * FROM users ORDER BY age DESC LIMIT 1"));
+    }
+
+    @Test
+    public void testSelectWithInvalidOrderBy() {
+        assertEquals("ERROR: Column zip does not exist", engine.executeSQL("SELECT * FROM users ORDER BY zip"));
+        assertEquals("ERROR: Invalid ORDER BY syntax", engine.executeSQL("SELECT * FROM users ORDER age"));
+    }
+
+    @Test
+    public void testSelectAggregatesOverWholeTable() {
+        assertEquals("COUNT(*)\tMIN(age)\tMAX(age)\tSUM(age)\tAVG(age)\n" + "4\t9\t41\t110\t27.5\t\n",
+                engine.executeSQL("SELECT COUNT(*), MIN(age), MAX(age), SUM(age), AVG(age) FROM users"));
+        assertEquals("MIN(name)\tMAX(city)\n" + "Alice\tDenver\t\n", engine.executeSQL("SELECT MIN(name), MAX(city) FROM users"));
+    }
+
+    @Test
+    public void testSelectGroupByWithWhereAndOrderBy() {
+        assertEquals("city\tCOUNT(*)\tMAX(age)\n" + "Boston\t2\t30\t\n" + "Denver\t1\t30\t\n",
+                engine.executeSQL("SELECT city, COUNT(*), MAX(age) FROM users WHERE age > 5 GROUP BY city ORDER BY COUNT(*) DESC LIMIT 2"));
+    }
+
+    @Test
+    public void testAggregatesAnsweredFromIndexMatchTheScan() {
+        String query = "SELECT city, COUNT(*), MIN(age) FROM users GROUP BY city ORDER BY city";
+        String scanned = engine.executeSQL(query);
+        engine.executeSQL("CREATE INDEX ON users (city)");
+
+        assertEquals("city\tCOUNT(*)\tMIN(age)\n" + "Austin\t1\t41\t\n" + "Boston\t2\t9\t\n" + "Denver\t1\t30\t\n", scanned);
+        assertEquals(scanned, engine.executeSQL(query));
+        assertEquals("COUNT(*)\n4\t\n", engine.executeSQL("SELECT COUNT(*) FROM users"));
+    }
+
+    @Test
+    public void testSelectAggregateErrors() {
+        assertEquals("ERROR: Column name must appear in GROUP BY", engine.executeSQL("SELECT name, COUNT(*) FROM users"));
+        assertEquals("ERROR: AVG needs a numeric column", engine.executeSQL("SELECT AVG(name) FROM users"));
+        assertEquals("NULL\t", engine.executeSQL("SELECT SUM(age) FROM users WHERE age > 99").split("\n")[1]);
+    }
+}
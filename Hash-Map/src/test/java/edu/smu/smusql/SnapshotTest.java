@@ -0,0 +1,86 @@
+package edu.smu.smusql;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testRestartFromCheckpointAndLog() throws Exception {
+        Path snapshotFile = directory.resolve("smusql.snapshot");
+        Path logFile = directory.resolve("smusql.wal");
+        Engine engine = new Engine(snapshotFile, logFile, 0);
+        engine.executeSQL("CREATE TABLE student (id, name, gpa)");
+        engine.executeSQL("INSERT INTO student VALUES (1, 'John Doe', 3.5)");
+        engine.executeSQL("INSERT INTO student VALUES (2, 'Jane Smith', 3.9)");
+        engine.executeSQL("INSERT INTO student VALUES (10, 'Bob Lee', 2.8)");
+        engine.checkpoint();
+        long emptyLog = Files.size(logFile);
+        engine.executeSQL("UPDATE student SET gpa = 3.7 WHERE id = 1");
+        engine.executeSQL("DELETE FROM student WHERE id = 2");
+        String before = engine.executeSQL("SELECT * FROM student WHERE gpa > 3.0 OR id >= 10");
+        engine.close();
+        assertTrue(Files.size(logFile) > emptyLog);
+
+        Engine restarted = new Engine(snapshotFile, logFile, 0);
+        assertEquals(before, restarted.executeSQL("SELECT * FROM student WHERE gpa > 3.0 OR id >= 10"));
+        assertEquals("id\tname\tgpa\n1\tJohn Doe\t3.7\t\n10\tBob Lee\t2.8\t\n", before);
+        assertEquals("Primary key 10 existed", restarted.executeSQL("INSERT INTO student VALUES (10, 'Someone Else', 3.0)"));
+        restarted.close();
+    }
+
+    @Test
+    public void testCheckpointTwiceDoesNotReplayTwice() throws Exception {
+        Path snapshotFile = directory.resolve("smusql.snapshot");
+        Path logFile = directory.resolve("smusql.wal");
+        Engine engine = new Engine(snapshotFile, logFile, 0);
+        engine.executeSQL("CREATE TABLE student (id, name)");
+        engine.executeSQL("INSERT INTO student VALUES (1, 'John Doe')");
+        engine.checkpoint();
+        engine.executeSQL("DELETE FROM student WHERE id = 1");
+        engine.executeSQL("INSERT INTO student VALUES (1, 'Jane Smith')");
+        engine.checkpoint();
+        engine.close();
+
+        Engine restarted = new Engine(snapshotFile, logFile, 0);
+        assertEquals("id\tname\n1\tJane Smith\t\n", restarted.executeSQL("SELECT * FROM student"));
+        restarted.executeSQL("INSERT INTO student VALUES (2, 'Bob Lee')");
+        restarted.close();
+
+        Engine again = new Engine(snapshotFile, logFile, 0);
+        assertEquals("id\tname\n1\tJane Smith\t\n2\tBob Lee\t\n", again.executeSQL("SELECT * FROM student"));
+        again.close();
+    }
+
+    @Test
+    public void testRestoredTableKeepsTypesAndIndexes() throws Exception {
+        Path snapshotFile = directory.resolve("smusql.snapshot");
+        Engine engine = new Engine(snapshotFile, directory.resolve("smusql.wal"), 0);
+        engine.executeSQL("CREATE TABLE product (id INT, code, category, price DOUBLE)");
+        for (int i = 0; i < 500; i++) {
+            engine.executeSQL("INSERT INTO product VALUES (" + i + ", '00" + i + "', 'category" + (i % 7) + "', " + (i % 50) + ".5)");
+        }
+        engine.executeSQL("CREATE INDEX ON product (category)");
+        engine.checkpoint();
+        engine.close();
+
+        Database restored = new Database();
+        assertEquals(0, Snapshot.read(snapshotFile, restored)); // the generation of the log it replaced
+        Table table = restored.getTable("product");
+        assertEquals(500, table.getAllRows().size());
+        assertEquals(ColumnType.STRING, table.getColumnType(1)); // quoted '007' stays a string
+        assertEquals(ColumnType.DOUBLE, table.getColumnType(3));
+        assertEquals("007", table.getRow(7).get(1));
+        assertTrue(table.hasIndex(2));
+        assertEquals(71, table.lookup(2, "category3").size());
+        assertTrue(table.lookup(2, "category3").containsAll(Set.of(3, 10, 493)));
+    }
+}
@@ -0,0 +1,70 @@
+package edu.smu.smusql;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UpdateTest {
+
+    private Engine engine;
+
+    @BeforeEach
+    public void setUp() {
+        engine = new Engine();
+        engine.executeSQL("CREATE TABLE users (id, name, age, city)");
+        engine.executeSQL("INSERT INTO users VALUES (1, 'Alice', 30, 'Boston')");
+        engine.executeSQL("INSERT INTO users VALUES (2, 'Bob', 25, 'Boston')");
+        engine.executeSQL("INSERT INTO users VALUES (3, 'Carl', 30, 'Denver')");
+    }
+
+    @Test
+    public void testUpdateByPrimaryKey() {
+        assertEquals("UPDATE successful, updated 1 rows", engine.executeSQL("UPDATE users SET age = 31 WHERE id = 1"));
+        assertEquals("id\tname\tage\tcity\n1\tAlice\t31\tBoston\t\n", engine.executeSQL("SELECT * FROM users WHERE id = 1"));
+        assertEquals("No rows updated", engine.executeSQL("UPDATE users SET age = 31 WHERE id = 9"));
+    }
+
+    @Test
+    public void testUpdatePrimaryKeyMovesTheRow() {
+        assertEquals("UPDATE successful, updated 1 rows", engine.executeSQL("UPDATE users SET id = 99 WHERE id = 1"));
+
+        assertEquals("id\tname\tage\tcity\n99\tAlice\t30\tBoston\t\n", engine.executeSQL("SELECT * FROM users WHERE id = 99"));
+        assertEquals("id\tname\tage\tcity\n", engine.executeSQL("SELECT * FROM users WHERE id = 1"));
+        assertEquals("Primary key 99 existed", engine.executeSQL("INSERT INTO users VALUES (99, 'Dan', 40, 'Miami')"));
+        assertEquals("Row Inserted", engine.executeSQL("INSERT INTO users VALUES (1, 'Dan', 40, 'Miami')"));
+        assertEquals("COUNT(*)\n4\t\n", engine.executeSQL("SELECT COUNT(*) FROM users"));
+    }
+
+    @Test
+    public void testUpdatePrimaryKeyToExistingKeyIsRejected() {
+        assertEquals("ERROR: Duplicate primary key: 2", engine.executeSQL("UPDATE users SET id = 2 WHERE id = 1"));
+        assertEquals("ERROR: Duplicate primary key: 7", engine.executeSQL("UPDATE users SET id = 7 WHERE age = 30"));
+        assertEquals("UPDATE successful, updated 1 rows", engine.executeSQL("UPDATE users SET id = 1 WHERE id = 1"));
+        assertEquals("id\tname\tage\tcity\n1\tAlice\t30\tBoston\t\n2\tBob\t25\tBoston\t\n3\tCarl\t30\tDenver\t\n",
+                engine.executeSQL("SELECT * FROM users"));
+    }
+
+    @Test
+    public void testIndexesFollowMovedRow() {
+        engine.executeSQL("CREATE INDEX ON users (age)");
+        engine.executeSQL("UPDATE users SET id = 99 WHERE id = 1");
+        engine.executeSQL("INSERT INTO users VALUES (1, 'Dan', 1, 'Miami')");
+
+        assertEquals("id\tname\tage\tcity\n", engine.executeSQL("SELECT * FROM users WHERE age = 30 AND id = 1"));
+        assertEquals("COUNT(*)\n2\t\n", engine.executeSQL("SELECT COUNT(*) FROM users WHERE age = 30"));
+        assertEquals("id\tname\tage\tcity\n99\tAlice\t30\tBoston\t\n",
+                engine.executeSQL("SELECT * FROM users WHERE age = 30 AND name = 'Alice'"));
+        assertEquals("id\tname\tage\tcity\n1\tDan\t1\tMiami\t\n", engine.executeSQL("SELECT * FROM users WHERE age = 1"));
+    }
+
+    @Test
+    public void testUpdateKeepsSecondaryIndexCurrent() {
+        engine.executeSQL("CREATE INDEX ON users (city)");
+        assertEquals("UPDATE successful, updated 2 rows", engine.executeSQL("UPDATE users SET city = 'Miami' WHERE city = 'Boston'"));
+
+        assertEquals("id\tname\tage\tcity\n", engine.executeSQL("SELECT * FROM users WHERE city = 'Boston'"));
+        assertEquals("COUNT(*)\n2\t\n", engine.executeSQL("SELECT COUNT(*) FROM users WHERE city = 'Miami'"));
+        assertEquals("Deleted 1 row(s) from users", engine.executeSQL("DELETE FROM users WHERE city = 'Miami' AND age = 25"));
+        assertEquals("id\tname\tage\tcity\n1\tAlice\t30\tMiami\t\n", engine.executeSQL("SELECT * FROM users WHERE city = 'Miami'"));
+    }
+}
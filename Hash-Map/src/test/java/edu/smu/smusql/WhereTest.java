@@ -0,0 +1,84 @@
+package edu.smu.smusql;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WhereTest {
+
+    private static final String HEADER = "id\tname\tage\tcity\n";
+    private static final String ALICE = "1\tAlice\t30\tBoston\t\n";
+    private static final String BOB = "2\tBob\t9\tBoston\t\n";
+    private static final String CARL = "3\tCarl\t30\tDenver\t\n";
+    private static final String DAN = "4\tDan\t41\tAustin\t\n";
+
+    private Engine engine;
+
+    @BeforeEach
+    public void setUp() {
+        engine = new Engine();
+        engine.executeSQL("CREATE TABLE users (id, name, age, city)");
+        engine.executeSQL("INSERT INTO users VALUES (1, 'Alice', 30, 'Boston')");
+        engine.executeSQL("INSERT INTO users VALUES (2, 'Bob', 9, 'Boston')");
+        engine.executeSQL("INSERT INTO users VALUES (3, 'Carl', 30, 'Denver')");
+        engine.executeSQL("INSERT INTO users VALUES (4, 'Dan', 41, 'Austin')");
+    }
+
+    @Test
+    public void testAndBindsTighterThanOr() {
+        assertEquals(HEADER + ALICE + BOB,
+                engine.executeSQL("SELECT * FROM users WHERE city = 'Boston' OR age = 30 AND name = 'Nobody'"));
+        assertEquals(HEADER + ALICE + BOB,
+                engine.executeSQL("SELECT * FROM users WHERE age = 30 AND name = 'Nobody' OR city = 'Boston'"));
+    }
+
+    @Test
+    public void testParenthesesOverridePrecedence() {
+        assertEquals(HEADER + CARL,
+                engine.executeSQL("SELECT * FROM users WHERE (city = 'Boston' OR age = 30) AND name = 'Carl'"));
+        assertEquals(HEADER,
+                engine.executeSQL("SELECT * FROM users WHERE (city = 'Boston' OR age = 30) AND name = 'Nobody'"));
+    }
+
+    @Test
+    public void testNot() {
+        assertEquals(HEADER + BOB, engine.executeSQL("SELECT * FROM users WHERE NOT age > 20"));
+        assertEquals(HEADER + BOB + CARL + DAN,
+                engine.executeSQL("SELECT * FROM users WHERE NOT (age > 20 AND city = 'Boston')"));
+        assertEquals(HEADER + ALICE, engine.executeSQL("SELECT * FROM users WHERE NOT NOT id = 1"));
+    }
+
+    @Test
+    public void testBetweenIsInclusive() {
+        assertEquals(HEADER + ALICE + BOB + CARL, engine.executeSQL("SELECT * FROM users WHERE age BETWEEN 9 AND 30"));
+        assertEquals(HEADER + DAN, engine.executeSQL("SELECT * FROM users WHERE age NOT BETWEEN 9 AND 30"));
+        // the AND inside BETWEEN does not end the condition
+        assertEquals(HEADER + ALICE + BOB,
+                engine.executeSQL("SELECT * FROM users WHERE age BETWEEN 9 AND 30 AND city = 'Boston'"));
+    }
+
+    @Test
+    public void testIn() {
+        assertEquals(HEADER + CARL + DAN, engine.executeSQL("SELECT * FROM users WHERE city IN ('Austin', 'Denver')"));
+        assertEquals(HEADER + CARL + DAN, engine.executeSQL("SELECT * FROM users WHERE id NOT IN (1, 2)"));
+        assertEquals(HEADER + BOB, engine.executeSQL("SELECT * FROM users WHERE age IN (9)"));
+    }
+
+    @Test
+    public void testUpdateAndDeleteWithExpressions() {
+        assertEquals("UPDATE successful, updated 2 rows", engine.executeSQL("UPDATE users SET age = 50 WHERE id IN (3, 4)"));
+        assertEquals("Deleted 2 row(s) from users",
+                engine.executeSQL("DELETE FROM users WHERE age BETWEEN 9 AND 30 AND NOT city = 'Denver'"));
+        assertEquals(HEADER + "3\tCarl\t50\tDenver\t\n" + "4\tDan\t50\tAustin\t\n", engine.executeSQL("SELECT * FROM users"));
+    }
+
+    @Test
+    public void testSyntaxErrors() {
+        assertEquals("ERROR: Incomplete condition in WHERE clause", engine.executeSQL("SELECT * FROM users WHERE age BETWEEN 9"));
+        assertEquals("ERROR: Incomplete condition in WHERE clause", engine.executeSQL("SELECT * FROM users WHERE (age > 9"));
+        assertEquals("ERROR: Expected AND or OR in WHERE clause but found junk",
+                engine.executeSQL("SELECT * FROM users WHERE age > 9 junk"));
+        assertEquals("ERROR: Invalid operator in WHERE clause: LIKE", engine.executeSQL("SELECT * FROM users WHERE age LIKE 3"));
+        assertEquals("ERROR: Column zip does not exist", engine.executeSQL("SELECT * FROM users WHERE zip = 3"));
+    }
+}
@@ -0,0 +1,10 @@
+#!/usr/bin/env bash
+# Builds the benchmark jar for every backend and runs it, writing one JMH result file per backend.
+# Extra arguments are passed through to JMH, e.g. ./run-all.sh -p rows=10000 -wi 1 -i 3
+set -euo pipefail
+cd "$(dirname "$0")"
+
+for backend in hash-map avl-trees red-black-tree array-list columnar; do
+    mvn -B -q clean package -P "$backend"
+    java -jar "target/benchmarks-$backend.jar" -rf json -rff "target/results-$backend.json" "$@"
+done
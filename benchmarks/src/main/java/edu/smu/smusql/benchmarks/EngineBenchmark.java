@@ -0,0 +1,176 @@
+package edu.smu.smusql.benchmarks;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.smu.smusql.Engine;
+
+/*
+ * Drives Engine.executeSQL with the same schema and value ranges as Main.autoEvaluate,
+ * one workload per benchmark method, against whichever backend the benchmarks module
+ * was built with (see the profiles in pom.xml).
+ *
+ * Reports throughput and average time per operation for 10k, 100k and 1M rows in
+ * both users and products. Restrict a run with the usual JMH options, e.g.
+ *   java -jar target/benchmarks-hash-map.jar EngineBenchmark.pointSelect -p rows=100000
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class EngineBenchmark {
+
+    private static final String[] CITIES = {"New York", "Los Angeles", "Chicago", "Boston", "Miami", "Seattle", "Austin", "Dallas", "Atlanta", "Denver"};
+    private static final String[] CATEGORIES = {"Electronics", "Appliances", "Clothing", "Furniture", "Toys", "Sports", "Books", "Beauty", "Garden"};
+
+    // Queries are generated up front and replayed round-robin so string building stays out of the timings
+    private static final int QUERY_POOL = 1 << 12;
+    private static final int POOL_MASK = QUERY_POOL - 1;
+
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    private Engine engine;
+    private SplittableRandom random;
+
+    private String[] pointSelects;
+    private String[] rangeSelects;
+    private String[] citySelects;
+    private String[] updatesById;
+    private String[] updatesByCity;
+    private String[] updatesByCategory;
+    private String[] deletesById;
+    private String[] reinserts;
+    private int cursor;
+    private int nextInsertId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        random = new SplittableRandom(201);
+        populate();
+
+        pointSelects = new String[QUERY_POOL];
+        rangeSelects = new String[QUERY_POOL];
+        citySelects = new String[QUERY_POOL];
+        updatesById = new String[QUERY_POOL];
+        updatesByCity = new String[QUERY_POOL];
+        updatesByCategory = new String[QUERY_POOL];
+        deletesById = new String[QUERY_POOL];
+        reinserts = new String[QUERY_POOL];
+
+        for (int i = 0; i < QUERY_POOL; i++) {
+            int id = random.nextInt(rows);
+            pointSelects[i] = "SELECT * FROM users WHERE id = " + id;
+
+            int minAge = random.nextInt(20) + 20;
+            int maxAge = minAge + random.nextInt(30);
+            rangeSelects[i] = "SELECT * FROM users WHERE age > " + minAge + " AND age < " + maxAge;
+            citySelects[i] = "SELECT * FROM users WHERE city = '" + randomCity() + "'";
+
+            updatesById[i] = "UPDATE users SET age = " + (random.nextInt(60) + 20) + " WHERE id = " + random.nextInt(rows);
+            updatesByCity[i] = "UPDATE users SET age = " + (random.nextInt(60) + 20) + " WHERE city = '" + randomCity() + "'";
+            updatesByCategory[i] = "UPDATE products SET price = " + (50 + random.nextDouble() * 1000) + " WHERE category = '" + randomCategory() + "'";
+
+            // Each delete is followed by re-inserting the same row so the table stays at the requested size
+            int deleteId = random.nextInt(rows);
+            deletesById[i] = "DELETE FROM users WHERE id = " + deleteId;
+            reinserts[i] = userInsert(deleteId);
+        }
+    }
+
+    // The insert workload grows the table, so put it back to the requested size between iterations
+    @Setup(Level.Iteration)
+    public void resetIfGrown() {
+        if (nextInsertId > rows) {
+            populate();
+        }
+    }
+
+    private void populate() {
+        engine = new Engine();
+        engine.executeSQL("CREATE TABLE users (id, name, age, city)");
+        engine.executeSQL("CREATE TABLE products (id, name, price, category)");
+        for (int i = 0; i < rows; i++) {
+            engine.executeSQL(userInsert(i));
+            engine.executeSQL(String.format("INSERT INTO products VALUES (%d, 'Product%d', %.2f, '%s')",
+                    i, i, 50 + random.nextDouble() * 1000, randomCategory()));
+        }
+        nextInsertId = rows;
+    }
+
+    private String userInsert(int id) {
+        return "INSERT INTO users VALUES (" + id + ", 'User" + id + "', " + (random.nextInt(60) + 20) + ", '" + randomCity() + "')";
+    }
+
+    private String randomCity() {
+        return CITIES[random.nextInt(CITIES.length)];
+    }
+
+    private String randomCategory() {
+        return CATEGORIES[random.nextInt(CATEGORIES.length)];
+    }
+
+    private int next() {
+        return cursor++ & POOL_MASK;
+    }
+
+    @Benchmark
+    public String pointSelect() {
+        return engine.executeSQL(pointSelects[next()]);
+    }
+
+    @Benchmark
+    public String rangeSelect() {
+        return engine.executeSQL(rangeSelects[next()]);
+    }
+
+    // Full scan comparing a string column, the case where numeric detection used to throw on every row
+    @Benchmark
+    public String selectByCity() {
+        return engine.executeSQL(citySelects[next()]);
+    }
+
+    @Benchmark
+    public String updateById() {
+        return engine.executeSQL(updatesById[next()]);
+    }
+
+    @Benchmark
+    public String updateByCity() {
+        return engine.executeSQL(updatesByCity[next()]);
+    }
+
+    @Benchmark
+    public String updateByCategory() {
+        return engine.executeSQL(updatesByCategory[next()]);
+    }
+
+    // Measures the delete together with the re-insert that keeps the table size fixed
+    @Benchmark
+    public String deleteById() {
+        int i = next();
+        engine.executeSQL(deletesById[i]);
+        return engine.executeSQL(reinserts[i]);
+    }
+
+    // Always a fresh primary key, built inline because the key space cannot be pooled
+    @Benchmark
+    public String insert() {
+        return engine.executeSQL(userInsert(nextInsertId++));
+    }
+}
@@ -0,0 +1,280 @@
+package edu.smu.smusql.benchmarks;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/*
+ * Replays the Main.autoEvaluate workloads against a running Server over many concurrent
+ * connections, and reports throughput and per-statement latency as the clients see it.
+ *
+ * Every connection is opened before any sends, so the server holds all of them at once,
+ * then each sends its share of the queries one at a time, waiting for every reply. The
+ * schema, value ranges and mixes are those of Main: general draws the six query types
+ * uniformly, select, insertDelete and update give 75% to their own types.
+ *
+ *   java -cp target/benchmarks-hash-map.jar edu.smu.smusql.Server &
+ *   java -cp target/benchmarks-hash-map.jar edu.smu.smusql.benchmarks.LoadGenerator \
+ *       [port] [connections] [queries per connection] [general|select|insertDelete|update]
+ */
+public class LoadGenerator {
+
+    private static final String[] CITIES = {"New York", "Los Angeles", "Chicago", "Boston", "Miami", "Seattle", "Austin", "Dallas", "Atlanta", "Denver"};
+    private static final String[] CATEGORIES = {"Electronics", "Appliances", "Clothing", "Furniture", "Toys", "Sports", "Books", "Beauty", "Garden"};
+
+    private static final int DEFAULT_PORT = 7201; // Server.DEFAULT_PORT, not on the classpath of every backend
+
+    private final String workload;
+    private final SplittableRandom random;
+
+    private LoadGenerator(String workload, SplittableRandom random) {
+        this.workload = workload;
+        this.random = random;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int connections = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int queries = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+        String workload = args.length > 3 ? args[3] : "general";
+        if (!Arrays.asList("general", "select", "insertDelete", "update").contains(workload)) {
+            throw new IllegalArgumentException("Unknown workload " + workload);
+        }
+
+        SplittableRandom seeds = new SplittableRandom(201);
+        try (Connection setup = new Connection(port)) {
+            prepopulate(setup, seeds.split());
+        }
+
+        List<Connection> open = new ArrayList<>(connections);
+        try {
+            for (int i = 0; i < connections; i++) {
+                open.add(new Connection(port));
+            }
+            run(open, queries, workload, seeds);
+        } finally {
+            for (Connection connection : open) {
+                connection.close();
+            }
+        }
+    }
+
+    private static void run(List<Connection> open, int queries, String workload, SplittableRandom seeds) throws Exception {
+        ExecutorService clients = clientExecutor();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<long[]>> results = new ArrayList<>(open.size());
+        for (Connection connection : open) {
+            LoadGenerator generator = new LoadGenerator(workload, seeds.split());
+            results.add(clients.submit(() -> {
+                start.await();
+                long[] latencies = new long[queries];
+                for (int i = 0; i < queries; i++) {
+                    long begin = System.nanoTime();
+                    if (connection.execute(generator.nextQuery()).startsWith("ERROR")) {
+                        connection.errors++;
+                    }
+                    latencies[i] = System.nanoTime() - begin;
+                }
+                return latencies;
+            }));
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        long[] latencies = new long[open.size() * queries];
+        int filled = 0;
+        for (Future<long[]> result : results) {
+            long[] some = result.get();
+            System.arraycopy(some, 0, latencies, filled, some.length);
+            filled += some.length;
+        }
+        long elapsed = System.nanoTime() - begin;
+        clients.shutdown();
+
+        long errors = 0;
+        for (Connection connection : open) {
+            errors += connection.errors;
+        }
+        Arrays.sort(latencies);
+        System.out.printf("%s: %d connections, %d queries in %.2f s, %.0f queries/s%n", workload, open.size(),
+                latencies.length, elapsed / 1e9, latencies.length / (elapsed / 1e9));
+        System.out.printf("latency p50 %.3f ms, p99 %.3f ms, max %.3f ms; %d ERROR replies%n",
+                percentile(latencies, 0.50), percentile(latencies, 0.99), percentile(latencies, 1.0), errors);
+    }
+
+    private static double percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(fraction * sorted.length) - 1;
+        return sorted[Math.max(index, 0)] / 1e6;
+    }
+
+    // The tables and 50 rows each, as Main creates them before a workload
+    private static void prepopulate(Connection connection, SplittableRandom random) throws IOException {
+        connection.execute("CREATE TABLE users (id, name, age, city)");
+        connection.execute("CREATE TABLE products (id, name, price, category)");
+        connection.execute("CREATE TABLE orders (id, user_id, product_id, quantity)");
+        for (int i = 0; i < 50; i++) {
+            connection.execute(String.format("INSERT INTO users VALUES (%d, 'User%d', %d, '%s')",
+                    i, i, 20 + (i % 41), CITIES[random.nextInt(CITIES.length)]));
+            connection.execute(String.format("INSERT INTO products VALUES (%d, 'Product%d', %.2f, '%s')",
+                    i, i, 10.0 + (i % 990), CATEGORIES[random.nextInt(CATEGORIES.length)]));
+            connection.execute(String.format("INSERT INTO orders VALUES (%d, %d, %d, %d)",
+                    i, random.nextInt(9999), random.nextInt(9999), random.nextInt(1, 100)));
+        }
+    }
+
+    // The next statement of the workload's mix, chosen as Main chooses it
+    private String nextQuery() {
+        boolean favoured = random.nextDouble() < 0.75;
+        switch (workload) {
+            case "select":
+                if (favoured) {
+                    return random.nextBoolean() ? select() : complexSelect();
+                }
+                return pick(this::insert, this::update, this::delete);
+            case "insertDelete":
+                if (favoured) {
+                    return random.nextBoolean() ? insert() : delete();
+                }
+                return pick(this::select, this::update);
+            case "update":
+                if (favoured) {
+                    return random.nextBoolean() ? update() : complexUpdate();
+                }
+                return pick(this::select, this::insert, this::delete);
+            default:
+                return pick(this::insert, this::select, this::update, this::delete, this::complexSelect, this::complexUpdate);
+        }
+    }
+
+    @SafeVarargs
+    private String pick(Supplier<String>... queries) {
+        return queries[random.nextInt(queries.length)].get();
+    }
+
+    private String insert() {
+        switch (random.nextInt(3)) {
+            case 0:
+                int id = random.nextInt(10000) + 10000;
+                return "INSERT INTO users VALUES (" + id + ", 'User" + id + "', " + (random.nextInt(60) + 20) + ", '" + city() + "')";
+            case 1:
+                int productId = random.nextInt(1000) + 10000;
+                return "INSERT INTO products VALUES (" + productId + ", 'Product" + productId + "', " + (50 + random.nextDouble() * 1000) + ", '" + category() + "')";
+            default:
+                return "INSERT INTO orders VALUES (" + (random.nextInt(10000) + 1) + ", " + (random.nextInt(10000) + 1) + ", "
+                        + (random.nextInt(1000) + 1) + ", " + (random.nextInt(10) + 1) + ")";
+        }
+    }
+
+    private String select() {
+        switch (random.nextInt(3)) {
+            case 0:
+                return "SELECT * FROM users";
+            case 1:
+                return "SELECT * FROM products";
+            default:
+                return "SELECT * FROM orders";
+        }
+    }
+
+    private String update() {
+        switch (random.nextInt(3)) {
+            case 0:
+                return "UPDATE users SET age = " + (random.nextInt(60) + 20) + " WHERE id = " + (random.nextInt(10000) + 1);
+            case 1:
+                return "UPDATE products SET price = " + (50 + random.nextDouble() * 1000) + " WHERE id = " + (random.nextInt(1000) + 1);
+            default:
+                return "UPDATE orders SET quantity = " + (random.nextInt(10) + 1) + " WHERE id = " + (random.nextInt(10000) + 1);
+        }
+    }
+
+    private String delete() {
+        switch (random.nextInt(3)) {
+            case 0:
+                return "DELETE FROM users WHERE id = " + (random.nextInt(10000) + 1);
+            case 1:
+                return "DELETE FROM products WHERE id = " + (random.nextInt(1000) + 1);
+            default:
+                return "DELETE FROM orders WHERE id = " + (random.nextInt(10000) + 1);
+        }
+    }
+
+    private String complexSelect() {
+        if (random.nextBoolean()) {
+            int minAge = random.nextInt(20) + 20;
+            return "SELECT * FROM users WHERE age > " + minAge + " AND age < " + (minAge + random.nextInt(30));
+        }
+        double minPrice = 50 + random.nextDouble() * 200;
+        return "SELECT * FROM products WHERE price > " + minPrice + " AND price < " + (minPrice + random.nextDouble() * 500);
+    }
+
+    private String complexUpdate() {
+        if (random.nextBoolean()) {
+            return "UPDATE users SET age = " + (random.nextInt(60) + 20) + " WHERE city = '" + city() + "'";
+        }
+        return "UPDATE products SET price = " + (50 + random.nextDouble() * 1000) + " WHERE category = '" + category() + "'";
+    }
+
+    private String city() {
+        return CITIES[random.nextInt(CITIES.length)];
+    }
+
+    private String category() {
+        return CATEGORIES[random.nextInt(CATEGORIES.length)];
+    }
+
+    // One client connection speaking the Server's frames: [int length][UTF-8 text] each way
+    private static final class Connection implements AutoCloseable {
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+        private long errors;
+
+        Connection(int port) throws IOException {
+            socket = new Socket(InetAddress.getLoopbackAddress(), port);
+            socket.setTcpNoDelay(true);
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        String execute(String statement) throws IOException {
+            byte[] bytes = statement.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+            out.flush();
+            byte[] reply = new byte[in.readInt()];
+            in.readFully(reply);
+            return new String(reply, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    // A virtual thread per client on Java 21 and later, as the Server does, otherwise platform threads
+    private static ExecutorService clientExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+}
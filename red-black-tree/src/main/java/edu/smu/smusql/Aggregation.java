@@ -0,0 +1,318 @@
+package edu.smu.smusql;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/*
+ * The select list of an aggregate query, e.g.
+ *   SELECT category, COUNT(*), AVG(price) FROM products GROUP BY category
+ *
+ * Matching rows are aggregated in one pass into a hash map from the group key to the
+ * group's accumulators, primitive arrays with one slot per select item.
+ *
+ * Every column already has a TreeMap from value to primary keys, so without a WHERE
+ * clause most queries never read a row: COUNT(*) is the size of the primary key map,
+ * MIN and MAX are the first and last keys of the column's TreeMap, SUM and AVG add up
+ * each distinct value times the size of its key list, and with GROUP BY column each
+ * key of that column's TreeMap is a group whose COUNT(*) is its list size. The TreeMaps
+ * only answer for a view that sees the table as it is now, see Table.readCurrent.
+ */
+final class Aggregation {
+
+    enum Function { COUNT, SUM, MIN, MAX, AVG }
+
+    private static final Object NO_GROUP = new Object(); // the single group of a query without GROUP BY
+
+    private final Table table;
+    private final Function[] functions; // per select item, null for a GROUP BY column
+    private final String[] itemColumns; // per select item, null for COUNT(*)
+    private final String[] groupColumns;
+    private final List<String> columns;
+
+    private Aggregation(Table table, Function[] functions, String[] itemColumns, String[] groupColumns,
+                        List<String> columns) {
+        this.table = table;
+        this.functions = functions;
+        this.itemColumns = itemColumns;
+        this.groupColumns = groupColumns;
+        this.columns = columns;
+    }
+
+    // Parses the select list (the tokens between SELECT and FROM) against the GROUP BY columns.
+    // Every plain column of the select list must be one of the GROUP BY columns.
+    public static Aggregation parse(Table table, List<Token> selectList, List<Token> groupBy) {
+        String[] groupColumns = new String[groupBy.size()];
+        for (int i = 0; i < groupBy.size(); i++) {
+            groupColumns[i] = column(table, groupBy.get(i));
+        }
+
+        List<List<Token>> items = split(selectList);
+        Function[] functions = new Function[items.size()];
+        String[] itemColumns = new String[items.size()];
+        List<String> columns = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            List<Token> item = items.get(i);
+            if (item.size() == 1 && item.get(0).is("*")) {
+                throw new IllegalArgumentException("ERROR: SELECT * cannot be combined with aggregates or GROUP BY");
+            } else if (item.size() == 1) {
+                itemColumns[i] = column(table, item.get(0));
+                if (!Arrays.asList(groupColumns).contains(itemColumns[i])) {
+                    throw new IllegalArgumentException("ERROR: Column " + itemColumns[i] + " must appear in GROUP BY");
+                }
+            } else {
+                functions[i] = function(item);
+                itemColumns[i] = item.get(2).is("*") ? null : column(table, item.get(2));
+                if (itemColumns[i] == null && functions[i] != Function.COUNT) {
+                    throw new IllegalArgumentException("ERROR: Only COUNT accepts *");
+                }
+                if (itemColumns[i] != null && (functions[i] == Function.SUM || functions[i] == Function.AVG)
+                        && table.getColumnType(itemColumns[i]) == ColumnType.STRING) {
+                    throw new IllegalArgumentException("ERROR: " + functions[i] + " needs a numeric column");
+                }
+            }
+            columns.add(label(functions[i], itemColumns[i]));
+        }
+        return new Aggregation(table, functions, itemColumns, groupColumns, Collections.unmodifiableList(columns));
+    }
+
+    private static List<List<Token>> split(List<Token> selectList) {
+        List<List<Token>> items = new ArrayList<>();
+        List<Token> item = new ArrayList<>();
+        for (Token token : selectList) {
+            if (token.is(",")) {
+                items.add(item);
+                item = new ArrayList<>();
+            } else {
+                item.add(token);
+            }
+        }
+        items.add(item);
+        for (List<Token> tokens : items) {
+            if (tokens.size() != 1 && tokens.size() != 4) {
+                throw new IllegalArgumentException("ERROR: Invalid SELECT syntax");
+            }
+        }
+        return items;
+    }
+
+    // FUNCTION ( column ) or COUNT ( * )
+    private static Function function(List<Token> item) {
+        if (!item.get(1).is("(") || !item.get(3).is(")")) {
+            throw new IllegalArgumentException("ERROR: Invalid SELECT syntax");
+        }
+        for (Function function : Function.values()) {
+            if (item.get(0).is(function.name())) {
+                return function;
+            }
+        }
+        throw new IllegalArgumentException("ERROR: Unknown aggregate function " + item.get(0));
+    }
+
+    private static String column(Table table, Token name) {
+        if (!table.getColumns().contains(name.getText())) {
+            throw new IllegalArgumentException("ERROR: Column not found: " + name.getText());
+        }
+        return name.getText();
+    }
+
+    private static String label(Function function, String column) {
+        String name = column == null ? "*" : column;
+        return function == null ? name : function + "(" + name + ")";
+    }
+
+    // The result column names, e.g. [category, COUNT(*), AVG(price)]
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    // The result column an ORDER BY item written like a select item refers to, or null
+    public String resultColumn(List<Token> item) {
+        String label;
+        if (item.size() == 1) {
+            label = item.get(0).getText();
+        } else if (item.size() == 4) {
+            label = label(function(item), item.get(2).is("*") ? null : column(table, item.get(2)));
+        } else {
+            return null;
+        }
+        return columns.contains(label) ? label : null;
+    }
+
+    /* ================= Hash aggregation ================= */
+
+    // Accumulators of one group, one slot per select item
+    private final class Group {
+        private final Map<String, Object> firstRow; // supplies the GROUP BY column values
+        private final long[] counts = new long[functions.length];
+        private final long[] integerSums = new long[functions.length];
+        private final double[] fractionalSums = new double[functions.length];
+        private final boolean[] fractional = new boolean[functions.length];
+        private final Object[] extremes = new Object[functions.length];
+
+        private Group(Map<String, Object> firstRow) {
+            this.firstRow = firstRow;
+        }
+
+        // count rows holding the same values, so a TreeMap entry is added in one step
+        private void add(Map<String, Object> row, long count) {
+            for (int i = 0; i < functions.length; i++) {
+                if (functions[i] != null) {
+                    add(i, itemColumns[i] == null ? null : row.get(itemColumns[i]), count);
+                }
+            }
+        }
+
+        private void add(int item, Object value, long count) {
+            Function function = functions[item];
+            counts[item] += count;
+            if (function == Function.COUNT) {
+                return;
+            }
+            if (function == Function.MIN || function == Function.MAX) {
+                if (extremes[item] == null || replaces(function, value, extremes[item])) {
+                    extremes[item] = value;
+                }
+            } else if (value instanceof Integer) {
+                integerSums[item] += (Integer) value * count;
+            } else if (value instanceof Number) {
+                fractionalSums[item] += ((Number) value).doubleValue() * count;
+                fractional[item] = true;
+            } else {
+                throw new IllegalArgumentException("ERROR: " + function + " needs a numeric column");
+            }
+        }
+
+        private Map<String, Object> toRow() {
+            Map<String, Object> row = new HashMap<>();
+            for (int i = 0; i < functions.length; i++) {
+                Function function = functions[i];
+                String column = columns.get(i);
+                if (function == null) {
+                    row.put(column, firstRow.get(itemColumns[i]));
+                } else if (function == Function.COUNT) {
+                    row.put(column, counts[i]);
+                } else if (counts[i] == 0) {
+                    continue; // SUM, AVG, MIN and MAX of no rows are missing, written as NULL
+                } else if (function == Function.SUM) {
+                    row.put(column, fractional[i] ? (Object) (integerSums[i] + fractionalSums[i]) : (Object) integerSums[i]);
+                } else if (function == Function.AVG) {
+                    row.put(column, (integerSums[i] + fractionalSums[i]) / counts[i]);
+                } else {
+                    row.put(column, extremes[i]);
+                }
+            }
+            return row;
+        }
+    }
+
+    // One result row per group, groups in the order they were first seen. A query without
+    // GROUP BY always has one row, even when no row matched (COUNT(*) is then 0).
+    public List<Map<String, Object>> aggregate(Iterator<Map<String, Object>> rows) {
+        Map<Object, Group> groups = new LinkedHashMap<>();
+        if (groupColumns.length == 0) {
+            groups.put(NO_GROUP, new Group(null));
+        }
+        while (rows.hasNext()) {
+            Map<String, Object> row = rows.next();
+            Object key = groupKey(row);
+            Group group = groups.get(key);
+            if (group == null) {
+                group = new Group(row);
+                groups.put(key, group);
+            }
+            group.add(row, 1);
+        }
+        return toRows(groups);
+    }
+
+    private static List<Map<String, Object>> toRows(Map<Object, Group> groups) {
+        List<Map<String, Object>> result = new ArrayList<>(groups.size());
+        for (Group group : groups.values()) {
+            result.add(group.toRow());
+        }
+        return result;
+    }
+
+    // a single GROUP BY column is its own key, so the common case allocates no key object
+    private Object groupKey(Map<String, Object> row) {
+        switch (groupColumns.length) {
+            case 0:
+                return NO_GROUP;
+            case 1:
+                return row.get(groupColumns[0]);
+            default:
+                Object[] key = new Object[groupColumns.length];
+                for (int i = 0; i < key.length; i++) {
+                    key[i] = row.get(groupColumns[i]);
+                }
+                return Arrays.asList(key);
+        }
+    }
+
+    /* ================= Answers from the column TreeMaps ================= */
+
+    // The result of the query over the whole table read from the column TreeMaps alone, or null
+    // if some select item needs the rows or the TreeMaps still list versions a view at asOf cannot see
+    public List<Map<String, Object>> fromIndexes(long asOf) {
+        return table.readCurrent(asOf, this::fromCurrentIndexes);
+    }
+
+    private List<Map<String, Object>> fromCurrentIndexes() {
+        if (groupColumns.length > 1) {
+            return null;
+        }
+        if (groupColumns.length == 1) {
+            return groupedFromIndex(groupColumns[0]);
+        }
+        Group whole = new Group(null);
+        for (int i = 0; i < functions.length; i++) {
+            if (functions[i] == Function.COUNT || table.getPrimaryKeyMap().isEmpty()) {
+                whole.counts[i] = table.getPrimaryKeyMap().size();
+                continue;
+            }
+            TreeMap<Object, List<Object>> columnTreeMap = table.getColumnTreeMap(itemColumns[i]);
+            if (functions[i] == Function.MIN) {
+                whole.add(i, columnTreeMap.firstKey(), table.getPrimaryKeyMap().size());
+            } else if (functions[i] == Function.MAX) {
+                whole.add(i, columnTreeMap.lastKey(), table.getPrimaryKeyMap().size());
+            } else {
+                // SUM and AVG: one step per distinct value, weighted by the number of rows holding it
+                for (Map.Entry<Object, List<Object>> entry : columnTreeMap.entrySet()) {
+                    whole.add(i, entry.getKey(), entry.getValue().size());
+                }
+            }
+        }
+        return Collections.singletonList(whole.toRow());
+    }
+
+    // GROUP BY a column: each key of its TreeMap is a group and the key's list holds the group's rows
+    private List<Map<String, Object>> groupedFromIndex(String groupColumn) {
+        for (int i = 0; i < functions.length; i++) {
+            boolean answered = functions[i] == null || functions[i] == Function.COUNT
+                    || groupColumn.equals(itemColumns[i]);
+            if (!answered) {
+                return null;
+            }
+        }
+        Map<Object, Group> groups = new LinkedHashMap<>();
+        for (Map.Entry<Object, List<Object>> entry : table.getColumnTreeMap(groupColumn).entrySet()) {
+            Map<String, Object> row = Collections.singletonMap(groupColumn, entry.getKey());
+            Group group = new Group(row);
+            group.add(row, entry.getValue().size());
+            groups.put(entry.getKey(), group);
+        }
+        return toRows(groups);
+    }
+
+    private static boolean replaces(Function function, Object value, Object extreme) {
+        int comparison = ColumnType.VALUE_ORDER.compare(value, extreme);
+        return function == Function.MIN ? comparison < 0 : comparison > 0;
+    }
+}
@@ -1,15 +1,20 @@
 package edu.smu.smusql;
 
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class Database {
 
-    private Map<String, Table> tables; // Store tables by name
+    // Store tables by name; statements look tables up without a lock, see TableLocks
+    private Map<String, Table> tables;
+
+    // The commit clock and open views shared by every table, see Versions
+    private final Versions versions = new Versions();
 
     public Database() {
-        this.tables = new HashMap<>();
+        this.tables = new ConcurrentHashMap<>();
     }
 
     // Method to create a new table
@@ -17,14 +22,47 @@ public class Database {
         if (tables.containsKey(tableName)) {
             throw new IllegalArgumentException("ERROR: Table already exists");
         }
-        tables.put(tableName, new Table(tableName, columns));
+        addTable(new Table(tableName, columns, new ColumnType[columns.size()], versions));
+    }
+
+    // Method to create a new table with declared column types (null entries are inferred)
+    public void createTable(String tableName, List<String> columns, ColumnType[] types) {
+        if (tables.containsKey(tableName)) {
+            throw new IllegalArgumentException("ERROR: Table already exists");
+        }
+        addTable(new Table(tableName, columns, types, versions));
+    }
+
+    // Adds a new or restored table, unless one of the same name exists
+    void addTable(Table table) {
+        if (tables.putIfAbsent(table.getTableName(), table) != null) {
+            throw new IllegalArgumentException("ERROR: Table already exists");
+        }
+    }
+
+    Versions getVersions() {
+        return versions;
+    }
+
+    public Collection<Table> getTables() {
+        return tables.values();
     }
 
     // Method to retrieve a table by name
     public Table getTable(String tableName) {
-        if (!tables.containsKey(tableName)) {
-            throw new IllegalArgumentException("ERROR: No such table: " + tableName);
+        Table table = tables.get(tableName);
+        if (table == null) {
+            throw noSuchTable(tableName);
         }
+        return table;
+    }
+
+    // The table, or null if there is none of that name
+    Table findTable(String tableName) {
         return tables.get(tableName);
     }
+
+    static IllegalArgumentException noSuchTable(String tableName) {
+        return new IllegalArgumentException("ERROR: No such table: " + tableName);
+    }
 }
@@ -1,50 +1,180 @@
 package edu.smu.smusql;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.SortedMap;
-import java.util.TreeMap;
-import java.util.TreeSet;
-
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/*
+ * Statements may be executed from any number of threads. Each INSERT, UPDATE and DELETE takes
+ * the write lock of its table (see TableLocks) and stores new row versions; a SELECT reads the
+ * versions committed when it started (see Versions), so it never waits for a writer and no
+ * writer waits for it. CREATE TABLE and checkpoints hold catalogLock exclusively, so they
+ * never overlap a change to any table.
+ */
 public class Engine {
+    // the log size that triggers a checkpoint, so restarts replay at most this much
+    private static final long CHECKPOINT_LOG_BYTES = 64L * 1024 * 1024;
+
     private Database database = new Database();
+    private WriteAheadLog log; // null for a purely in-memory engine
+    private Path snapshotFile; // null when the log is never checkpointed
+    // shared by statements changing one table, exclusive for CREATE and checkpoints
+    private final ReentrantReadWriteLock catalogLock = new ReentrantReadWriteLock();
+
+    public Engine() {
+    }
+
+    // An engine whose changes survive a restart: the statements already in the log are replayed
+    // into the database, then every successful CREATE, INSERT, UPDATE and DELETE is appended to it.
+    // See WriteAheadLog for commitIntervalMillis.
+    public Engine(Path logFile, long commitIntervalMillis) throws IOException {
+        log = WriteAheadLog.open(logFile, commitIntervalMillis, this::executeSQL);
+    }
+
+    // An engine that also checkpoints: it starts from the snapshot, if there is one, and replays
+    // only the statements logged after it. Once the log grows past CHECKPOINT_LOG_BYTES the
+    // database is written to a new snapshot and the log starts over.
+    public Engine(Path snapshotFile, Path logFile, long commitIntervalMillis) throws IOException {
+        this.snapshotFile = snapshotFile;
+        long checkpointGeneration = -1;
+        if (Files.exists(snapshotFile)) {
+            checkpointGeneration = Snapshot.read(snapshotFile, database);
+        }
+        log = WriteAheadLog.open(logFile, commitIntervalMillis, checkpointGeneration, this::executeSQL);
+    }
+
+    // Writes the database to the snapshot file and empties the log
+    public void checkpoint() throws IOException {
+        checkpoint(0);
+    }
+
+    // Checkpoints unless the log is still shorter than minimumLogLength, which another thread's
+    // checkpoint may have made it while this one waited for the lock
+    private void checkpoint(long minimumLogLength) throws IOException {
+        if (snapshotFile == null) {
+            throw new IllegalStateException("Engine was created without a snapshot file");
+        }
+        catalogLock.writeLock().lock();
+        // no statement changes a table now, the read locks keep the vacuum out while the tables are written
+        TableLocks locks = TableLocks.read(database.getTables());
+        try {
+            if (log.length() >= minimumLogLength) {
+                Snapshot.write(database, log.getGeneration(), snapshotFile);
+                log.reset();
+            }
+        } finally {
+            locks.release();
+            catalogLock.writeLock().unlock();
+        }
+    }
 
     public Database getDatabase() {
         return database;
     }
 
+    // Forces the log and closes it; an in-memory engine has nothing to close
+    public void close() throws IOException {
+        if (log != null) {
+            log.close();
+        }
+    }
+
     public String executeSQL(String query) {
-        String[] tokens = query.trim().split("\\s+");
-        String command = tokens[0].toUpperCase();
+        List<Token> tokens;
+        try {
+            tokens = Lexer.tokenize(query);
+        } catch (IllegalArgumentException e) {
+            return "ERROR: " + e.getMessage();
+        }
+        if (tokens.isEmpty()) {
+            return "ERROR: Unknown command";
+        }
+        String command = tokens.get(0).getText().toUpperCase();
 
         switch (command) {
             case "CREATE":
-                return create(tokens);
+                return change(query, tokens, -1, this::create);
             case "INSERT":
-                return insert(tokens);
+                return change(query, tokens, 2, this::insert);
             case "SELECT":
                 return select(tokens);
             case "UPDATE":
-                return update(tokens);
+                return change(query, tokens, 1, this::update);
             case "DELETE":
-                return delete(tokens);
+                return change(query, tokens, 2, this::delete);
             default:
                 return "ERROR: Unknown command";
         }
     }
 
-    public String insert(String[] tokens) {
+    // Runs a statement that changes the table named at tableNameIndex under that table's write
+    // lock, or CREATE (tableNameIndex -1) with catalogLock held exclusively. A statement that
+    // succeeded is in the log before its result is returned: it is appended while the locks
+    // are held, so the log has each table's changes in the order they were made, and waited
+    // for once they are released, so writers to other tables can join the same group commit.
+    private String change(String query, List<Token> tokens, int tableNameIndex,
+                          Function<List<Token>, String> statement) {
+        Lock catalog = tableNameIndex == -1 ? catalogLock.writeLock() : catalogLock.readLock();
+        String result;
+        long sequence = -1;
+        catalog.lock();
+        try {
+            // while catalogLock is held no table is created, so a missing table stays missing
+            // and the statement fails on its own without a lock
+            Table table = tableNameIndex == -1 || tableNameIndex >= tokens.size() ? null
+                    : database.findTable(tokens.get(tableNameIndex).getText());
+            TableLocks locks = table == null ? null : TableLocks.write(table);
+            try {
+                result = statement.apply(tokens);
+                if (log != null && !result.startsWith("ERROR")) {
+                    sequence = log.append(query);
+                }
+            } finally {
+                if (locks != null) {
+                    locks.release();
+                }
+            }
+        } catch (IOException e) {
+            return "ERROR: Could not write the log: " + e.getMessage();
+        } finally {
+            catalog.unlock();
+        }
+
+        if (sequence != -1) {
+            try {
+                log.awaitCommit(sequence);
+            } catch (IOException e) {
+                return "ERROR: Could not write the log: " + e.getMessage();
+            }
+            if (snapshotFile != null && log.length() >= CHECKPOINT_LOG_BYTES) {
+                try {
+                    checkpoint(CHECKPOINT_LOG_BYTES);
+                } catch (IOException e) {
+                    // the statement is safe in the log, which keeps growing until a checkpoint succeeds
+                }
+            }
+        }
+        return result;
+    }
+
+    public String insert(List<Token> tokens) {
         // Check syntax
-        if (!tokens[1].toUpperCase().equals("INTO")) {
+        if (!tokens.get(1).is("INTO")) {
             return "ERROR: Invalid INSERT INTO syntax";
         }
 
         // Get table name and list of values from parsed data
-        String tableName = tokens[2];
+        String tableName = tokens.get(2).getText();
 
         // Get table from database
         Table table = null;
@@ -55,14 +185,10 @@ public class Engine {
         }
 
         // Extract values between parentheses
-        String valueList = queryBetweenParentheses(tokens, 4);
-        List<String> values = Arrays.asList(valueList.split(","));
-
-        // Get primary key from values
-        String primaryKey = values.get(0).toString(); // Convert primary key to String
+        List<String> values = listBetweenParentheses(tokens, 4);
 
         try {
-            table.insertRow(primaryKey, values); // Pass raw values, conversion happens in insertRow
+            table.insertRow(values); // Pass raw values, conversion happens in insertRow
         } catch (IllegalArgumentException e) {
             return e.getMessage(); // Return specific error messages
         }
@@ -70,13 +196,13 @@ public class Engine {
         return "Row inserted into " + tableName;
     }
 
-    public String update(String[] tokens) {
+    public String update(List<Token> tokens) {
         // Check syntax
-        if (!tokens[2].equalsIgnoreCase("SET")) {
+        if (!tokens.get(2).is("SET")) {
             return "ERROR: Invalid UPDATE syntax";
         }
 
-        String tableName = tokens[1];
+        String tableName = tokens.get(1).getText();
 
         Table table = null;
         try {
@@ -86,73 +212,58 @@ public class Engine {
         }
 
         // Parse the columns and values to be updated
-        String updatedColumn = tokens[3];
+        String updatedColumn = tokens.get(3).getText();
         if (!table.getColumns().contains(updatedColumn)) {
             return "ERROR: Column not found: " + updatedColumn;
         }
 
-        if (!tokens[4].equals("=")) {
+        if (!tokens.get(4).is("=")) {
             return "ERROR: Invalid assignment in SET clause";
         }
 
-        String updatedValue = tokens[5];
+        Object updatedValue;
+        try {
+            updatedValue = table.parseValue(updatedColumn, tokens.get(5).getText());
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
 
         // Check if there's a WHERE clause
         List<String[]> whereClauseConditions = new ArrayList<>();
         List<Boolean> andOrConditions = new ArrayList<>();
 
         // Parse WHERE clause conditions
-        if (tokens.length > 6 && tokens[6].equalsIgnoreCase("WHERE")) {
-            for (int i = 7; i < tokens.length; i++) {
-                if (tokens[i].equalsIgnoreCase("AND")) {
-                    // Store True for AND
-                    andOrConditions.add(true);
-                } else if (tokens[i].equalsIgnoreCase("OR")) {
-                    // Store False for OR
-                    andOrConditions.add(false);
-                } else if (isOperator(tokens[i])) {
-                    // Add condition with operator (column, operator, value)
-                    String column = tokens[i - 1];
-                    if (!table.getColumns().contains(column)) {
-                        return "ERROR: Column not found: " + column;
-                    }
-                    String operator = tokens[i];
-                    String value = tokens[i + 1];
-                    whereClauseConditions.add(new String[] { column, operator, value });
-                    i += 1; // Skip the value since it has been processed
-                }
+        if (tokens.size() > 6) {
+            if (!tokens.get(6).is("WHERE")) {
+                return "ERROR: Invalid UPDATE syntax";
             }
-        }
-
-        // Get rows that satisfy the WHERE clause
-        Set<String> rowsToUpdate;
-        if (tokens.length == 6) {
-            // No WHERE clause: update all rows
-            rowsToUpdate = table.getPrimaryKeyMap().keySet();
-        } else {
-            rowsToUpdate = evaluateWhereCondition(whereClauseConditions.get(0), table);
-            for (int i = 1; i < whereClauseConditions.size(); i++) {
-                Set<String> newRows = evaluateWhereCondition(whereClauseConditions.get(i), table);
-                if (andOrConditions.get(i - 1)) {
-                    rowsToUpdate.retainAll(newRows);
-                } else {
-                    rowsToUpdate.addAll(newRows);
-                }
+            try {
+                parseWhereClause(tokens, 7, table, whereClauseConditions, andOrConditions);
+            } catch (IllegalArgumentException e) {
+                return e.getMessage();
             }
         }
 
-        table.updateRows(rowsToUpdate, updatedColumn, updatedValue);
+        // Get rows that satisfy the WHERE clause; without one every live row matches
+        Set<Object> rowsToUpdate = QueryPlanner.findRows(table, whereClauseConditions, andOrConditions,
+                Versions.LATEST);
+
+        try {
+            table.updateRows(rowsToUpdate, updatedColumn, updatedValue);
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
 
         return "Table " + tableName + " updated. " + rowsToUpdate.size() + " row(s) affected.";
     }
 
-    public String delete(String[] tokens) {
+    public String delete(List<Token> tokens) {
         // Check syntax
-        if (!tokens[1].toUpperCase().equals("FROM") || !tokens[3].toUpperCase().equals("WHERE")) {
+        if (!tokens.get(1).is("FROM") || !tokens.get(3).is("WHERE")) {
             return "ERROR: Invalid DELETE syntax";
         }
 
-        String tableName = tokens[2];
+        String tableName = tokens.get(2).getText();
 
         // Fetch the table
         Table table = null;
@@ -168,66 +279,177 @@ public class Engine {
         List<Boolean> andOrConditions = new ArrayList<>();
 
         // Iterate through the where condition
-        if (tokens.length > 3 && tokens[3].toUpperCase().equals("WHERE")) {
-            for (int i = 4; i < tokens.length; i++) {
-                if (tokens[i].toUpperCase().equals("AND")) {
-                    // true for AND
-                    andOrConditions.add(true);
-                } else if (tokens[i].toUpperCase().equals("OR")) {
-                    // false for OR
-                    andOrConditions.add(false);
-                } else if (isOperator(tokens[i])) {
-                    // eg where gpa < 2.0
-                    // col, operator, value
-
-                    String column = tokens[i - 1]; // idx is at operator so -1 to go back
-
-                    if (!table.getColumns().contains(column)) {
-                        return "ERROR: Column not found: " + column;
-                    }
+        try {
+            parseWhereClause(tokens, 4, table, whereClauseConditions, andOrConditions);
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
 
-                    String operator = tokens[i];
-                    String value = tokens[i + 1];
+        // Evaluate WHERE conditions to get rows to delete
+        Set<Object> rowsToDelete = QueryPlanner.findRows(table, whereClauseConditions, andOrConditions,
+                Versions.LATEST);
 
-                    whereClauseConditions.add(new String[] { column, operator, value });
+        table.deleteRows(rowsToDelete);
 
-                    i++; // increment i by 1 because i+1 stored in token
-                }
-            }
-        }
+        return "Rows deleted from " + tableName + ". " + rowsToDelete.size() + " row(s) affected.";
+    }
 
-        // Evaluate WHERE conditions to get rows to delete
-        Set<String> rowsToDelete = evaluateWhereCondition(whereClauseConditions.get(0), table);
+    public String select(List<Token> tokens) {
+        try (ResultSet rows = query(tokens)) {
+            return ResultWriter.toString(rows);
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+    }
 
-        for (int i = 1; i < whereClauseConditions.size(); i++) {
-            Set<String> newRows = evaluateWhereCondition(whereClauseConditions.get(i), table);
-            if (andOrConditions.get(i - 1)) {
-                rowsToDelete.retainAll(newRows); // AND condition
-            } else {
-                rowsToDelete.addAll(newRows); // OR condition
-            }
+    // Runs a SELECT and returns a cursor over its rows instead of the formatted text;
+    // errors are thrown as IllegalArgumentException with the message executeSQL would return
+    public ResultSet query(String sql) {
+        List<Token> tokens;
+        try {
+            tokens = Lexer.tokenize(sql);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("ERROR: " + e.getMessage());
         }
+        if (tokens.isEmpty() || !tokens.get(0).is("SELECT")) {
+            throw new IllegalArgumentException("ERROR: Only SELECT statements return rows");
+        }
+        return query(tokens);
+    }
 
-        table.deleteRows(rowsToDelete);
+    // Opens a read view of the database; the cursor holds it until it is exhausted or closed
+    private ResultSet query(List<Token> tokens) {
+        Versions.ReadView view = database.getVersions().open();
+        try {
+            return query(tokens, view.getTimestamp()).holding(view);
+        } catch (RuntimeException e) {
+            view.close();
+            throw e;
+        }
+    }
 
-        return "Rows deleted from " + tableName + ". " + rowsToDelete.size() + " row(s) affected.";
+    // Reclaims the row versions replaced before the oldest open read view, which the vacuum
+    // thread would otherwise reclaim shortly
+    public void vacuum() {
+        database.getVersions().vacuum();
     }
 
-    public String select(String[] tokens) {
+    // SELECT * or a list of aggregates and GROUP BY columns:
+    //   SELECT category, COUNT(*), AVG(price) FROM products [WHERE ...] [GROUP BY category] [ORDER BY ...] [LIMIT ...]
+    // FROM may join tables on equal columns, which are then written table.column:
+    //   SELECT * FROM orders JOIN users ON orders.user_id = users.id WHERE users.city = 'Paris'
+    private ResultSet query(List<Token> tokens, long asOf) {
         // Check if the query syntax is valid
-        if (!tokens[1].equals("*") || !tokens[2].toUpperCase().equals("FROM")) {
-            return "ERROR: Invalid SELECT syntax";
+        int fromIndex = 1;
+        while (fromIndex < tokens.size() && !tokens.get(fromIndex).is("FROM")) {
+            fromIndex++;
+        }
+        if (fromIndex == 1 || fromIndex + 1 >= tokens.size()) {
+            throw new IllegalArgumentException("ERROR: Invalid SELECT syntax");
+        }
+        List<Token> selectList = tokens.subList(1, fromIndex);
+        int start = fromIndex + 2; // the first token after the table name
+
+        // Optional LIMIT n [OFFSET m] at the end; the rest is parsed without it
+        long limit = -1;
+        long offset = 0;
+        int limitIndex = tokens.size();
+        for (int i = start; i < tokens.size(); i++) {
+            if (tokens.get(i).is("LIMIT")) {
+                limitIndex = i;
+                break;
+            }
+        }
+        if (limitIndex < tokens.size()) {
+            int end = tokens.size();
+            if (end != limitIndex + 2 && (end != limitIndex + 4 || !tokens.get(limitIndex + 2).is("OFFSET"))) {
+                throw new IllegalArgumentException("ERROR: Invalid LIMIT syntax");
+            }
+            limit = rowCount(tokens.get(limitIndex + 1), "LIMIT");
+            if (end == limitIndex + 4) {
+                offset = rowCount(tokens.get(limitIndex + 3), "OFFSET");
+            }
+            tokens = tokens.subList(0, limitIndex);
         }
 
-        // Get the table name from the query
-        String tableName = tokens[3];
+        // Get the table name from the query and retrieve the table
+        String tableName = tokens.get(fromIndex + 1).getText();
+        Table table = database.getTable(tableName);
 
-        // Retrieve the table
-        Table table = null;
-        try {
-            table = database.getTable(tableName);
-        } catch (IllegalArgumentException e) {
-            return e.getMessage();
+        // JOIN table ON column = column, any number of times
+        Join join = null;
+        while (start < tokens.size() && tokens.get(start).is("JOIN")) {
+            if (start + 5 >= tokens.size() || !tokens.get(start + 2).is("ON") || !tokens.get(start + 4).is("=")) {
+                throw new IllegalArgumentException("ERROR: Invalid JOIN syntax");
+            }
+            if (join == null) {
+                join = new Join(table);
+            }
+            join.add(database.getTable(tokens.get(start + 1).getText()), tokens.get(start + 3), tokens.get(start + 5));
+            start += 6;
+        }
+        if (join != null) {
+            table = join.getSchema();
+        }
+
+        // Optional ORDER BY column [ASC|DESC] before the LIMIT; an aggregate query may also
+        // order by an aggregate of its select list (ORDER BY COUNT(*) DESC)
+        List<Token> orderBy = null;
+        boolean descending = false;
+        for (int i = start; i < tokens.size(); i++) {
+            if (tokens.get(i).is("ORDER")) {
+                int end = tokens.size();
+                if (end > i + 3 && (tokens.get(end - 1).is("DESC") || tokens.get(end - 1).is("ASC"))) {
+                    descending = tokens.get(end - 1).is("DESC");
+                    end--;
+                }
+                if (end < i + 3 || !tokens.get(i + 1).is("BY")) {
+                    throw new IllegalArgumentException("ERROR: Invalid ORDER BY syntax");
+                }
+                orderBy = tokens.subList(i + 2, end);
+                tokens = tokens.subList(0, i);
+                break;
+            }
+        }
+
+        // Optional GROUP BY column [, column]* before the ORDER BY
+        List<Token> groupBy = null;
+        for (int i = start; i < tokens.size(); i++) {
+            if (tokens.get(i).is("GROUP")) {
+                if (i + 2 >= tokens.size() || !tokens.get(i + 1).is("BY")) {
+                    throw new IllegalArgumentException("ERROR: Invalid GROUP BY syntax");
+                }
+                groupBy = new ArrayList<>();
+                for (int j = i + 2; j < tokens.size(); j += 2) {
+                    groupBy.add(tokens.get(j));
+                    if (j + 1 < tokens.size() && (!tokens.get(j + 1).is(",") || j + 2 == tokens.size())) {
+                        throw new IllegalArgumentException("ERROR: Invalid GROUP BY syntax");
+                    }
+                }
+                tokens = tokens.subList(0, i);
+                break;
+            }
+        }
+
+        Aggregation aggregation = null;
+        if (groupBy != null || selectList.size() != 1 || !selectList.get(0).is("*")) {
+            aggregation = Aggregation.parse(table, selectList, groupBy == null ? new ArrayList<>() : groupBy);
+        }
+
+        String orderColumn = null;
+        if (orderBy != null && aggregation != null) {
+            orderColumn = aggregation.resultColumn(orderBy);
+            if (orderColumn == null) {
+                throw new IllegalArgumentException("ERROR: ORDER BY must name a column of the result");
+            }
+        } else if (orderBy != null) {
+            if (orderBy.size() != 1) {
+                throw new IllegalArgumentException("ERROR: Invalid ORDER BY syntax");
+            }
+            orderColumn = orderBy.get(0).getText();
+            if (!table.getColumns().contains(orderColumn)) {
+                throw new IllegalArgumentException("ERROR: Column not found: " + orderColumn);
+            }
         }
 
         // List of columns from the table
@@ -237,71 +459,123 @@ public class Engine {
         List<String[]> whereClauseConditions = new ArrayList<>();
         List<Boolean> andOrConditions = new ArrayList<>();
 
-        // Fetch all rows from the primary key map
-        Map<String, Map<String, String>> allRows = table.getPrimaryKeyMap();
-
-        if (tokens.length == 4) {
+        if (tokens.size() == start && orderColumn == null && aggregation == null && join == null) {
             // No WHERE clause: use all rows
-            return buildResultWithRows(columns, allRows.values());
+            return new ResultSet(columns, page(table.rows(asOf), limit, offset).iterator());
         }
 
         // Parse WHERE clause conditions
-        if (tokens.length > 4 && tokens[4].equalsIgnoreCase("WHERE")) {
-            for (int i = 5; i < tokens.length; i++) {
-                if (tokens[i].equalsIgnoreCase("AND")) {
-                    andOrConditions.add(true);
-                } else if (tokens[i].equalsIgnoreCase("OR")) {
-                    andOrConditions.add(false);
-                } else if (isOperator(tokens[i])) {
-                    String column = tokens[i - 1];
-                    if (!table.getColumns().contains(column)) {
-                        return "ERROR: Column not found: " + column;
-                    }
-                    String operator = tokens[i];
-                    String value = tokens[i + 1];
-                    whereClauseConditions.add(new String[] { column, operator, value });
-                    i += 1;
-                }
+        if (tokens.size() > start) {
+            if (!tokens.get(start).is("WHERE")) {
+                throw new IllegalArgumentException("ERROR: Invalid SELECT syntax");
             }
+            parseWhereClause(tokens, start + 1, table, whereClauseConditions, andOrConditions);
         }
 
-        // Evaluate WHERE conditions
-        Set<String> rows = evaluateWhereCondition(whereClauseConditions.get(0), table);
-        for (int i = 1; i < whereClauseConditions.size(); i++) {
-            Set<String> newRows = evaluateWhereCondition(whereClauseConditions.get(i), table);
-            if (andOrConditions.get(i - 1)) {
-                rows.retainAll(newRows);
-            } else {
-                rows.addAll(newRows);
+        if (join != null) {
+            Stream<Map<String, Object>> joined = join.rows(whereClauseConditions, andOrConditions, asOf);
+            if (aggregation != null) {
+                return order(aggregation.getColumns(), aggregation.aggregate(joined.iterator()).stream(),
+                        orderColumn, descending, limit, offset);
             }
+            return order(columns, joined, orderColumn, descending, limit, offset);
         }
 
-        // Filtered rows based on WHERE conditions
-        List<Map<String, String>> filteredRows = new ArrayList<>();
-        for (String rowId : rows) {
-            filteredRows.add(allRows.get(rowId));
+        if (aggregation != null) {
+            return aggregate(aggregation, table, whereClauseConditions, andOrConditions, orderColumn, descending,
+                    limit, offset, asOf);
         }
 
-        return buildResultWithRows(columns, filteredRows);
+        if (orderColumn != null) {
+            long k = limit == -1 ? -1 : offset + limit;
+            Stream<Map<String, Object>> ordered = QueryPlanner.streamOrdered(table, whereClauseConditions,
+                    andOrConditions, orderColumn, descending, k, asOf);
+            return new ResultSet(columns, page(ordered, limit, offset).iterator());
+        }
+
+        // Evaluate WHERE conditions; the rows themselves are fetched as the cursor advances.
+        // Without LIMIT the answer is in primary key order, with LIMIT in the order the plan finds rows
+        // so that it can stop early.
+        Table scanned = table;
+        Stream<Map<String, Object>> rows = limit == -1
+                ? QueryPlanner.findRows(table, whereClauseConditions, andOrConditions, asOf).stream()
+                        .map(key -> scanned.getRow(key, asOf))
+                : QueryPlanner.streamRows(table, whereClauseConditions, andOrConditions, asOf);
+        return new ResultSet(columns, page(rows, limit, offset).iterator());
     }
 
-    public String create(String[] tokens) {
-        if (!tokens[1].equalsIgnoreCase("TABLE")) {
-            return "ERROR: Invalid CREATE TABLE syntax";
+    // Without a WHERE clause the column TreeMaps may answer the query without reading the rows.
+    // The result has one row per group.
+    private static ResultSet aggregate(Aggregation aggregation, Table table, List<String[]> conditions,
+                                       List<Boolean> andOrConditions, String orderColumn, boolean descending,
+                                       long limit, long offset, long asOf) {
+        List<Map<String, Object>> groups = conditions.isEmpty() ? aggregation.fromIndexes(asOf) : null;
+        if (groups == null) {
+            Iterator<Map<String, Object>> rows = conditions.isEmpty()
+                    ? table.rows(asOf).iterator()
+                    : QueryPlanner.streamRows(table, conditions, andOrConditions, asOf).iterator();
+            groups = aggregation.aggregate(rows);
         }
+        return order(aggregation.getColumns(), groups.stream(), orderColumn, descending, limit, offset);
+    }
 
-        String tableName = tokens[2];
+    // Rows that come in no useful order (groups, joined rows) are ordered with the same bounded heap
+    // as ORDER BY on one table, then paged
+    private static ResultSet order(List<String> columns, Stream<Map<String, Object>> rows, String orderColumn,
+                                   boolean descending, long limit, long offset) {
+        if (orderColumn != null) {
+            Comparator<Map<String, Object>> order = Comparator.comparing(
+                    (Map<String, Object> row) -> row.get(orderColumn), Comparator.nullsFirst(ColumnType.VALUE_ORDER));
+            rows = TopK.select(rows.iterator(), limit == -1 ? -1 : offset + limit,
+                    descending ? order.reversed() : order).stream();
+        }
+        return new ResultSet(columns, page(rows, limit, offset).iterator());
+    }
 
-        String columnList = queryBetweenParentheses(tokens, 3);
-        List<String> columns = Arrays.asList(columnList.split(","));
-        columns.replaceAll(String::trim);
+    private static <T> Stream<T> page(Stream<T> rows, long limit, long offset) {
+        rows = rows.skip(offset);
+        return limit == -1 ? rows : rows.limit(limit);
+    }
+
+    private static long rowCount(Token token, String clause) {
+        if (token.getType() != Token.Type.NUMBER || ColumnType.infer(token.getText()) != ColumnType.INT
+                || token.getText().startsWith("-")) {
+            throw new IllegalArgumentException("ERROR: " + clause + " must be a non-negative integer");
+        }
+        return Integer.parseInt(token.getText());
+    }
+
+    public String create(List<Token> tokens) {
+        if (!tokens.get(1).is("TABLE")) {
+            return "ERROR: Invalid CREATE TABLE syntax";
+        }
+
+        String tableName = tokens.get(2).getText();
+
+        List<String> definitions = listBetweenParentheses(tokens, 3);
+        List<String> columns = new ArrayList<>();
+        ColumnType[] types = new ColumnType[definitions.size()];
+
+        // Each definition is "name" or "name TYPE"; untyped columns are inferred on first insert
+        for (int i = 0; i < definitions.size(); i++) {
+            String definition = definitions.get(i);
+            int space = definition.indexOf(' ');
+            columns.add(space == -1 ? definition : definition.substring(0, space));
+            if (space != -1) {
+                try {
+                    types[i] = ColumnType.fromName(definition.substring(space + 1));
+                } catch (IllegalArgumentException e) {
+                    return "ERROR: " + e.getMessage();
+                }
+            }
+        }
 
         if (columns.isEmpty()) {
             return "ERROR: No columns specified";
         }
 
         try {
-            database.createTable(tableName, columns);
+            database.createTable(tableName, columns, types);
         } catch (Exception e) {
             return (e.getMessage());
         }
@@ -311,90 +585,65 @@ public class Engine {
 
     // HELPER METHODS
 
-    // Helper method to extract content inside parentheses
-    private String queryBetweenParentheses(String[] tokens, int startIndex) {
-        StringBuilder result = new StringBuilder();
-        for (int i = startIndex; i < tokens.length; i++) {
-            result.append(tokens[i]).append(" ");
-        }
-        return result.toString().trim().replaceAll("\\(", "").replaceAll("\\)", "");
-    }
-
-    // Helper method to determine if a string is an operator
-    private boolean isOperator(String token) {
-        return token.equals("=") || token.equals(">") || token.equals("<") || token.equals(">=") || token.equals("<=");
-    }
-
-    private Set<String> evaluateWhereCondition(String[] whereClauseCondition, Table table) {
-        String column = whereClauseCondition[0].trim(); // Column name (e.g., "gpa")
-        String operator = whereClauseCondition[1].trim(); // Operator (e.g., ">", "<", "=", etc.)
-        String valueStr = whereClauseCondition[2].trim(); // Value (e.g., "3.8")
-
-        // We will store the keys to the matching rows in a TreeSet to avoid duplicates
-        // and auto sort keys in ascending order
-        Set<String> matchingRows = new TreeSet<>();
-
-        // Use TreeMap (Red-Black Tree) indexing
-        TreeMap<String, List<String>> columnTreeMap = table.getColumnTreeMap(column);
-        if (columnTreeMap == null) {
-            throw new IllegalArgumentException("Column not found: " + column);
-        }
-
-        // Handle different operators for TreeMap
-        switch (operator) {
-            case "=":
-                List<String> exactMatches = columnTreeMap.get(valueStr);
-                if (exactMatches != null) {
-                    matchingRows.addAll(exactMatches);
+    // Helper method to collect the comma separated items inside parentheses, as written (quotes kept)
+    private List<String> listBetweenParentheses(List<Token> tokens, int startIndex) {
+        List<String> items = new ArrayList<>();
+        StringBuilder item = new StringBuilder();
+        for (int i = startIndex; i < tokens.size(); i++) {
+            Token token = tokens.get(i);
+            if (token.is(",")) {
+                items.add(item.toString());
+                item.setLength(0);
+            } else if (!token.is("(") && !token.is(")")) {
+                if (item.length() > 0) {
+                    item.append(' ');
                 }
-                break;
-            case ">":
-            case ">=":
-            case "<":
-            case "<=":
-                SortedMap<String, List<String>> subMap;
-            
-                if (operator.equals(">")) {
-                    subMap = columnTreeMap.tailMap(valueStr, false);
-                } else if (operator.equals(">=")) {
-                    subMap = columnTreeMap.tailMap(valueStr, true);
-                } else if (operator.equals("<")) {
-                    subMap = columnTreeMap.headMap(valueStr, false);
-                } else {
-                    subMap = columnTreeMap.headMap(valueStr, true);
-                }
-            
-                for (List<String> rows : subMap.values()) {
-                    matchingRows.addAll(rows);
-                }
-                break;
-            default:
-                throw new IllegalArgumentException("Unsupported operator: " + operator);
+                item.append(token.getText());
+            }
         }
-
-        return matchingRows;
+        items.add(item.toString());
+        return items;
     }
 
-    // Helper function to build result string with rows
-    private String buildResultWithRows(List<String> columns, Collection<Map<String, String>> rows) {
-        StringBuilder result = new StringBuilder();
-        result.append(String.join("\t", columns)).append("\n"); // Print column headers
-
-        for (Map<String, String> row : rows) {
-            for (int i = 0; i < columns.size(); i++) {
-                String column = columns.get(i);
-                String value = row.getOrDefault(column, "NULL"); // Use "NULL" if the value is missing
-
-                result.append(value); // Append the value directly
-
-                // Append a tab only if it's not the last column
-                if (i < columns.size() - 1) {
-                    result.append("\t");
-                }
+    // Helper method to parse the conditions of a WHERE clause that starts at index start:
+    // column operator value, joined by AND (stored as true) or OR (stored as false).
+    // Every token up to the end of the query has to be part of a condition; anything else
+    // (BETWEEN, NOT, IN, parentheses, an unsupported operator) is an error, never skipped.
+    private void parseWhereClause(List<Token> tokens, int start, Table table,
+                                  List<String[]> whereClauseConditions, List<Boolean> andOrConditions) {
+        int i = start;
+        while (true) {
+            if (i + 2 >= tokens.size()) {
+                throw new IllegalArgumentException("ERROR: Invalid WHERE clause near "
+                        + (i < tokens.size() ? tokens.get(i).getText() : "end of query"));
+            }
+            Token column = tokens.get(i);
+            Token operator = tokens.get(i + 1);
+            Token value = tokens.get(i + 2);
+            if (column.getType() != Token.Type.IDENTIFIER || !isOperator(operator.getText()) || !value.isLiteral()) {
+                throw new IllegalArgumentException("ERROR: Invalid WHERE clause near " + column.getText());
+            }
+            if (!table.getColumns().contains(column.getText())) {
+                throw new IllegalArgumentException("ERROR: Column not found: " + column.getText());
+            }
+            whereClauseConditions.add(new String[] { column.getText(), operator.getText(), value.getText() });
+            i += 3;
+            if (i == tokens.size()) {
+                return;
+            }
+            if (tokens.get(i).is("AND")) {
+                andOrConditions.add(true);
+            } else if (tokens.get(i).is("OR")) {
+                andOrConditions.add(false);
+            } else {
+                throw new IllegalArgumentException("ERROR: Invalid WHERE clause near " + tokens.get(i).getText());
             }
-            result.append("\n"); // Move to the next line after each row
+            i++;
         }
+    }
 
-        return result.toString();
+    // Helper method to determine if a string is an operator
+    private boolean isOperator(String token) {
+        return token.equals("=") || token.equals(">") || token.equals("<") || token.equals(">=") || token.equals("<=");
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,208 @@
+package edu.smu.smusql;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/*
+ * The tables of "FROM t0 JOIN t1 ON a = b [JOIN t2 ON c = d]*", joined left to right.
+ * Columns of a join are qualified by their table (orders.user_id, users.id) in the ON,
+ * WHERE, ORDER BY and select list alike, and a joined row maps every qualified column
+ * to its value.
+ *
+ * WHERE conditions are pushed down: each table's conditions are planned by the
+ * QueryPlanner on that table alone, so only matching rows reach the join. Each JOIN is
+ * then an equi-join carried out in the cheapest way available:
+ * - the joined table's key is its primary key: every row so far probes its primaryKeyMap
+ * - the first JOIN's other key is the first table's primary key: the joined table's rows
+ *   probe the first table's primaryKeyMap instead
+ * - otherwise a hash join: the smaller input is loaded into a hash table on its key and
+ *   the other input streams past it
+ *
+ * Every table is read as a view reading at asOf sees it (see Versions).
+ */
+final class Join {
+
+    private final List<Table> tables = new ArrayList<>();
+    private final List<String[]> keys = new ArrayList<>(); // per JOIN: {qualified column so far, column of the joined table}
+    private final List<String> columns = new ArrayList<>();
+
+    Join(Table first) {
+        addTable(first);
+    }
+
+    private void addTable(Table table) {
+        for (Table joined : tables) {
+            if (joined.getTableName().equals(table.getTableName())) {
+                throw new IllegalArgumentException("ERROR: Table " + table.getTableName() + " is joined twice");
+            }
+        }
+        tables.add(table);
+        for (String column : table.getColumns()) {
+            columns.add(table.getTableName() + "." + column);
+        }
+    }
+
+    // Adds "JOIN table ON left = right"; one side of the ON must be a column of the new table
+    public void add(Table table, Token left, Token right) {
+        addTable(table);
+        Table leftTable = tableOf(left.getText());
+        Table rightTable = tableOf(right.getText());
+        if (leftTable == table == (rightTable == table)) {
+            throw new IllegalArgumentException("ERROR: JOIN condition must compare a column of "
+                    + table.getTableName() + " with a column of an earlier table");
+        }
+        String earlier = leftTable == table ? right.getText() : left.getText();
+        String joined = leftTable == table ? left.getText() : right.getText();
+        keys.add(new String[] { earlier, unqualified(joined) });
+    }
+
+    private Table tableOf(String column) {
+        if (!columns.contains(column)) {
+            throw new IllegalArgumentException("ERROR: Column not found: " + column);
+        }
+        String tableName = column.substring(0, column.indexOf('.'));
+        for (Table table : tables) {
+            if (table.getTableName().equals(tableName)) {
+                return table;
+            }
+        }
+        throw new IllegalArgumentException("ERROR: Column not found: " + column);
+    }
+
+    private static String unqualified(String column) {
+        return column.substring(column.indexOf('.') + 1);
+    }
+
+    // The joined columns as a table without rows, so WHERE, ORDER BY and aggregates resolve against it
+    public Table getSchema() {
+        return new Table(String.join("_", tableNames()), columns);
+    }
+
+    private List<String> tableNames() {
+        List<String> names = new ArrayList<>();
+        for (Table table : tables) {
+            names.add(table.getTableName());
+        }
+        return names;
+    }
+
+    // The joined rows matching the WHERE conditions, whose columns are qualified
+    public Stream<Map<String, Object>> rows(List<String[]> conditions, List<Boolean> andOrConditions, long asOf) {
+        List<Set<Object>> filters = pushDown(conditions, andOrConditions, asOf);
+
+        Table first = tables.get(0);
+        Stream<Map<String, Object>> rows = input(first, filters.get(0), asOf).map(row -> qualify(first, row, new HashMap<>()));
+        long estimate = size(first, filters.get(0));
+
+        for (int i = 0; i < keys.size(); i++) {
+            Table right = tables.get(i + 1);
+            Set<Object> rightFilter = filters.get(i + 1);
+            String leftColumn = keys.get(i)[0];
+            String rightColumn = keys.get(i)[1];
+
+            if (rightColumn.equals(right.getPrimaryKey())) {
+                // probe the joined table's primary key; each row so far matches at most one row
+                rows = rows.flatMap(left -> {
+                    Map<String, Object> match = probePrimaryKey(right, rightFilter, left.get(leftColumn), asOf);
+                    return match == null ? Stream.empty() : Stream.of(qualify(right, match, new HashMap<>(left)));
+                });
+            } else if (i == 0 && leftColumn.equals(first.getTableName() + "." + first.getPrimaryKey())) {
+                // the first table's primary key: stream the joined table and probe the first table
+                Set<Object> firstFilter = filters.get(0);
+                rows = input(right, rightFilter, asOf).flatMap(row -> {
+                    Map<String, Object> match = probePrimaryKey(first, firstFilter, row.get(rightColumn), asOf);
+                    return match == null ? Stream.empty()
+                            : Stream.of(qualify(right, row, qualify(first, match, new HashMap<>())));
+                });
+                estimate = size(right, rightFilter);
+            } else if (size(right, rightFilter) <= estimate) {
+                Map<Object, List<Map<String, Object>>> built = build(input(right, rightFilter, asOf), rightColumn);
+                rows = rows.flatMap(left -> probe(built, left.get(leftColumn)).stream()
+                        .map(row -> qualify(right, row, new HashMap<>(left))));
+            } else {
+                Map<Object, List<Map<String, Object>>> built = build(rows, leftColumn);
+                rows = input(right, rightFilter, asOf).flatMap(row -> probe(built, row.get(rightColumn)).stream()
+                        .map(left -> qualify(right, row, new HashMap<>(left))));
+                estimate = size(right, rightFilter);
+            }
+        }
+        return rows;
+    }
+
+    // Per table, the primary keys of its rows matching its own conditions, or null if it has none.
+    // OR is only allowed between conditions on the same table, where the planner can evaluate it.
+    private List<Set<Object>> pushDown(List<String[]> conditions, List<Boolean> andOrConditions, long asOf) {
+        List<List<String[]>> perTable = new ArrayList<>();
+        for (int i = 0; i < tables.size(); i++) {
+            perTable.add(new ArrayList<>());
+        }
+        for (String[] condition : conditions) {
+            Table table = tableOf(condition[0]);
+            perTable.get(tables.indexOf(table))
+                    .add(new String[] { unqualified(condition[0]), condition[1], condition[2] });
+        }
+
+        List<Set<Object>> filters = new ArrayList<>();
+        for (int i = 0; i < tables.size(); i++) {
+            List<String[]> tableConditions = perTable.get(i);
+            if (tableConditions.isEmpty()) {
+                filters.add(null);
+                continue;
+            }
+            List<Boolean> tableAndOr = andOrConditions;
+            if (tableConditions.size() != conditions.size()) {
+                if (andOrConditions.contains(false)) {
+                    throw new IllegalArgumentException("ERROR: OR in a JOIN can only combine conditions on one table");
+                }
+                tableAndOr = Collections.nCopies(tableConditions.size() - 1, true);
+            }
+            filters.add(QueryPlanner.findRows(tables.get(i), tableConditions, tableAndOr, asOf));
+        }
+        return filters;
+    }
+
+    private static Stream<Map<String, Object>> input(Table table, Set<Object> filter, long asOf) {
+        return filter == null ? table.rows(asOf) : filter.stream().map(key -> table.getRow(key, asOf));
+    }
+
+    private static long size(Table table, Set<Object> filter) {
+        return filter == null ? table.read(() -> table.getPrimaryKeyMap().size()) : filter.size();
+    }
+
+    // The primaryKeyMap compares keys by value, so an INT 7 finds the row with DOUBLE key 7.0
+    private static Map<String, Object> probePrimaryKey(Table table, Set<Object> filter, Object key, long asOf) {
+        Map<String, Object> row = table.getRow(key, asOf);
+        if (row == null || filter != null && !filter.contains(row.get(table.getPrimaryKey()))) {
+            return null;
+        }
+        return row;
+    }
+
+    private static Map<Object, List<Map<String, Object>>> build(Stream<Map<String, Object>> rows, String column) {
+        Map<Object, List<Map<String, Object>>> built = new HashMap<>();
+        rows.forEach(row -> built.computeIfAbsent(key(row.get(column)), k -> new ArrayList<>(1)).add(row));
+        return built;
+    }
+
+    private static List<Map<String, Object>> probe(Map<Object, List<Map<String, Object>>> built, Object value) {
+        return built.getOrDefault(key(value), Collections.emptyList());
+    }
+
+    // numbers are matched by value across tables, as compareValues does
+    private static Object key(Object value) {
+        return value instanceof Number ? (Object) ((Number) value).doubleValue() : value;
+    }
+
+    // Adds the row's values to the joined row under table.column names
+    private static Map<String, Object> qualify(Table table, Map<String, Object> row, Map<String, Object> joined) {
+        for (Map.Entry<String, Object> entry : row.entrySet()) {
+            joined.put(table.getTableName() + "." + entry.getKey(), entry.getValue());
+        }
+        return joined;
+    }
+}
@@ -19,10 +19,9 @@ public class Parser {
     //     List<String> values = Arrays.asList(valueList.split(",")); // These are the values in the row to be inserted.
     // }
 
-    public List<Object> parseInsert(String[] tokens) {
-        String tableName = tokens[2]; // The name of the table to be inserted into.
-        String valueList = queryBetweenParentheses(tokens, 4); // Create values list between parentheses
-        List<String> values = Arrays.asList(valueList.split(",")); // The values between parentheses.
+    public List<Object> parseInsert(List<Token> tokens) {
+        String tableName = tokens.get(2).getText(); // The name of the table to be inserted into.
+        List<String> values = listBetweenParentheses(tokens, 4); // The values between parentheses.
         List<Object> data = new ArrayList<>();
         data.add(tableName);
         data.add(values);
@@ -31,23 +30,23 @@ public class Parser {
         
     }
 
-    public void parseDelete(String[] tokens) {
+    public void parseDelete(List<Token> tokens) {
         // Eg delete from student where sid = 657889
-        String tableName = tokens[2]; // The name of the table to be deleted from.
+        String tableName = tokens.get(2).getText(); // The name of the table to be deleted from.
 
         List<String[]> whereClauseConditions = new ArrayList<>(); // Array for storing conditions from the where clause.
 
         // Parse WHERE clause conditions
-        if (tokens.length > 3 && tokens[3].toUpperCase().equals("WHERE")) {
-            for (int i = 4; i < tokens.length; i++) {
-                if (tokens[i].toUpperCase().equals("AND") || tokens[i].toUpperCase().equals("OR")) {
+        if (tokens.size() > 3 && tokens.get(3).is("WHERE")) {
+            for (int i = 4; i < tokens.size(); i++) {
+                if (tokens.get(i).is("AND") || tokens.get(i).is("OR")) {
                     // Add AND/OR conditions
-                    whereClauseConditions.add(new String[] {tokens[i].toUpperCase(), null, null, null});
-                } else if (isOperator(tokens[i])) {
+                    whereClauseConditions.add(new String[] {tokens.get(i).getText().toUpperCase(), null, null, null});
+                } else if (isOperator(tokens.get(i).getText())) {
                     // Add condition with operator (column, operator, value)
-                    String column = tokens[i - 1];
-                    String operator = tokens[i];
-                    String value = tokens[i + 1];
+                    String column = tokens.get(i - 1).getText();
+                    String operator = tokens.get(i).getText();
+                    String value = tokens.get(i + 1).getText();
                     whereClauseConditions.add(new String[] {null, column, operator, value});
                     i += 1; // Skip the value since it has been processed
                 }
@@ -55,26 +54,26 @@ public class Parser {
         }
     }
 
-    public void parseUpdate(String[] tokens){
-        String tableName = tokens[1]; // name of the table to be updated
+    public void parseUpdate(List<Token> tokens){
+        String tableName = tokens.get(1).getText(); // name of the table to be updated
 
-        String setColumn = tokens[3]; // column to be updated
-        String newValue = tokens[5]; // new value for above column
+        String setColumn = tokens.get(3).getText(); // column to be updated
+        String newValue = tokens.get(5).getText(); // new value for above column
 
         // Initialize whereClauseConditions list
         List<String[]> whereClauseConditions = new ArrayList<>();
 
         // Parse WHERE clause conditions
-        if (tokens.length > 6 && tokens[6].equalsIgnoreCase("WHERE")) {
-            for (int i = 5; i < tokens.length; i++) {
-                if (tokens[i].equalsIgnoreCase("AND") || tokens[i].equalsIgnoreCase("OR")) {
+        if (tokens.size() > 6 && tokens.get(6).is("WHERE")) {
+            for (int i = 5; i < tokens.size(); i++) {
+                if (tokens.get(i).is("AND") || tokens.get(i).is("OR")) {
                     // Add AND/OR conditions
-                    whereClauseConditions.add(new String[] {tokens[i].toUpperCase(), null, null, null});
-                } else if (isOperator(tokens[i])) {
+                    whereClauseConditions.add(new String[] {tokens.get(i).getText().toUpperCase(), null, null, null});
+                } else if (isOperator(tokens.get(i).getText())) {
                     // Add condition with operator (column, operator, value)
-                    String column = tokens[i - 1];
-                    String operator = tokens[i];
-                    String value = tokens[i + 1];
+                    String column = tokens.get(i - 1).getText();
+                    String operator = tokens.get(i).getText();
+                    String value = tokens.get(i + 1).getText();
                     whereClauseConditions.add(new String[] {null, column, operator, value});
                     i += 1; // Skip the value since it has been processed
                 }
@@ -82,13 +81,24 @@ public class Parser {
         }
     }
 
-    // Helper method to extract content inside parentheses
-    private String queryBetweenParentheses(String[] tokens, int startIndex) {
-        StringBuilder result = new StringBuilder();
-        for (int i = startIndex; i < tokens.length; i++) {
-            result.append(tokens[i]).append(" ");
+    // Helper method to collect the comma separated items inside parentheses, as written (quotes kept)
+    private List<String> listBetweenParentheses(List<Token> tokens, int startIndex) {
+        List<String> items = new ArrayList<>();
+        StringBuilder item = new StringBuilder();
+        for (int i = startIndex; i < tokens.size(); i++) {
+            Token token = tokens.get(i);
+            if (token.is(",")) {
+                items.add(item.toString());
+                item.setLength(0);
+            } else if (!token.is("(") && !token.is(")")) {
+                if (item.length() > 0) {
+                    item.append(' ');
+                }
+                item.append(token.getText());
+            }
         }
-        return result.toString().trim().replaceAll("\\(", "").replaceAll("\\)", "");
+        items.add(item.toString());
+        return items;
     }
 
     // Helper method to determine if a string is an operator
@@ -0,0 +1,318 @@
+package edu.smu.smusql;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+/*
+ * Decides how the rows matching a WHERE clause are found.
+ *
+ * When every condition is joined by AND, the conditions on each column are merged
+ * into one range (age > 20 AND age < 50 becomes the single subMap (20, 50)) and the
+ * number of rows each range selects is estimated from the column's TreeMap. The most
+ * selective range then drives the query through its TreeMap and the other ranges are
+ * checked on each candidate row; when even that range selects a large part of the
+ * table, walking the primary key map once and checking every row is cheaper.
+ *
+ * AND binds tighter than OR, so a clause containing OR is a union of AND groups:
+ * each group is planned as above on its own and the primary keys it finds are merged.
+ *
+ * findRows returns the matching primary keys in primary key order. streamRows
+ * produces the rows lazily in the order the plan finds them, so a LIMIT stops the scan
+ * or index range walk as soon as the page is full.
+ *
+ * Every method reads the rows as a view reading at asOf sees them (see Versions); a
+ * statement changing the table passes Versions.LATEST.
+ */
+public class QueryPlanner {
+
+    // Drive from an index only while it is expected to select less than this share of the rows
+    private static final double INDEX_SELECTIVITY = 0.25;
+    // Share of rows assumed to pass a range whose bounds cannot be interpolated (non-numeric values)
+    private static final double ONE_SIDED_RANGE = 0.5;
+    private static final double TWO_SIDED_RANGE = 0.25;
+
+    private QueryPlanner() {
+    }
+
+    // Conditions are {column, operator, value} as written; andOrConditions holds true for AND between them
+    public static Set<Object> findRows(Table table, List<String[]> conditions, List<Boolean> andOrConditions,
+                                       long asOf) {
+        if (andOrConditions.contains(false)) {
+            return foldConditions(table, conditions, andOrConditions, asOf);
+        }
+        Plan plan = plan(table, conditions);
+        Set<Object> matchingRows = plan.driver == null ? new LinkedHashSet<>() : new TreeSet<>(ColumnType.VALUE_ORDER);
+        String primaryKey = table.getPrimaryKey();
+        plan.rows(asOf).forEach(row -> matchingRows.add(row.get(primaryKey)));
+        return matchingRows;
+    }
+
+    // The rows findRows finds, produced lazily so a LIMIT can stop the scan once it has enough.
+    // Rows come in the order of the index driving the plan, primary key order when there is none.
+    public static Stream<Map<String, Object>> streamRows(Table table, List<String[]> conditions,
+                                                         List<Boolean> andOrConditions, long asOf) {
+        if (andOrConditions.contains(false)) {
+            return foldConditions(table, conditions, andOrConditions, asOf).stream()
+                    .map(key -> table.getRow(key, asOf));
+        }
+        return plan(table, conditions).rows(asOf);
+    }
+
+    // The matching rows ordered by orderColumn; k is the number of rows needed (OFFSET + LIMIT), -1 for all.
+    // When the planner would scan anyway, the rows are read in order straight from the column's TreeMap,
+    // so the stream can stop after k rows. When a selective condition on another column drives the plan,
+    // or the clause has OR, the few matching rows are ordered in a bounded top-k heap instead.
+    public static Stream<Map<String, Object>> streamOrdered(Table table, List<String[]> conditions,
+                                                            List<Boolean> andOrConditions, String orderColumn,
+                                                            boolean descending, long k, long asOf) {
+        Comparator<Map<String, Object>> order =
+                Comparator.comparing(row -> row.get(orderColumn), ColumnType.VALUE_ORDER);
+        if (descending) {
+            order = order.reversed();
+        }
+        if (andOrConditions.contains(false)) {
+            Set<Object> keys = foldConditions(table, conditions, andOrConditions, asOf);
+            return TopK.select(keys.stream().map(key -> table.getRow(key, asOf)).iterator(), k, order).stream();
+        }
+
+        Plan plan = plan(table, conditions);
+        if (plan.empty) {
+            return Stream.empty();
+        }
+        if (plan.driver != null && !plan.driver.equals(orderColumn)) {
+            return TopK.select(plan.rows(asOf).iterator(), k, order).stream();
+        }
+
+        Range range = plan.ranges.getOrDefault(orderColumn, new Range());
+        NavigableMap<Object, List<Object>> view = range.subMap(table.getColumnTreeMap(orderColumn));
+        if (descending) {
+            view = view.descendingMap();
+        }
+        return table.rows(orderColumn, view, asOf).filter(row -> matchesAll(row, plan.ranges, orderColumn));
+    }
+
+    // Estimated from the TreeMaps as they are now, under the read lock
+    private static Plan plan(Table table, List<String[]> conditions) {
+        return table.read(() -> planLocked(table, conditions));
+    }
+
+    private static Plan planLocked(Table table, List<String[]> conditions) {
+        // one merged range per column, in the order the columns appear in the clause
+        Map<String, Range> ranges = new LinkedHashMap<>();
+        for (String[] condition : conditions) {
+            String column = condition[0].trim();
+            Object value = table.parseLiteral(column, condition[2].trim());
+            ranges.computeIfAbsent(column, c -> new Range()).restrict(condition[1].trim(), value);
+        }
+
+        for (Range range : ranges.values()) {
+            if (range.isEmpty()) {
+                return new Plan(table, ranges, null, true);
+            }
+        }
+
+        // the primary key map answers "id = value" directly
+        Range primaryKeyRange = ranges.get(table.getPrimaryKey());
+        if (primaryKeyRange != null && primaryKeyRange.isPoint()) {
+            return new Plan(table, ranges, table.getPrimaryKey(), false);
+        }
+
+        int rowCount = table.getPrimaryKeyMap().size();
+        String driver = null;
+        double best = Double.MAX_VALUE;
+        for (Map.Entry<String, Range> entry : ranges.entrySet()) {
+            double estimate = estimateRows(table.getColumnTreeMap(entry.getKey()), entry.getValue(), rowCount);
+            if (estimate < best) {
+                best = estimate;
+                driver = entry.getKey();
+            }
+        }
+
+        // most of the table qualifies: one pass over the rows is cheaper than going through an index
+        return new Plan(table, ranges, best >= rowCount * INDEX_SELECTIVITY ? null : driver, false);
+    }
+
+    // How the rows of an AND-only clause are found: through the TreeMap of the driver column,
+    // or by scanning the primary key map when driver is null
+    private static final class Plan {
+        private final Table table;
+        private final Map<String, Range> ranges;
+        private final String driver;
+        private final boolean empty;
+
+        Plan(Table table, Map<String, Range> ranges, String driver, boolean empty) {
+            this.table = table;
+            this.ranges = ranges;
+            this.driver = driver;
+            this.empty = empty;
+        }
+
+        Stream<Map<String, Object>> rows(long asOf) {
+            if (empty) {
+                return Stream.empty();
+            }
+            if (driver == null) {
+                return table.rows(asOf).filter(row -> matchesAll(row, ranges, null));
+            }
+            if (driver.equals(table.getPrimaryKey()) && ranges.get(driver).isPoint()) {
+                Map<String, Object> row = table.getRow(ranges.get(driver).low, asOf);
+                return row != null && matchesAll(row, ranges, null) ? Stream.of(row) : Stream.empty();
+            }
+            return table.rows(driver, ranges.get(driver).subMap(table.getColumnTreeMap(driver)), asOf)
+                    .filter(row -> matchesAll(row, ranges, driver));
+        }
+    }
+
+    // Rows the range is expected to select, from the column's TreeMap: exact for "=",
+    // interpolated between the smallest and largest key for numeric ranges
+    static double estimateRows(TreeMap<Object, List<Object>> columnTreeMap, Range range, int rowCount) {
+        if (columnTreeMap.isEmpty()) {
+            return 0;
+        }
+        if (range.isPoint()) {
+            List<Object> primaryKeys = columnTreeMap.get(range.low);
+            return primaryKeys == null ? 0 : primaryKeys.size();
+        }
+        Object first = columnTreeMap.firstKey();
+        Object last = columnTreeMap.lastKey();
+        boolean numericBounds = (range.low == null || range.low instanceof Number)
+                && (range.high == null || range.high instanceof Number);
+        if (first instanceof Number && last instanceof Number && numericBounds) {
+            double min = ((Number) first).doubleValue();
+            double max = ((Number) last).doubleValue();
+            double low = range.low == null ? min : Math.max(min, ((Number) range.low).doubleValue());
+            double high = range.high == null ? max : Math.min(max, ((Number) range.high).doubleValue());
+            if (high < low) {
+                return 0;
+            }
+            return max == min ? rowCount : rowCount * (high - low) / (max - min);
+        }
+        return rowCount * (range.low != null && range.high != null ? TWO_SIDED_RANGE : ONE_SIDED_RANGE);
+    }
+
+    private static boolean matchesAll(Map<String, Object> row, Map<String, Range> ranges, String skippedColumn) {
+        for (Map.Entry<String, Range> entry : ranges.entrySet()) {
+            if (!entry.getKey().equals(skippedColumn) && !entry.getValue().contains(row.get(entry.getKey()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // The primary keys matched by a clause with OR: every run of conditions joined by AND is planned
+    // on its own and the runs are unioned, in primary key order
+    private static Set<Object> foldConditions(Table table, List<String[]> conditions, List<Boolean> andOrConditions,
+                                              long asOf) {
+        Set<Object> matchingRows = new TreeSet<>(ColumnType.VALUE_ORDER);
+        String primaryKey = table.getPrimaryKey();
+        int first = 0;
+        for (int i = 0; i < conditions.size(); i++) {
+            if (i == conditions.size() - 1 || !andOrConditions.get(i)) {
+                plan(table, conditions.subList(first, i + 1)).rows(asOf)
+                        .forEach(row -> matchingRows.add(row.get(primaryKey)));
+                first = i + 1;
+            }
+        }
+        return matchingRows;
+    }
+
+    // The values allowed by all conditions on one column; a null bound is open
+    static final class Range {
+        private Object low;
+        private boolean lowInclusive;
+        private Object high;
+        private boolean highInclusive;
+
+        // Narrows the range by "column operator value"
+        void restrict(String operator, Object value) {
+            switch (operator) {
+                case "=":
+                    raiseLow(value, true);
+                    lowerHigh(value, true);
+                    break;
+                case ">":
+                    raiseLow(value, false);
+                    break;
+                case ">=":
+                    raiseLow(value, true);
+                    break;
+                case "<":
+                    lowerHigh(value, false);
+                    break;
+                case "<=":
+                    lowerHigh(value, true);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported operator: " + operator);
+            }
+        }
+
+        private void raiseLow(Object value, boolean inclusive) {
+            int comparison = low == null ? 1 : ColumnType.compareValues(value, low);
+            if (comparison > 0 || comparison == 0 && !inclusive) {
+                low = value;
+                lowInclusive = inclusive;
+            }
+        }
+
+        private void lowerHigh(Object value, boolean inclusive) {
+            int comparison = high == null ? -1 : ColumnType.compareValues(value, high);
+            if (comparison < 0 || comparison == 0 && !inclusive) {
+                high = value;
+                highInclusive = inclusive;
+            }
+        }
+
+        boolean isPoint() {
+            return low != null && high != null && lowInclusive && highInclusive
+                    && ColumnType.compareValues(low, high) == 0;
+        }
+
+        boolean isEmpty() {
+            if (low == null || high == null) {
+                return false;
+            }
+            int comparison = ColumnType.compareValues(low, high);
+            return comparison > 0 || comparison == 0 && !(lowInclusive && highInclusive);
+        }
+
+        boolean contains(Object value) {
+            if (low != null) {
+                int comparison = ColumnType.compareValues(value, low);
+                if (comparison < 0 || comparison == 0 && !lowInclusive) {
+                    return false;
+                }
+            }
+            if (high != null) {
+                int comparison = ColumnType.compareValues(value, high);
+                if (comparison > 0 || comparison == 0 && !highInclusive) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // The part of a column TreeMap inside the range, as a view
+        NavigableMap<Object, List<Object>> subMap(TreeMap<Object, List<Object>> columnTreeMap) {
+            if (isEmpty()) {
+                return new TreeMap<>();
+            }
+            NavigableMap<Object, List<Object>> view = columnTreeMap;
+            if (low != null) {
+                view = view.tailMap(low, lowInclusive);
+            }
+            if (high != null) {
+                view = view.headMap(high, highInclusive);
+            }
+            return view;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package edu.smu.smusql;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Forward-only cursor over the rows of a SELECT, returned by Engine.query.
+ * Rows are looked up in the primary key map as the cursor advances instead of being
+ * formatted into one String, so memory does not grow with the size of the answer.
+ *
+ *   ResultSet rows = engine.query("SELECT * FROM student WHERE gpa > 3.5");
+ *   while (rows.next()) {
+ *       Object name = rows.getValue("name");
+ *   }
+ *
+ * The cursor returns the rows as they were when it was opened, whatever is written while
+ * it is read, and writers never wait for it. Until it is exhausted or closed it keeps the
+ * versions it could still see from being reclaimed: close a cursor that is not read to the end.
+ */
+public class ResultSet implements AutoCloseable {
+
+    private final List<String> columns;
+    private final Iterator<Map<String, Object>> rows;
+    private Map<String, Object> current;
+    private Versions.ReadView view; // null if the cursor holds none
+    private boolean closed;
+
+    public ResultSet(List<String> columns, Iterator<Map<String, Object>> rows) {
+        this.columns = columns;
+        this.rows = rows;
+    }
+
+    ResultSet holding(Versions.ReadView view) {
+        this.view = view;
+        return this;
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    // Moves to the next row; false once every row has been read
+    public boolean next() {
+        current = !closed && rows.hasNext() ? rows.next() : null;
+        if (current == null) {
+            close();
+        }
+        return current != null;
+    }
+
+    // Closes the read view; the cursor has no more rows afterwards
+    @Override
+    public void close() {
+        closed = true;
+        if (view != null) {
+            view.close();
+            view = null;
+        }
+    }
+
+    // "NULL" if the row has no value for the column
+    public Object getValue(int columnIndex) {
+        return currentRow().getOrDefault(columns.get(columnIndex), "NULL");
+    }
+
+    public Object getValue(String column) {
+        if (!columns.contains(column)) {
+            throw new IllegalArgumentException("ERROR: Column not found: " + column);
+        }
+        return currentRow().getOrDefault(column, "NULL");
+    }
+
+    private Map<String, Object> currentRow() {
+        if (current == null) {
+            throw new IllegalStateException("No current row, call next() first");
+        }
+        return current;
+    }
+}
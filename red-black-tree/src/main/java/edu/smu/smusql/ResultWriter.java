@@ -0,0 +1,63 @@
+package edu.smu.smusql;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/*
+ * Writes a ResultSet in the text format executeSQL returns for SELECT: the column
+ * names, then one line per row, with the values of a line separated by tabs.
+ * Rows go through a fixed-size buffer as the cursor produces them, so streaming a
+ * large result to a file or socket never holds the whole text in memory.
+ */
+public final class ResultWriter {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private ResultWriter() {
+    }
+
+    // Streams the rows as UTF-8; the stream is flushed but left open
+    public static int write(ResultSet rows, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        int count = write(rows, writer);
+        writer.flush();
+        return count;
+    }
+
+    // Writes the header and every remaining row, returning the number of rows written
+    public static int write(ResultSet rows, Writer writer) throws IOException {
+        List<String> columns = rows.getColumns();
+        writer.write(String.join("\t", columns));
+        writer.write('\n');
+        int count = 0;
+        while (rows.next()) {
+            for (int i = 0; i < columns.size(); i++) {
+                if (i > 0) {
+                    writer.write('\t');
+                }
+                writer.write(String.valueOf(rows.getValue(i)));
+            }
+            writer.write('\n');
+            count++;
+        }
+        return count;
+    }
+
+    // The whole result as one String, as executeSQL returns it
+    public static String toString(ResultSet rows) {
+        StringWriter writer = new StringWriter();
+        try {
+            write(rows, writer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // StringWriter does not throw
+        }
+        return writer.toString();
+    }
+}
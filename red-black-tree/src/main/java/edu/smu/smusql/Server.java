@@ -0,0 +1,161 @@
+package edu.smu.smusql;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Serves one Engine to clients on a loopback TCP port, so they need not embed it.
+ *
+ * Every message is a frame, [int length][length bytes of UTF-8 text], in both directions:
+ * the client sends one statement per frame and the server answers each with the text
+ * executeSQL returns, errors included. Statements of one connection run in order, those of
+ * different connections in parallel, as the Engine allows. The connection ends when the
+ * client closes it; a frame longer than MAX_FRAME closes it too.
+ *
+ * Each connection is served by its own thread, blocking on the socket. On Java 21 and later
+ * these are virtual threads, so thousands of idle connections cost a few KB each; the
+ * project targets Java 17, where virtual threads do not exist, so the executor is looked up
+ * reflectively and platform threads are used instead when it is missing.
+ *
+ *   java -cp target/classes edu.smu.smusql.Server [port]
+ */
+public class Server implements AutoCloseable {
+
+    public static final int DEFAULT_PORT = 7201;
+    // frames longer than this are refused, so a bad length cannot make the server allocate gigabytes
+    static final int MAX_FRAME = 16 * 1024 * 1024;
+    // pending connections the OS queues before accept, for bursts of clients connecting at once
+    private static final int BACKLOG = 4096;
+
+    private final Engine engine;
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections = connectionExecutor();
+    private final Set<Socket> open = ConcurrentHashMap.newKeySet();
+    private final Thread acceptor;
+    private volatile boolean closed;
+
+    // Starts listening on the loopback port; port 0 picks a free one, see getPort
+    public Server(Engine engine, int port) throws IOException {
+        this.engine = engine;
+        this.serverSocket = new ServerSocket(port, BACKLOG, InetAddress.getLoopbackAddress());
+        this.acceptor = new Thread(this::acceptConnections, "smusql-accept");
+        acceptor.start();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        Server server = new Server(new Engine(), port);
+        System.out.println("smuSQL server listening on " + server.getPort());
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    // Stops accepting and closes every open connection; statements already running finish
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        serverSocket.close();
+        for (Socket socket : open) {
+            socket.close();
+        }
+        connections.shutdown();
+    }
+
+    private void acceptConnections() {
+        while (!closed) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (closed) {
+                    return;
+                }
+                continue; // a failed handshake only loses that client
+            }
+            open.add(socket);
+            if (closed) {
+                closeQuietly(socket); // close may have run before the socket was added
+                return;
+            }
+            connections.execute(() -> serve(socket));
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket) {
+            socket.setTcpNoDelay(true); // replies are single small frames, do not wait to coalesce them
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            while (true) {
+                String statement;
+                try {
+                    statement = readFrame(in);
+                } catch (EOFException e) {
+                    return; // the client closed the connection
+                }
+                writeFrame(out, engine.executeSQL(statement));
+                out.flush();
+            }
+        } catch (SocketException e) {
+            // closed by close() or reset by the client
+        } catch (IOException e) {
+            // a broken or oversized frame ends only this connection
+        } finally {
+            open.remove(socket);
+        }
+    }
+
+    static String readFrame(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_FRAME) {
+            throw new IOException("Frame of " + length + " bytes refused");
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeFrame(DataOutputStream out, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    // A virtual thread per connection where the runtime has them, otherwise a platform thread
+    private static ExecutorService connectionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger count = new AtomicInteger();
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(null, task, "smusql-connection-" + count.incrementAndGet(), 256 * 1024);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // closing anyway
+        }
+    }
+}
@@ -0,0 +1,355 @@
+package edu.smu.smusql;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/*
+ * Binary image of a whole Database, written at a checkpoint so a restart loads it instead
+ * of replaying every statement since the write-ahead log was created.
+ *
+ *   [int MAGIC][int VERSION][long log generation][int table count], then per table:
+ *   [name][int column count][per column: name, byte type or -1 if not yet known]
+ *   [int row count][rows in primary key order, one value per column]
+ *   per column: [int distinct values][per value in TreeMap order: value, int count, count row numbers]
+ *
+ * A column TreeMap lists its rows by their position in the primary key order, so each
+ * primary key is stored once and restored rows share a single key instance, as inserted
+ * rows do. Strings are [int length][UTF-8 bytes] and values carry a one-byte type tag.
+ *
+ * Restoring maps the file into memory and rebuilds every TreeMap from its entries, which
+ * the file holds in sorted order, via the TreeMap(SortedMap) constructor: it links the
+ * nodes into a balanced tree in one linear pass instead of n rebalancing puts.
+ *
+ * Only the newest version of each live row is written; deleted rows and the values of older
+ * versions still listed for open views (see Versions) are left out.
+ */
+final class Snapshot {
+
+    private static final int MAGIC = 0x534D5153; // "SMQS"
+    private static final int VERSION = 1;
+
+    private static final byte INT_VALUE = 0;
+    private static final byte DOUBLE_VALUE = 1;
+    private static final byte STRING_VALUE = 2;
+
+    private Snapshot() {
+    }
+
+    /* ================= Writing ================= */
+
+    // Writes the snapshot next to the target and renames it into place, so a crash leaves
+    // either the previous snapshot or the new one, never half of one
+    static void write(Database database, long logGeneration, Path path) throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            // the stream is not closed, the try closes the channel after the force
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(logGeneration);
+            out.writeInt(database.getTables().size());
+            for (Table table : database.getTables()) {
+                writeTable(out, table);
+            }
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeTable(DataOutputStream out, Table table) throws IOException {
+        List<String> columns = table.getColumns();
+        ColumnType[] types = table.getColumnTypes();
+        writeString(out, table.getTableName());
+        out.writeInt(columns.size());
+        for (int i = 0; i < columns.size(); i++) {
+            writeString(out, columns.get(i));
+            out.writeByte(types[i] == null ? -1 : types[i].ordinal());
+        }
+
+        Map<Object, Map<String, Object>> rows = table.getPrimaryKeyMap();
+        Map<Object, Integer> rowNumbers = new HashMap<>(rows.size() * 4 / 3 + 1);
+        for (Map.Entry<Object, Map<String, Object>> entry : rows.entrySet()) {
+            if (!((RowVersion) entry.getValue()).isDeleted()) {
+                rowNumbers.put(entry.getKey(), rowNumbers.size());
+            }
+        }
+        out.writeInt(rowNumbers.size());
+        for (Map.Entry<Object, Map<String, Object>> entry : rows.entrySet()) {
+            if (rowNumbers.containsKey(entry.getKey())) {
+                for (String column : columns) {
+                    writeValue(out, entry.getValue().get(column));
+                }
+            }
+        }
+
+        for (String column : columns) {
+            // the row numbers listed under each value, without rows whose newest version holds another
+            List<Object> values = new ArrayList<>();
+            List<List<Integer>> listed = new ArrayList<>();
+            for (Map.Entry<Object, List<Object>> entry : table.getColumnTreeMap(column).entrySet()) {
+                List<Integer> numbers = new ArrayList<>(entry.getValue().size());
+                for (Object primaryKey : entry.getValue()) {
+                    Map<String, Object> row = table.getRowByPrimaryKey(primaryKey);
+                    if (row == null || ColumnType.compareValues(row.get(column), entry.getKey()) != 0) {
+                        continue;
+                    }
+                    Integer rowNumber = rowNumbers.get(primaryKey);
+                    if (rowNumber == null) {
+                        // listed under an equal value of another type (7.0 for 7); use the row's own key
+                        rowNumber = rowNumbers.get(row.get(table.getPrimaryKey()));
+                    }
+                    numbers.add(rowNumber);
+                }
+                if (!numbers.isEmpty()) {
+                    values.add(entry.getKey());
+                    listed.add(numbers);
+                }
+            }
+            out.writeInt(values.size());
+            for (int i = 0; i < values.size(); i++) {
+                writeValue(out, values.get(i));
+                out.writeInt(listed.get(i).size());
+                for (int rowNumber : listed.get(i)) {
+                    out.writeInt(rowNumber);
+                }
+            }
+        }
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value instanceof Integer) {
+            out.writeByte(INT_VALUE);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE_VALUE);
+            out.writeDouble((Double) value);
+        } else {
+            out.writeByte(STRING_VALUE);
+            writeString(out, (String) value);
+        }
+    }
+
+    // not writeUTF, which is limited to 64KB and uses a modified encoding
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /* ================= Restoring ================= */
+
+    // Loads the snapshot's tables into an empty database and returns the log generation it covers
+    static long read(Path path, Database database) throws IOException {
+        ByteBuffer in;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot too large to map: " + path);
+            }
+            in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()); // stays valid after close
+        }
+        if (in.getInt() != MAGIC || in.getInt() != VERSION) {
+            throw new IOException("Not a snapshot: " + path);
+        }
+        long logGeneration = in.getLong();
+        int tableCount = in.getInt();
+        for (int i = 0; i < tableCount; i++) {
+            database.addTable(readTable(in, database.getVersions()));
+        }
+        return logGeneration;
+    }
+
+    private static Table readTable(ByteBuffer in, Versions versions) {
+        String tableName = readString(in);
+        int columnCount = in.getInt();
+        List<String> columns = new ArrayList<>(columnCount);
+        ColumnType[] types = new ColumnType[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            columns.add(readString(in));
+            byte type = in.get();
+            types[i] = type == -1 ? null : ColumnType.values()[type];
+        }
+
+        int rowCount = in.getInt();
+        Object[] primaryKeys = new Object[rowCount];
+        Object[] rows = new Object[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            Map<String, Object> row = new RowVersion(columnCount, Versions.INITIAL);
+            primaryKeys[i] = readValue(in);
+            row.put(columns.get(0), primaryKeys[i]);
+            for (int c = 1; c < columnCount; c++) {
+                row.put(columns.get(c), readValue(in));
+            }
+            rows[i] = row;
+        }
+        TreeMap<Object, Map<String, Object>> primaryKeyMap = new TreeMap<>(new SortedRun<>(primaryKeys, rows));
+
+        Map<String, TreeMap<Object, List<Object>>> columnRedBlackTrees = new HashMap<>();
+        for (String column : columns) {
+            int distinct = in.getInt();
+            Object[] values = new Object[distinct];
+            Object[] keyLists = new Object[distinct];
+            for (int i = 0; i < distinct; i++) {
+                values[i] = readValue(in);
+                int count = in.getInt();
+                List<Object> keys = new ArrayList<>(count);
+                for (int k = 0; k < count; k++) {
+                    keys.add(primaryKeys[in.getInt()]);
+                }
+                keyLists[i] = keys;
+            }
+            columnRedBlackTrees.put(column, new TreeMap<>(new SortedRun<Object, List<Object>>(values, keyLists)));
+        }
+        return new Table(tableName, columns, types, primaryKeyMap, columnRedBlackTrees, versions);
+    }
+
+    private static Object readValue(ByteBuffer in) {
+        byte tag = in.get();
+        switch (tag) {
+            case INT_VALUE:
+                return in.getInt();
+            case DOUBLE_VALUE:
+                return in.getDouble();
+            default:
+                return readString(in);
+        }
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Entries already in VALUE_ORDER, handed to the TreeMap(SortedMap) constructor, which builds
+    // the tree from them in linear time. The entries from index from to index to (exclusive) of
+    // the arrays belong to this map; subMap, headMap and tailMap are narrower runs of them.
+    static final class SortedRun<K, V> extends AbstractMap<K, V> implements SortedMap<K, V> {
+        private final Object[] keys;
+        private final Object[] values;
+        private final int from;
+        private final int to;
+
+        SortedRun(Object[] keys, Object[] values) {
+            this(keys, values, 0, keys.length);
+        }
+
+        private SortedRun(Object[] keys, Object[] values, int from, int to) {
+            this.keys = keys;
+            this.values = values;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public Comparator<? super K> comparator() {
+            return ColumnType.VALUE_ORDER;
+        }
+
+        @Override
+        public Set<Map.Entry<K, V>> entrySet() {
+            return new AbstractSet<Map.Entry<K, V>>() {
+                @Override
+                public int size() {
+                    return to - from;
+                }
+
+                @Override
+                public Iterator<Map.Entry<K, V>> iterator() {
+                    return new Iterator<Map.Entry<K, V>>() {
+                        private int next = from;
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < to;
+                        }
+
+                        @Override
+                        @SuppressWarnings("unchecked")
+                        public Map.Entry<K, V> next() {
+                            if (next == to) {
+                                throw new NoSuchElementException();
+                            }
+                            Map.Entry<K, V> entry = new SimpleImmutableEntry<>((K) keys[next], (V) values[next]);
+                            next++;
+                            return entry;
+                        }
+                    };
+                }
+            };
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public K firstKey() {
+            if (from == to) {
+                throw new NoSuchElementException();
+            }
+            return (K) keys[from];
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public K lastKey() {
+            if (from == to) {
+                throw new NoSuchElementException();
+            }
+            return (K) keys[to - 1];
+        }
+
+        @Override
+        public SortedMap<K, V> subMap(K fromKey, K toKey) {
+            if (ColumnType.VALUE_ORDER.compare(fromKey, toKey) > 0) {
+                throw new IllegalArgumentException("fromKey > toKey");
+            }
+            return new SortedRun<>(keys, values, indexOf(fromKey), indexOf(toKey));
+        }
+
+        @Override
+        public SortedMap<K, V> headMap(K toKey) {
+            return new SortedRun<>(keys, values, from, indexOf(toKey));
+        }
+
+        @Override
+        public SortedMap<K, V> tailMap(K fromKey) {
+            return new SortedRun<>(keys, values, indexOf(fromKey), to);
+        }
+
+        // The index of the first key of this run that is not below key, or to if there is none
+        private int indexOf(Object key) {
+            int low = from;
+            int high = to;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (ColumnType.VALUE_ORDER.compare(keys[middle], key) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+}
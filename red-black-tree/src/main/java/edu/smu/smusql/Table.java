@@ -1,28 +1,75 @@
 package edu.smu.smusql;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+/*
+ * Rows are stored as RowVersions (see Versions): primaryKeyMap holds the newest version of
+ * each row, and a row deleted while a SELECT could still see it stays there, marked deleted,
+ * until the vacuum drops it. A column TreeMap lists a row under the value of every version
+ * still linked to it, so a view finds the row under the value it sees and skips the others.
+ *
+ * Statements read the TreeMaps in batches of READ_BATCH entries, each under the read lock,
+ * resuming after the last key read; a long SELECT only keeps writers out for one batch.
+ */
 public class Table {
+    // entries copied from a TreeMap per read lock
+    private static final int READ_BATCH = 256;
+
     private final String tableName;
     private final List<String> columns;
     private final String primaryKey;
 
-    // TreeMap to store the rows
-    private Map<String, Map<String, String>> primaryKeyMap;
+    // Column types, either declared in CREATE TABLE or inferred from the first inserted row
+    private ColumnType[] types;
+
+    // TreeMap to store the rows, keyed by the typed primary key value; every row is a RowVersion
+    private TreeMap<Object, Map<String, Object>> primaryKeyMap;
 
     // Store column TreeMaps in a TreeMap mapping columnName to column TreeMap
-    // Each column TreeMap stores a column attribute and a list of primaryKeys of rows with that attribute
-    private Map<String, TreeMap<String, List<String>>> columnRedBlackTrees; // For Red-Black tree indexing
+    // Each column TreeMap stores a typed column attribute and a list of primaryKeys of rows with that attribute,
+    // so numeric columns are ordered numerically (age > 9 includes 10)
+    private Map<String, TreeMap<Object, List<Object>>> columnRedBlackTrees; // For Red-Black tree indexing
+
+    // Taken by the Engine around every statement on this table, see TableLocks
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Versions versions;
+    private Versions.Commit pending;  // the commit of the running statement, null between statements
+    private boolean changed;          // whether the running statement has stored a version yet
+    private List<Object> replaced = new ArrayList<>(); // rows the running statement updated or deleted
+    private Versions.Commit lastCommit = Versions.INITIAL;
+    private int retained;             // rows queued for the vacuum, whose old versions are still linked
 
     // Constructor to initialize the table with a name, columns, and primary key
     public Table(String tableName, List<String> columns) {
+        this(tableName, columns, new ColumnType[columns.size()]);
+    }
+
+    // Constructor with declared column types; null entries are inferred on first insert
+    public Table(String tableName, List<String> columns, ColumnType[] types) {
+        this(tableName, columns, types, new Versions());
+    }
+
+    // A table whose commits share the database's clock
+    Table(String tableName, List<String> columns, ColumnType[] types, Versions versions) {
         this.tableName = tableName;
+        this.versions = versions;
         this.primaryKey = columns.get(0); // The first column is used as the primary key
 
         // Validate that columns do not contain duplicate names
@@ -32,52 +79,102 @@ public class Table {
         }
 
         this.columns = new ArrayList<>(columns);
-        this.primaryKeyMap = new TreeMap<>();
+        this.types = types;
+        this.primaryKeyMap = new TreeMap<>(ColumnType.VALUE_ORDER);
 
         // TreeMap is a Red-Black tree
         this.columnRedBlackTrees = new TreeMap<>();
         for (String column : columns) {
-            columnRedBlackTrees.put(column, new TreeMap<>()); 
+            columnRedBlackTrees.put(column, new TreeMap<>(ColumnType.VALUE_ORDER));
         }
     }
 
+    // Constructor for a table restored from a snapshot, whose TreeMaps are already built
+    Table(String tableName, List<String> columns, ColumnType[] types, TreeMap<Object, Map<String, Object>> primaryKeyMap,
+          Map<String, TreeMap<Object, List<Object>>> columnRedBlackTrees, Versions versions) {
+        this.tableName = tableName;
+        this.versions = versions;
+        this.primaryKey = columns.get(0);
+        this.columns = new ArrayList<>(columns);
+        this.types = types;
+        this.primaryKeyMap = primaryKeyMap;
+        this.columnRedBlackTrees = new TreeMap<>(columnRedBlackTrees);
+    }
+
     // Get the TreeMap for a specific column for Red-Black tree indexing
-    public TreeMap<String, List<String>> getColumnTreeMap(String column) {
+    public TreeMap<Object, List<Object>> getColumnTreeMap(String column) {
         if (!columns.contains(column)) {
             throw new IllegalArgumentException("ERROR: Column not found: " + column);
         }
         return columnRedBlackTrees.get(column);
     }
 
-    // Get the primaryKeyMap
-    public Map<String, Map<String, String>> getPrimaryKeyMap() {
+    // Get the primaryKeyMap, the newest version of every row; while SELECTs run it may
+    // also hold deleted rows, which getRowByPrimaryKey returns as null
+    public Map<Object, Map<String, Object>> getPrimaryKeyMap() {
         return primaryKeyMap;
     }
 
+    public ColumnType getColumnType(String column) {
+        return types[columns.indexOf(column)];
+    }
+
+    ReentrantReadWriteLock getLock() {
+        return lock;
+    }
+
+    ColumnType[] getColumnTypes() {
+        return types.clone();
+    }
+
     // Insert a row into the table
-    public void insertRow(String primaryKeyValue, List<String> values) {
+    public void insertRow(List<String> values) {
         if (values.size() != columns.size()) {
             throw new IllegalArgumentException("ERROR: Number of values doesn't match number of columns");
         }
 
-        if (primaryKeyMap.containsKey(primaryKeyValue)) {
+        // Convert all values to their column types within this method
+        ColumnType[] rowTypes = new ColumnType[types.length];
+        List<Object> typed = new ArrayList<>(columns.size());
+        for (int i = 0; i < columns.size(); i++) {
+            String value = values.get(i).trim(); // Trim whitespace before converting
+            rowTypes[i] = types[i] != null ? types[i] : ColumnType.infer(value);
+            try {
+                typed.add(rowTypes[i].parse(value));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("ERROR: " + e.getMessage());
+            }
+        }
+
+        Object primaryKeyValue = typed.get(0);
+        RowVersion current = (RowVersion) primaryKeyMap.get(primaryKeyValue);
+        if (current != null && !current.isDeleted()) {
             throw new IllegalArgumentException("ERROR: Duplicate primary key: " + primaryKeyValue);
         }
+        types = rowTypes;
 
-        // Convert all values to Strings within this method
-        Map<String, String> row = new HashMap<>();
+        boolean ownCommit = beginChange();
+        // A row deleted while a SELECT could still see it comes back as a new version of it
+        RowVersion row = current == null ? new RowVersion(columns.size(), pending)
+                : new RowVersion(current, pending, false);
+        row.clear();
         for (int i = 0; i < columns.size(); i++) {
-            String value = values.get(i).toString().trim(); // Convert each value to String and trim whitespace
-            row.put(columns.get(i), value);
+            row.put(columns.get(i), typed.get(i));
         }
 
         // Insert the row into primaryKeyMap with a generated row ID
         primaryKeyMap.put(primaryKeyValue, row);
+        if (current != null) {
+            replaced.add(primaryKeyValue);
+        }
 
         for (int i = 0; i < columns.size(); i++) {
             String column = columns.get(i);
-            String value = row.get(column).toString(); // Store value as String
-            TreeMap<String, List<String>> treeMap = getColumnTreeMap(column);
+            Object value = row.get(column); // Index the typed value
+            if (current != null && current.holds(column, value)) {
+                continue; // still listed for the deleted version
+            }
+            TreeMap<Object, List<Object>> treeMap = getColumnTreeMap(column);
 
             // Check if the value already has a list in the TreeMap
             if (!treeMap.containsKey(value)) {
@@ -87,48 +184,339 @@ public class Table {
             // Add the primaryKeyValue to the list
             treeMap.get(value).add(primaryKeyValue);
         }
+        endChange(ownCommit);
     }
 
-    public void updateRows(Set<String> rowsToUpdate, String columnName, String updatedValue) {
-        // Remove id from the column TreeMap
-        Map<String, List<String>> columnMap = getColumnTreeMap(columnName);
-        for (String primaryKey : rowsToUpdate) {
-            Map<String, String> row = getRowByPrimaryKey(primaryKey);
+    // Convert a SET value to the column type, rejecting values that do not fit
+    public Object parseValue(String columnName, String value) {
+        int index = columns.indexOf(columnName);
+        ColumnType type = types[index] != null ? types[index] : ColumnType.infer(value);
+        try {
+            return type.parse(value);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("ERROR: " + e.getMessage());
+        }
+    }
+
+    // Convert a WHERE literal to the column type so it can be used as a TreeMap key
+    public Object parseLiteral(String columnName, String literal) {
+        int index = columns.indexOf(columnName);
+        ColumnType type = types[index] != null ? types[index] : ColumnType.infer(literal);
+        return type.parseLiteral(literal);
+    }
+
+    // Stores a changed version of each row; the new value is listed next to the old one,
+    // which stays listed while the old version is linked. A new primary key moves the row,
+    // see moveRow, and must not be held by another live row.
+    public void updateRows(Set<Object> rowsToUpdate, String columnName, Object updatedValue) {
+        boolean movesRows = columnName.equals(primaryKey) && !rowsToUpdate.isEmpty();
+        if (movesRows) {
+            boolean unchanged = rowsToUpdate.size() == 1
+                    && ColumnType.compareValues(rowsToUpdate.iterator().next(), updatedValue) == 0;
+            RowVersion holder = (RowVersion) primaryKeyMap.get(updatedValue);
+            if (!unchanged && (rowsToUpdate.size() > 1 || holder != null && !holder.isDeleted())) {
+                throw new IllegalArgumentException("ERROR: Duplicate primary key: " + updatedValue);
+            }
+            movesRows = !unchanged;
+        }
 
-            // Remove id from previous key
-            columnMap.get(row.get(columnName)).remove(primaryKey);
+        boolean ownCommit = beginChange();
+        if (movesRows) {
+            moveRow(rowsToUpdate.iterator().next(), updatedValue);
+            endChange(ownCommit);
+            return;
+        }
+        Map<Object, List<Object>> columnMap = getColumnTreeMap(columnName);
+        for (Object primaryKey : rowsToUpdate) {
+            RowVersion current = (RowVersion) primaryKeyMap.get(primaryKey);
+            RowVersion row = new RowVersion(current, pending, false);
             // Update the row with the new value
             row.put(columnName, updatedValue);
+            primaryKeyMap.put(primaryKey, row);
+            replaced.add(primaryKey);
+
+            // Add the id to the new key in the column TreeMap
+            if (!current.holds(columnName, updatedValue)) {
+                columnMap.computeIfAbsent(updatedValue, value -> new ArrayList<>()).add(primaryKey);
+            }
+        }
+        endChange(ownCommit);
+    }
+
+    // The row is deleted under its old key and stored again under the new one, as a new version
+    // of a row deleted there before if there is one; a view that started earlier still finds it
+    // under the old key. Every column TreeMap lists it under the new key as well until the vacuum
+    // reclaims the old key's versions.
+    private void moveRow(Object oldKey, Object newKey) {
+        RowVersion current = (RowVersion) primaryKeyMap.get(oldKey);
+        RowVersion existing = (RowVersion) primaryKeyMap.get(newKey);
+        RowVersion moved = existing == null ? new RowVersion(columns.size(), pending)
+                : new RowVersion(existing, pending, false);
+        moved.clear();
+        moved.putAll(current);
+        moved.put(primaryKey, newKey);
+        primaryKeyMap.put(newKey, moved);
+        if (existing != null) {
+            replaced.add(newKey);
+        }
+        for (String column : columns) {
+            Object value = moved.get(column);
+            if (existing == null || !existing.holds(column, value)) {
+                getColumnTreeMap(column).computeIfAbsent(value, v -> new ArrayList<>()).add(newKey);
+            }
+        }
+
+        primaryKeyMap.put(oldKey, new RowVersion(current, pending, true));
+        replaced.add(oldKey);
+    }
+
+    // Marks the rows deleted; they stay in the TreeMaps until no view can see them
+    public void deleteRows(Set<Object> rowsToDelete) {
+        boolean ownCommit = beginChange();
+        for (Object rowId : rowsToDelete) {
+            RowVersion current = (RowVersion) primaryKeyMap.get(rowId);
+            primaryKeyMap.put(rowId, new RowVersion(current, pending, true));
+            replaced.add(rowId);
+        }
+        endChange(ownCommit);
+    }
+
+    // A value no row holds any more is dropped, so the key range and the list sizes the
+    // QueryPlanner estimates from only describe live rows
+    private static void removeFromColumn(Map<Object, List<Object>> columnMap, Object value, Object primaryKey) {
+        List<Object> primaryKeys = columnMap.get(value);
+        primaryKeys.remove(primaryKey);
+        if (primaryKeys.isEmpty()) {
+            columnMap.remove(value);
         }
+    }
+
+    /* ================= Versions ================= */
+
+    // Called by TableLocks.write with the write lock held: the versions stored until endWrite
+    // belong to one commit
+    void beginWrite() {
+        pending = versions.begin();
+        changed = false;
+    }
 
-        // Add ids to the new key in the column TreeMap
-        if (columnMap.containsKey(updatedValue)) {
-            columnMap.get(updatedValue).addAll(rowsToUpdate);
+    // Commits the statement's versions, if it stored any, and reclaims the versions they replaced:
+    // at once when no open view can see them, otherwise through the vacuum
+    void endWrite() {
+        Versions.Commit commit = pending;
+        pending = null;
+        if (!changed) {
+            return;
+        }
+        versions.commit(commit);
+        lastCommit = commit;
+        if (replaced.isEmpty()) {
+            return;
+        }
+        long oldest = versions.oldestView();
+        if (oldest >= commit.getTimestamp()) {
+            reclaim(replaced, oldest);
         } else {
-            columnMap.put(updatedValue, new ArrayList<>(rowsToUpdate));
+            retained += replaced.size();
+            versions.retire(this, commit, replaced);
         }
+        replaced = new ArrayList<>();
     }
 
-    public void deleteRows(Set<String> rowsToDelete) {
-        // Delete the rows from the column TreeMaps
-        for (String column : columns) {
-            TreeMap<String, List<String>> columnMap = getColumnTreeMap(column);
-            for (String rowId : rowsToDelete) {
-                Map<String, String> row = getRowByPrimaryKey(rowId);
-                columnMap.get(row.get(column)).remove(rowId);
+    // A change made outside TableLocks.write, by a caller using the table directly, is its own commit
+    private boolean beginChange() {
+        boolean ownCommit = pending == null;
+        if (ownCommit) {
+            beginWrite();
+        }
+        changed = true;
+        return ownCommit;
+    }
+
+    private void endChange(boolean ownCommit) {
+        if (ownCommit) {
+            endWrite();
+        }
+    }
+
+    // Reclaims rows queued by endWrite once no view older than oldest is open
+    void vacuum(List<Object> primaryKeys, long oldest) {
+        lock.writeLock().lock();
+        try {
+            reclaim(primaryKeys, oldest);
+            retained -= primaryKeys.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Unlinks the versions of the rows that no view reading at oldest or later can see, takes
+    // them out of the column TreeMaps unless a linked version holds the same value, and drops
+    // rows whose deletion every view sees
+    private void reclaim(Collection<Object> primaryKeys, long oldest) {
+        for (Object primaryKey : primaryKeys) {
+            RowVersion newest = (RowVersion) primaryKeyMap.get(primaryKey);
+            if (newest == null) {
+                continue; // reclaimed already, by an earlier commit's turn
+            }
+            RowVersion kept = newest;
+            while (kept.getTimestamp() > oldest && kept.getPrevious() != null) {
+                kept = kept.getPrevious();
+            }
+            boolean gone = kept == newest && newest.isDeleted() && newest.getTimestamp() <= oldest;
+            RowVersion unlinked = gone ? newest : kept.getPrevious();
+            if (!gone) {
+                kept.setPrevious(null); // before the walk, so holds only sees the versions left
+            }
+            for (RowVersion version = unlinked; version != null; version = version.getPrevious()) {
+                if (version.isDeleted()) {
+                    continue;
+                }
+                for (String column : columns) {
+                    Object value = version.get(column);
+                    if ((gone || !newest.holds(column, value)) && isListed(column, value, primaryKey)) {
+                        removeFromColumn(getColumnTreeMap(column), value, primaryKey);
+                    }
+                }
+            }
+            if (gone) {
+                primaryKeyMap.remove(primaryKey);
             }
         }
+    }
+
+    // an older version may share its value with one unlinked before, which took the entry out
+    private boolean isListed(String column, Object value, Object primaryKey) {
+        List<Object> primaryKeys = getColumnTreeMap(column).get(value);
+        return primaryKeys != null && primaryKeys.contains(primaryKey);
+    }
+
+    /* ================= Reading ================= */
 
-        // Delete the rows from the primaryKeyMap
-        for (String rowId : rowsToDelete) {
-            primaryKeyMap.remove(rowId);
+    // Runs the reader under the read lock, for work that needs the TreeMaps to stand still
+    <T> T read(Supplier<T> reader) {
+        lock.readLock().lock();
+        try {
+            return reader.get();
+        } finally {
+            lock.readLock().unlock();
         }
+    }
+
+    // Runs an answer read from the TreeMaps alone, under the read lock, if they hold exactly the
+    // rows visible at asOf: nothing committed since and no replaced version left. Null otherwise.
+    <T> T readCurrent(long asOf, Supplier<T> answer) {
+        return read(() -> lastCommit.getTimestamp() <= asOf && retained == 0 ? answer.get() : null);
+    }
+
+    // The rows visible at asOf, in primary key order
+    Stream<Map<String, Object>> rows(long asOf) {
+        return stream(new Scan(primaryKeyMap, null, asOf));
+    }
+
+    // The rows visible at asOf that are listed in a view of the column's TreeMap, in the view's
+    // order; a row is found under the value its visible version holds, not under its other versions'
+    Stream<Map<String, Object>> rows(String column, NavigableMap<Object, List<Object>> view, long asOf) {
+        return stream(new Scan(view, column, asOf));
+    }
+
+    // The row with this primary key as a view reading at asOf sees it, or null
+    Map<String, Object> getRow(Object primaryKey, long asOf) {
+        lock.readLock().lock();
+        try {
+            RowVersion row = (RowVersion) primaryKeyMap.get(primaryKey);
+            return row == null ? null : row.at(asOf);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static Stream<Map<String, Object>> stream(Iterator<Map<String, Object>> rows) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(rows, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
 
+    // Walks a view of primaryKeyMap or of a column TreeMap one batch at a time, resuming after
+    // the last key copied since the map may have changed in between
+    private final class Scan implements Iterator<Map<String, Object>> {
+        private final NavigableMap<Object, ?> view;
+        private final String column; // null for primaryKeyMap
+        private final long asOf;
+        private final ArrayDeque<Object> batch = new ArrayDeque<>(); // versions, each after its listed value for a column
+        private Object lastKey;
+        private boolean started;
+        private boolean exhausted;
+        private Map<String, Object> next;
+
+        Scan(NavigableMap<Object, ?> view, String column, long asOf) {
+            this.view = view;
+            this.column = column;
+            this.asOf = asOf;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null) {
+                if (batch.isEmpty()) {
+                    if (exhausted) {
+                        return false;
+                    }
+                    fill();
+                    continue;
+                }
+                if (column == null) {
+                    next = ((RowVersion) batch.poll()).at(asOf);
+                } else {
+                    Object listed = batch.poll();
+                    Map<String, Object> row = ((RowVersion) batch.poll()).at(asOf);
+                    next = row != null && ColumnType.compareValues(row.get(column), listed) == 0 ? row : null;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public Map<String, Object> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Map<String, Object> row = next;
+            next = null;
+            return row;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void fill() {
+            lock.readLock().lock();
+            try {
+                NavigableMap<Object, ?> rest = started ? view.tailMap(lastKey, false) : view;
+                started = true;
+                int copied = 0;
+                for (Map.Entry<Object, ?> entry : rest.entrySet()) {
+                    if (copied >= READ_BATCH) {
+                        return;
+                    }
+                    lastKey = entry.getKey();
+                    if (column == null) {
+                        batch.add(entry.getValue());
+                        copied++;
+                        continue;
+                    }
+                    for (Object primaryKey : (List<Object>) entry.getValue()) {
+                        batch.add(lastKey);
+                        batch.add(primaryKeyMap.get(primaryKey));
+                        copied++;
+                    }
+                }
+                exhausted = true;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
     }
 
-    // Get row by primary key (exact match)
-    public Map<String, String> getRowByPrimaryKey(String primaryKeyValue) {
-        return primaryKeyMap.get(primaryKeyValue);
+    // Get row by primary key (exact match), the newest version
+    public Map<String, Object> getRowByPrimaryKey(Object primaryKeyValue) {
+        return getRow(primaryKeyValue, Versions.LATEST);
     }
 
     public String getTableName() {
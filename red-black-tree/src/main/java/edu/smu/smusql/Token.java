@@ -0,0 +1,67 @@
+package edu.smu.smusql;
+
+/*
+ * A single token produced by Lexer.
+ * getText() is the token exactly as written (quoted strings keep their quotes),
+ * getValue() is the literal value (quoted strings without quotes, '' unescaped).
+ */
+public class Token {
+
+    public enum Type {
+        IDENTIFIER,  // keywords, table and column names, unquoted words
+        NUMBER,      // 42, -7, 3.5, 1.0E-4
+        STRING,      // 'New York' or "New York"
+        OPERATOR,    // = != <> < > <= >= *
+        PUNCTUATION  // ( ) , ;
+    }
+
+    private final Type type;
+    private final String text;
+    private final String value;
+
+    public Token(Type type, String text) {
+        this.type = type;
+        this.text = text;
+        this.value = type == Type.STRING ? unquote(text) : text;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    // Case-insensitive match against a keyword, operator or punctuation mark
+    public boolean is(String expected) {
+        return type != Type.STRING && text.equalsIgnoreCase(expected);
+    }
+
+    public boolean isLiteral() {
+        return type == Type.NUMBER || type == Type.STRING || type == Type.IDENTIFIER;
+    }
+
+    // Strips the surrounding quotes and collapses doubled quotes ('O''Brien' -> O'Brien)
+    private static String unquote(String quoted) {
+        char quote = quoted.charAt(0);
+        StringBuilder result = new StringBuilder(quoted.length() - 2);
+        for (int i = 1; i < quoted.length() - 1; i++) {
+            char c = quoted.charAt(i);
+            result.append(c);
+            if (c == quote) {
+                i++; // skip the second quote of the escaped pair
+            }
+        }
+        return result.toString();
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
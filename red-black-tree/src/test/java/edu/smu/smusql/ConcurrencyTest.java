@@ -0,0 +1,128 @@
+package edu.smu.smusql;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrencyTest {
+
+    private static final int WRITERS = 4;
+    private static final int READERS = 4;
+    private static final int ROWS_PER_WRITER = 2000;
+
+    @Test
+    public void testConcurrentWritersKeepIndexesConsistent() throws Exception {
+        Engine engine = new Engine();
+        engine.executeSQL("CREATE TABLE orders (id, customer, amount)");
+        engine.executeSQL("CREATE TABLE payments (id, customer, amount)");
+
+        Queue<String> failures = new ConcurrentLinkedQueue<>();
+        AtomicBoolean writing = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> writers = new ArrayList<>();
+        List<Thread> readers = new ArrayList<>();
+
+        // two writers per table, each on its own range of ids
+        for (int w = 0; w < WRITERS; w++) {
+            String table = w % 2 == 0 ? "orders" : "payments";
+            int first = w * ROWS_PER_WRITER;
+            writers.add(worker(failures, () -> {
+                await(start);
+                for (int id = first; id < first + ROWS_PER_WRITER; id++) {
+                    check(failures, engine.executeSQL("INSERT INTO " + table + " VALUES (" + id + ", 'c" + id % 10 + "', " + id % 100 + ")"));
+                    if (id % 3 == 0) {
+                        check(failures, engine.executeSQL("UPDATE " + table + " SET amount = 1000 WHERE id = " + id));
+                    }
+                    if (id % 5 == 0) {
+                        check(failures, engine.executeSQL("DELETE FROM " + table + " WHERE id = " + id));
+                    }
+                }
+            }));
+        }
+        for (int r = 0; r < READERS; r++) {
+            readers.add(worker(failures, () -> {
+                await(start);
+                while (writing.get()) {
+                    check(failures, engine.executeSQL("SELECT customer, COUNT(*), MAX(amount) FROM orders GROUP BY customer"));
+                    check(failures, engine.executeSQL("SELECT * FROM payments WHERE amount >= 50 AND amount < 60 LIMIT 10"));
+                    check(failures, engine.executeSQL(
+                            "SELECT * FROM orders JOIN payments ON orders.customer = payments.customer LIMIT 5"));
+                }
+            }));
+        }
+
+        writers.forEach(Thread::start);
+        readers.forEach(Thread::start);
+        start.countDown();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        writing.set(false);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertTrue(failures.isEmpty(), () -> failures.size() + " failures, first: " + failures.peek());
+        // versions replaced while readers were running are reclaimed once no view can see them
+        engine.vacuum();
+        // every fifth id is deleted again
+        int expectedRows = WRITERS / 2 * ROWS_PER_WRITER * 4 / 5;
+        for (String tableName : new String[] { "orders", "payments" }) {
+            Table table = engine.getDatabase().getTable(tableName);
+            assertEquals(expectedRows, table.getPrimaryKeyMap().size());
+            assertIndexesMatchRows(table);
+        }
+        assertEquals("COUNT(*)\n" + expectedRows + "\n", engine.executeSQL("SELECT COUNT(*) FROM orders"));
+    }
+
+    // Every row is listed exactly once in each column TreeMap, under its own value, and nothing else is
+    private static void assertIndexesMatchRows(Table table) {
+        for (String column : table.getColumns()) {
+            Map<Object, Integer> listed = new TreeMap<>(ColumnType.VALUE_ORDER);
+            for (Map.Entry<Object, List<Object>> entry : table.getColumnTreeMap(column).entrySet()) {
+                assertFalse(entry.getValue().isEmpty(), column + " keeps an empty list for " + entry.getKey());
+                for (Object primaryKey : entry.getValue()) {
+                    Map<String, Object> row = table.getRowByPrimaryKey(primaryKey);
+                    assertNotNull(row, column + " lists deleted row " + primaryKey);
+                    assertEquals(0, ColumnType.compareValues(entry.getKey(), row.get(column)),
+                            column + " lists row " + primaryKey + " under a stale value");
+                    assertNull(listed.put(primaryKey, 1), column + " lists row " + primaryKey + " twice");
+                }
+            }
+            assertEquals(table.getPrimaryKeyMap().size(), listed.size(), column + " misses rows");
+        }
+    }
+
+    // exceptions in a thread would otherwise only be printed
+    private static Thread worker(Queue<String> failures, Runnable body) {
+        return new Thread(() -> {
+            try {
+                body.run();
+            } catch (RuntimeException e) {
+                failures.add(e.toString());
+            }
+        });
+    }
+
+    private static void check(Queue<String> failures, String result) {
+        if (result.startsWith("ERROR")) {
+            failures.add(result);
+        }
+    }
+
+    private static void await(CountDownLatch start) {
+        try {
+            start.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
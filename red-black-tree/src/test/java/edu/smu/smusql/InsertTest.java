@@ -33,12 +33,12 @@ class InsertTest {
         // Retrieve the table and check the inserted row
         Table usersTable = database.getTable("Users");
         // System.out.println(usersTable);
-        Map<String, String> insertedRow = usersTable.getRowByPrimaryKey("1");
+        Map<String, Object> insertedRow = usersTable.getRowByPrimaryKey(1);
 
         // System.out.println("Inserted row: " + insertedRow + "\n");
         assertNotNull(insertedRow, "Inserted row should not be null");
         assertEquals("Alice", insertedRow.get("name"));
-        assertEquals("30", insertedRow.get("age"));
+        assertEquals(30, insertedRow.get("age")); // Stored as an INT, inferred from the first insert
     }
 
     @Test
@@ -61,6 +61,24 @@ class InsertTest {
         assertTrue(result2.contains("Duplicate primary key"), "Should specify the error reason");
     }
 
+    @Test
+    void testInsertTypeMismatch() {
+        engine.executeSQL("INSERT INTO Users VALUES (1, Alice, 30)");
+
+        // age was inferred as INT from the first row
+        String result = engine.executeSQL("INSERT INTO Users VALUES (2, Bob, thirty)");
+        assertEquals("ERROR: Type mismatch: thirty is not an INT", result);
+    }
+
+    @Test
+    void testInsertDeclaredTypes() {
+        engine.executeSQL("CREATE TABLE prices (id INT, price DOUBLE)");
+        engine.executeSQL("INSERT INTO prices VALUES (1, 3)");
+
+        // The INT literal is widened to the declared DOUBLE column
+        assertEquals(3.0, database.getTable("prices").getRowByPrimaryKey(1).get("price"));
+    }
+
     @Test
     void testInsertWithNonexistentTable() {
         // Attempt to insert into a nonexistent table
@@ -0,0 +1,139 @@
+package edu.smu.smusql;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MultiVersionTest {
+
+    // more rows than one read batch, so a cursor resumes in a tree that changed in between
+    private static final int ROWS = 600;
+
+    private Engine engine;
+
+    @BeforeEach
+    public void setUp() {
+        engine = new Engine();
+        engine.executeSQL("CREATE TABLE student (id, name, gpa)");
+        for (int id = 0; id < ROWS; id++) {
+            engine.executeSQL("INSERT INTO student VALUES (" + id + ", 's" + id + "', " + (id % 4 == 0 ? "2.5" : "3.5") + ")");
+        }
+    }
+
+    @Test
+    public void testCursorKeepsItsSnapshotWhileTheSameThreadWrites() {
+        try (ResultSet rows = engine.query("SELECT * FROM student")) {
+            assertTrue(rows.next());
+            assertEquals(0, rows.getValue("id"));
+
+            // a cursor holds no lock, so these do not wait for it
+            assertEquals("Table student updated. " + ROWS + " row(s) affected.",
+                    engine.executeSQL("UPDATE student SET gpa = 1.0"));
+            engine.executeSQL("DELETE FROM student WHERE id >= 300");
+            engine.executeSQL("INSERT INTO student VALUES (1000, 'new', 4.0)");
+
+            int count = 1;
+            while (rows.next()) {
+                assertEquals(count, rows.getValue("id"));
+                assertNotEquals(1.0, rows.getValue("gpa"));
+                count++;
+            }
+            assertEquals(ROWS, count);
+        }
+        assertEquals("COUNT(*)\n301\n", engine.executeSQL("SELECT COUNT(*) FROM student"));
+    }
+
+    @Test
+    public void testRowsListedUnderOldAndNewValueAreReadOnce() {
+        try (ResultSet before = engine.query("SELECT * FROM student WHERE gpa >= 2.0 AND gpa <= 4.0")) {
+            engine.executeSQL("UPDATE student SET gpa = 3.0 WHERE gpa = 2.5");
+            engine.executeSQL("DELETE FROM student WHERE id < 100");
+
+            assertEquals(ROWS - 100, count(engine.query("SELECT * FROM student WHERE gpa >= 2.0 AND gpa <= 4.0")));
+            assertEquals(0, count(engine.query("SELECT * FROM student WHERE gpa = 2.5")));
+            assertEquals("COUNT(*)\n" + (ROWS - 100) + "\n", engine.executeSQL("SELECT COUNT(*) FROM student"));
+
+            int atTwoAndAHalf = 0;
+            while (before.next()) {
+                if (before.getValue("gpa").equals(2.5)) {
+                    atTwoAndAHalf++;
+                }
+            }
+            assertEquals(ROWS / 4, atTwoAndAHalf);
+        }
+    }
+
+    @Test
+    public void testPrimaryKeyUpdateIsVisibleOnlyToLaterViews() {
+        engine.executeSQL("CREATE TABLE users (id, name, age)");
+        engine.executeSQL("INSERT INTO users VALUES (1, 'Alice', 30)");
+        engine.executeSQL("INSERT INTO users VALUES (2, 'Bob', 9)");
+
+        try (ResultSet before = engine.query("SELECT * FROM users WHERE age >= 9 AND age <= 30")) {
+            assertEquals("Table users updated. 1 row(s) affected.",
+                    engine.executeSQL("UPDATE users SET id = 99 WHERE id = 1"));
+            assertEquals("id\tname\tage\n" + "99\t'Alice'\t30\n",
+                    engine.executeSQL("SELECT * FROM users WHERE id = 99"));
+
+            // the old key is free again; the new row must not be confused with the moved one
+            engine.executeSQL("INSERT INTO users VALUES (1, 'Carl', 40)");
+            assertEquals("id\tname\tage\n" + "99\t'Alice'\t30\n",
+                    engine.executeSQL("SELECT * FROM users WHERE age = 30"));
+            assertEquals("id\tname\tage\n" + "2\t'Bob'\t9\n" + "99\t'Alice'\t30\n",
+                    engine.executeSQL("SELECT * FROM users WHERE age >= 9 AND age <= 30"));
+
+            // the cursor opened earlier still sees Alice under her old key, once
+            assertTrue(before.next());
+            assertEquals(1, before.getValue("id"));
+            assertEquals("'Alice'", before.getValue("name"));
+            assertTrue(before.next());
+            assertEquals(2, before.getValue("id"));
+            assertFalse(before.next());
+        }
+
+        engine.vacuum();
+        Table table = engine.getDatabase().getTable("users");
+        assertEquals(List.of(99), table.getColumnTreeMap("age").get(30));
+        assertEquals(List.of(1), table.getColumnTreeMap("name").get("'Carl'"));
+        assertEquals(List.of(99), table.getColumnTreeMap("name").get("'Alice'"));
+    }
+
+    @Test
+    public void testVacuumReclaimsVersionsOnceCursorsClose() {
+        ResultSet open = engine.query("SELECT * FROM student");
+        engine.executeSQL("UPDATE student SET gpa = 3.0 WHERE gpa = 2.5");
+        engine.executeSQL("DELETE FROM student WHERE id >= 500");
+        engine.executeSQL("INSERT INTO student VALUES (550, 'again', 2.0)");
+        Table table = engine.getDatabase().getTable("student");
+        assertEquals(ROWS, table.getPrimaryKeyMap().size()); // deleted rows wait for the open cursor
+
+        open.close();
+        engine.vacuum();
+
+        assertEquals(501, table.getPrimaryKeyMap().size());
+        assertNull(table.getRowByPrimaryKey(599));
+        assertEquals(2.0, table.getRowByPrimaryKey(550).get("gpa"));
+        assertFalse(table.getColumnTreeMap("gpa").containsKey(2.5));
+        for (String column : table.getColumns()) {
+            int listed = 0;
+            for (Map.Entry<Object, List<Object>> entry : table.getColumnTreeMap(column).entrySet()) {
+                for (Object primaryKey : entry.getValue()) {
+                    assertEquals(0, ColumnType.compareValues(entry.getKey(), table.getRowByPrimaryKey(primaryKey).get(column)));
+                    listed++;
+                }
+            }
+            assertEquals(501, listed, column);
+        }
+    }
+
+    private static int count(ResultSet rows) {
+        int count = 0;
+        while (rows.next()) {
+            count++;
+        }
+        return count;
+    }
+}
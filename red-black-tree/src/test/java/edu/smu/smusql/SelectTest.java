@@ -1,5 +1,7 @@
 package edu.smu.smusql;
 
+import java.io.ByteArrayOutputStream;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
@@ -80,6 +82,23 @@ public class SelectTest {
         assertEquals(expected, result);
     }
 
+    @Test
+    public void testSelectNumericRangeIsNotLexicographic() {
+        engine.executeSQL("INSERT INTO student VALUES (10, 'Liam Brown', 2.9, 9)");
+
+        // Numbers are compared as numbers, so 19..22 are greater than 9 (as strings they would sort before "9")
+        String selectWhereQuery = "SELECT * FROM student WHERE age > 9";
+        String result = engine.executeSQL(selectWhereQuery);
+
+        String expected = "id\tname\tgpa\tage\n" +
+                          "1\t'John Doe'\t3.5\t20\n" +
+                          "2\t'Jane Smith'\t3.9\t19\n" +
+                          "3\t'Mark Davis'\t3.2\t21\n" +
+                          "4\t'Emma Wilson'\t3.8\t22\n";
+
+        assertEquals(expected, result);
+    }
+
     @Test
     public void testSelectWithWhereAndCondition() {
         // SELECT with a WHERE clause using AND (gpa > 3.5 AND age < 22)
@@ -119,4 +138,178 @@ public class SelectTest {
 
         assertEquals("ERROR: Column not found: nonExistentColumn", result);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testSelectAndBindsTighterThanOr() {
+        // age = 20 OR (gpa > 3.5 AND age > 21): the AND group is evaluated first
+        String expected = "id\tname\tgpa\tage\n" +
+                          "1\t'John Doe'\t3.5\t20\n" +
+                          "4\t'Emma Wilson'\t3.8\t22\n";
+
+        assertEquals(expected, engine.executeSQL("SELECT * FROM student WHERE age = 20 OR gpa > 3.5 AND age > 21"));
+        assertEquals(expected, engine.executeSQL("SELECT * FROM student WHERE gpa > 3.5 AND age > 21 OR age = 20"));
+        assertEquals("id\tname\tgpa\tage\n" + "1\t'John Doe'\t3.5\t20\n",
+                engine.executeSQL("SELECT * FROM student WHERE age = 20 OR age = 22 AND name = 'Nobody'"));
+    }
+
+    @Test
+    public void testSelectRejectsUnsupportedWhereSyntax() {
+        assertEquals("ERROR: Invalid WHERE clause near age",
+                engine.executeSQL("SELECT * FROM student WHERE age BETWEEN 19 AND 21"));
+        assertEquals("ERROR: Invalid WHERE clause near age", engine.executeSQL("SELECT * FROM student WHERE age != 20"));
+        assertEquals("ERROR: Invalid WHERE clause near NOT",
+                engine.executeSQL("SELECT * FROM student WHERE NOT (age > 20)"));
+        assertEquals("ERROR: Invalid WHERE clause near extra",
+                engine.executeSQL("SELECT * FROM student WHERE age > 20 extra"));
+        assertEquals("ERROR: Invalid WHERE clause near age",
+                engine.executeSQL("DELETE FROM student WHERE age IN (20, 21)"));
+        assertEquals("ERROR: Invalid WHERE clause near end of query",
+                engine.executeSQL("UPDATE student SET gpa = 4.0 WHERE age > 20 AND"));
+    }
+
+    @Test
+    public void testSelectWithRangeOnOneColumn() {
+        // both bounds on age are merged into one range scan
+        String selectWhereQuery = "SELECT * FROM student WHERE age > 19 AND age <= 21";
+        String result = engine.executeSQL(selectWhereQuery);
+
+        String expected = "id\tname\tgpa\tage\n" +
+                          "1\t'John Doe'\t3.5\t20\n" +
+                          "3\t'Mark Davis'\t3.2\t21\n";
+
+        assertEquals(expected, result);
+    }
+
+    @Test
+    public void testSelectWithContradictoryRange() {
+        String selectWhereQuery = "SELECT * FROM student WHERE age > 21 AND age < 20";
+        String result = engine.executeSQL(selectWhereQuery);
+
+        assertEquals("id\tname\tgpa\tage\n", result);
+    }
+
+    @Test
+    public void testSelectDrivenBySelectiveConditionKeepsPrimaryKeyOrder() {
+        for (int id = 5; id <= 40; id++) {
+            engine.executeSQL("INSERT INTO student VALUES (" + id + ", 'Student" + id + "', 3.0, " + (30 + id % 3) + ")");
+        }
+        engine.executeSQL("INSERT INTO student VALUES (41, 'Amy Lee', 3.9, 19)");
+
+        // gpa = 3.9 selects two rows out of forty-one and drives the query; age is checked on those rows
+        String selectWhereQuery = "SELECT * FROM student WHERE age < 25 AND gpa = 3.9";
+        String result = engine.executeSQL(selectWhereQuery);
+
+        String expected = "id\tname\tgpa\tage\n" +
+                          "2\t'Jane Smith'\t3.9\t19\n" +
+                          "41\t'Amy Lee'\t3.9\t19\n";
+
+        assertEquals(expected, result);
+    }
+
+    @Test
+    public void testQueryReturnsCursorOverMatchingRows() {
+        ResultSet rows = engine.query("SELECT * FROM student WHERE gpa > 3.5");
+
+        assertTrue(rows.next());
+        assertEquals(2, rows.getValue("id"));
+        assertEquals("'Jane Smith'", rows.getValue(1));
+        assertTrue(rows.next());
+        assertEquals(4, rows.getValue("id"));
+        assertFalse(rows.next());
+    }
+
+    @Test
+    public void testResultWriterStreamsSameTextAsSelect() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int written = ResultWriter.write(engine.query("SELECT * FROM student"), out);
+
+        assertEquals(4, written);
+        assertEquals(engine.executeSQL("SELECT * FROM student"), out.toString("UTF-8"));
+    }
+
+    @Test
+    public void testSelectWithLimitAndOffset() {
+        String result = engine.executeSQL("SELECT * FROM student LIMIT 2 OFFSET 1");
+
+        String expected = "id\tname\tgpa\tage\n" +
+                          "2\t'Jane Smith'\t3.9\t19\n" +
+                          "3\t'Mark Davis'\t3.2\t21\n";
+
+        assertEquals(expected, result);
+    }
+
+    @Test
+    public void testSelectWithWhereAndLimit() {
+        String result = engine.executeSQL("SELECT * FROM student WHERE age > 19 LIMIT 1");
+
+        String expected = "id\tname\tgpa\tage\n" +
+                          "1\t'John Doe'\t3.5\t20\n";
+
+        assertEquals(expected, result);
+    }
+
+    @Test
+    public void testSelectWithInvalidLimit() {
+        assertEquals("ERROR: LIMIT must be a non-negative integer", engine.executeSQL("SELECT * FROM student LIMIT -1"));
+        assertEquals("ERROR: Invalid LIMIT syntax", engine.executeSQL("SELECT * FROM student LIMIT 1 2"));
+    }
+
+    @Test
+    public void testSelectOrderByDescendingWithLimit() {
+        String result = engine.executeSQL("SELECT * FROM student ORDER BY gpa DESC LIMIT 2");
+
+        String expected = "id\tname\tgpa\tage\n" +
+                          "2\t'Jane Smith'\t3.9\t19\n" +
+                          "4\t'Emma Wilson'\t3.8\t22\n";
+
+        assertEquals(expected, result);
+    }
+
+    @Test
+    public void testSelectWithWhereOrderByAscending() {
+        String result = engine.executeSQL("SELECT * FROM student WHERE gpa < 3.9 ORDER BY age ASC");
+
+        String expected = "id\tname\tgpa\tage\n" +
+                          "1\t'John Doe'\t3.5\t20\n" +
+                          "3\t'Mark Davis'\t3.2\t21\n" +
+                          "4\t'Emma Wilson'\t3.8\t22\n";
+
+        assertEquals(expected, result);
+    }
+
+    @Test
+    public void testSelectWithInvalidOrderBy() {
+        assertEquals("ERROR: Invalid ORDER BY syntax", engine.executeSQL("SELECT * FROM student ORDER gpa"));
+        assertEquals("ERROR: Column not found: height", engine.executeSQL("SELECT * FROM student ORDER BY height"));
+    }
+
+    @Test
+    public void testSelectAggregatesOverWholeTable() {
+        String result = engine.executeSQL("SELECT COUNT(*), MIN(gpa), MAX(age), SUM(age), AVG(gpa) FROM student");
+
+        String expected = "COUNT(*)\tMIN(gpa)\tMAX(age)\tSUM(age)\tAVG(gpa)\n" +
+                          "4\t3.2\t22\t82\t3.6\n";
+
+        assertEquals(expected, result);
+    }
+
+    @Test
+    public void testSelectGroupByWithWhereAndOrderBy() {
+        engine.executeSQL("INSERT INTO student VALUES (5, 'Amy Tan', 3.0, 20)");
+        String result = engine.executeSQL(
+                "SELECT age, COUNT(*), MAX(gpa) FROM student WHERE gpa < 3.9 GROUP BY age ORDER BY COUNT(*) DESC LIMIT 2");
+
+        String expected = "age\tCOUNT(*)\tMAX(gpa)\n" +
+                          "20\t2\t3.5\n" +
+                          "21\t1\t3.2\n";
+
+        assertEquals(expected, result);
+    }
+
+    @Test
+    public void testSelectAggregateErrors() {
+        assertEquals("ERROR: Column name must appear in GROUP BY", engine.executeSQL("SELECT name, COUNT(*) FROM student"));
+        assertEquals("ERROR: AVG needs a numeric column", engine.executeSQL("SELECT AVG(name) FROM student"));
+        assertEquals("NULL", engine.executeSQL("SELECT SUM(age) FROM student WHERE age > 30").split("\n")[1]);
+    }
+}
@@ -0,0 +1,117 @@
+package edu.smu.smusql;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ServerTest {
+
+    private static final int CLIENTS = 200;
+    private static final int ROWS_PER_CLIENT = 10;
+
+    private Engine engine;
+    private Server server;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        engine = new Engine();
+        server = new Server(engine, 0);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        server.close();
+    }
+
+    @Test
+    public void testStatementsAndErrorsAreAnswered() throws IOException {
+        try (Client client = new Client(server.getPort())) {
+            assertEquals("Table student created", client.execute("CREATE TABLE student (id, name, gpa)"));
+            assertEquals("Row inserted into student", client.execute("INSERT INTO student VALUES (1, 'Ünal', 3.5)"));
+            assertEquals(engine.executeSQL("SELECT * FROM student"), client.execute("SELECT * FROM student"));
+            assertTrue(client.execute("SELECT * FROM missing").startsWith("ERROR"));
+            assertEquals("COUNT(*)\n1\n", client.execute("SELECT COUNT(*) FROM student"));
+        }
+    }
+
+    @Test
+    public void testManyConnectionsAreServedAtOnce() throws Exception {
+        engine.executeSQL("CREATE TABLE student (id, name, gpa)");
+        List<Client> clients = new ArrayList<>();
+        ExecutorService pool = Executors.newFixedThreadPool(32);
+        try {
+            for (int i = 0; i < CLIENTS; i++) {
+                clients.add(new Client(server.getPort())); // all open before any sends
+            }
+            List<Future<String>> failures = new ArrayList<>();
+            for (int i = 0; i < CLIENTS; i++) {
+                Client client = clients.get(i);
+                int first = i * ROWS_PER_CLIENT;
+                failures.add(pool.submit((Callable<String>) () -> {
+                    for (int id = first; id < first + ROWS_PER_CLIENT; id++) {
+                        String reply = client.execute("INSERT INTO student VALUES (" + id + ", 's" + id + "', 3.0)");
+                        if (!reply.equals("Row inserted into student")) {
+                            return reply;
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<String> failure : failures) {
+                assertNull(failure.get());
+            }
+        } finally {
+            pool.shutdown();
+            for (Client client : clients) {
+                client.close();
+            }
+        }
+        assertEquals("COUNT(*)\n" + CLIENTS * ROWS_PER_CLIENT + "\n", engine.executeSQL("SELECT COUNT(*) FROM student"));
+    }
+
+    @Test
+    public void testOversizedFrameClosesOnlyThatConnection() throws IOException {
+        try (Client bad = new Client(server.getPort()); Client good = new Client(server.getPort())) {
+            bad.out.writeInt(Server.MAX_FRAME + 1);
+            bad.out.flush();
+            assertThrows(IOException.class, () -> bad.in.readInt());
+            assertEquals("Table student created", good.execute("CREATE TABLE student (id, name, gpa)"));
+        }
+    }
+
+    private static final class Client implements AutoCloseable {
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+
+        Client(int port) throws IOException {
+            socket = new Socket(InetAddress.getLoopbackAddress(), port);
+            in = new DataInputStream(socket.getInputStream());
+            out = new DataOutputStream(socket.getOutputStream());
+        }
+
+        String execute(String statement) throws IOException {
+            Server.writeFrame(out, statement);
+            out.flush();
+            return Server.readFrame(in);
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
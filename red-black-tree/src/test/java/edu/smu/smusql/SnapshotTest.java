@@ -0,0 +1,121 @@
+package edu.smu.smusql;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.SortedMap;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testRestartFromCheckpointAndLog() throws Exception {
+        Path snapshotFile = directory.resolve("smusql.snapshot");
+        Path logFile = directory.resolve("smusql.wal");
+        Engine engine = new Engine(snapshotFile, logFile, 0);
+        engine.executeSQL("CREATE TABLE student (id, name, gpa)");
+        engine.executeSQL("INSERT INTO student VALUES (1, 'John Doe', 3.5)");
+        engine.executeSQL("INSERT INTO student VALUES (2, 'Jane Smith', 3.9)");
+        engine.executeSQL("INSERT INTO student VALUES (10, 'Bob Lee', 2.8)");
+        engine.checkpoint();
+        long emptyLog = Files.size(logFile);
+        engine.executeSQL("UPDATE student SET gpa = 3.7 WHERE id = 1");
+        engine.executeSQL("DELETE FROM student WHERE id = 2");
+        String before = engine.executeSQL("SELECT * FROM student WHERE gpa > 3.0 OR id >= 10");
+        engine.close();
+        assertTrue(Files.size(logFile) > emptyLog);
+
+        Engine restarted = new Engine(snapshotFile, logFile, 0);
+        assertEquals(before, restarted.executeSQL("SELECT * FROM student WHERE gpa > 3.0 OR id >= 10"));
+        assertEquals("id\tname\tgpa\n1\t'John Doe'\t3.7\n10\t'Bob Lee'\t2.8\n", before);
+        assertEquals("ERROR: Duplicate primary key: 10",
+                restarted.executeSQL("INSERT INTO student VALUES (10, 'Someone Else', 3.0)"));
+        restarted.close();
+    }
+
+    @Test
+    public void testCrashBeforeLogResetDoesNotReplayTwice() throws Exception {
+        Path snapshotFile = directory.resolve("smusql.snapshot");
+        Path logFile = directory.resolve("smusql.wal");
+        Engine engine = new Engine(snapshotFile, logFile, 0);
+        engine.executeSQL("CREATE TABLE student (id, name)");
+        engine.executeSQL("INSERT INTO student VALUES (1, 'John Doe')");
+        engine.executeSQL("DELETE FROM student WHERE id = 1");
+        engine.executeSQL("INSERT INTO student VALUES (1, 'Jane Smith')");
+        // the snapshot is in place but the process dies before the log is reset
+        Snapshot.write(engine.getDatabase(), 0, snapshotFile);
+        engine.close();
+
+        Engine restarted = new Engine(snapshotFile, logFile, 0);
+        assertEquals("id\tname\n1\t'Jane Smith'\n", restarted.executeSQL("SELECT * FROM student"));
+        restarted.executeSQL("INSERT INTO student VALUES (2, 'Bob Lee')");
+        restarted.close();
+
+        Engine again = new Engine(snapshotFile, logFile, 0);
+        assertEquals("id\tname\n1\t'Jane Smith'\n2\t'Bob Lee'\n", again.executeSQL("SELECT * FROM student"));
+        again.close();
+    }
+
+    @Test
+    public void testRestoredTreeMapsMatchInsertedOnes() throws Exception {
+        Path snapshotFile = directory.resolve("smusql.snapshot");
+        Engine engine = new Engine(snapshotFile, directory.resolve("smusql.wal"), 0);
+        engine.executeSQL("CREATE TABLE product (id INT, category, price DOUBLE)");
+        for (int i = 0; i < 500; i++) {
+            engine.executeSQL("INSERT INTO product VALUES (" + i + ", 'category" + (i % 7) + "', " + (i % 50) + ".5)");
+        }
+        engine.checkpoint();
+        Table inserted = engine.getDatabase().getTable("product");
+        engine.close();
+
+        Database restored = new Database();
+        assertEquals(0, Snapshot.read(snapshotFile, restored)); // the generation of the log it replaced
+        Table table = restored.getTable("product");
+        assertEquals(inserted.getPrimaryKeyMap(), table.getPrimaryKeyMap());
+        for (String column : inserted.getColumns()) {
+            assertEquals(inserted.getColumnTreeMap(column), table.getColumnTreeMap(column));
+        }
+        assertEquals(ColumnType.DOUBLE, table.getColumnType("price"));
+        assertEquals(49.5, table.getColumnTreeMap("price").lastKey());
+    }
+
+    @Test
+    public void testSortedRunViews() {
+        SortedMap<Object, Object> run = new Snapshot.SortedRun<>(new Object[] { 1, 3, 5, 7 }, new Object[] { "a", "b", "c", "d" });
+
+        assertEquals(List.of(3, 5), List.copyOf(run.subMap(2, 7).keySet()));
+        assertEquals(List.of(1, 3), List.copyOf(run.headMap(5).keySet()));
+        assertEquals(List.of("c", "d"), List.copyOf(run.tailMap(4).values()));
+        assertEquals(5, run.subMap(3, 7).tailMap(5).firstKey());
+        assertEquals(3, run.subMap(3, 7).headMap(5).lastKey());
+        assertTrue(run.subMap(4, 5).isEmpty());
+        assertEquals(1, run.headMap(2).size());
+        assertThrows(IllegalArgumentException.class, () -> run.subMap(5, 3));
+    }
+
+    @Test
+    public void testRangeQueriesAfterRestore() throws Exception {
+        Path snapshotFile = directory.resolve("smusql.snapshot");
+        Path logFile = directory.resolve("smusql.wal");
+        Engine engine = new Engine(snapshotFile, logFile, 0);
+        engine.executeSQL("CREATE TABLE student (id, name, gpa)");
+        for (int i = 1; i <= 20; i++) {
+            engine.executeSQL("INSERT INTO student VALUES (" + i + ", 'Student " + i + "', " + (i % 5) + ".5)");
+        }
+        engine.checkpoint();
+        String query = "SELECT * FROM student WHERE gpa >= 3.5 AND id < 10";
+        String before = engine.executeSQL(query);
+        engine.close();
+
+        Engine restarted = new Engine(snapshotFile, logFile, 0);
+        assertEquals(before, restarted.executeSQL(query));
+        assertEquals("id\tname\tgpa\n3\t'Student 3'\t3.5\n4\t'Student 4'\t4.5\n8\t'Student 8'\t3.5\n9\t'Student 9'\t4.5\n", before);
+        restarted.close();
+    }
+}
@@ -85,6 +85,50 @@ public class UpdateTest {
         assertEquals(expected, engine.executeSQL(selectQuery));
     }
 
+    @Test
+    public void testUpdateWhereQuotedValueWithSpaces() {
+        // The quoted literal is a single token, spaces included
+        String updateQuery = "UPDATE student SET age = 30 WHERE name = 'John Doe'";
+        String result = engine.executeSQL(updateQuery);
+
+        assertEquals("Table student updated. 1 row(s) affected.", result);
+
+        String selectQuery = "SELECT * FROM student WHERE id = 1";
+        String expected = "id\tname\tgpa\tage\n" +
+                          "1\t'John Doe'\t3.5\t30\n";
+        assertEquals(expected, engine.executeSQL(selectQuery));
+    }
+
+    @Test
+    public void testUpdatePrimaryKeyMovesTheRow() {
+        assertEquals("Table student updated. 1 row(s) affected.",
+                engine.executeSQL("UPDATE student SET id = 99 WHERE id = 2"));
+
+        assertEquals("id\tname\tgpa\tage\n" + "99\t'Jane Smith'\t3.9\t19\n",
+                engine.executeSQL("SELECT * FROM student WHERE id = 99"));
+        assertEquals("id\tname\tgpa\tage\n", engine.executeSQL("SELECT * FROM student WHERE id = 2"));
+        assertEquals("id\tname\tgpa\tage\n" + "99\t'Jane Smith'\t3.9\t19\n",
+                engine.executeSQL("SELECT * FROM student WHERE age = 19"));
+        assertEquals("ERROR: Duplicate primary key: 99",
+                engine.executeSQL("INSERT INTO student VALUES (99, 'Amy Lee', 3.0, 18)"));
+        assertEquals("Row inserted into student", engine.executeSQL("INSERT INTO student VALUES (2, 'Amy Lee', 3.0, 18)"));
+    }
+
+    @Test
+    public void testUpdatePrimaryKeyToExistingKeyIsRejected() {
+        assertEquals("ERROR: Duplicate primary key: 3", engine.executeSQL("UPDATE student SET id = 3 WHERE id = 1"));
+        assertEquals("ERROR: Duplicate primary key: 7", engine.executeSQL("UPDATE student SET id = 7 WHERE age > 20"));
+        assertEquals("Table student updated. 1 row(s) affected.",
+                engine.executeSQL("UPDATE student SET id = 1 WHERE id = 1"));
+
+        String expected = "id\tname\tgpa\tage\n" +
+                          "1\t'John Doe'\t3.5\t20\n" +
+                          "2\t'Jane Smith'\t3.9\t19\n" +
+                          "3\t'Mark Davis'\t3.2\t21\n" +
+                          "4\t'Emma Wilson'\t3.8\t22\n";
+        assertEquals(expected, engine.executeSQL("SELECT * FROM student"));
+    }
+
     @Test
     public void testUpdateNonExistentColumn() {
         // Update a non-existent column
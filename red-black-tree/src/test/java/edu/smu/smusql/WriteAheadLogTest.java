@@ -0,0 +1,71 @@
+package edu.smu.smusql;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WriteAheadLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testRestartReplaysChanges() throws Exception {
+        Path logFile = directory.resolve("smusql.wal");
+        Engine engine = new Engine(logFile, 0);
+        engine.executeSQL("CREATE TABLE student (id, name, gpa)");
+        engine.executeSQL("INSERT INTO student VALUES (1, 'John Doe', 3.5)");
+        engine.executeSQL("INSERT INTO student VALUES (2, 'Jane Smith', 3.9)");
+        engine.executeSQL("UPDATE student SET gpa = 3.7 WHERE id = 1");
+        engine.executeSQL("DELETE FROM student WHERE id = 2");
+        engine.executeSQL("INSERT INTO missing VALUES (1)"); // fails, so it is not logged
+        String before = engine.executeSQL("SELECT * FROM student");
+        engine.close();
+
+        Engine restarted = new Engine(logFile, 0);
+        assertEquals(before, restarted.executeSQL("SELECT * FROM student"));
+        assertEquals("id\tname\tgpa\n1\t'John Doe'\t3.7\n", before);
+        restarted.close();
+    }
+
+    @Test
+    public void testTornRecordIsDiscarded() throws Exception {
+        Path logFile = directory.resolve("smusql.wal");
+        Engine engine = new Engine(logFile, 0);
+        engine.executeSQL("CREATE TABLE student (id, name)");
+        engine.executeSQL("INSERT INTO student VALUES (1, 'John Doe')");
+        engine.close();
+        long validLength = Files.size(logFile);
+
+        // a record whose header promises more bytes than were written before the crash
+        Files.write(logFile, new byte[] { 0, 0, 0, 100, 1, 2, 3, 4, 'I', 'N' }, StandardOpenOption.APPEND);
+
+        Engine restarted = new Engine(logFile, 0);
+        assertEquals(validLength, Files.size(logFile));
+        restarted.executeSQL("INSERT INTO student VALUES (2, 'Jane Smith')");
+        restarted.close();
+
+        Engine again = new Engine(logFile, 0);
+        assertEquals("id\tname\n1\t'John Doe'\n2\t'Jane Smith'\n", again.executeSQL("SELECT * FROM student"));
+        again.close();
+    }
+
+    @Test
+    public void testGroupCommitOnIntervalIsForcedOnClose() throws Exception {
+        Path logFile = directory.resolve("smusql.wal");
+        Engine engine = new Engine(logFile, 50);
+        engine.executeSQL("CREATE TABLE student (id, name)");
+        for (int i = 0; i < 1000; i++) {
+            engine.executeSQL("INSERT INTO student VALUES (" + i + ", 'Student " + i + "')");
+        }
+        engine.close();
+
+        Engine restarted = new Engine(logFile, 50);
+        assertEquals(1000, restarted.getDatabase().getTable("student").getPrimaryKeyMap().size());
+        restarted.close();
+    }
+}